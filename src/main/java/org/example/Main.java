@@ -1,17 +1,304 @@
 package org.example;
 
-//TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
-// click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Main - warm test daemon and its thin client.
+ * - "daemon": keeps one JVM with TestNG, Appium/Selenium and an open Appium session loaded; every request
+ *   runs through a fresh class loader over target/test-classes (recompiled tests are picked up) while the
+ *   libraries and the session stay warm (see commonLibs.utils.DaemonRunner)
+ * - "run <selector>...": submits test classes or methods ("LoginTests", "LoginTests#loginWithRegisteredUser")
+ *   and streams test output and results back; exit code 1 if a test failed
+ * - "status", "stop"
+ * - The daemon listens on loopback only; port and a random token are written to target/test-daemon.properties
+ *   and every request must carry the token
+ *
+ * Setup (once, and after dependency changes):
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ *   java -cp target/classes org.example.Main daemon
+ * Inner loop:
+ *   mvn -q test-compile && java -cp target/classes org.example.Main run LoginTests#loginWithRegisteredUser
+ *
+ * Uses the JDK only: the test dependencies are test-scoped and loaded at runtime from the classpath file.
+ */
 public class Main {
-    public static void main(String[] args) {
-        //TIP Press <shortcut actionId="ShowIntentionActions"/> with your caret at the highlighted text
-        // to see how IntelliJ IDEA suggests fixing it.
-        System.out.printf("Hello and welcome!");
 
-        for (int i = 1; i <= 5; i++) {
-            //TIP Press <shortcut actionId="Debug"/> to start debugging your code. We have set one <icon src="AllIcons.Debugger.Db_set_breakpoint"/> breakpoint
-            // for you, but you can always add more by pressing <shortcut actionId="ToggleLineBreakpoint"/>.
-            System.out.println("i = " + i);
+    private static final String STATE_FILE = "target/test-daemon.properties";
+    private static final String CLASSPATH_FILE = "target/test-classpath.txt";
+    private static final String RUNNER_CLASS = "commonLibs.utils.DaemonRunner";
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of(System.getProperty("user.dir"));
+        String command = args.length == 0 ? "help" : args[0];
+        switch (command) {
+            case "daemon" -> new Daemon(root).serve();
+            case "run", "status", "stop" -> System.exit(request(root, command, Arrays.copyOfRange(args, 1, args.length)));
+            default -> {
+                System.out.println("Usage: Main daemon | run <Class[#method]>... | status | stop");
+                System.exit(command.equals("help") ? 0 : 2);
+            }
+        }
+    }
+
+    /* ------------------------
+       Client
+       ------------------------ */
+
+    private static int request(Path root, String command, String[] args) throws IOException {
+        Path state = root.resolve(STATE_FILE);
+        if (!Files.exists(state)) {
+            System.err.println("No test daemon running (" + state + " not found); start it with: Main daemon");
+            return 2;
+        }
+        Properties p = new Properties();
+        try (BufferedReader r = Files.newBufferedReader(state)) {
+            p.load(r);
+        }
+        int port = Integer.parseInt(p.getProperty("port"));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            out.println(p.getProperty("token") + " " + command + (args.length == 0 ? "" : " " + String.join(" ", args)));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("END ")) return Integer.parseInt(line.substring(4).trim());
+                if (line.startsWith("OUT ")) System.out.println(line.substring(4));
+                else System.out.println(">> " + line);
+            }
+        } catch (java.net.ConnectException e) {
+            System.err.println("Test daemon not reachable on port " + port + "; start it with: Main daemon");
+            return 2;
+        }
+        System.err.println("Connection closed before the request finished");
+        return 2;
+    }
+
+    /* ------------------------
+       Daemon
+       ------------------------ */
+
+    private static final class Daemon {
+        private final Path root;
+        private final ReentrantLock runLock = new ReentrantLock();
+        private final String token = HexFormat.of().formatHex(randomBytes(16));
+        private ClassLoader libraries;
+        private Object session; // AndroidDriver of the last run, typed loosely: it lives in the library loader
+        private int runs;
+        private volatile boolean stopping;
+
+        Daemon(Path root) {
+            this.root = root;
+        }
+
+        private static byte[] randomBytes(int n) {
+            byte[] b = new byte[n];
+            new SecureRandom().nextBytes(b);
+            return b;
+        }
+
+        void serve() throws Exception {
+            libraries = new URLClassLoader("test-libraries", libraryUrls(), ClassLoader.getPlatformClassLoader());
+            // load the heavy framework classes once, before the first request
+            for (String c : List.of("org.testng.TestNG", "io.appium.java_client.android.AndroidDriver",
+                    "com.aventstack.extentreports.ExtentReports")) {
+                Class.forName(c, true, libraries);
+            }
+            int port = Integer.parseInt(System.getProperty("daemon.port", "0"));
+            try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+                writeState(server.getLocalPort());
+                System.out.println("Test daemon listening on 127.0.0.1:" + server.getLocalPort());
+                while (!stopping) {
+                    Socket socket = server.accept();
+                    Thread.ofVirtual().name("daemon-request").start(() -> handle(socket, server));
+                }
+            } catch (IOException e) {
+                if (!stopping) throw e;
+            } finally {
+                Files.deleteIfExists(root.resolve(STATE_FILE));
+                quitSession();
+            }
+        }
+
+        private void handle(Socket socket, ServerSocket server) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                String line = in.readLine();
+                String[] parts = line == null ? new String[0] : line.trim().split("\\s+");
+                if (parts.length < 2 || !parts[0].equals(token)) {
+                    out.println("ERROR unauthorized");
+                    out.println("END 2");
+                    return;
+                }
+                switch (parts[1]) {
+                    case "status" -> {
+                        out.println("OK runs=" + runs + " busy=" + runLock.isLocked() + " session=" + (session != null));
+                        out.println("END 0");
+                    }
+                    case "stop" -> {
+                        stopping = true;
+                        out.println("OK stopping");
+                        out.println("END 0");
+                        server.close();
+                    }
+                    case "run" -> {
+                        List<String> selectors = Arrays.asList(parts).subList(2, parts.length);
+                        if (selectors.isEmpty()) {
+                            out.println("ERROR no test selected");
+                            out.println("END 2");
+                            return;
+                        }
+                        if (runLock.isLocked()) out.println("INFO waiting for the running request");
+                        runLock.lock();
+                        try {
+                            out.println("END " + runTests(selectors, out));
+                        } finally {
+                            runLock.unlock();
+                        }
+                    }
+                    default -> {
+                        out.println("ERROR unknown command " + parts[1]);
+                        out.println("END 2");
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Daemon request failed: " + e.getMessage());
+            }
+        }
+
+        /** One request: fresh loader over the compiled tests, warm libraries and session. */
+        @SuppressWarnings("unchecked")
+        private int runTests(List<String> selectors, PrintWriter client) {
+            long start = System.currentTimeMillis();
+            PrintStream stdout = System.out;
+            PrintStream stderr = System.err;
+            Consumer<String> events = line -> {
+                synchronized (client) {
+                    client.println(line);
+                }
+            };
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            try {
+                // not closed: the kept session may still load classes (e.g. its command executor) from it
+                URLClassLoader tests = new URLClassLoader("tests-" + (runs + 1), testUrls(), libraries);
+                System.setOut(new PrintStream(new LineTee(stdout, events), true, StandardCharsets.UTF_8));
+                System.setErr(new PrintStream(new LineTee(stderr, events), true, StandardCharsets.UTF_8));
+                Thread.currentThread().setContextClassLoader(tests);
+                Method run = Class.forName(RUNNER_CLASS, true, tests)
+                        .getMethod("run", List.class, Consumer.class, Object.class);
+                Map<String, Object> result = (Map<String, Object>) run.invoke(null, selectors, events, session);
+                session = result.get("session");
+                runs++;
+                stdout.println("Daemon run " + runs + " " + selectors + " in " + (System.currentTimeMillis() - start) + " ms");
+                return ((Number) result.get("failed")).intValue() > 0 ? 1 : 0;
+            } catch (Exception e) {
+                Throwable cause = e instanceof java.lang.reflect.InvocationTargetException ite ? ite.getCause() : e;
+                events.accept("ERROR " + cause);
+                return 2;
+            } finally {
+                System.setOut(stdout);
+                System.setErr(stderr);
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+        }
+
+        private void quitSession() {
+            if (session == null) return;
+            try {
+                session.getClass().getMethod("quit").invoke(session);
+            } catch (Exception e) {
+                System.err.println("Quitting the warm session failed: " + e.getMessage());
+            }
+            session = null;
+        }
+
+        /* ---------------------- helper methods ---------------------- */
+
+        private URL[] libraryUrls() throws IOException {
+            Path file = root.resolve(CLASSPATH_FILE);
+            if (!Files.exists(file)) {
+                throw new IOException(file + " not found; create it with: mvn -q test-compile dependency:build-classpath"
+                        + " -Dmdep.outputFile=" + CLASSPATH_FILE + " -Dmdep.includeScope=test");
+            }
+            List<URL> urls = new ArrayList<>();
+            for (String entry : Files.readString(file).trim().split(File.pathSeparator)) {
+                if (!entry.isBlank()) urls.add(Path.of(entry.trim()).toUri().toURL());
+            }
+            return urls.toArray(new URL[0]);
+        }
+
+        private URL[] testUrls() throws IOException {
+            return new URL[]{
+                    root.resolve("target/test-classes").toUri().toURL(),
+                    root.resolve("target/classes").toUri().toURL()
+            };
+        }
+
+        private void writeState(int port) throws IOException {
+            Path state = root.resolve(STATE_FILE);
+            Files.createDirectories(state.getParent());
+            Properties p = new Properties();
+            p.setProperty("port", String.valueOf(port));
+            p.setProperty("token", token);
+            p.setProperty("pid", String.valueOf(ProcessHandle.current().pid()));
+            try (var w = Files.newBufferedWriter(state)) {
+                p.store(w, "Test daemon (org.example.Main); removed when the daemon stops");
+            }
+            state.toFile().setReadable(false, false);
+            state.toFile().setReadable(true, true);
+        }
+    }
+
+    /** Copies output to the daemon console and sends each complete line to the client as "OUT <line>". */
+    private static final class LineTee extends OutputStream {
+        private final PrintStream console;
+        private final Consumer<String> client;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineTee(PrintStream console, Consumer<String> client) {
+            this.console = console;
+            this.client = client;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            console.write(b);
+            if (b == '\n') {
+                client.accept("OUT " + line.toString(StandardCharsets.UTF_8));
+                line.reset();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) write(b[i]);
         }
     }
-}
\ No newline at end of file
+}
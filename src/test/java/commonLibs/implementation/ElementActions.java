@@ -1,5 +1,7 @@
 package commonLibs.implementation;
 
+import commonLibs.utils.Tracer;
+import commonLibs.utils.UiStabilityDetector;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.By;
@@ -22,6 +24,8 @@ public class ElementActions {
     private final AndroidDriver driver;
     private final WebDriverWait wait;
     private final long defaultTimeoutSeconds;
+    private final UiStabilityDetector stabilityDetector; // null when stability sync is disabled
+    private final TextInput textInput; // null when fast text input is disabled
 
     public ElementActions(AndroidDriver driver) {
         this(driver, 20);
@@ -31,6 +35,8 @@ public class ElementActions {
         this.driver = driver;
         this.defaultTimeoutSeconds = defaultTimeoutSeconds;
         this.wait = new WebDriverWait(driver, Duration.ofSeconds(defaultTimeoutSeconds));
+        this.stabilityDetector = UiStabilityDetector.isEnabled() ? new UiStabilityDetector(driver) : null;
+        this.textInput = TextInput.isEnabled() ? new TextInput(driver) : null;
     }
 
     /* ------------------------
@@ -48,22 +54,31 @@ public class ElementActions {
      */
 
     public void clickByResourceId(String resourceId) {
-        By locator = AppiumBy.androidUIAutomator(
-                "new UiSelector().resourceId(\"" + resourceId + "\")"
-        );
-        waitUntilClickable(locator).click();
+        try (Tracer.Span span = Tracer.action("element", "clickByResourceId", resourceId)) {
+            By locator = AppiumBy.androidUIAutomator(
+                    "new UiSelector().resourceId(\"" + resourceId + "\")"
+            );
+            waitUntilClickable(locator).click();
+        }
     }
 
     /**
      * Set text using resource-id (By.id).
+     * With text.input.enabled the fastest verified method for this field is used (see TextInput).
      */
     public void setTextByResourceId(String resourceId, String text) {
-        By locator = AppiumBy.androidUIAutomator(
-                "new UiSelector().resourceId(\"" + resourceId + "\")"
-        );
-        WebElement el = waitUntilVisible(locator);
-        el.clear();
-        el.sendKeys(text);
+        try (Tracer.Span span = Tracer.action("element", "setTextByResourceId", resourceId)) {
+            By locator = AppiumBy.androidUIAutomator(
+                    "new UiSelector().resourceId(\"" + resourceId + "\")"
+            );
+            WebElement el = waitUntilVisible(locator);
+            if (textInput != null) {
+                textInput.enter(resourceId, el, text);
+                return;
+            }
+            el.clear();
+            el.sendKeys(text);
+        }
     }
 
     /* ------------------------
@@ -74,45 +89,68 @@ public class ElementActions {
      * Click element by exact visible text (fallback).
      */
     public void clickByText(String visibleText) {
-        By locator = AppiumBy.androidUIAutomator(
-                "new UiSelector().text(\"" + escapeForUiSelector(visibleText) + "\")");
-        waitUntilClickable(locator).click();
+        try (Tracer.Span span = Tracer.action("element", "clickByText", visibleText)) {
+            By locator = AppiumBy.androidUIAutomator(
+                    "new UiSelector().text(\"" + escapeForUiSelector(visibleText) + "\")");
+            waitUntilClickable(locator).click();
+        }
     }
 
     public List<WebElement> getElementsByDescription(String description) {
-        By locator = AppiumBy.androidUIAutomator(
-                "new UiSelector().description(\"" + escapeForUiSelector(description) + "\")");
-        waitUntilPresence(locator);
-        return driver.findElements(locator);
+        try (Tracer.Span span = Tracer.action("element", "getElementsByDescription", description)) {
+            By locator = AppiumBy.androidUIAutomator(
+                    "new UiSelector().description(\"" + escapeForUiSelector(description) + "\")");
+            waitUntilPresence(locator);
+            return driver.findElements(locator);
+        }
     }
 
 
 
     public void assertViewByText(String text) {
-        By locator = AppiumBy.androidUIAutomator(
-                "new UiSelector().text(\"" + text + "\")"
-        );
-        WebElement element = driver.findElement(locator);
-        Assert.assertTrue(element.isDisplayed(), "Element with text '" + text + "' not displayed!");
+        try (Tracer.Span span = Tracer.action("element", "assertViewByText", text)) {
+            By locator = AppiumBy.androidUIAutomator(
+                    "new UiSelector().text(\"" + text + "\")"
+            );
+            WebElement element = driver.findElement(locator);
+            Assert.assertTrue(element.isDisplayed(), "Element with text '" + text + "' not displayed!");
+        }
     }
 
     public WebElement viewByResourceId(String resourceId, int timeoutSeconds) {
-        By locator = AppiumBy.androidUIAutomator(
-                "new UiSelector().resourceId(\"" + resourceId + "\")"
-        );
-
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        try (Tracer.Span span = Tracer.action("element", "viewByResourceId", resourceId)) {
+            By locator = AppiumBy.androidUIAutomator(
+                    "new UiSelector().resourceId(\"" + resourceId + "\")"
+            );
+
+            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
+            return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        }
     }
     /* ------------------------
        Wait helpers (no hard sleeps)
        ------------------------ */
 
+    /**
+     * Wait until the hierarchy stops changing (ignores volatile regions). No-op when stability sync is disabled.
+     */
+    public void waitForStableScreen() {
+        if (stabilityDetector == null) return;
+        try (Tracer.Span span = Tracer.action("element", "waitForStableScreen", null)) {
+            if (!stabilityDetector.waitForStableScreen()) {
+                span.arg("settled", false);
+                System.out.println("Screen did not settle within stability timeout; continuing with element wait.");
+            }
+        }
+    }
+
     private WebElement waitUntilVisible(By locator) {
+        waitForStableScreen();
         return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
     }
 
     private WebElement waitUntilClickable(By locator) {
+        waitForStableScreen();
         return wait.until(ExpectedConditions.elementToBeClickable(locator));
     }
 
@@ -0,0 +1,330 @@
+package commonLibs.implementation;
+
+import commonLibs.utils.Checkpoints;
+import commonLibs.utils.ConfigReader;
+import commonLibs.utils.NetworkProxy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.driverscripts.ScriptOptions;
+import io.appium.java_client.driverscripts.ScriptType;
+import io.appium.java_client.driverscripts.ScriptValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * FlowCompiler - runs a declared page-object flow on the Appium server in as few round trips as possible.
+ * - A flow is a list of steps (click by text, enter text, assert text) plus checkpoints; every step
+ *   carries the page-object call that performs it the usual way
+ * - Runs of clicks and asserts are compiled into one WebdriverIO script for executeDriverScript, which
+ *   runs next to the device and returns per-step results and timings
+ * - Text entry always runs through its page-object call, so TextInput picks the input method and no
+ *   typed value (passwords included) ever becomes part of a script; execute-driver has no script
+ *   arguments to pass them separately. A flow with text entry takes one script call before and one
+ *   after it
+ * - A click that navigates names its screen; while a NetworkProxy runs, the script is cut before each
+ *   such click and the screen is tagged before the next call, so traffic is still attributed per screen
+ * - Steps that passed on the device are recorded through Checkpoints with their on-device duration;
+ *   from the first failed step on the flow continues step by step with the page-object calls
+ * - If the server cannot run driver scripts (execute-driver plugin missing) the whole flow runs step
+ *   by step, and compiling is switched off for the rest of the JVM
+ * - Checkpoints keep working: a retry resumed from a checkpoint compiles only the steps after it
+ *
+ * Usage:
+ *   login.loginFlow(email, password)
+ *        .assertText("verify logged in", email, () -> accountScreen.verifyUserLoggedIn(email))
+ *        .run(driver);
+ *
+ * Config (config.properties):
+ *   flow.compiler.enabled=false
+ *   flow.script.timeout.ms=120000
+ *   flow.step.timeout.ms=20000
+ */
+public class FlowCompiler {
+
+    private static volatile boolean serverUnsupported;
+
+    private FlowCompiler() {}
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("flow.compiler.enabled", "false")) && !serverUnsupported;
+    }
+
+    public static Flow flow(String name) {
+        return new Flow(name);
+    }
+
+    /** Outcome of one step; onDevice is false when it ran step by step through the page object. */
+    public record StepResult(String name, boolean passed, long durationMs, boolean onDevice, String error) {}
+
+    /** Outcome of a flow run; roundTrips counts driver script calls (0 when nothing was compiled). */
+    public record FlowResult(String flow, List<StepResult> steps, int roundTrips, long totalMs) {
+
+        public long onDeviceSteps() {
+            return steps.stream().filter(StepResult::onDevice).count();
+        }
+
+        public String describe() {
+            return "Flow '" + flow + "': " + steps.size() + " steps in " + totalMs + " ms, "
+                    + onDeviceSteps() + " on device with " + roundTrips + " script call(s)";
+        }
+    }
+
+    /* ------------------------
+       Flow declaration
+       ------------------------ */
+
+    private enum Op { CLICK_TEXT, SET_TEXT, ASSERT_TEXT }
+
+    private record Entry(String name, Op op, String target, String screen, Runnable fallback, BooleanSupplier restore) {
+        boolean isCheckpoint() {
+            return op == null;
+        }
+
+        /** Text entry and checkpoints are never part of a script. */
+        boolean runsOnDevice() {
+            return op == Op.CLICK_TEXT || op == Op.ASSERT_TEXT;
+        }
+    }
+
+    public static final class Flow {
+        private final String name;
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Flow(String name) {
+            this.name = name;
+        }
+
+        /** Click the element with this exact visible text. */
+        public Flow clickText(String step, String text, Runnable fallback) {
+            return clickText(step, text, null, fallback);
+        }
+
+        /** Click that navigates to a screen; the network proxy tags the screen before the click runs. */
+        public Flow clickText(String step, String text, String screen, Runnable fallback) {
+            entries.add(new Entry(step, Op.CLICK_TEXT, text, screen, fallback, null));
+            return this;
+        }
+
+        /** Enter text through the page object (and TextInput); never compiled into a script. */
+        public Flow setText(String step, Runnable fallback) {
+            entries.add(new Entry(step, Op.SET_TEXT, null, null, fallback, null));
+            return this;
+        }
+
+        /** Wait until an element with this exact visible text is displayed. */
+        public Flow assertText(String step, String text, Runnable fallback) {
+            entries.add(new Entry(step, Op.ASSERT_TEXT, text, null, fallback, null));
+            return this;
+        }
+
+        /** Restorable state reached after the preceding steps (see Checkpoints.checkpoint). */
+        public Flow checkpoint(String checkpoint, BooleanSupplier restore) {
+            entries.add(new Entry(checkpoint, null, null, null, null, restore));
+            return this;
+        }
+
+        public FlowResult run(AndroidDriver driver) {
+            return new Execution(this, driver).run();
+        }
+
+        /** The WebdriverIO script of the first script call of this flow (for logging / debugging). */
+        public String compile() {
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).runsOnDevice()) {
+                    return FlowCompiler.compile(entries, i, segmentEnd(entries, i), stepTimeoutMs());
+                }
+            }
+            return FlowCompiler.compile(entries, 0, 0, stepTimeoutMs());
+        }
+    }
+
+    /* ------------------------
+       Execution
+       ------------------------ */
+
+    private static final class Execution {
+        private final Flow flow;
+        private final AndroidDriver driver;
+        private final List<StepResult> results = new ArrayList<>();
+        private Map<Integer, StepResult> deviceResults; // entry index -> result of the current script call
+        private int segmentEnd; // entries before this index were part of a script call
+        private boolean stepByStep = !isEnabled();
+        private int roundTrips;
+
+        Execution(Flow flow, AndroidDriver driver) {
+            this.flow = flow;
+            this.driver = driver;
+        }
+
+        FlowResult run() {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < flow.entries.size(); i++) {
+                Entry e = flow.entries.get(i);
+                if (e.isCheckpoint()) {
+                    Checkpoints.checkpoint(e.name(), e.restore());
+                } else {
+                    int index = i;
+                    Checkpoints.timedStep(e.name(), () -> runStep(index));
+                }
+            }
+            FlowResult result = new FlowResult(flow.name, List.copyOf(results), roundTrips, System.currentTimeMillis() - start);
+            System.out.println(result.describe());
+            return result;
+        }
+
+        /** Runs (or picks up the device result of) one step; returns the duration to record. */
+        private long runStep(int index) {
+            Entry e = flow.entries.get(index);
+            if (!stepByStep && e.runsOnDevice()) {
+                // the first step past the last script call (e.g. after a checkpoint resume or text entry)
+                // compiles everything up to the next step that has to run here
+                if (index >= segmentEnd) deviceResults = runOnDevice(index);
+                StepResult r = deviceResults == null ? null : deviceResults.get(index);
+                if (r != null && r.passed()) {
+                    results.add(r);
+                    return r.durationMs();
+                }
+                stepByStep = true;
+                if (r != null) {
+                    System.out.println("Flow '" + flow.name + "': step '" + e.name() + "' failed on device ("
+                            + r.error() + "); continuing step by step");
+                }
+            }
+            long start = System.currentTimeMillis();
+            try {
+                e.fallback().run();
+            } catch (RuntimeException | Error ex) {
+                results.add(new StepResult(e.name(), false, System.currentTimeMillis() - start, false, ex.getMessage()));
+                throw ex;
+            }
+            long took = System.currentTimeMillis() - start;
+            results.add(new StepResult(e.name(), true, took, false, null));
+            return took;
+        }
+
+        /** One executeDriverScript call for entries from..segmentEnd; null if the script could not run at all. */
+        private Map<Integer, StepResult> runOnDevice(int from) {
+            segmentEnd = segmentEnd(flow.entries, from);
+            String screen = flow.entries.get(from).screen();
+            if (screen != null) NetworkProxy.screen(screen);
+            String script = compile(flow.entries, from, segmentEnd, stepTimeoutMs());
+            ScriptOptions options = new ScriptOptions()
+                    .withScriptType(ScriptType.WEBDRIVERIO)
+                    .withTimeout(Long.parseLong(ConfigReader.get("flow.script.timeout.ms", "120000")));
+            ScriptValue value;
+            try {
+                roundTrips++;
+                value = driver.executeDriverScript(script, options);
+            } catch (RuntimeException ex) {
+                String msg = String.valueOf(ex.getMessage());
+                if (msg.contains("execute-driver") || msg.contains("not yet implemented") || msg.contains("unknown command")) {
+                    serverUnsupported = true;
+                    System.out.println("Appium server cannot run driver scripts; flows run step by step from now on");
+                } else {
+                    System.out.println("Flow '" + flow.name + "' script failed (" + msg + "); running step by step");
+                }
+                return null;
+            }
+            return parseResults(value.getResult());
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static long stepTimeoutMs() {
+        return Long.parseLong(ConfigReader.get("flow.step.timeout.ms", "20000"));
+    }
+
+    /**
+     * End (exclusive) of the script call that starts at from: the next text entry, or with a network
+     * proxy running the next click that navigates to another screen.
+     */
+    private static int segmentEnd(List<Entry> entries, int from) {
+        boolean perScreen = NetworkProxy.isRunning();
+        for (int i = from; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            if (e.op() == Op.SET_TEXT) return i;
+            if (perScreen && i > from && e.screen() != null) return i;
+        }
+        return entries.size();
+    }
+
+    /**
+     * Steps run in order and stop at the first failure; each result is {i, name, passed, ms, error}.
+     * Selectors mirror ElementActions (UiSelector text).
+     */
+    private static String compile(List<Entry> entries, int from, int end, long stepTimeoutMs) {
+        StringBuilder steps = new StringBuilder("[");
+        for (int i = from; i < end; i++) {
+            Entry e = entries.get(i);
+            if (!e.runsOnDevice()) continue;
+            String selector = "android=new UiSelector().text(\"" + escapeForUiSelector(e.target()) + "\")";
+            if (steps.length() > 1) steps.append(',');
+            steps.append("{i:").append(i)
+                    .append(",name:").append(jsString(e.name()))
+                    .append(",op:").append(jsString(e.op().name()))
+                    .append(",selector:").append(jsString(selector))
+                    .append('}');
+        }
+        steps.append(']');
+        return "const steps = " + steps + ";\n"
+                + "const timeout = " + stepTimeoutMs + ";\n"
+                + "const results = [];\n"
+                + "for (const s of steps) {\n"
+                + "  const start = Date.now();\n"
+                + "  try {\n"
+                + "    const el = await driver.$(s.selector);\n"
+                + "    await el.waitForDisplayed({ timeout });\n"
+                + "    if (s.op === 'CLICK_TEXT') await el.click();\n"
+                + "    results.push({ i: s.i, name: s.name, passed: true, ms: Date.now() - start });\n"
+                + "  } catch (e) {\n"
+                + "    results.push({ i: s.i, name: s.name, passed: false, ms: Date.now() - start, error: String(e && e.message || e) });\n"
+                + "    break;\n"
+                + "  }\n"
+                + "}\n"
+                + "return results;\n";
+    }
+
+    private static Map<Integer, StepResult> parseResults(Object raw) {
+        Map<Integer, StepResult> byIndex = new HashMap<>();
+        if (!(raw instanceof List<?> list)) return byIndex;
+        for (Object o : list) {
+            if (!(o instanceof Map<?, ?> m)) continue;
+            int index = ((Number) m.get("i")).intValue();
+            boolean passed = Boolean.TRUE.equals(m.get("passed"));
+            long ms = m.get("ms") instanceof Number n ? n.longValue() : 0;
+            Object error = m.get("error");
+            byIndex.put(index, new StepResult(String.valueOf(m.get("name")), passed, ms, true,
+                    error == null ? null : error.toString()));
+        }
+        return byIndex;
+    }
+
+    /** JavaScript string literal; non-ASCII (umlauts, ß) as \\u escapes so the payload encoding never matters. */
+    private static String jsString(String raw) {
+        StringBuilder sb = new StringBuilder(raw.length() + 2).append('"');
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String escapeForUiSelector(String raw) {
+        if (raw == null) return "";
+        return raw.replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,246 @@
+package commonLibs.implementation;
+
+import commonLibs.utils.ConfigReader;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.nativekey.AndroidKey;
+import io.appium.java_client.android.nativekey.KeyEvent;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TextInput - fast, verified text entry for form fields.
+ * - Methods, fastest first: REPLACE_VALUE (mobile: replaceElementValue, one call, sets the value directly),
+ *   MOBILE_TYPE (mobile: type), PASTE (clipboard + paste key) and SEND_KEYS (clear + sendKeys, the old path)
+ * - MOBILE_TYPE and PASTE go to whatever field has focus (UiAutomator2 ignores an elementId for
+ *   mobile: type), so they click the field first; the text is then read back from that field
+ * - After entering, the field text is read back and compared (Unicode NFC, so umlauts and ß compare
+ *   equal however they were composed); password fields are checked by length because they are masked
+ * - The first method that lands the right text is remembered per resource-id and tried first next time;
+ *   the choice is saved to a small properties file so later runs start with it
+ * - A method the server does not support is skipped for the rest of the JVM
+ * - PASTE is never used for password fields, so a password is not left on the shared device clipboard
+ *
+ * Config (config.properties):
+ *   text.input.enabled=false
+ *   text.input.memory.file=target/input-methods.properties
+ */
+public class TextInput {
+
+    public enum Method { REPLACE_VALUE, MOBILE_TYPE, PASTE, SEND_KEYS }
+
+    private static final Map<String, Method> REMEMBERED = new ConcurrentHashMap<>();
+    private static final Map<String, Boolean> MASKED = new ConcurrentHashMap<>();
+    private static final Set<Method> UNSUPPORTED = ConcurrentHashMap.newKeySet();
+    private static volatile boolean loaded;
+
+    private final AndroidDriver driver;
+
+    public TextInput(AndroidDriver driver) {
+        this.driver = driver;
+        loadRemembered();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("text.input.enabled", "false"));
+    }
+
+    /** Method remembered for this resource-id, or null if none worked yet. */
+    public static Method rememberedFor(String resourceId) {
+        return REMEMBERED.get(resourceId);
+    }
+
+    /**
+     * Replace the text of a visible field. Tries the remembered method first, then the others in speed order.
+     * @return the method that worked
+     */
+    public Method enter(String resourceId, WebElement field, String text) {
+        String expected = text == null ? "" : text;
+        boolean masked = MASKED.computeIfAbsent(resourceId, id -> isPasswordField(field));
+        List<String> failures = new ArrayList<>();
+        for (Method method : candidates(resourceId, masked)) {
+            long start = System.currentTimeMillis();
+            try {
+                apply(method, field, expected);
+            } catch (UnsupportedCommandException e) {
+                markUnsupported(method, e);
+                continue;
+            } catch (WebDriverException e) {
+                if (looksUnsupported(e)) {
+                    markUnsupported(method, e);
+                } else {
+                    failures.add(method + ": " + firstLine(e.getMessage()));
+                }
+                continue;
+            }
+            if (landed(method, field, expected, masked)) {
+                if (REMEMBERED.put(resourceId, method) != method) saveRemembered();
+                System.out.println("Text input '" + resourceId + "' via " + method + " in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                return method;
+            }
+            failures.add(method + ": field shows '" + (masked ? "<masked>" : safeText(field)) + "'");
+            if (REMEMBERED.get(resourceId) == method) REMEMBERED.remove(resourceId);
+        }
+        throw new IllegalStateException("Could not enter text into '" + resourceId + "': " + String.join("; ", failures));
+    }
+
+    /* ------------------------
+       Input methods
+       ------------------------ */
+
+    private void apply(Method method, WebElement field, String text) {
+        switch (method) {
+            case REPLACE_VALUE -> driver.executeScript("mobile: replaceElementValue",
+                    Map.of("elementId", elementId(field), "text", text));
+            case MOBILE_TYPE -> {
+                field.clear();
+                field.click(); // types into the focused field
+                driver.executeScript("mobile: type", Map.of("text", text));
+            }
+            case PASTE -> {
+                driver.setClipboardText(text);
+                field.clear();
+                field.click();
+                driver.pressKey(new KeyEvent(AndroidKey.PASTE));
+            }
+            case SEND_KEYS -> {
+                field.clear();
+                field.sendKeys(text);
+            }
+        }
+    }
+
+    private List<Method> candidates(String resourceId, boolean masked) {
+        List<Method> order = new ArrayList<>();
+        Method remembered = REMEMBERED.get(resourceId);
+        if (remembered != null && usable(remembered, masked)) order.add(remembered);
+        for (Method m : Method.values()) {
+            if (m != remembered && usable(m, masked)) order.add(m);
+        }
+        return order;
+    }
+
+    private static boolean usable(Method method, boolean masked) {
+        // the clipboard is readable by every app on the device; keep passwords off it
+        return !UNSUPPORTED.contains(method) && !(masked && method == Method.PASTE);
+    }
+
+    /* ------------------------
+       Verification
+       ------------------------ */
+
+    private static boolean landed(Method method, WebElement field, String expected, boolean masked) {
+        String actual = safeText(field);
+        if (masked) {
+            // masked as one bullet per character; a field that reports nothing cannot be verified, so only
+            // the plain sendKeys path is trusted there
+            if (actual.isEmpty()) return method == Method.SEND_KEYS || expected.isEmpty();
+            return actual.codePointCount(0, actual.length()) == expected.codePointCount(0, expected.length());
+        }
+        return normalize(actual).equals(normalize(expected));
+    }
+
+    private static boolean isPasswordField(WebElement field) {
+        try {
+            return "true".equals(field.getAttribute("password"));
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private static String normalize(String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFC);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static String elementId(WebElement field) {
+        if (field instanceof RemoteWebElement remote) return remote.getId();
+        throw new UnsupportedCommandException("Element has no remote id: " + field);
+    }
+
+    private static String safeText(WebElement field) {
+        try {
+            String t = field.getText();
+            return t == null ? "" : t;
+        } catch (WebDriverException e) {
+            return "";
+        }
+    }
+
+    private static boolean looksUnsupported(WebDriverException e) {
+        String msg = String.valueOf(e.getMessage()).toLowerCase();
+        return msg.contains("unknown mobile command") || msg.contains("not supported") || msg.contains("not yet implemented")
+                || msg.contains("unknown command");
+    }
+
+    private static void markUnsupported(Method method, Exception e) {
+        if (UNSUPPORTED.add(method)) {
+            System.out.println("Text input method " + method + " not supported by the server: " + firstLine(e.getMessage()));
+        }
+    }
+
+    private static String firstLine(String msg) {
+        if (msg == null) return "";
+        int nl = msg.indexOf('\n');
+        return nl < 0 ? msg : msg.substring(0, nl);
+    }
+
+    private static File memoryFile() {
+        String path = ConfigReader.get("text.input.memory.file", "target/input-methods.properties");
+        return new File(path).isAbsolute() ? new File(path) : new File(System.getProperty("user.dir"), path);
+    }
+
+    private static synchronized void loadRemembered() {
+        if (loaded) return;
+        loaded = true;
+        File f = memoryFile();
+        if (!f.isFile()) return;
+        Properties p = new Properties();
+        try (InputStream in = new FileInputStream(f)) {
+            p.load(in);
+        } catch (IOException e) {
+            System.err.println("Could not read " + f + ": " + e.getMessage());
+            return;
+        }
+        for (String id : p.stringPropertyNames()) {
+            try {
+                REMEMBERED.put(id, Method.valueOf(p.getProperty(id).trim()));
+            } catch (IllegalArgumentException ignored) {
+                // method renamed or removed; it will be learned again
+            }
+        }
+    }
+
+    private static synchronized void saveRemembered() {
+        Properties p = new Properties();
+        REMEMBERED.forEach((id, m) -> p.setProperty(id, m.name()));
+        File f = memoryFile();
+        File parent = f.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            System.err.println("Could not create " + parent);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(f)) {
+            p.store(out, "Text input method that worked per resource-id (see TextInput)");
+        } catch (IOException e) {
+            System.err.println("Could not write " + f + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package commonLibs.implementation;
 
+import commonLibs.utils.Tracer;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.Point;
@@ -17,6 +18,7 @@ import java.util.Collections;
  *  - tap
  *  - longPress
  *  - swipeUp / swipeDown
+ *  - flingUp / flingDown (fast swipe that leaves the list scrolling)
  */
 public class TouchGestures {
 
@@ -30,46 +32,77 @@ public class TouchGestures {
        1. Tap
        ------------------------ */
     public void tap(WebElement element) {
-        Point center = getCenter(element);
-        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
-        Sequence tap = new Sequence(finger, 1);
-        tap.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), center.x, center.y));
-        tap.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
-        tap.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
-        driver.perform(Collections.singletonList(tap));
+        try (Tracer.Span span = Tracer.action("gesture", "tap", null)) {
+            Point center = getCenter(element);
+            PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+            Sequence tap = new Sequence(finger, 1);
+            tap.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), center.x, center.y));
+            tap.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            tap.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+            driver.perform(Collections.singletonList(tap));
+        }
     }
 
     /* ------------------------
        2. Long Press
        ------------------------ */
     public void longPress(WebElement element, int durationMs) {
-        Point center = getCenter(element);
-        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
-        Sequence longPress = new Sequence(finger, 1);
-        longPress.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), center.x, center.y));
-        longPress.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
-        longPress.addAction(new Pause(finger, Duration.ofMillis(durationMs)));
-        longPress.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
-        driver.perform(Collections.singletonList(longPress));
+        try (Tracer.Span span = Tracer.action("gesture", "longPress", durationMs + " ms")) {
+            Point center = getCenter(element);
+            PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+            Sequence longPress = new Sequence(finger, 1);
+            longPress.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), center.x, center.y));
+            longPress.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            longPress.addAction(new Pause(finger, Duration.ofMillis(durationMs)));
+            longPress.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+            driver.perform(Collections.singletonList(longPress));
+        }
     }
 
     /* ------------------------
        3. Swipe Up / Down
        ------------------------ */
     public void swipeUp() {
-        Dimension size = driver.manage().window().getSize();
-        int startX = size.width / 2;
-        int startY = (int) (size.height * 0.8);
-        int endY = (int) (size.height * 0.2);
-        performSwipe(startX, startY, startX, endY, 800);
+        try (Tracer.Span span = Tracer.action("gesture", "swipeUp", null)) {
+            Dimension size = driver.manage().window().getSize();
+            int startX = size.width / 2;
+            int startY = (int) (size.height * 0.8);
+            int endY = (int) (size.height * 0.2);
+            performSwipe(startX, startY, startX, endY, 800);
+        }
     }
 
     public void swipeDown() {
-        Dimension size = driver.manage().window().getSize();
-        int startX = size.width / 2;
-        int startY = (int) (size.height * 0.2);
-        int endY = (int) (size.height * 0.8);
-        performSwipe(startX, startY, startX, endY, 800);
+        try (Tracer.Span span = Tracer.action("gesture", "swipeDown", null)) {
+            Dimension size = driver.manage().window().getSize();
+            int startX = size.width / 2;
+            int startY = (int) (size.height * 0.2);
+            int endY = (int) (size.height * 0.8);
+            performSwipe(startX, startY, startX, endY, 800);
+        }
+    }
+
+    /* ------------------------
+       4. Fling Up / Down
+       ------------------------ */
+    public void flingUp() {
+        try (Tracer.Span span = Tracer.action("gesture", "flingUp", null)) {
+            Dimension size = driver.manage().window().getSize();
+            int startX = size.width / 2;
+            int startY = (int) (size.height * 0.75);
+            int endY = (int) (size.height * 0.25);
+            performSwipe(startX, startY, startX, endY, 150);
+        }
+    }
+
+    public void flingDown() {
+        try (Tracer.Span span = Tracer.action("gesture", "flingDown", null)) {
+            Dimension size = driver.manage().window().getSize();
+            int startX = size.width / 2;
+            int startY = (int) (size.height * 0.25);
+            int endY = (int) (size.height * 0.75);
+            performSwipe(startX, startY, startX, endY, 150);
+        }
     }
 
     /* ------------------------
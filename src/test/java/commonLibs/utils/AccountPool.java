@@ -0,0 +1,248 @@
+package commonLibs.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * AccountPool - leases registered test accounts to tests, safe across threads and JVMs.
+ * - Pool state lives in one CSV file; every read-modify-write holds an exclusive lock on
+ *   "<file>.lock", so parallel Maven forks or shards on the same host never share an account
+ * - Each thread holds at most one lease (leaseForCurrentThread); BaseTest releases it after every test
+ * - Leases carry an expiry, so accounts of a crashed JVM return to the pool on their own
+ * - Every lease has its own owner token; a release only frees the account if the token still matches,
+ *   so a thread whose lease expired cannot free the account after someone else re-leased it
+ * - The pool does not create accounts: registration needs the device the tests are driving, so new
+ *   accounts come from tests that register through the UI and add() them. When free accounts drop below
+ *   account.pool.min.free a warning says so
+ * - A missing pool file is seeded with registered.email / registered.valid.password
+ * - The pool holds plaintext passwords, so it lives under target/ rather than in the source tree
+ *
+ * File format (one account per line, no commas in values): email,password,state,owner,leaseExpiresEpochMs
+ *
+ * Config (config.properties):
+ *   account.pool.file=target/accounts/pool.csv
+ *   account.lease.ttl.seconds=1800
+ *   account.lease.wait.seconds=120
+ *   account.pool.min.free=1
+ */
+public class AccountPool {
+
+    public record Account(String email, String password) { }
+
+    /** The calling thread's account and the owner token written to the pool file for it. */
+    private record Lease(Account account, String owner) { }
+
+    private record Entry(Account account, boolean leased, String owner, long expiresAt) {
+        String toLine() {
+            return account.email() + "," + account.password() + "," + (leased ? "LEASED" : "FREE") + ","
+                    + (owner == null ? "" : owner) + "," + expiresAt;
+        }
+
+        static Entry parse(String line) {
+            String[] c = line.split(",", -1);
+            if (c.length < 5) return null;
+            return new Entry(new Account(c[0], c[1]), "LEASED".equals(c[2]), c[3].isEmpty() ? null : c[3],
+                    Long.parseLong(c[4]));
+        }
+    }
+
+    private static final long POLL_MILLIS = 500;
+    private static final String PROCESS_ID = ManagementFactory.getRuntimeMXBean().getName();
+    private static final AtomicLong LEASE_IDS = new AtomicLong();
+    private static AccountPool shared;
+
+    private final File file;
+    private final File lockFile;
+    private final long leaseTtlMillis;
+    private final long waitMillis;
+    private final int minFree;
+    private final ThreadLocal<Lease> current = new ThreadLocal<>();
+    private final AtomicBoolean lowWarned = new AtomicBoolean();
+
+    public AccountPool(File file) {
+        this.file = file;
+        this.lockFile = new File(file.getPath() + ".lock");
+        this.leaseTtlMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(ConfigReader.get("account.lease.ttl.seconds", "1800")));
+        this.waitMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(ConfigReader.get("account.lease.wait.seconds", "120")));
+        this.minFree = Integer.parseInt(ConfigReader.get("account.pool.min.free", "1"));
+    }
+
+    public static synchronized AccountPool shared() {
+        if (shared == null) {
+            String path = ConfigReader.get("account.pool.file", "target/accounts/pool.csv");
+            File f = new File(path).isAbsolute() ? new File(path) : new File(System.getProperty("user.dir"), path);
+            shared = new AccountPool(f);
+        }
+        return shared;
+    }
+
+    /** Release the calling thread's lease on the shared pool, if it has one (no-op otherwise). */
+    public static void releaseCurrentThreadLease() {
+        AccountPool pool;
+        synchronized (AccountPool.class) {
+            pool = shared;
+        }
+        if (pool != null) pool.releaseCurrentThread();
+    }
+
+    /* ------------------------
+       Leasing
+       ------------------------ */
+
+    /**
+     * The calling thread's account; leases a free one on first call and waits up to
+     * account.lease.wait.seconds for one to become available.
+     */
+    public Account leaseForCurrentThread() throws IOException, InterruptedException {
+        Lease held = current.get();
+        if (held != null) return held.account();
+        // unique per lease: pid@host / thread / sequence (no commas, they separate the columns)
+        String owner = PROCESS_ID + "/" + Thread.currentThread().getName().replace(',', '_') + "/"
+                + LEASE_IDS.incrementAndGet();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            Account leased = tryLease(owner);
+            if (leased != null) {
+                current.set(new Lease(leased, owner));
+                return leased;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("No free test account in " + file + " within "
+                        + TimeUnit.MILLISECONDS.toSeconds(waitMillis) + " s");
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /** Free the calling thread's account, unless its lease expired and the account was leased again. */
+    public void releaseCurrentThread() {
+        Lease held = current.get();
+        if (held == null) return;
+        current.remove();
+        try {
+            update(entries -> {
+                for (int i = 0; i < entries.size(); i++) {
+                    Entry e = entries.get(i);
+                    if (e.account().email().equals(held.account().email()) && held.owner().equals(e.owner())) {
+                        entries.set(i, new Entry(e.account(), false, null, 0));
+                    }
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            // the lease expires on its own; only log
+            System.err.println("Releasing account " + held.account().email() + " failed: " + e.getMessage());
+        }
+    }
+
+    /** Add newly registered accounts as free. Existing emails are left unchanged. */
+    public void add(Account... accounts) throws IOException {
+        update(entries -> {
+            for (Account a : accounts) {
+                boolean known = entries.stream().anyMatch(e -> e.account().email().equalsIgnoreCase(a.email()));
+                if (!known) entries.add(new Entry(a, false, null, 0));
+            }
+            return null;
+        });
+    }
+
+    /** Number of accounts that could be leased right now. */
+    public int freeCount() throws IOException {
+        return update(entries -> (int) entries.stream().filter(e -> !isHeld(e, System.currentTimeMillis())).count());
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private Account tryLease(String owner) throws IOException {
+        long now = System.currentTimeMillis();
+        int[] free = new int[1];
+        Account leased = update(entries -> {
+            Account picked = null;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry e = entries.get(i);
+                if (isHeld(e, now)) continue;
+                if (picked == null) {
+                    picked = e.account();
+                    entries.set(i, new Entry(picked, true, owner, now + leaseTtlMillis));
+                } else {
+                    free[0]++;
+                }
+            }
+            return picked;
+        });
+        if (free[0] < minFree) warnLow(minFree - free[0]);
+        return leased;
+    }
+
+    private static boolean isHeld(Entry e, long now) {
+        return e.leased() && e.expiresAt() > now;
+    }
+
+    private void warnLow(int missing) {
+        if (lowWarned.compareAndSet(false, true)) {
+            System.err.println("Account pool " + file + " is running low (" + missing + " below account.pool.min.free);"
+                    + " register accounts (LoginTests.createANewUserAccount) to refill it");
+        }
+    }
+
+    /**
+     * Run one read-modify-write of the pool file under the cross-process lock. The file lock is
+     * owned by the JVM, so threads of this JVM are serialized on the class monitor first.
+     */
+    private <T> T update(Function<List<Entry>, T> change) throws IOException {
+        synchronized (AccountPool.class) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create account pool directory: " + parent);
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+                 FileChannel channel = raf.getChannel();
+                 FileLock ignored = channel.lock()) {
+                List<Entry> entries = read();
+                int before = entries.hashCode();
+                T result = change.apply(entries);
+                if (entries.hashCode() != before || !file.exists()) write(entries);
+                return result;
+            }
+        }
+    }
+
+    private List<Entry> read() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            String email = ConfigReader.get("registered.email", "");
+            if (!email.isBlank()) {
+                entries.add(new Entry(new Account(email, ConfigReader.get("registered.valid.password", "")),
+                        false, null, 0));
+            }
+            return entries;
+        }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            Entry e = Entry.parse(line.trim());
+            if (e != null) entries.add(e);
+        }
+        return entries;
+    }
+
+    private void write(List<Entry> entries) throws IOException {
+        StringBuilder sb = new StringBuilder("# email,password,state,owner,leaseExpiresEpochMs\n");
+        for (Entry e : entries) sb.append(e.toLine()).append('\n');
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.writeString(tmp.toPath(), sb, StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
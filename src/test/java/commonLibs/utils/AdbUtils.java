@@ -0,0 +1,93 @@
+package commonLibs.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdbUtils - small wrapper for one-shot adb commands against a given device.
+ * - run(serial, timeoutSeconds, args...) -> exit code + merged stdout/stderr
+ * - shell(serial, args...) -> stdout of "adb -s serial shell ..." ("" on failure)
+ *
+ * Requirements: adb must be on PATH.
+ */
+public class AdbUtils {
+
+    private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+    /** Exit code and combined output of an adb call; exitCode is -1 when adb could not run or timed out. */
+    public record Result(int exitCode, String output) {
+        public boolean ok() {
+            return exitCode == 0;
+        }
+    }
+
+    public static Result run(String serial, int timeoutSeconds, String... args) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("adb");
+        if (serial != null && !serial.isBlank()) {
+            cmd.add("-s");
+            cmd.add(serial);
+        }
+        cmd.addAll(Arrays.asList(args));
+        try {
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            // read on a virtual thread so a full pipe cannot block waitFor()
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Thread reader = Thread.ofVirtual().start(() -> copy(p.getInputStream(), out));
+            if (!p.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return new Result(-1, "timeout after " + timeoutSeconds + " s: " + String.join(" ", cmd));
+            }
+            reader.join();
+            return new Result(p.exitValue(), out.toString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return new Result(-1, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(-1, "interrupted");
+        }
+    }
+
+    public static String shell(String serial, String... shellArgs) {
+        String[] args = new String[shellArgs.length + 1];
+        args[0] = "shell";
+        System.arraycopy(shellArgs, 0, args, 1, shellArgs.length);
+        Result r = run(serial, DEFAULT_TIMEOUT_SECONDS, args);
+        if (!r.ok()) {
+            System.err.println("adb shell " + String.join(" ", shellArgs) + " failed: " + r.output().trim());
+            return "";
+        }
+        return r.output();
+    }
+
+    /** "versionName (versionCode)" of an installed package, or "unknown" if dumpsys has no entry. */
+    public static String packageVersion(String serial, String appPackage) {
+        String out = shell(serial, "dumpsys", "package", appPackage);
+        String name = null;
+        String code = null;
+        for (String line : out.split("\\R")) {
+            String t = line.trim();
+            if (name == null && t.startsWith("versionName=")) {
+                name = t.substring("versionName=".length());
+            } else if (code == null && t.startsWith("versionCode=")) {
+                code = t.substring("versionCode=".length()).split("\\s+")[0];
+            }
+        }
+        if (name == null) return "unknown";
+        return code == null ? name : name + " (" + code + ")";
+    }
+
+    private static void copy(InputStream in, ByteArrayOutputStream out) {
+        try (in) {
+            in.transferTo(out);
+        } catch (IOException ignored) {
+            // process ended; whatever was read is kept
+        }
+    }
+}
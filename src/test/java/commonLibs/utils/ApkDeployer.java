@@ -0,0 +1,259 @@
+package commonLibs.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ApkDeployer - installs one set of split APKs on many devices in parallel.
+ * - The APK files are read from disk once (ApkSet) and streamed from memory to every device
+ * - One package-manager install session per device: install-create, one install-write per split
+ *   (piped through "adb exec-in"), then install-commit; a failed session is abandoned
+ * - Devices run on a bounded pool (deploy.parallelism), so a slow or failing device never blocks
+ *   or aborts the others
+ * - deploy() returns one DeviceResult per device with duration and throughput
+ *
+ * Config (config.properties):
+ *   deploy.apk.dir=mobile-test-challenge/apps
+ *   deploy.parallelism=4
+ *   deploy.timeout.seconds=300
+ */
+public class ApkDeployer {
+
+    private static final Pattern SESSION_ID = Pattern.compile("\\[(\\d+)]");
+
+    /** Split APKs of one build, loaded once; digest is SHA-256 over all files in name order. */
+    public static final class ApkSet {
+        private final List<String> names;
+        private final List<byte[]> contents;
+        private final long totalBytes;
+        private final String digest;
+
+        private ApkSet(List<String> names, List<byte[]> contents, long totalBytes, String digest) {
+            this.names = names;
+            this.contents = contents;
+            this.totalBytes = totalBytes;
+            this.digest = digest;
+        }
+
+        public static ApkSet load(File dir) throws IOException {
+            MessageDigest sha = sha256();
+            List<String> names = new ArrayList<>();
+            List<byte[]> contents = new ArrayList<>();
+            long total = 0;
+            for (File apk : listApks(dir)) {
+                byte[] data = Files.readAllBytes(apk.toPath());
+                names.add(apk.getName());
+                contents.add(data);
+                sha.update(data);
+                total += data.length;
+            }
+            return new ApkSet(List.copyOf(names), List.copyOf(contents), total, HexFormat.of().formatHex(sha.digest()));
+        }
+
+        /** Same digest as load(dir).digest(), streamed without keeping the files in memory. */
+        public static String digestOf(File dir) throws IOException {
+            MessageDigest sha = sha256();
+            byte[] buf = new byte[64 * 1024];
+            for (File apk : listApks(dir)) {
+                try (InputStream in = new FileInputStream(apk)) {
+                    int n;
+                    while ((n = in.read(buf)) > 0) sha.update(buf, 0, n);
+                }
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        }
+
+        private static File[] listApks(File dir) {
+            File[] apks = dir.listFiles((d, n) -> n.toLowerCase(Locale.ROOT).endsWith(".apk"));
+            if (apks == null || apks.length == 0) {
+                throw new IllegalArgumentException("No APK files found in: " + dir.getAbsolutePath());
+            }
+            Arrays.sort(apks, Comparator.comparing(File::getName));
+            return apks;
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public List<String> names() {
+            return names;
+        }
+
+        public long totalBytes() {
+            return totalBytes;
+        }
+
+        public String digest() {
+            return digest;
+        }
+    }
+
+    /** Outcome for one device; error is null on success. */
+    public record DeviceResult(String serial, boolean success, long bytes, long durationMs, String error) {
+        public double megabytesPerSecond() {
+            return durationMs == 0 ? 0 : bytes / 1048576.0 / (durationMs / 1000.0);
+        }
+
+        public String describe() {
+            return success
+                    ? String.format(Locale.ROOT, "%s: installed %.1f MB in %d ms (%.1f MB/s)",
+                    serial, bytes / 1048576.0, durationMs, megabytesPerSecond())
+                    : serial + ": FAILED after " + durationMs + " ms - " + error;
+        }
+    }
+
+    private final ApkSet apkSet;
+    private final int parallelism;
+    private final int timeoutSeconds;
+
+    public ApkDeployer(ApkSet apkSet) {
+        this.apkSet = apkSet;
+        this.parallelism = Math.max(1, Integer.parseInt(ConfigReader.get("deploy.parallelism", "4")));
+        this.timeoutSeconds = Integer.parseInt(ConfigReader.get("deploy.timeout.seconds", "300"));
+    }
+
+    /** Deployer for the APK directory from config (deploy.apk.dir). */
+    public static ApkDeployer fromConfig() throws IOException {
+        return new ApkDeployer(ApkSet.load(configuredApkDir()));
+    }
+
+    /** deploy.apk.dir resolved against the working directory. */
+    public static File configuredApkDir() {
+        String dir = ConfigReader.get("deploy.apk.dir", "mobile-test-challenge/apps");
+        return new File(dir).isAbsolute() ? new File(dir) : new File(System.getProperty("user.dir"), dir);
+    }
+
+    public ApkSet getApkSet() {
+        return apkSet;
+    }
+
+    /** Install on all given devices; never throws for a single device failure. */
+    public List<DeviceResult> deploy(List<String> serials) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, serials.size())));
+        try {
+            List<Future<DeviceResult>> futures = new ArrayList<>();
+            for (String serial : serials) {
+                futures.add(pool.submit(() -> installOn(serial)));
+            }
+            List<DeviceResult> results = new ArrayList<>();
+            for (int i = 0; i < serials.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new DeviceResult(serials.get(i), false, 0, 0, String.valueOf(e.getCause())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new DeviceResult(serials.get(i), false, 0, 0, "interrupted"));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Short multi-line summary: success count, then one line per device. */
+    public static String summarize(List<DeviceResult> results) {
+        StringBuilder sb = new StringBuilder();
+        long ok = results.stream().filter(DeviceResult::success).count();
+        sb.append("Deployed to ").append(ok).append('/').append(results.size()).append(" devices");
+        for (DeviceResult r : results) sb.append('\n').append("  ").append(r.describe());
+        return sb.toString();
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private DeviceResult installOn(String serial) {
+        long start = System.currentTimeMillis();
+        String session = null;
+        try {
+            AdbUtils.Result created = AdbUtils.run(serial, timeoutSeconds, "shell", "cmd", "package",
+                    "install-create", "-r", "-S", Long.toString(apkSet.totalBytes()));
+            Matcher m = SESSION_ID.matcher(created.output());
+            if (!created.ok() || !m.find()) {
+                return failed(serial, start, "install-create: " + created.output().trim());
+            }
+            session = m.group(1);
+            for (int i = 0; i < apkSet.names.size(); i++) {
+                String error = write(serial, session, i);
+                if (error != null) return failed(serial, start, error);
+            }
+            AdbUtils.Result commit = AdbUtils.run(serial, timeoutSeconds, "shell", "cmd", "package",
+                    "install-commit", session);
+            if (!commit.ok() || !commit.output().contains("Success")) {
+                session = null; // a failed commit already closes the session
+                return failed(serial, start, "install-commit: " + commit.output().trim());
+            }
+            session = null;
+            return new DeviceResult(serial, true, apkSet.totalBytes(), System.currentTimeMillis() - start, null);
+        } finally {
+            if (session != null) {
+                AdbUtils.run(serial, 30, "shell", "cmd", "package", "install-abandon", session);
+            }
+        }
+    }
+
+    /** Stream one split from memory into the session; returns an error text or null. */
+    private String write(String serial, String session, int index) {
+        byte[] data = apkSet.contents.get(index);
+        String name = apkSet.names.get(index);
+        try {
+            Process p = new ProcessBuilder("adb", "-s", serial, "exec-in", "cmd", "package", "install-write",
+                    "-S", Integer.toString(data.length), session, name, "-")
+                    .redirectErrorStream(true).start();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Thread reader = Thread.ofVirtual().start(() -> {
+                try {
+                    p.getInputStream().transferTo(out);
+                } catch (IOException ignored) {
+                }
+            });
+            try (OutputStream in = p.getOutputStream()) {
+                in.write(data);
+            }
+            if (!p.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return "install-write " + name + ": timeout";
+            }
+            reader.join();
+            // exec-in does not reliably pass the remote exit status through; install-write prints "Success: ..."
+            String output = out.toString(StandardCharsets.UTF_8).trim();
+            return p.exitValue() == 0 && output.contains("Success") ? null : "install-write " + name + ": " + output;
+        } catch (IOException e) {
+            return "install-write " + name + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "install-write " + name + ": interrupted";
+        }
+    }
+
+    private static DeviceResult failed(String serial, long start, String error) {
+        return new DeviceResult(serial, false, 0, System.currentTimeMillis() - start, error);
+    }
+}
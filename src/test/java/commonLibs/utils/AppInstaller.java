@@ -2,12 +2,17 @@ package commonLibs.utils;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
  * Minimal AppInstaller
  * - installSplitApksIfMissing(avdName, appPackage, apkDir)
  * - uninstall(appPackage, avdName)
+ * - deployToBootedDevices(apkDir): parallel install on every booted device (see ApkDeployer)
  *
  * avdName: AVD name like "Pixel_9_API_36". If null or blank, reads from ConfigReader.get("device.name").
  * apkDir: directory containing base + split apks (relative to project root or absolute)
@@ -77,6 +82,28 @@ public class AppInstaller {
         System.out.println("Uninstall finished.");
     }
 
+    /**
+     * Public: install the apks of apkDir (or deploy.apk.dir) on all booted devices in parallel.
+     * Failures are reported per device; the method only throws if no device could be installed.
+     */
+    public static List<ApkDeployer.DeviceResult> deployToBootedDevices(String apkDir) throws Exception {
+        ApkDeployer deployer = apkDir == null || apkDir.isBlank()
+                ? ApkDeployer.fromConfig()
+                : new ApkDeployer(ApkDeployer.ApkSet.load(new File(resolvePath(apkDir))));
+        DeviceRegistry.shared().awaitAny().orTimeout(WAIT_SECONDS, TimeUnit.SECONDS).join();
+        List<String> serials = DeviceRegistry.shared().devices().values().stream()
+                .filter(DeviceRegistry.DeviceInfo::booted)
+                .map(DeviceRegistry.DeviceInfo::serial)
+                .sorted()
+                .collect(Collectors.toList());
+        List<ApkDeployer.DeviceResult> results = deployer.deploy(serials);
+        System.out.println(ApkDeployer.summarize(results));
+        if (results.stream().noneMatch(ApkDeployer.DeviceResult::success)) {
+            throw new IllegalStateException("APK deployment failed on all devices: " + serials);
+        }
+        return results;
+    }
+
     /* ---------------------- helper methods ---------------------- */
 
     private static String chooseAvd(String avdName) {
@@ -88,63 +115,25 @@ public class AppInstaller {
         return cfg;
     }
 
-    /** Find runtime device id (emulator-5554) for the given avdName. Waits up to waitSeconds. */
+    /**
+     * Find runtime device id (emulator-5554) for the given avdName. Waits up to waitSeconds for the
+     * DeviceRegistry to report a booted device with that AVD name (no polling).
+     */
     private static String findDeviceIdForAvd(String avdName, int waitSeconds) {
-        int waited = 0;
-        while (waited < waitSeconds) {
-            Map<String, String> map = listDevicesWithAvdNames();
-            for (Map.Entry<String, String> e : map.entrySet()) {
-                if (avdName.equalsIgnoreCase(e.getValue())) {
-                    return e.getKey();
-                }
-            }
-            try { Thread.sleep(2000); } catch (InterruptedException ignored) {}
-            waited += 2;
-        }
-        return null;
-    }
-
-    /** Return map of deviceId -> avdName (may return "unknown" if avd name not extractable). */
-    private static Map<String, String> listDevicesWithAvdNames() {
-        Map<String, String> result = new HashMap<>();
+        CompletableFuture<DeviceRegistry.DeviceInfo> booted = DeviceRegistry.shared().awaitAvd(avdName);
         try {
-            ProcessBuilder pb = new ProcessBuilder("adb", "devices", "-l");
-            Process p = pb.start();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
-                String line;
-                boolean headerSkipped = false;
-                while ((line = br.readLine()) != null) {
-                    line = line.trim();
-                    if (!headerSkipped) { headerSkipped = true; continue; }
-                    if (line.isEmpty()) continue;
-                    if (line.contains("device")) {
-                        String[] parts = line.split("\\s+");
-                        String id = parts[0];
-                        String avd = extractAvdName(id);
-                        result.put(id, avd);
-                    }
-                }
-            }
-            p.waitFor();
-        } catch (Exception e) {
-            System.err.println("listDevicesWithAvdNames error: " + e.getMessage());
-        }
-        return result;
-    }
-
-    /** Run "adb -s <device> emu avd name" to get avd name; returns "unknown" on failure. */
-    private static String extractAvdName(String deviceId) {
-        try {
-            ProcessBuilder pb = new ProcessBuilder("adb", "-s", deviceId, "emu", "avd", "name");
-            Process p = pb.start();
-            String out;
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
-                out = br.lines().collect(Collectors.joining()).trim();
-            }
-            p.waitFor();
-            return out.isEmpty() ? "unknown" : out;
-        } catch (Exception e) {
-            return "unknown";
+            return booted.get(waitSeconds, TimeUnit.SECONDS).serial();
+        } catch (TimeoutException e) {
+            System.out.println("Known devices: " + DeviceRegistry.shared().devices().values());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("findDeviceIdForAvd error: " + e.getCause());
+            return null;
+        } finally {
+            booted.cancel(false); // no-op once completed; otherwise unregisters the waiter
         }
     }
 
@@ -0,0 +1,109 @@
+package commonLibs.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BenchmarkHistory - append-only CSV of benchmark summaries, one file per benchmark suite.
+ * Rows are keyed by app version so a new build can be compared with the previous one.
+ *
+ * File: <benchmark.dir>/<suite>-history.csv (benchmark.dir defaults to "benchmarks")
+ * Columns: timestamp,appVersion,device,scenario,metric,n,min,p50,p90,p99,max,mean,sd
+ */
+public class BenchmarkHistory {
+
+    private static final String HEADER = "timestamp,appVersion,device,scenario,metric,n,min,p50,p90,p99,max,mean,sd";
+
+    private final File file;
+
+    public BenchmarkHistory(String suite) {
+        String dir = ConfigReader.get("benchmark.dir", "benchmarks");
+        File base = new File(dir).isAbsolute() ? new File(dir) : new File(System.getProperty("user.dir"), dir);
+        this.file = new File(base, suite + "-history.csv");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized void append(String appVersion, String device, String scenario, String metric,
+                                    SampleStats stats) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create benchmark directory: " + parent.getAbsolutePath());
+        }
+        StringBuilder row = new StringBuilder();
+        if (!file.exists()) row.append(HEADER).append('\n');
+        row.append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append(',')
+                .append(csv(appVersion)).append(',')
+                .append(csv(device)).append(',')
+                .append(csv(scenario)).append(',')
+                .append(csv(metric)).append(',')
+                .append(stats.count()).append(',')
+                .append(num(stats.min())).append(',')
+                .append(num(stats.median())).append(',')
+                .append(num(stats.percentile(90))).append(',')
+                .append(num(stats.percentile(99))).append(',')
+                .append(num(stats.max())).append(',')
+                .append(num(stats.mean())).append(',')
+                .append(num(stats.stdDev())).append('\n');
+        Files.writeString(file.toPath(), row, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Median of the most recent row for scenario/metric recorded with a different app version.
+     * @return NaN when there is no earlier version to compare with
+     */
+    public synchronized double previousVersionMedian(String appVersion, String scenario, String metric)
+            throws IOException {
+        if (!file.exists()) return Double.NaN;
+        List<String> rows = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        for (int i = rows.size() - 1; i >= 1; i--) {
+            String[] c = rows.get(i).split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+            if (c.length < 8) continue;
+            if (unquote(c[3]).equals(scenario) && unquote(c[4]).equals(metric) && !unquote(c[1]).equals(appVersion)) {
+                return Double.parseDouble(c[7]);
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Compare a new median with the previous version; returns a warning text if it regressed by more
+     * than thresholdPercent, otherwise null.
+     */
+    public String checkRegression(String appVersion, String scenario, String metric, double median,
+                                  double thresholdPercent) throws IOException {
+        double previous = previousVersionMedian(appVersion, scenario, metric);
+        if (Double.isNaN(previous) || previous <= 0) return null;
+        double change = (median - previous) / previous * 100;
+        if (change <= thresholdPercent) return null;
+        return String.format(Locale.ROOT, "%s %s regressed %.1f%% vs previous version (p50 %.1f -> %.1f)",
+                scenario, metric, change, previous, median);
+    }
+
+    private static String num(double v) {
+        return Double.isNaN(v) ? "" : String.format(Locale.ROOT, "%.2f", v);
+    }
+
+    private static String csv(String v) {
+        if (v == null) return "";
+        if (v.contains(",") || v.contains("\"")) return "\"" + v.replace("\"", "\"\"") + "\"";
+        return v;
+    }
+
+    private static String unquote(String v) {
+        if (v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"")) {
+            return v.substring(1, v.length() - 1).replace("\"\"", "\"");
+        }
+        return v;
+    }
+}
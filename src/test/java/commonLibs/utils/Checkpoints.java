@@ -0,0 +1,157 @@
+package commonLibs.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Checkpoints - named restore points inside a test so a retry can resume instead of replaying everything.
+ *
+ * Usage inside a test:
+ *   Checkpoints.step("open login form", () -> { ... });
+ *   Checkpoints.checkpoint("on login form", LoginScreen::isLoginFormShownOnCurrentSession);
+ *   Checkpoints.step("submit credentials", () -> { ... });
+ *
+ * Restore checks run on the retry, possibly after the session was rebuilt: they must look the driver up
+ * (DriverFactory.getDriver()) when they run rather than capture page objects of the failed attempt.
+ * On a retry (see RetryAnalyzer) the latest checkpoint whose restore check passes is chosen,
+ * and every step declared before it is skipped. If none can be restored the test replays from scratch.
+ * Outside a BaseTest lifecycle (no begin() call) steps simply run.
+ */
+public final class Checkpoints {
+
+    private static final Map<String, TestState> STATES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<TestState> CURRENT = new ThreadLocal<>();
+
+    private Checkpoints() {}
+
+    private record Checkpoint(String name, int ordinal, BooleanSupplier restore) {}
+
+    /** Wall time of one step; skipped steps (resumed past) have duration 0. */
+    public record StepTiming(String name, long durationMs, boolean passed, boolean skipped) {}
+
+    private static final class TestState {
+        final List<Checkpoint> reached = new ArrayList<>();
+        final List<StepTiming> timings = new ArrayList<>();
+        boolean resumeRequested;
+        int resumeOrdinal = -1;
+        int ordinal;
+    }
+
+    /* ------------------------
+       Lifecycle (called from BaseTest / RetryAnalyzer)
+       ------------------------ */
+
+    /**
+     * Start tracking for a test. Fresh runs drop old checkpoints; retries pick the nearest restorable one.
+     * @return name of the checkpoint the test resumes from, or null when starting from scratch
+     */
+    public static String begin(String testKey) {
+        TestState previous = STATES.get(testKey);
+        TestState state = new TestState();
+        String resumedFrom = null;
+
+        if (previous != null && previous.resumeRequested) {
+            for (int i = previous.reached.size() - 1; i >= 0; i--) {
+                Checkpoint cp = previous.reached.get(i);
+                if (tryRestore(cp)) {
+                    state.resumeOrdinal = cp.ordinal();
+                    state.reached.addAll(previous.reached.subList(0, i + 1));
+                    resumedFrom = cp.name();
+                    break;
+                }
+            }
+        }
+
+        STATES.put(testKey, state);
+        CURRENT.set(state);
+        return resumedFrom;
+    }
+
+    /** Mark a test so its next begin() tries to resume from a checkpoint. */
+    public static void requestResume(String testKey) {
+        TestState state = STATES.get(testKey);
+        if (state != null) state.resumeRequested = true;
+    }
+
+    /** Detach the current thread from its test state (state is kept for a possible retry). */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /* ------------------------
+       Test-side API
+       ------------------------ */
+
+    /** Run a step unless the current retry resumed from a checkpoint declared after it. */
+    public static void step(String name, Runnable action) {
+        timedStep(name, () -> {
+            long start = System.currentTimeMillis();
+            action.run();
+            return System.currentTimeMillis() - start;
+        });
+    }
+
+    /**
+     * Like step(), but the action returns the duration to record, e.g. when the step ran on the device
+     * as part of a batched driver script and its wall time here is not its real cost.
+     */
+    public static void timedStep(String name, LongSupplier action) {
+        TestState state = CURRENT.get();
+        if (state == null) {
+            try (Tracer.Span span = Tracer.begin(name, "step")) {
+                action.getAsLong();
+            }
+            return;
+        }
+        int ordinal = ++state.ordinal;
+        if (ordinal < state.resumeOrdinal) {
+            System.out.println("Skipping step '" + name + "' (resumed from checkpoint)");
+            state.timings.add(new StepTiming(name, 0, true, true));
+            return;
+        }
+        try (Tracer.Span span = Tracer.begin(name, "step")) {
+            long start = System.currentTimeMillis();
+            boolean passed = false;
+            long duration = -1;
+            try {
+                duration = action.getAsLong();
+                passed = true;
+            } finally {
+                if (duration < 0) duration = System.currentTimeMillis() - start;
+                state.timings.add(new StepTiming(name, duration, passed, false));
+                span.arg("passed", passed).arg("recordedMs", duration);
+            }
+        }
+    }
+
+    /** Step timings of the current thread's test so far (empty outside a BaseTest lifecycle). */
+    public static List<StepTiming> stepTimings() {
+        TestState state = CURRENT.get();
+        return state == null ? List.of() : List.copyOf(state.timings);
+    }
+
+    /**
+     * Record that the test reached a named state.
+     * @param restore returns true if the app is (or could be brought) back into this state
+     */
+    public static void checkpoint(String name, BooleanSupplier restore) {
+        TestState state = CURRENT.get();
+        if (state == null) return;
+        int ordinal = ++state.ordinal;
+        if (ordinal <= state.resumeOrdinal) return; // already recorded before the retry
+        state.reached.add(new Checkpoint(name, ordinal, restore));
+    }
+
+    private static boolean tryRestore(Checkpoint cp) {
+        try {
+            return cp.restore().getAsBoolean();
+        } catch (Exception e) {
+            System.err.println("Checkpoint '" + cp.name() + "' not restorable: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package commonLibs.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * DaemonRunner - runs test classes or methods inside the warm test daemon (see org.example.Main).
+ * - Called by the daemon once per request, through a fresh class loader over target/test-classes, so
+ *   recompiled tests and page objects are picked up while the JVM, the libraries and the Appium session
+ *   stay warm
+ * - The session of the previous run is handed in, checked with a cheap call and adopted by DriverFactory;
+ *   BaseTest keeps it open in daemon mode and skips the reinstall after the suite
+ * - Selectors: "LoginTests", "testcases.LoginTests" or "LoginTests#loginWithRegisteredUser"
+ * - Results are streamed as lines: START, PASS, FAIL, SKIP and a final DONE line with the totals
+ */
+public class DaemonRunner {
+
+    private static volatile boolean active;
+
+    private DaemonRunner() {}
+
+    /** True while a daemon request is running in this class loader; BaseTest then keeps the session. */
+    public static boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Run the selected tests. Invoked reflectively by the daemon, so only JDK types cross the call.
+     * @param warmSession session kept from the previous run (an AndroidDriver) or null
+     * @return "passed", "failed", "skipped" counts and "session" to keep for the next run (may be null)
+     */
+    public static Map<String, Object> run(List<String> selectors, Consumer<String> out, Object warmSession) throws Exception {
+        long start = System.currentTimeMillis();
+        active = true;
+        try {
+            if (warmSession instanceof AndroidDriver session && isAlive(session)) {
+                DriverFactory.adopt(session);
+                out.accept("INFO reusing Appium session " + session.getSessionId());
+            } else if (warmSession != null) {
+                out.accept("INFO previous Appium session is gone; a new one will be created");
+            }
+
+            AtomicInteger passed = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            AtomicInteger skipped = new AtomicInteger();
+            TestNG testng = new TestNG();
+            testng.setUseDefaultListeners(false);
+            testng.setVerbose(0);
+            testng.setXmlSuites(List.of(suite(selectors)));
+            testng.addListener(new RetryListener());
+            testng.addListener(new TraceListener());
+            testng.addListener(new ITestListener() {
+                @Override
+                public void onTestStart(ITestResult r) {
+                    out.accept("START " + name(r));
+                }
+
+                @Override
+                public void onTestSuccess(ITestResult r) {
+                    passed.incrementAndGet();
+                    out.accept("PASS " + name(r) + " " + (r.getEndMillis() - r.getStartMillis()) + " ms");
+                }
+
+                @Override
+                public void onTestFailure(ITestResult r) {
+                    failed.incrementAndGet();
+                    out.accept("FAIL " + name(r) + " " + (r.getEndMillis() - r.getStartMillis()) + " ms: "
+                            + (r.getThrowable() == null ? "" : r.getThrowable()));
+                }
+
+                @Override
+                public void onTestSkipped(ITestResult r) {
+                    skipped.incrementAndGet();
+                    out.accept("SKIP " + name(r) + (r.wasRetried() ? " (will be retried)" : ""));
+                }
+            });
+            testng.run();
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("passed", passed.get());
+            result.put("failed", failed.get());
+            result.put("skipped", skipped.get());
+            result.put("session", DriverFactory.detach());
+            out.accept("DONE " + passed + " passed, " + failed + " failed, " + skipped + " skipped in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return result;
+        } finally {
+            active = false;
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static XmlSuite suite(List<String> selectors) throws ClassNotFoundException {
+        // class -> included methods (empty = whole class), in request order
+        Map<String, List<String>> byClass = new LinkedHashMap<>();
+        for (String selector : selectors) {
+            String[] parts = selector.split("#", 2);
+            String className = parts[0].contains(".") ? parts[0] : "testcases." + parts[0];
+            List<String> methods = byClass.computeIfAbsent(className, c -> new ArrayList<>());
+            if (parts.length > 1) methods.add(parts[1]);
+        }
+        List<XmlClass> classes = new ArrayList<>();
+        for (Map.Entry<String, List<String>> e : byClass.entrySet()) {
+            XmlClass xmlClass = new XmlClass(Class.forName(e.getKey(), true, DaemonRunner.class.getClassLoader()));
+            if (!e.getValue().isEmpty()) {
+                List<XmlInclude> includes = new ArrayList<>();
+                for (String m : e.getValue()) includes.add(new XmlInclude(m));
+                xmlClass.setIncludedMethods(includes);
+            }
+            classes.add(xmlClass);
+        }
+        XmlSuite suite = new XmlSuite();
+        suite.setName("Daemon");
+        suite.setPreserveOrder(true);
+        XmlTest test = new XmlTest(suite);
+        test.setName("DaemonRun");
+        test.setPreserveOrder(true);
+        test.setXmlClasses(classes);
+        return suite;
+    }
+
+    private static boolean isAlive(AndroidDriver session) {
+        try {
+            session.getCurrentPackage();
+            return true;
+        } catch (Exception e) {
+            try {
+                session.quit();
+            } catch (Exception ignored) {
+            }
+            return false;
+        }
+    }
+
+    private static String name(ITestResult r) {
+        return r.getMethod().getRealClass().getSimpleName() + "#" + r.getName();
+    }
+}
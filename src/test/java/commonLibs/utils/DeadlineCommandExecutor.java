@@ -0,0 +1,138 @@
+package commonLibs.utils;
+
+import io.appium.java_client.AppiumClientConfig;
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeadlineCommandExecutor - Appium command executor with a watchdog deadline per driver command.
+ * - Each command runs on a virtual thread; the caller waits at most the deadline of its command type
+ *   (find, page source, screenshot, script, default), configurable per command name
+ * - A command that misses its deadline is cancelled (the HTTP call is interrupted) and the session is
+ *   probed with a short getCurrentPackage call
+ * - Probe answered: the command fails with a TimeoutException (transient, so RetryAnalyzer retries it)
+ * - Probe failed: the session is marked dead, later commands fail fast with NoSuchSessionException and
+ *   RetryAnalyzer rebuilds the session through DriverFactory before the retry, which resumes from the
+ *   last restorable Checkpoint
+ *
+ * Config (config.properties):
+ *   watchdog.enabled=false
+ *   watchdog.deadline.find.ms=20000
+ *   watchdog.deadline.source.ms=30000
+ *   watchdog.deadline.screenshot.ms=30000
+ *   watchdog.deadline.script.ms=60000
+ *   watchdog.deadline.default.ms=30000
+ *   watchdog.deadline.<commandName>.ms   (optional override, e.g. watchdog.deadline.clickElement.ms)
+ *   watchdog.probe.ms=5000
+ */
+public class DeadlineCommandExecutor extends AppiumCommandExecutor {
+
+    private static final String PROBE_COMMAND = "getCurrentPackage";
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Long> deadlines = new ConcurrentHashMap<>();
+    private final long probeMillis;
+    private volatile boolean sessionDead;
+
+    public DeadlineCommandExecutor(AppiumClientConfig clientConfig) {
+        super(MobileCommand.commandRepository, clientConfig);
+        this.probeMillis = Long.parseLong(ConfigReader.get("watchdog.probe.ms", "5000"));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("watchdog.enabled", "false"));
+    }
+
+    public boolean isSessionDead() {
+        return sessionDead;
+    }
+
+    @Override
+    public Response execute(Command command) {
+        String name = command.getName();
+        // session creation has its own server-side timeouts; quit must always be attempted
+        if (DriverCommand.NEW_SESSION.equals(name) || DriverCommand.QUIT.equals(name)) {
+            return super.execute(command);
+        }
+        if (sessionDead) {
+            throw new NoSuchSessionException("Session marked dead by watchdog; rebuild required (command " + name + ")");
+        }
+
+        long deadline = deadlineFor(name);
+        // traced: the command's HTTP span stays under the caller's span and lane
+        Future<Response> call = workers.submit(Tracer.wrap(() -> super.execute(command)));
+        try {
+            return call.get(deadline, TimeUnit.MILLISECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            call.cancel(true);
+            boolean alive = probe(command);
+            if (!alive) {
+                sessionDead = true;
+                RetryAnalyzer.requestSessionRebuild();
+            }
+            throw new TimeoutException("Driver command '" + name + "' exceeded its " + deadline + " ms deadline; session "
+                    + (alive ? "still responsive" : "unresponsive, marked for rebuild"), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new WebDriverException("Driver command " + name + " failed", cause);
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for driver command " + name, e);
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private long deadlineFor(String commandName) {
+        return deadlines.computeIfAbsent(commandName, n -> {
+            String override = ConfigReader.get("watchdog.deadline." + n + ".ms", "");
+            if (!override.isBlank()) return Long.parseLong(override.trim());
+            String category = switch (n) {
+                case DriverCommand.FIND_ELEMENT, DriverCommand.FIND_ELEMENTS,
+                     DriverCommand.FIND_CHILD_ELEMENT, DriverCommand.FIND_CHILD_ELEMENTS -> "find";
+                case DriverCommand.GET_PAGE_SOURCE -> "source";
+                case DriverCommand.SCREENSHOT -> "screenshot";
+                case DriverCommand.EXECUTE_SCRIPT -> "script";
+                default -> "default";
+            };
+            String fallback = switch (category) {
+                case "find" -> "20000";
+                case "script" -> "60000";
+                default -> "30000";
+            };
+            return Long.parseLong(ConfigReader.get("watchdog.deadline." + category + ".ms", fallback));
+        });
+    }
+
+    /** Short round trip on the same session; false if it errors or misses the probe deadline. */
+    private boolean probe(Command hung) {
+        Future<Response> call = workers.submit(() -> super.execute(new Command(hung.getSessionId(), PROBE_COMMAND)));
+        try {
+            call.get(probeMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            call.cancel(true);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package commonLibs.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DevicePipeline - double-buffered device pool so device preparation overlaps with test execution.
+ * - Every booted device is either active (running a test class) or being prepared / ready in standby
+ * - Preparation runs in the background per device: quit the old session, reset (uninstall + install
+ *   through ApkDeployer, or just "pm clear"), then start a new Appium session
+ * - BaseTest takes a ready session in @BeforeClass and hands the device back in @AfterClass; with two
+ *   or more devices the next class starts at once on the standby device while the previous one resets
+ * - Jobs of one device run strictly in order (one lane per serial); a device with a reinstall pending
+ *   is never handed out with its old state
+ * - reinstallIdleDevices() replaces the synchronous install script that ran in @AfterTest
+ *
+ * Config (config.properties):
+ *   pipeline.enabled=false
+ *   pipeline.take.timeout.seconds=600
+ *   pipeline.reset.between.classes=false
+ *   pipeline.system.port.base=8200
+ */
+public class DevicePipeline {
+
+    /** A device with a started session, ready to run tests. */
+    public record Prepared(String serial, AndroidDriver driver, long prepareMs) { }
+
+    private static DevicePipeline shared;
+
+    private final BlockingQueue<Prepared> ready = new LinkedBlockingQueue<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, CompletableFuture<Void>> lanes = new HashMap<>();      // guarded by this
+    private final Map<String, Integer> systemPorts = new HashMap<>();                 // guarded by this
+    private final Set<String> reinstallPending = new HashSet<>();                    // guarded by this
+    private final String appPackage;
+    private final boolean resetBetweenClasses;
+    private final long takeTimeoutSeconds;
+    private final int systemPortBase;
+    private ApkDeployer deployer;
+    private Prepared active;
+
+    DevicePipeline() {
+        this.appPackage = ConfigReader.get("app.package", "com.netbiscuits.bild.android");
+        this.resetBetweenClasses = Boolean.parseBoolean(ConfigReader.get("pipeline.reset.between.classes", "false"));
+        this.takeTimeoutSeconds = Long.parseLong(ConfigReader.get("pipeline.take.timeout.seconds", "600"));
+        this.systemPortBase = Integer.parseInt(ConfigReader.get("pipeline.system.port.base", "8200"));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("pipeline.enabled", "false"));
+    }
+
+    /** Pipeline for this JVM; the first call starts preparing every booted device. */
+    public static synchronized DevicePipeline shared() throws Exception {
+        if (shared == null) {
+            shared = new DevicePipeline();
+            shared.start();
+        }
+        return shared;
+    }
+
+    /** Wait for background jobs and quit standby sessions; no-op if the pipeline never started. */
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.shutdown();
+            shared = null;
+        }
+    }
+
+    /* ------------------------
+       Handing devices to tests
+       ------------------------ */
+
+    /** Block until a prepared device is available and make its session the current driver. */
+    public AndroidDriver take() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        Prepared p = ready.poll(takeTimeoutSeconds, TimeUnit.SECONDS);
+        if (p == null) {
+            throw new IllegalStateException("No prepared device within " + takeTimeoutSeconds + " s");
+        }
+        synchronized (this) {
+            active = p;
+        }
+        DriverFactory.adopt(p.driver());
+        System.out.println("Pipeline: running on " + p.serial() + " (prepared in " + p.prepareMs()
+                + " ms, waited " + (System.currentTimeMillis() - start) + " ms)");
+        return p.driver();
+    }
+
+    /** Hand the active device back; its session is quit and a fresh one prepared in the background. */
+    public synchronized void release() {
+        DriverFactory.detach();
+        if (active == null) return;
+        Prepared done = active;
+        active = null;
+        schedule(done.serial(), () -> prepare(done.serial(), done.driver(), resetBetweenClasses));
+    }
+
+    /**
+     * Replace the active device's dead session with a new one on the same device and system port, so
+     * release() later quits and recycles the session the tests actually used.
+     */
+    public synchronized AndroidDriver replaceActive() throws MalformedURLException {
+        if (active == null) throw new IllegalStateException("No active pipeline device to rebuild the session on");
+        long start = System.currentTimeMillis();
+        try {
+            active.driver().quit();
+        } catch (Exception e) {
+            System.err.println("Pipeline: quitting dead session on " + active.serial() + " failed (expected): " + e.getMessage());
+        }
+        AndroidDriver session = DriverFactory.createDriverFor(active.serial(), systemPorts.get(active.serial()));
+        active = new Prepared(active.serial(), session, System.currentTimeMillis() - start);
+        DriverFactory.adopt(session);
+        System.out.println("Pipeline: new session on " + active.serial() + " in " + active.prepareMs() + " ms");
+        return session;
+    }
+
+    /** Reinstall the app on every device that is not running tests (replaces the @AfterTest script). */
+    public synchronized void reinstallIdleDevices() {
+        List<Prepared> idle = new ArrayList<>();
+        ready.drainTo(idle);
+        Set<String> serials = new HashSet<>(lanes.keySet());
+        if (active != null) serials.remove(active.serial());
+        reinstallPending.addAll(serials);
+        for (Prepared p : idle) {
+            schedule(p.serial(), () -> prepare(p.serial(), p.driver(), true));
+        }
+        for (String serial : serials) {
+            if (idle.stream().noneMatch(p -> p.serial().equals(serial))) {
+                schedule(serial, () -> prepare(serial, null, true));
+            }
+        }
+    }
+
+    /* ------------------------
+       Background preparation
+       ------------------------ */
+
+    private void start() throws Exception {
+        DeviceRegistry registry = DeviceRegistry.shared();
+        registry.awaitAny().orTimeout(takeTimeoutSeconds, TimeUnit.SECONDS).join();
+        for (DeviceRegistry.DeviceInfo d : registry.devices().values()) {
+            if (d.booted()) schedule(d.serial(), () -> prepare(d.serial(), null, false));
+        }
+    }
+
+    private synchronized void schedule(String serial, Runnable job) {
+        systemPorts.computeIfAbsent(serial, s -> systemPortBase + systemPorts.size());
+        CompletableFuture<Void> lane = lanes.getOrDefault(serial, CompletableFuture.completedFuture(null));
+        lanes.put(serial, lane.thenRunAsync(job, workers).exceptionally(e -> {
+            System.err.println("Pipeline: preparing " + serial + " failed: " + e.getMessage());
+            return null;
+        }));
+    }
+
+    /** Quit the previous session, reset the app as requested, start a new session and mark the device ready. */
+    private void prepare(String serial, AndroidDriver previous, boolean reinstall) {
+        long start = System.currentTimeMillis();
+        if (previous != null) {
+            try {
+                previous.quit();
+            } catch (Exception e) {
+                System.err.println("Pipeline: quitting session on " + serial + " failed: " + e.getMessage());
+            }
+        }
+        if (reinstall) {
+            List<Prepared> stale = new ArrayList<>();
+            synchronized (this) {
+                reinstallPending.remove(serial);
+                if (active != null && active.serial().equals(serial)) {
+                    System.out.println("Pipeline: " + serial + " is running tests; reinstall skipped");
+                    return;
+                }
+                // published by a job that finished after the reinstall was requested
+                ready.removeIf(p -> p.serial().equals(serial) && stale.add(p));
+            }
+            for (Prepared p : stale) {
+                try {
+                    p.driver().quit();
+                } catch (Exception ignored) {
+                }
+            }
+            AdbUtils.run(serial, 120, "uninstall", appPackage);
+            ApkDeployer.DeviceResult result = deployer().deploy(List.of(serial)).get(0);
+            System.out.println("Pipeline: " + result.describe());
+            if (!result.success()) return; // device stays out of the pool
+        } else if (resetBetweenClasses) {
+            AdbUtils.shell(serial, "pm", "clear", appPackage);
+        }
+        synchronized (this) {
+            // a reinstall was requested while this job ran; that job will publish the device
+            if (reinstallPending.contains(serial)) return;
+        }
+        long resetDone = System.currentTimeMillis();
+        AndroidDriver session;
+        try {
+            int port;
+            synchronized (this) {
+                port = systemPorts.get(serial);
+            }
+            session = DriverFactory.createDriverFor(serial, port);
+        } catch (Exception e) {
+            System.err.println("Pipeline: session start on " + serial + " failed: " + e.getMessage());
+            return;
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("Pipeline: " + serial + " ready (reset " + (resetDone - start) + " ms, session "
+                + (end - resetDone) + " ms)");
+        ready.add(new Prepared(serial, session, end - start));
+    }
+
+    private synchronized ApkDeployer deployer() {
+        if (deployer == null) {
+            try {
+                deployer = ApkDeployer.fromConfig();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not load APKs for reinstall: " + e.getMessage(), e);
+            }
+        }
+        return deployer;
+    }
+
+    private void shutdown() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(lanes.values());
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get(takeTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("Pipeline: background preparation did not finish: " + e.getMessage());
+        }
+        List<Prepared> idle = new ArrayList<>();
+        ready.drainTo(idle);
+        for (Prepared p : idle) {
+            try {
+                p.driver().quit();
+            } catch (Exception ignored) {
+            }
+        }
+        workers.shutdownNow();
+    }
+}
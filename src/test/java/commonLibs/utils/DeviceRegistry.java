@@ -0,0 +1,311 @@
+package commonLibs.utils;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * DeviceRegistry - event driven view of the devices attached to the local adb server.
+ * - Keeps one "host:track-devices" connection open; adb pushes the full device list on every change
+ * - Each newly online device is probed once (AVD name, API level) and one blocking shell call waits
+ *   on the device for sys.boot_completed, so nothing polls from the host; a failed probe (adb error or
+ *   boot timeout) is retried while the device stays online, up to PROBE_ATTEMPTS times
+ * - Results are cached per serial until the device disappears
+ * - Callers get CompletableFutures (awaitAvd / awaitSerial) that complete as soon as a matching
+ *   device has booted; a caller that gives up must cancel the future (or use orTimeout), which
+ *   unregisters it
+ *
+ * Config (config.properties):
+ *   adb.server.port=5037
+ */
+public class DeviceRegistry {
+
+    /** Cached device facts; avdName is "unknown" for physical devices, apiLevel -1 if not read yet. */
+    public record DeviceInfo(String serial, String state, String avdName, int apiLevel, boolean booted) {
+        DeviceInfo withState(String newState) {
+            return new DeviceInfo(serial, newState, avdName, apiLevel, booted);
+        }
+    }
+
+    private record Waiter(Predicate<DeviceInfo> match, CompletableFuture<DeviceInfo> future) { }
+
+    private static final long RECONNECT_MILLIS = 2000;
+    private static final int PROBE_ATTEMPTS = 3;
+    private static DeviceRegistry shared;
+
+    private final int adbPort;
+    private final Map<String, DeviceInfo> devices = new ConcurrentHashMap<>();
+    private final List<Waiter> waiters = new ArrayList<>(); // guarded by this
+    private final CompletableFuture<Void> firstSnapshot = new CompletableFuture<>();
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread tracker;
+
+    /** Registry that is fed with onDeviceList() directly; start() connects it to adb. */
+    DeviceRegistry(int adbPort) {
+        this.adbPort = adbPort;
+    }
+
+    /** Registry for the local adb server, started on first use and shared by all callers in this JVM. */
+    public static synchronized DeviceRegistry shared() {
+        if (shared == null) {
+            shared = new DeviceRegistry(Integer.parseInt(ConfigReader.get("adb.server.port", "5037")));
+            shared.start();
+        }
+        return shared;
+    }
+
+    public static synchronized void stopShared() {
+        if (shared != null) {
+            shared.stop();
+            shared = null;
+        }
+    }
+
+    /* ------------------------
+       Lifecycle
+       ------------------------ */
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        tracker = Thread.ofVirtual().name("adb-track-devices").start(this::trackLoop);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        closeSocket();
+        if (tracker != null) tracker.interrupt();
+        for (Waiter w : List.copyOf(waiters)) w.future().cancel(false); // whenComplete unregisters it
+    }
+
+    /* ------------------------
+       Queries
+       ------------------------ */
+
+    /** Snapshot of known devices (any state). */
+    public Map<String, DeviceInfo> devices() {
+        return Map.copyOf(devices);
+    }
+
+    /** First booted device whose AVD name matches (case-insensitive). */
+    public CompletableFuture<DeviceInfo> awaitAvd(String avdName) {
+        return await(d -> avdName.equalsIgnoreCase(d.avdName()));
+    }
+
+    public CompletableFuture<DeviceInfo> awaitSerial(String serial) {
+        return await(d -> serial.equals(d.serial()));
+    }
+
+    /** Any booted device. */
+    public CompletableFuture<DeviceInfo> awaitAny() {
+        return await(d -> true);
+    }
+
+    /**
+     * Completes with the first booted device matching the predicate: immediately if one is already
+     * cached, otherwise when the tracker reports it.
+     */
+    public CompletableFuture<DeviceInfo> await(Predicate<DeviceInfo> match) {
+        CompletableFuture<DeviceInfo> future = new CompletableFuture<>();
+        // the first list from adb arrives right after connecting; wait for it so cached devices are seen
+        Waiter waiter = new Waiter(match, future);
+        firstSnapshot.thenRun(() -> {
+            synchronized (this) {
+                if (future.isDone()) return; // cancelled or timed out before the first list arrived
+                for (DeviceInfo d : devices.values()) {
+                    if (d.booted() && match.test(d)) {
+                        future.complete(d);
+                        return;
+                    }
+                }
+                waiters.add(waiter);
+            }
+        });
+        // cancel() or orTimeout() by the caller must not leave the waiter registered
+        future.whenComplete((d, error) -> {
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+        });
+        return future;
+    }
+
+    /** Callers still waiting for a device. */
+    synchronized int pendingWaiters() {
+        return waiters.size();
+    }
+
+    /* ------------------------
+       Tracking
+       ------------------------ */
+
+    private void trackLoop() {
+        boolean serverStarted = false;
+        while (running) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                s.connect(new InetSocketAddress("127.0.0.1", adbPort), 2000);
+                OutputStream out = s.getOutputStream();
+                DataInputStream in = new DataInputStream(s.getInputStream());
+                sendRequest(out, "host:track-devices");
+                String status = readFixed(in, 4);
+                if (!"OKAY".equals(status)) {
+                    throw new IOException("adb refused track-devices: " + status + " " + readMessage(in));
+                }
+                while (running) {
+                    onDeviceList(parseDeviceList(readMessage(in)));
+                }
+            } catch (IOException e) {
+                if (!running) return;
+                if (!serverStarted) {
+                    // adb server not up yet; "adb start-server" launches it once, then we reconnect
+                    serverStarted = true;
+                    AdbUtils.run(null, 30, "start-server");
+                    continue;
+                }
+                System.err.println("adb device tracking interrupted (" + e.getMessage() + "); reconnecting");
+                // a dropped connection means the list we hold may be stale
+                onDeviceList(Map.of());
+            } finally {
+                socket = null;
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    synchronized void onDeviceList(Map<String, String> states) {
+        devices.keySet().removeIf(serial -> !states.containsKey(serial));
+        for (Map.Entry<String, String> e : states.entrySet()) {
+            String serial = e.getKey();
+            String state = e.getValue();
+            DeviceInfo previous = devices.get(serial);
+            if (previous == null || !previous.state().equals(state)) {
+                DeviceInfo info = previous == null
+                        ? new DeviceInfo(serial, state, "unknown", -1, false)
+                        : previous.withState(state);
+                devices.put(serial, info);
+                if ("device".equals(state) && !info.booted()) {
+                    Thread.ofVirtual().name("adb-probe-" + serial).start(() -> probe(serial));
+                }
+            }
+        }
+        firstSnapshot.complete(null);
+    }
+
+    /** Probe a newly online device, retrying a failed probe while the device stays online. */
+    private void probe(String serial) {
+        for (int attempt = 1; attempt <= PROBE_ATTEMPTS; attempt++) {
+            if (probeOnce(serial)) return;
+            System.err.println("Boot probe of " + serial + " failed (attempt " + attempt + " of " + PROBE_ATTEMPTS + ")");
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            DeviceInfo current = devices.get(serial);
+            if (!running || current == null || !"device".equals(current.state()) || current.booted()) return;
+        }
+    }
+
+    /**
+     * Read device facts once and block (on the device) until boot has completed.
+     * @return false if the probe failed and is worth repeating
+     */
+    private boolean probeOnce(String serial) {
+        String avd = "unknown";
+        if (serial.startsWith("emulator-")) {
+            avd = parseAvdName(AdbUtils.run(serial, 10, "emu", "avd", "name").output());
+        }
+        if ("unknown".equals(avd)) {
+            String prop = AdbUtils.shell(serial, "getprop", "ro.boot.qemu.avd_name").trim();
+            if (!prop.isEmpty()) avd = prop;
+        }
+        int api;
+        try {
+            api = Integer.parseInt(AdbUtils.shell(serial, "getprop", "ro.build.version.sdk").trim());
+        } catch (NumberFormatException e) {
+            api = -1;
+        }
+        AdbUtils.Result boot = AdbUtils.run(serial, 600, "shell",
+                "while [ \"$(getprop sys.boot_completed)\" != \"1\" ]; do sleep 1; done");
+
+        DeviceInfo info;
+        synchronized (this) {
+            DeviceInfo current = devices.get(serial);
+            if (current == null) return true; // disconnected while probing
+            info = new DeviceInfo(serial, current.state(), avd, api, boot.ok());
+            devices.put(serial, info);
+            if (!info.booted()) return false;
+            for (Waiter w : List.copyOf(waiters)) {
+                if (w.match().test(info)) w.future().complete(info); // whenComplete unregisters it
+            }
+        }
+        System.out.println("Device ready: " + info);
+        return true;
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** Payload of one track-devices message: "serial\tstate" per line. */
+    static Map<String, String> parseDeviceList(String payload) {
+        Map<String, String> states = new HashMap<>();
+        for (String line : payload.split("\n")) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) states.put(line.substring(0, tab), line.substring(tab + 1).trim());
+        }
+        return states;
+    }
+
+    /** "emu avd name" prints the name followed by "OK". */
+    static String parseAvdName(String output) {
+        for (String line : output.split("\\R")) {
+            String t = line.trim();
+            if (!t.isEmpty() && !t.equals("OK") && !t.startsWith("error")) return t;
+        }
+        return "unknown";
+    }
+
+    private static void sendRequest(OutputStream out, String request) throws IOException {
+        byte[] body = request.getBytes(StandardCharsets.US_ASCII);
+        out.write(String.format("%04x", body.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    /** One length-prefixed adb message (4 hex digits + payload). */
+    private static String readMessage(DataInputStream in) throws IOException {
+        int length = Integer.parseInt(readFixed(in, 4), 16);
+        return readFixed(in, length);
+    }
+
+    private static String readFixed(DataInputStream in, int length) throws IOException {
+        byte[] buf = new byte[length];
+        in.readFully(buf);
+        return new String(buf, StandardCharsets.UTF_8);
+    }
+
+    private void closeSocket() {
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
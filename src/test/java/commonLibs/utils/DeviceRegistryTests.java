@@ -0,0 +1,68 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Offline checks of DeviceRegistry parsing against recorded adb output (src/test/resources/recorded)
+ * and of waiter bookkeeping on a registry that is never connected to adb. Run with: mvn test -Poffline
+ */
+public class DeviceRegistryTests {
+
+    @Test(description = "track-devices payload: one serial and state per line, any state kept")
+    public void parseDeviceList() throws IOException {
+        Map<String, String> states = DeviceRegistry.parseDeviceList(recorded("adb-track-devices.txt"));
+
+        Assert.assertEquals(states, Map.of(
+                "emulator-5554", "device",
+                "emulator-5556", "offline",
+                "0A281FDD4000BV", "unauthorized",
+                "192.168.1.20:5555", "device"));
+        Assert.assertEquals(DeviceRegistry.parseDeviceList(""), Map.of(), "last device went away");
+    }
+
+    @Test(description = "emu avd name: the name line, not the OK trailer or an error")
+    public void parseAvdName() throws IOException {
+        Assert.assertEquals(DeviceRegistry.parseAvdName(recorded("emu-avd-name.txt")), "Pixel_7_API_34");
+        Assert.assertEquals(DeviceRegistry.parseAvdName("OK\n"), "unknown");
+        Assert.assertEquals(DeviceRegistry.parseAvdName(
+                "error: could not connect to TCP port 5554: Connection refused\n"), "unknown");
+    }
+
+    @Test(description = "a caller that cancels or times out is no longer registered")
+    public void abandonedWaitersAreRemoved() {
+        DeviceRegistry registry = new DeviceRegistry(0);
+        CompletableFuture<DeviceRegistry.DeviceInfo> early = registry.awaitSerial("emulator-5554");
+        early.cancel(false);
+        registry.onDeviceList(Map.of());
+        Assert.assertEquals(registry.pendingWaiters(), 0, "cancelled before the first device list");
+
+        CompletableFuture<DeviceRegistry.DeviceInfo> cancelled = registry.awaitAvd("Pixel_7_API_34");
+        CompletableFuture<DeviceRegistry.DeviceInfo> timedOut = registry.awaitSerial("emulator-5556")
+                .orTimeout(50, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(registry.pendingWaiters(), 2);
+
+        cancelled.cancel(false);
+        CompletionException e = Assert.expectThrows(CompletionException.class, timedOut::join);
+        Assert.assertTrue(e.getCause() instanceof TimeoutException, String.valueOf(e.getCause()));
+        Assert.assertEquals(registry.pendingWaiters(), 0);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static String recorded(String name) throws IOException {
+        try (InputStream in = DeviceRegistryTests.class.getResourceAsStream("/recorded/" + name)) {
+            Assert.assertNotNull(in, "missing fixture recorded/" + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
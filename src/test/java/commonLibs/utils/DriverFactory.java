@@ -1,11 +1,13 @@
 package commonLibs.utils;
 
+import io.appium.java_client.AppiumClientConfig;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.options.UiAutomator2Options;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 
 public class DriverFactory {
@@ -31,6 +33,18 @@ public class DriverFactory {
             deviceName = deviceNameEnv;
         }
 
+        String claimedSerial = null;
+        if ((deviceName == null || deviceName.isBlank()) && EmulatorFleet.isClaimEnabled()) {
+            // a running EmulatorFleet hands out one emulator per test JVM; the claim is kept across
+            // quitDriver() so later classes continue on the same device, and released at the suite end
+            try {
+                claimedSerial = EmulatorFleet.claim().serial();
+            } catch (Exception e) {
+                throw new RuntimeException("Could not claim an emulator from the fleet: " + e.getMessage(), e);
+            }
+            deviceName = claimedSerial;
+        }
+
         if (deviceName == null || deviceName.isBlank()) {
             deviceName = findFirstConnectedDevice();
             if (deviceName == null) {
@@ -50,6 +64,9 @@ public class DriverFactory {
         if (avdNameEnv != null && !avdNameEnv.isBlank()) {
             options.setAvd(avdNameEnv);
         }
+        if (claimedSerial != null) {
+            options.setUdid(claimedSerial);
+        }
         // (optional stability timeouts — uncomment if needed)
         // options.setAdbExecTimeout(Duration.ofMillis(60000));
         // options.setUiautomator2ServerLaunchTimeout(Duration.ofMillis(50000));
@@ -62,10 +79,67 @@ public class DriverFactory {
         System.out.println("App Package: " + appPackage);
         System.out.println("App Activity: " + appActivity);
 
-        driver = new AndroidDriver(new URL(serverUrl), options);
+        driver = newSession(serverUrl, options);
         return driver;
     }
 
+    /**
+     * Start a session on a specific device without making it the current driver (DevicePipeline
+     * prepares standby devices this way). systemPort must be unique per device on one Appium server.
+     */
+    public static AndroidDriver createDriverFor(String serial, int systemPort) throws MalformedURLException {
+        UiAutomator2Options options = new UiAutomator2Options()
+                .setAutomationName(ConfigReader.get("automation.name", "UiAutomator2"))
+                .setNoReset(Boolean.parseBoolean(ConfigReader.get("no.reset", "true")))
+                .setAppPackage(ConfigReader.get("app.package", "com.netbiscuits.bild.android"))
+                .setAppActivity(ConfigReader.get("app.activity", "de.bild.android.app.MainActivity"))
+                .setDeviceName(serial)
+                .setUdid(serial)
+                .setSystemPort(systemPort);
+        return newSession(ConfigReader.get("appium.server.url", "http://127.0.0.1:4723"), options);
+    }
+
+    /** Make a session started elsewhere (createDriverFor) the current driver. */
+    public static synchronized void adopt(AndroidDriver prepared) {
+        driver = prepared;
+    }
+
+    /** Detach the current driver without quitting it (the caller takes over its session). */
+    public static synchronized AndroidDriver detach() {
+        AndroidDriver current = driver;
+        driver = null;
+        return current;
+    }
+
+    private static AndroidDriver newSession(String serverUrl, UiAutomator2Options options) throws MalformedURLException {
+        URL url = URI.create(serverUrl).toURL();
+        AndroidDriver session;
+        if (DeadlineCommandExecutor.isEnabled()) {
+            // every driver command runs under a per-type deadline; hung calls are cancelled
+            AppiumClientConfig clientConfig = DriverHttpPipeline.isEnabled()
+                    ? DriverHttpPipeline.clientConfig(url)
+                    : traced(AppiumClientConfig.defaultConfig().baseUrl(url));
+            session = new AndroidDriver(new DeadlineCommandExecutor(clientConfig), options);
+        } else if (DriverHttpPipeline.isEnabled()) {
+            // pooled keep-alive transport with per-session cache and per-command metrics
+            session = new AndroidDriver(DriverHttpPipeline.clientConfig(url), options);
+        } else if (Tracer.isEnabled()) {
+            // default transport, every command recorded as a trace span
+            session = new AndroidDriver(traced(AppiumClientConfig.defaultConfig().baseUrl(url)), options);
+        } else {
+            session = new AndroidDriver(url, options);
+        }
+
+        // Hierarchy-hash sync replaces the idle wait, which times out on the app's constant animations
+        if (UiStabilityDetector.isEnabled()) {
+            UiStabilityDetector.disableIdleWait(session);
+        }
+        return session;
+    }
+
+    private static AppiumClientConfig traced(AppiumClientConfig config) {
+        return Tracer.isEnabled() ? config.withFilter(Tracer.httpFilter()) : config;
+    }
 
     public static AndroidDriver getDriver() {
         return driver;
@@ -73,9 +147,32 @@ public class DriverFactory {
 
     public static void quitDriver() {
         if (driver != null) {
-            driver.quit();
-            driver = null;
+            try {
+                driver.quit();
+            } finally {
+                // a dead session makes quit() throw; still forget it so a new one can be created
+                driver = null;
+            }
+        }
+    }
+
+    /**
+     * adb serial of the device under test: session capabilities first, then DEVICE_NAME env, then first connected device.
+     */
+    public static String getDeviceSerial() {
+        if (driver != null) {
+            try {
+                for (String key : new String[]{"udid", "appium:udid", "deviceUDID", "appium:deviceUDID"}) {
+                    Object value = driver.getCapabilities().getCapability(key);
+                    if (value != null && !value.toString().isBlank()) return value.toString();
+                }
+            } catch (Exception e) {
+                System.err.println("Warning: could not read udid from session: " + e.getMessage());
+            }
         }
+        String deviceNameEnv = System.getenv("DEVICE_NAME");
+        if (deviceNameEnv != null && !deviceNameEnv.isBlank()) return deviceNameEnv;
+        return findFirstConnectedDevice();
     }
 
     private static String findFirstConnectedDevice() {
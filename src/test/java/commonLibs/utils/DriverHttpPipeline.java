@@ -0,0 +1,221 @@
+package commonLibs.utils;
+
+import io.appium.java_client.AppiumClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * DriverHttpPipeline - tuned HTTP transport for the Appium driver.
+ * - Uses Selenium's JDK HttpClient backend, which keeps connections alive in a pool; pool size and
+ *   keep-alive are set through the jdk.httpclient.* properties before the first client is created
+ * - Read/connect timeouts come from config instead of the 10 minute default
+ * - Middleware (Selenium Filters, outermost first): [trace ->] metrics -> cache -> network
+ *   - metrics: count, mean/max latency, cache hits and errors per command route
+ *   - cache: per-session answers of idempotent GETs that do not change during a session (window
+ *     rect/size, session capabilities, device info, display density, system bars); invalidated on
+ *     rotation and dropped when the session is deleted
+ *
+ * Config (config.properties):
+ *   http.pipeline.enabled=false
+ *   http.pool.size=8
+ *   http.keepalive.seconds=120
+ *   http.read.timeout.seconds=120
+ *   http.connect.timeout.seconds=10
+ *   http.cache.enabled=true
+ */
+public class DriverHttpPipeline {
+
+    private static final Pattern SESSION_PATH = Pattern.compile("^/session/([^/]+)(/.*)?$");
+    private static final Pattern CACHEABLE = Pattern.compile(
+            "^(|/window/rect|/window/size|/window/current/size|/appium/device/info"
+                    + "|/appium/device/display_density|/appium/device/system_bars)$");
+    private static final Pattern INVALIDATES = Pattern.compile("^/(orientation|rotation|appium/device/rotate)$");
+    private static final Pattern ID_SEGMENT = Pattern.compile("/(session|element|shadow|frame)/[^/]+");
+
+    private static final CommandCache CACHE = new CommandCache();
+    private static final CommandMetrics METRICS = new CommandMetrics();
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("http.pipeline.enabled", "false"));
+    }
+
+    /** Client config for the Appium server at serverUrl with pooling, timeouts and middleware applied. */
+    public static AppiumClientConfig clientConfig(URL serverUrl) {
+        applyPoolSettings();
+        boolean cache = Boolean.parseBoolean(ConfigReader.get("http.cache.enabled", "true"));
+        Filter middleware = cache ? METRICS.andThen(CACHE) : METRICS;
+        if (Tracer.isEnabled()) middleware = Tracer.httpFilter().andThen(middleware);
+        return AppiumClientConfig.defaultConfig()
+                .baseUrl(serverUrl)
+                .readTimeout(Duration.ofSeconds(Long.parseLong(ConfigReader.get("http.read.timeout.seconds", "120"))))
+                .connectionTimeout(Duration.ofSeconds(Long.parseLong(ConfigReader.get("http.connect.timeout.seconds", "10"))))
+                .withFilter(middleware);
+    }
+
+    /** Pool settings are read once by the JDK client; values already set on the command line win. */
+    public static void applyPoolSettings() {
+        setIfAbsent("webdriver.http.factory", "jdk-http-client");
+        setIfAbsent("jdk.httpclient.connectionPoolSize", ConfigReader.get("http.pool.size", "8"));
+        setIfAbsent("jdk.httpclient.keepalive.timeout", ConfigReader.get("http.keepalive.seconds", "120"));
+    }
+
+    public static Filter metricsFilter() {
+        return METRICS;
+    }
+
+    public static Filter cacheFilter() {
+        return CACHE;
+    }
+
+    /** One line per route, slowest total time first. */
+    public static String metricsSummary() {
+        return METRICS.summary();
+    }
+
+    public static void resetMetrics() {
+        METRICS.stats.clear();
+    }
+
+    /* ------------------------
+       Middleware
+       ------------------------ */
+
+    private static final class CommandCache implements Filter {
+        // session id -> (method + uri) -> cached response
+        private final Map<String, Map<String, Cached>> sessions = new ConcurrentHashMap<>();
+
+        private record Cached(int status, List<String[]> headers, byte[] body) {
+            HttpResponse toResponse() {
+                HttpResponse r = new HttpResponse().setStatus(status);
+                for (String[] h : headers) r.addHeader(h[0], h[1]);
+                r.setContent(Contents.bytes(body));
+                r.setHeader(CommandMetrics.CACHE_HEADER, "hit");
+                return r;
+            }
+        }
+
+        @Override
+        public HttpHandler apply(HttpHandler next) {
+            return req -> {
+                var m = SESSION_PATH.matcher(req.getUri());
+                if (!m.matches()) return next.execute(req);
+                String session = m.group(1);
+                String sub = m.group(2) == null ? "" : m.group(2);
+
+                if (req.getMethod() == HttpMethod.DELETE && sub.isEmpty()) {
+                    sessions.remove(session);
+                    return next.execute(req);
+                }
+                if (req.getMethod() == HttpMethod.POST && INVALIDATES.matcher(sub).matches()) {
+                    sessions.remove(session);
+                    return next.execute(req);
+                }
+                if (req.getMethod() != HttpMethod.GET || !CACHEABLE.matcher(sub).matches()) {
+                    return next.execute(req);
+                }
+
+                String key = req.getMethod() + " " + req.getUri();
+                Map<String, Cached> entries = sessions.computeIfAbsent(session, s -> new ConcurrentHashMap<>());
+                Cached cached = entries.get(key);
+                if (cached != null) return cached.toResponse();
+
+                HttpResponse response = next.execute(req);
+                if (response.getStatus() == 200) {
+                    byte[] body = Contents.bytes(response.getContent());
+                    response.setContent(Contents.bytes(body)); // the original stream was consumed
+                    List<String[]> headers = new ArrayList<>();
+                    for (String name : response.getHeaderNames()) {
+                        for (String value : response.getHeaders(name)) headers.add(new String[]{name, value});
+                    }
+                    entries.put(key, new Cached(200, headers, body));
+                }
+                return response;
+            };
+        }
+    }
+
+    private static final class CommandMetrics implements Filter {
+        static final String CACHE_HEADER = "X-Driver-Cache";
+
+        private static final class Stat {
+            final LongAdder count = new LongAdder();
+            final LongAdder totalNanos = new LongAdder();
+            final AtomicLong maxNanos = new AtomicLong();
+            final LongAdder cacheHits = new LongAdder();
+            final LongAdder errors = new LongAdder();
+        }
+
+        private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+        @Override
+        public HttpHandler apply(HttpHandler next) {
+            return req -> {
+                Stat stat = stats.computeIfAbsent(req.getMethod() + " " + route(req), r -> new Stat());
+                long start = System.nanoTime();
+                try {
+                    HttpResponse response = next.execute(req);
+                    if ("hit".equals(response.getHeader(CACHE_HEADER))) stat.cacheHits.increment();
+                    if (response.getStatus() >= 400) stat.errors.increment();
+                    return response;
+                } catch (RuntimeException e) {
+                    stat.errors.increment();
+                    throw e;
+                } finally {
+                    long took = System.nanoTime() - start;
+                    stat.count.increment();
+                    stat.totalNanos.add(took);
+                    stat.maxNanos.accumulateAndGet(took, Math::max);
+                }
+            };
+        }
+
+        String summary() {
+            List<Map.Entry<String, Stat>> entries = new ArrayList<>(stats.entrySet());
+            entries.removeIf(e -> e.getValue().count.sum() == 0);
+            if (entries.isEmpty()) return "No driver HTTP commands recorded";
+            entries.sort(Comparator.comparingLong((Map.Entry<String, Stat> e) -> e.getValue().totalNanos.sum()).reversed());
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Stat> e : entries) {
+                Stat s = e.getValue();
+                long n = s.count.sum();
+                long total = s.totalNanos.sum();
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(String.format(Locale.ROOT,
+                        "%-55s n=%-5d mean=%7.2f ms max=%7.2f ms total=%8.1f ms hits=%d errors=%d",
+                        e.getKey(), n, total / 1e6 / n, s.maxNanos.get() / 1e6, total / 1e6,
+                        s.cacheHits.sum(), s.errors.sum()));
+            }
+            return sb.toString();
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** "/session/1a2b/element/9f/click" -> "/session/{id}/element/{id}/click" */
+    static String route(HttpRequest req) {
+        String uri = req.getUri();
+        int q = uri.indexOf('?');
+        if (q >= 0) uri = uri.substring(0, q);
+        return ID_SEGMENT.matcher(uri).replaceAll("/$1/{id}");
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+}
@@ -0,0 +1,683 @@
+package commonLibs.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+/**
+ * EmulatorFleet - starts, watches and stops headless emulators so the device count follows the shard queue.
+ * - Instances are started from AVD templates with -read-only, so one AVD backs any number of instances;
+ *   templates are used round-robin (e.g. one per API level)
+ * - Each instance gets its own even console port and the adb port above it (serial emulator-<console>);
+ *   ports of running emulators, of devices adb already knows and of busy sockets are skipped
+ * - Boot is tracked through DeviceRegistry (sys.boot_completed); an instance that does not boot within
+ *   fleet.boot.timeout.seconds is killed, one that fails fleet.health.failures health checks in a row
+ *   (process gone, device offline, shell not answering) is restarted
+ * - Target size every tick: busy instances + queued shards, within fleet.min / fleet.max and at most one
+ *   instance per fleet.cores.per.emulator host cores; a new instance starts only while fewer than
+ *   fleet.max.parallel.boots are booting, the 1-minute load average is below fleet.max.load per core and
+ *   the host has the AVD's RAM (hw.ramSize + overhead) left above fleet.ram.reserve.mb
+ * - Idle instances above the target are stopped after fleet.idle.stop.seconds, never below fleet.min
+ *
+ * Shards in other JVMs use the fleet through files in fleet.dir: the fleet writes state.properties
+ * (serial=state,avd) every tick, a shard claims a ready emulator with claim() (an atomically created
+ * leases/<serial>.lease holding its pid), and a lease whose process has ended is removed by the fleet.
+ * With fleet.claim=true DriverFactory claims its device this way.
+ *
+ * Usage (next to the test shards, e.g. on a CI host):
+ *   java -cp <test classpath> commonLibs.utils.EmulatorFleet --queue-dir target/shard-queue
+ *   java -cp <test classpath> commonLibs.utils.EmulatorFleet --shards 6
+ * With --queue-dir every regular file in the directory is one queued shard (CI writes one per shard, the
+ * shard deletes its file when it starts). The fleet runs until stopped; all its emulators are killed on exit.
+ * adb discovers emulators on ports up to 5585 by default (16 instances); set ADB_LOCAL_TRANSPORT_MAX_PORT
+ * before the adb server starts to go beyond.
+ *
+ * Config (config.properties):
+ *   fleet.avd.templates=Medium_Phone
+ *   fleet.min=0
+ *   fleet.max=8
+ *   fleet.cores.per.emulator=2
+ *   fleet.max.load=0.9
+ *   fleet.ram.overhead.mb=1024
+ *   fleet.ram.reserve.mb=2048
+ *   fleet.max.parallel.boots=2
+ *   fleet.boot.timeout.seconds=300
+ *   fleet.health.failures=3
+ *   fleet.idle.stop.seconds=120
+ *   fleet.tick.seconds=5
+ *   fleet.port.base=5554
+ *   fleet.emulator.args=-no-window -no-audio -no-boot-anim -gpu swiftshader_indirect
+ *   fleet.dir=fleet
+ *   fleet.claim=false
+ *   fleet.claim.timeout.seconds=900
+ */
+public class EmulatorFleet {
+
+    public enum State { BOOTING, READY, BUSY, STOPPING, STOPPED, FAILED }
+
+    /** One emulator process started by this fleet. */
+    public static final class Instance {
+        final String avd;
+        final int consolePort;
+        final String serial;
+        final long startedAt = System.currentTimeMillis();
+        volatile State state = State.BOOTING;
+        volatile long readyAt;
+        long idleSince;
+        int healthFailures;
+        Process process;
+
+        Instance(String avd, int consolePort) {
+            this.avd = avd;
+            this.consolePort = consolePort;
+            this.serial = "emulator-" + consolePort;
+        }
+
+        public String serial() {
+            return serial;
+        }
+
+        public String avd() {
+            return avd;
+        }
+
+        public State state() {
+            return state;
+        }
+    }
+
+    /** A claimed emulator; close() hands it back to the fleet. */
+    public record Lease(String serial, Path file) implements AutoCloseable {
+        @Override
+        public void close() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Fleet: could not release " + serial + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static final int MAX_CONSOLE_PORT = 5682;
+    private static Lease claimed;
+    private static boolean releaseHookInstalled;
+
+    private final List<String> templates;
+    private final IntSupplier queuedShards;
+    private final Path dir;
+    private final Map<String, Instance> instances = new LinkedHashMap<>(); // guarded by this
+    private final Map<String, Long> ramMbByAvd = new LinkedHashMap<>();
+    private final String emulatorBinary;
+    private final int min;
+    private final int max;
+    private final int coresPerEmulator;
+    private final double maxLoadPerCore;
+    private final long ramReserveMb;
+    private final int maxParallelBoots;
+    private final long bootTimeoutSeconds;
+    private final int healthFailures;
+    private final long idleStopMillis;
+    private final long tickMillis;
+    private final int portBase;
+    private int nextTemplate;
+    private String lastStatus = "";
+    private volatile boolean running;
+    private Thread loop;
+
+    public EmulatorFleet(List<String> templates, IntSupplier queuedShards) {
+        this(templates, queuedShards, fleetDir());
+    }
+
+    EmulatorFleet(List<String> templates, IntSupplier queuedShards, Path dir) {
+        if (templates.isEmpty()) throw new IllegalArgumentException("No AVD template configured (fleet.avd.templates)");
+        this.templates = List.copyOf(templates);
+        this.queuedShards = queuedShards;
+        this.dir = dir;
+        this.emulatorBinary = emulatorBinary();
+        this.min = Integer.parseInt(ConfigReader.get("fleet.min", "0"));
+        this.max = Integer.parseInt(ConfigReader.get("fleet.max", "8"));
+        this.coresPerEmulator = Math.max(1, Integer.parseInt(ConfigReader.get("fleet.cores.per.emulator", "2")));
+        this.maxLoadPerCore = Double.parseDouble(ConfigReader.get("fleet.max.load", "0.9"));
+        this.ramReserveMb = Long.parseLong(ConfigReader.get("fleet.ram.reserve.mb", "2048"));
+        this.maxParallelBoots = Math.max(1, Integer.parseInt(ConfigReader.get("fleet.max.parallel.boots", "2")));
+        this.bootTimeoutSeconds = Long.parseLong(ConfigReader.get("fleet.boot.timeout.seconds", "300"));
+        this.healthFailures = Integer.parseInt(ConfigReader.get("fleet.health.failures", "3"));
+        this.idleStopMillis = Long.parseLong(ConfigReader.get("fleet.idle.stop.seconds", "120")) * 1000;
+        this.tickMillis = Long.parseLong(ConfigReader.get("fleet.tick.seconds", "5")) * 1000;
+        this.portBase = Integer.parseInt(ConfigReader.get("fleet.port.base", "5554"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        IntSupplier queue = null;
+        List<String> templates = csv(ConfigReader.get("fleet.avd.templates", "Medium_Phone"));
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--shards" -> {
+                    int n = Integer.parseInt(args[++i]);
+                    queue = () -> n;
+                }
+                case "--queue-dir" -> {
+                    Path queueDir = Path.of(args[++i]);
+                    queue = () -> countFiles(queueDir);
+                }
+                case "--avd" -> templates = csv(args[++i]);
+                default -> {
+                    System.err.println("Usage: EmulatorFleet (--shards <n> | --queue-dir <dir>) [--avd <template,...>]");
+                    System.exit(2);
+                }
+            }
+        }
+        if (queue == null) {
+            System.err.println("Usage: EmulatorFleet (--shards <n> | --queue-dir <dir>) [--avd <template,...>]");
+            System.exit(2);
+        }
+        EmulatorFleet fleet = new EmulatorFleet(templates, queue);
+        Runtime.getRuntime().addShutdownHook(new Thread(fleet::stop, "fleet-shutdown"));
+        fleet.start();
+        fleet.loop.join();
+    }
+
+    /* ------------------------
+       Lifecycle
+       ------------------------ */
+
+    public synchronized void start() throws IOException {
+        if (running) return;
+        Files.createDirectories(dir.resolve("leases"));
+        Files.createDirectories(dir.resolve("logs"));
+        running = true;
+        DeviceRegistry.shared();
+        loop = Thread.ofVirtual().name("emulator-fleet").start(this::run);
+        System.out.println("Fleet: templates " + templates + ", " + min + ".." + max + " instances, "
+                + cpuCapacity() + " by CPU, emulator " + emulatorBinary);
+    }
+
+    /** Stop the control loop and every emulator this fleet started. */
+    public void stop() {
+        List<Instance> all;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            all = new ArrayList<>(instances.values());
+        }
+        if (loop != null) loop.interrupt();
+        CompletableFuture.allOf(all.stream()
+                .map(i -> CompletableFuture.runAsync(() -> kill(i), r -> Thread.ofVirtual().start(r)))
+                .toArray(CompletableFuture<?>[]::new)).join();
+        try {
+            Files.deleteIfExists(dir.resolve("state.properties"));
+        } catch (IOException ignored) {
+        }
+        System.out.println("Fleet: stopped " + all.size() + " instance(s)");
+    }
+
+    public synchronized List<Instance> instances() {
+        return List.copyOf(instances.values());
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                tick();
+            } catch (Exception e) {
+                System.err.println("Fleet: control loop error: " + e);
+            }
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /* ------------------------
+       Control loop
+       ------------------------ */
+
+    /** One round: health and leases, scale to the target, publish the state for other JVMs. */
+    void tick() {
+        List<Instance> checked;
+        synchronized (this) {
+            instances.values().removeIf(i -> i.state == State.STOPPED || i.state == State.FAILED);
+            checked = instances.values().stream()
+                    .filter(i -> i.state == State.READY || i.state == State.BUSY)
+                    .toList();
+        }
+        // a shell probe may take its full timeout; probe side by side and without holding the monitor,
+        // so onBooted and stop() are not held up by a hanging instance
+        Map<Instance, CompletableFuture<Boolean>> probes = new LinkedHashMap<>();
+        for (Instance i : checked) {
+            probes.put(i, CompletableFuture.supplyAsync(() -> probe(i), r -> Thread.ofVirtual().start(r)));
+        }
+        CompletableFuture.allOf(probes.values().toArray(CompletableFuture<?>[]::new)).join();
+
+        synchronized (this) {
+            scale(probes);
+        }
+    }
+
+    private void scale(Map<Instance, CompletableFuture<Boolean>> probes) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Instance, CompletableFuture<Boolean>> e : probes.entrySet()) {
+            Instance i = e.getKey();
+            if (i.state != State.READY && i.state != State.BUSY) continue; // stopped while probing
+            recordHealth(i, e.getValue().join());
+            if (i.state == State.STOPPING) continue;
+            boolean leased = isLeased(i.serial);
+            if (i.state == State.READY && leased) i.state = State.BUSY;
+            else if (i.state == State.BUSY && !leased) {
+                i.state = State.READY;
+                i.idleSince = now;
+            }
+        }
+
+        int queued = Math.max(0, queuedShards.getAsInt());
+        int busy = count(State.BUSY);
+        int booting = count(State.BOOTING);
+        int live = busy + booting + count(State.READY);
+        int target = target(min, max, cpuCapacity(), busy, queued);
+
+        String blocked = null;
+        while (live < target && booting < maxParallelBoots) {
+            blocked = hostBlocker(templates.get(nextTemplate % templates.size()));
+            if (blocked != null) break;
+            if (launch(templates.get(nextTemplate++ % templates.size())) == null) break;
+            live++;
+            booting++;
+        }
+        if (live > target) {
+            // stop idle instances beyond the target, longest idle first
+            List<Instance> idle = idleLongestFirst(instances.values(), now, idleStopMillis);
+            for (int k = 0; k < idle.size() && live > Math.max(target, min); k++) {
+                Instance i = idle.get(k);
+                // a shard may have claimed it since the lease check above; holding the lease ourselves
+                // closes that window, and kill() removes it again
+                if (!takeLease(i.serial)) {
+                    i.state = State.BUSY;
+                    continue;
+                }
+                i.state = State.STOPPING;
+                Thread.ofVirtual().name("fleet-stop-" + i.serial).start(() -> kill(i));
+                live--;
+            }
+        }
+
+        publishState();
+        String status = String.format(Locale.ROOT, "%d ready, %d busy, %d booting; %d queued -> target %d%s",
+                count(State.READY), count(State.BUSY), count(State.BOOTING), queued, target,
+                blocked == null ? "" : " (" + blocked + ")");
+        if (!status.equals(lastStatus)) {
+            System.out.println("Fleet: " + status);
+            lastStatus = status;
+        }
+    }
+
+    /** Start one instance and track its boot in the background; null if no port pair is free. */
+    private Instance launch(String avd) {
+        int port = freeConsolePort();
+        if (port < 0) {
+            System.err.println("Fleet: no free emulator port pair between " + portBase + " and " + MAX_CONSOLE_PORT);
+            return null;
+        }
+        Instance instance = new Instance(avd, port);
+        List<String> cmd = new ArrayList<>(List.of(emulatorBinary, "-avd", avd, "-ports", port + "," + (port + 1), "-read-only"));
+        cmd.addAll(csvArgs(ConfigReader.get("fleet.emulator.args", "-no-window -no-audio -no-boot-anim -gpu swiftshader_indirect")));
+        try {
+            instance.process = new ProcessBuilder(cmd)
+                    .redirectErrorStream(true)
+                    .redirectOutput(dir.resolve("logs").resolve(instance.serial + ".log").toFile())
+                    .start();
+        } catch (IOException e) {
+            System.err.println("Fleet: starting " + avd + " failed: " + e.getMessage());
+            return null;
+        }
+        instances.put(instance.serial, instance);
+        System.out.println("Fleet: starting " + avd + " as " + instance.serial);
+
+        DeviceRegistry.shared().awaitSerial(instance.serial)
+                .orTimeout(bootTimeoutSeconds, TimeUnit.SECONDS)
+                .whenComplete((info, error) -> onBooted(instance, error));
+        return instance;
+    }
+
+    private void onBooted(Instance instance, Throwable error) {
+        synchronized (this) {
+            if (instance.state != State.BOOTING) return; // stopped while booting
+            if (error == null && instance.process.isAlive()) {
+                instance.state = State.READY;
+                instance.readyAt = System.currentTimeMillis();
+                instance.idleSince = instance.readyAt;
+                System.out.println("Fleet: " + instance.serial + " (" + instance.avd + ") booted in "
+                        + (instance.readyAt - instance.startedAt) / 1000 + " s");
+                publishState();
+                return;
+            }
+            instance.state = State.STOPPING;
+        }
+        System.err.println("Fleet: " + instance.serial + " did not boot"
+                + (instance.process.isAlive() ? " within " + bootTimeoutSeconds + " s" : " (emulator exited)")
+                + "; see " + dir.resolve("logs").resolve(instance.serial + ".log"));
+        kill(instance);
+        instance.state = State.FAILED;
+    }
+
+    /** Process alive, device listed as online and the shell answering; blocks up to 10 s, call without the monitor. */
+    private static boolean probe(Instance i) {
+        DeviceRegistry.DeviceInfo info = DeviceRegistry.shared().devices().get(i.serial);
+        return i.process.isAlive() && info != null && "device".equals(info.state())
+                && AdbUtils.run(i.serial, 10, "shell", "echo", "ok").output().trim().equals("ok");
+    }
+
+    /** Consecutive failed probes (process gone, device missing or offline, shell silent) restart the instance. */
+    private void recordHealth(Instance i, boolean healthy) {
+        if (healthy) {
+            i.healthFailures = 0;
+            return;
+        }
+        if (++i.healthFailures < healthFailures) return;
+        System.err.println("Fleet: " + i.serial + " unhealthy after " + i.healthFailures + " checks; restarting");
+        i.state = State.STOPPING;
+        Thread.ofVirtual().name("fleet-restart-" + i.serial).start(() -> kill(i));
+        // the next tick starts a replacement if the target still needs it
+    }
+
+    /** "emu kill" first (clean shutdown), then the process; frees the ports. */
+    private void kill(Instance i) {
+        i.state = State.STOPPING;
+        if (i.process != null && i.process.isAlive()) {
+            // without a console (adb down, never booted) go straight to SIGTERM
+            if (!AdbUtils.run(i.serial, 20, "emu", "kill").ok()) i.process.destroy();
+            try {
+                if (!i.process.waitFor(30, TimeUnit.SECONDS)) {
+                    i.process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                i.process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        i.state = State.STOPPED;
+        try {
+            Files.deleteIfExists(leaseFile(dir, i.serial));
+        } catch (IOException ignored) {
+        }
+    }
+
+    /* ------------------------
+       Claims (shard side)
+       ------------------------ */
+
+    public static boolean isClaimEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("fleet.claim", "false"));
+    }
+
+    /** Claim a ready emulator of the running fleet for this JVM; waits up to fleet.claim.timeout.seconds. */
+    public static synchronized Lease claim() throws IOException, InterruptedException {
+        if (claimed != null) return claimed;
+        Path dir = fleetDir();
+        long deadline = System.currentTimeMillis() + Long.parseLong(ConfigReader.get("fleet.claim.timeout.seconds", "900")) * 1000;
+        while (System.currentTimeMillis() < deadline) {
+            Lease lease = tryClaim(dir);
+            if (lease != null) {
+                claimed = lease;
+                // also released when the JVM ends without reaching the suite end (the fleet would
+                // otherwise only notice the dead pid on its next tick)
+                if (!releaseHookInstalled) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(EmulatorFleet::releaseClaim, "fleet-release"));
+                    releaseHookInstalled = true;
+                }
+                System.out.println("Fleet: claimed " + lease.serial());
+                return claimed;
+            }
+            Thread.sleep(2000);
+        }
+        throw new IllegalStateException("No emulator of the fleet in " + dir + " became free in time; is EmulatorFleet running?");
+    }
+
+    /** One pass over the published state: lease the first ready emulator nobody holds, or null. */
+    static Lease tryClaim(Path dir) throws IOException {
+        for (Map.Entry<Object, Object> e : readState(dir).entrySet()) {
+            if (!e.getValue().toString().startsWith(State.READY + ",")) continue;
+            String serial = e.getKey().toString();
+            Path file = leaseFile(dir, serial);
+            try {
+                Files.writeString(file, String.valueOf(ProcessHandle.current().pid()), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException taken) {
+                continue;
+            }
+            return new Lease(serial, file);
+        }
+        return null;
+    }
+
+    /** Hand back the emulator claimed by this JVM (no-op without a claim); called once at the end of the suite. */
+    public static synchronized void releaseClaim() {
+        if (claimed != null) {
+            claimed.close();
+            claimed = null;
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private int count(State state) {
+        int n = 0;
+        for (Instance i : instances.values()) if (i.state == state) n++;
+        return n;
+    }
+
+    /** A lease counts while its holder process lives; stale ones are removed. */
+    boolean isLeased(String serial) {
+        Path file = leaseFile(dir, serial);
+        if (!Files.exists(file)) return false;
+        try {
+            long pid = Long.parseLong(Files.readString(file).trim());
+            if (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) return true;
+            Files.deleteIfExists(file);
+            System.out.println("Fleet: released stale lease of " + serial + " (pid " + pid + " ended)");
+        } catch (IOException | NumberFormatException e) {
+            return true; // being written right now
+        }
+        return false;
+    }
+
+    /** Create the lease for this fleet process; false if a shard holds it. */
+    boolean takeLease(String serial) {
+        try {
+            Files.writeString(leaseFile(dir, serial), String.valueOf(ProcessHandle.current().pid()),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private int cpuCapacity() {
+        return cpuCapacity(Runtime.getRuntime().availableProcessors(), coresPerEmulator);
+    }
+
+    static int cpuCapacity(int cores, int coresPerEmulator) {
+        return Math.max(1, cores / coresPerEmulator);
+    }
+
+    /** Busy instances plus queued shards, at least min, at most max and the CPU capacity. */
+    static int target(int min, int max, int cpuCapacity, int busy, int queued) {
+        return Math.min(Math.min(max, cpuCapacity), Math.max(min, busy + queued));
+    }
+
+    /** Whether one more instance needing neededMb leaves reserveMb free; booting instances have not allocated theirs yet. */
+    static boolean ramFits(long availableMb, int booting, long neededMb, long reserveMb) {
+        return availableMb - (long) booting * neededMb - neededMb >= reserveMb;
+    }
+
+    /** Ready instances idle for at least idleStopMillis, longest idle first. */
+    static List<Instance> idleLongestFirst(Collection<Instance> all, long now, long idleStopMillis) {
+        List<Instance> idle = new ArrayList<>();
+        for (Instance i : all) {
+            if (i.state == State.READY && now - i.idleSince >= idleStopMillis) idle.add(i);
+        }
+        idle.sort(Comparator.comparingLong(i -> i.idleSince));
+        return idle;
+    }
+
+    /** Why the host cannot take another instance of the AVD right now, or null. */
+    private String hostBlocker(String avd) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        if (load >= 0 && load > maxLoadPerCore * cores) {
+            return String.format(Locale.ROOT, "load %.1f on %d cores", load, cores);
+        }
+        long available = availableRamMb();
+        long needed = ramMbByAvd.computeIfAbsent(avd, EmulatorFleet::avdRamMb)
+                + Long.parseLong(ConfigReader.get("fleet.ram.overhead.mb", "1024"));
+        if (available >= 0 && !ramFits(available, count(State.BOOTING), needed, ramReserveMb)) {
+            return "RAM " + available + " MB free, " + avd + " needs " + needed + " MB";
+        }
+        return null;
+    }
+
+    private int freeConsolePort() {
+        Map<String, DeviceRegistry.DeviceInfo> known = DeviceRegistry.shared().devices();
+        for (int port = portBase; port <= MAX_CONSOLE_PORT; port += 2) {
+            String serial = "emulator-" + port;
+            if (instances.containsKey(serial) || known.containsKey(serial)) continue;
+            if (portFree(port) && portFree(port + 1)) return port;
+        }
+        return -1;
+    }
+
+    private static boolean portFree(int port) {
+        try (ServerSocket s = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** MemAvailable from /proc/meminfo (counts reclaimable cache), else the JVM's view of free RAM; -1 if unknown. */
+    private static long availableRamMb() {
+        Path meminfo = Path.of("/proc/meminfo");
+        if (Files.isReadable(meminfo)) {
+            try (BufferedReader r = Files.newBufferedReader(meminfo)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.startsWith("MemAvailable:")) {
+                        return Long.parseLong(line.replaceAll("\\D+", "")) / 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+            }
+        }
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getFreeMemorySize() / (1024 * 1024);
+        }
+        return -1;
+    }
+
+    private static long avdRamMb(String avd) {
+        String avdHome = System.getenv("ANDROID_AVD_HOME");
+        return avdRamMb(avdHome != null ? Path.of(avdHome) : Path.of(System.getProperty("user.home"), ".android", "avd"), avd);
+    }
+
+    /** hw.ramSize of the AVD's config.ini ("2048", "2048M", "2048MB", "2G", "2GB"); 2048 if not readable. */
+    static long avdRamMb(Path avdHome, String avd) {
+        Path config = avdHome.resolve(avd + ".avd").resolve("config.ini");
+        try {
+            for (String line : Files.readAllLines(config)) {
+                if (!line.startsWith("hw.ramSize")) continue;
+                String v = line.substring(line.indexOf('=') + 1).trim().toUpperCase(Locale.ROOT);
+                if (v.endsWith("B")) v = v.substring(0, v.length() - 1);
+                if (v.endsWith("G")) return Long.parseLong(v.substring(0, v.length() - 1)) * 1024;
+                if (v.endsWith("M")) v = v.substring(0, v.length() - 1);
+                return Long.parseLong(v);
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return 2048;
+    }
+
+    private synchronized void publishState() {
+        Properties p = new Properties();
+        for (Instance i : instances.values()) p.setProperty(i.serial, i.state + "," + i.avd);
+        Path file = dir.resolve("state.properties");
+        try {
+            Path tmp = Files.createTempFile(dir, "state", ".tmp");
+            try (var w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                p.store(w, "EmulatorFleet pid " + ProcessHandle.current().pid() + "; serial=state,avd");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Fleet: writing " + file + " failed: " + e.getMessage());
+        }
+    }
+
+    private static Properties readState(Path dir) throws IOException {
+        Properties p = new Properties();
+        Path file = dir.resolve("state.properties");
+        if (Files.exists(file)) {
+            try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                p.load(r);
+            }
+        }
+        return p;
+    }
+
+    private static Path leaseFile(Path dir, String serial) {
+        return dir.resolve("leases").resolve(serial + ".lease");
+    }
+
+    private static Path fleetDir() {
+        return Path.of(System.getProperty("user.dir")).resolve(ConfigReader.get("fleet.dir", "fleet"));
+    }
+
+    /** emulator from ANDROID_SDK_ROOT / ANDROID_HOME, else from PATH. */
+    private static String emulatorBinary() {
+        for (String env : new String[]{"ANDROID_SDK_ROOT", "ANDROID_HOME"}) {
+            String sdk = System.getenv(env);
+            if (sdk == null || sdk.isBlank()) continue;
+            Path binary = Path.of(sdk, "emulator", "emulator");
+            if (Files.isExecutable(binary)) return binary.toString();
+        }
+        return "emulator";
+    }
+
+    private static int countFiles(Path queueDir) {
+        if (!Files.isDirectory(queueDir)) return 0;
+        try (Stream<Path> s = Files.list(queueDir)) {
+            return (int) s.filter(Files::isRegularFile).count();
+        } catch (IOException e) {
+            System.err.println("Fleet: reading queue " + queueDir + " failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static List<String> csv(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static List<String> csvArgs(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(s -> !s.isEmpty()).toList();
+    }
+}
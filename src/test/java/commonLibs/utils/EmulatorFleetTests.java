@@ -0,0 +1,137 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Offline checks of the EmulatorFleet sizing arithmetic, the AVD RAM lookup and the lease files shared
+ * with the shards, in a temporary fleet directory; no emulator or adb needed. Run with: mvn test -Poffline
+ */
+public class EmulatorFleetTests {
+
+    private Path workDir;
+
+    @BeforeMethod(alwaysRun = true)
+    public void createDir() throws IOException {
+        workDir = Files.createTempDirectory("fleet");
+        Files.createDirectories(workDir.resolve("leases"));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDir() throws IOException {
+        try (Stream<Path> s = Files.walk(workDir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Test(description = "hw.ramSize in MB, with M/MB/G/GB suffixes; 2048 when missing or unreadable")
+    public void avdRamMb() throws IOException {
+        avd("Plain", "hw.ramSize=1536");
+        avd("Mega", "hw.ramSize = 3072M");
+        avd("MegaB", "hw.ramSize=3072MB");
+        avd("Giga", "hw.ramSize=2G");
+        avd("GigaB", "hw.ramSize=4gb");
+        avd("NoRam", "hw.lcd.density=420");
+        avd("Garbage", "hw.ramSize=lots");
+
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "Plain"), 1536L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "Mega"), 3072L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "MegaB"), 3072L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "Giga"), 2048L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "GigaB"), 4096L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "NoRam"), 2048L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "Garbage"), 2048L);
+        Assert.assertEquals(EmulatorFleet.avdRamMb(workDir, "Missing"), 2048L);
+    }
+
+    @Test(description = "target: busy + queued within min, max and the CPU capacity")
+    public void target() {
+        Assert.assertEquals(EmulatorFleet.cpuCapacity(8, 2), 4);
+        Assert.assertEquals(EmulatorFleet.cpuCapacity(1, 2), 1, "always room for one");
+
+        Assert.assertEquals(EmulatorFleet.target(0, 8, 4, 0, 6), 4, "capped by the CPU");
+        Assert.assertEquals(EmulatorFleet.target(0, 3, 4, 0, 6), 3, "capped by fleet.max");
+        Assert.assertEquals(EmulatorFleet.target(2, 8, 4, 0, 0), 2, "kept at fleet.min");
+        Assert.assertEquals(EmulatorFleet.target(0, 8, 8, 3, 2), 5);
+        Assert.assertEquals(EmulatorFleet.target(0, 8, 8, 0, 0), 0, "scales to zero");
+    }
+
+    @Test(description = "one more instance only while its RAM and that of the booting ones leave the reserve")
+    public void ramFits() {
+        // 3072 MB AVD + overhead each, 2048 MB reserve
+        Assert.assertTrue(EmulatorFleet.ramFits(8000, 0, 3072, 2048));
+        Assert.assertFalse(EmulatorFleet.ramFits(8000, 1, 3072, 2048), "the booting instance has not allocated yet");
+        Assert.assertTrue(EmulatorFleet.ramFits(5120, 0, 3072, 2048), "exactly the reserve left");
+        Assert.assertFalse(EmulatorFleet.ramFits(5119, 0, 3072, 2048));
+    }
+
+    @Test(description = "only ready instances idle long enough are stop candidates, longest idle first")
+    public void idleLongestFirst() {
+        EmulatorFleet.Instance recent = instance(5554, EmulatorFleet.State.READY, 9_000);
+        EmulatorFleet.Instance oldest = instance(5556, EmulatorFleet.State.READY, 1_000);
+        EmulatorFleet.Instance old = instance(5558, EmulatorFleet.State.READY, 4_000);
+        EmulatorFleet.Instance busy = instance(5560, EmulatorFleet.State.BUSY, 0);
+        EmulatorFleet.Instance booting = instance(5562, EmulatorFleet.State.BOOTING, 0);
+
+        List<EmulatorFleet.Instance> idle = EmulatorFleet.idleLongestFirst(
+                List.of(recent, oldest, old, busy, booting), 10_000, 5_000);
+
+        Assert.assertEquals(idle, List.of(oldest, old));
+    }
+
+    @Test(description = "a shard claims each ready emulator once; the fleet sees live and stale leases")
+    public void leases() throws Exception {
+        Files.writeString(workDir.resolve("state.properties"),
+                "emulator-5554=BUSY,Medium_Phone\nemulator-5556=READY,Medium_Phone\nemulator-5558=BOOTING,Medium_Phone\n",
+                StandardCharsets.UTF_8);
+        EmulatorFleet fleet = new EmulatorFleet(List.of("Medium_Phone"), () -> 0, workDir);
+
+        EmulatorFleet.Lease lease = EmulatorFleet.tryClaim(workDir);
+        Assert.assertNotNull(lease);
+        Assert.assertEquals(lease.serial(), "emulator-5556", "only the ready emulator");
+        Assert.assertNull(EmulatorFleet.tryClaim(workDir), "already leased");
+        Assert.assertTrue(fleet.isLeased("emulator-5556"), "held by this live JVM");
+        Assert.assertFalse(fleet.takeLease("emulator-5556"), "the fleet must not stop a leased emulator");
+
+        lease.close();
+        Assert.assertFalse(fleet.isLeased("emulator-5556"));
+        Assert.assertTrue(fleet.takeLease("emulator-5556"), "idle again, the fleet can hold it for stopping");
+        Assert.assertNull(EmulatorFleet.tryClaim(workDir), "held by the fleet");
+
+        // a shard that died without releasing: its lease goes on the next check
+        Process ended = new ProcessBuilder("true").start();
+        ended.waitFor();
+        Path stale = workDir.resolve("leases").resolve("emulator-5554.lease");
+        Files.writeString(stale, String.valueOf(ended.pid()), StandardCharsets.UTF_8);
+        Assert.assertFalse(fleet.isLeased("emulator-5554"));
+        Assert.assertFalse(Files.exists(stale), "stale lease removed");
+
+        // a lease still being written counts as held
+        Files.writeString(stale, "", StandardCharsets.UTF_8);
+        Assert.assertTrue(fleet.isLeased("emulator-5554"));
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private void avd(String name, String... lines) throws IOException {
+        Path avdDir = Files.createDirectories(workDir.resolve(name + ".avd"));
+        Files.write(avdDir.resolve("config.ini"), List.of(lines), StandardCharsets.UTF_8);
+    }
+
+    private static EmulatorFleet.Instance instance(int port, EmulatorFleet.State state, long idleSince) {
+        EmulatorFleet.Instance i = new EmulatorFleet.Instance("Medium_Phone", port);
+        i.state = state;
+        i.idleSince = idleSince;
+        return i;
+    }
+}
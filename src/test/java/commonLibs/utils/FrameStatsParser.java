@@ -0,0 +1,177 @@
+package commonLibs.utils;
+
+import java.util.Arrays;
+
+/**
+ * FrameStatsParser - parses "dumpsys gfxinfo <pkg> framestats" output into per-frame durations.
+ * - Every ---PROFILEDATA--- block (one per window) is read; column positions come from its header line,
+ *   so dumps from different Android versions parse the same way
+ * - Frame duration = FrameCompleted - IntendedVsync (ns); rows with non-zero Flags are skipped
+ *   (Android marks those frames as unreliable for timing)
+ * - Single pass over the text without split()/regex, so large dumps parse quickly
+ *
+ * parse() works on any captured dump, e.g. one recorded from a device and stored as a file.
+ */
+public class FrameStatsParser {
+
+    private static final String PROFILE_MARKER = "---PROFILEDATA---";
+
+    /** Parsed frames of one dump. */
+    public static final class FrameStats {
+        private final long[] durationsNs;
+        private final int reportedJankyFrames;
+        private final int reportedTotalFrames;
+
+        FrameStats(long[] durationsNs, int reportedJankyFrames, int reportedTotalFrames) {
+            this.durationsNs = durationsNs;
+            this.reportedJankyFrames = reportedJankyFrames;
+            this.reportedTotalFrames = reportedTotalFrames;
+        }
+
+        public int frameCount() {
+            return durationsNs.length;
+        }
+
+        public long[] durationsNs() {
+            return durationsNs.clone();
+        }
+
+        /** Frame times in milliseconds, e.g. for SampleStats.raw(). */
+        public double[] durationsMs() {
+            double[] ms = new double[durationsNs.length];
+            for (int i = 0; i < ms.length; i++) ms[i] = durationsNs[i] / 1_000_000.0;
+            return ms;
+        }
+
+        public int jankyFrames(double frameBudgetMs) {
+            long budgetNs = (long) (frameBudgetMs * 1_000_000);
+            int janky = 0;
+            for (long d : durationsNs) {
+                if (d > budgetNs) janky++;
+            }
+            return janky;
+        }
+
+        public double jankPercent(double frameBudgetMs) {
+            return durationsNs.length == 0 ? 0 : 100.0 * jankyFrames(frameBudgetMs) / durationsNs.length;
+        }
+
+        /** "Janky frames:" from the gfxinfo summary (counts since last reset), -1 if absent. */
+        public int reportedJankyFrames() {
+            return reportedJankyFrames;
+        }
+
+        /** "Total frames rendered:" from the gfxinfo summary, -1 if absent. */
+        public int reportedTotalFrames() {
+            return reportedTotalFrames;
+        }
+
+        /** Concatenate frames of several dumps (framestats only keeps the last 120 frames per dump). */
+        public FrameStats merge(FrameStats other) {
+            long[] all = Arrays.copyOf(durationsNs, durationsNs.length + other.durationsNs.length);
+            System.arraycopy(other.durationsNs, 0, all, durationsNs.length, other.durationsNs.length);
+            return new FrameStats(all,
+                    sumKnown(reportedJankyFrames, other.reportedJankyFrames),
+                    sumKnown(reportedTotalFrames, other.reportedTotalFrames));
+        }
+
+        private static int sumKnown(int a, int b) {
+            if (a < 0) return b;
+            if (b < 0) return a;
+            return a + b;
+        }
+    }
+
+    public static FrameStats empty() {
+        return new FrameStats(new long[0], -1, -1);
+    }
+
+    public static FrameStats parse(String dump) {
+        long[] durations = new long[256];
+        int count = 0;
+        int reportedJanky = -1;
+        int reportedTotal = -1;
+
+        int flagsCol = -1;
+        int intendedCol = -1;
+        int completedCol = -1;
+        boolean inProfile = false;
+        boolean expectHeader = false;
+
+        int pos = 0;
+        int len = dump.length();
+        while (pos < len) {
+            int end = dump.indexOf('\n', pos);
+            if (end < 0) end = len;
+            int lineEnd = end > pos && dump.charAt(end - 1) == '\r' ? end - 1 : end;
+
+            if (dump.startsWith(PROFILE_MARKER, pos)) {
+                inProfile = !inProfile;
+                expectHeader = inProfile;
+            } else if (expectHeader) {
+                String[] header = dump.substring(pos, lineEnd).split(",");
+                flagsCol = intendedCol = completedCol = -1;
+                for (int i = 0; i < header.length; i++) {
+                    switch (header[i].trim()) {
+                        case "Flags" -> flagsCol = i;
+                        case "IntendedVsync" -> intendedCol = i;
+                        case "FrameCompleted" -> completedCol = i;
+                        default -> { }
+                    }
+                }
+                expectHeader = false;
+            } else if (inProfile) {
+                if (flagsCol >= 0 && intendedCol >= 0 && completedCol >= 0
+                        && columnValue(dump, pos, lineEnd, flagsCol) == 0) {
+                    long intended = columnValue(dump, pos, lineEnd, intendedCol);
+                    long completed = columnValue(dump, pos, lineEnd, completedCol);
+                    if (intended > 0 && completed > intended) {
+                        if (count == durations.length) durations = Arrays.copyOf(durations, count * 2);
+                        durations[count++] = completed - intended;
+                    }
+                }
+            } else if (reportedTotal < 0 && dump.startsWith("Total frames rendered:", pos)) {
+                reportedTotal = (int) firstNumber(dump, pos, lineEnd);
+            } else if (reportedJanky < 0 && dump.startsWith("Janky frames:", pos)) {
+                reportedJanky = (int) firstNumber(dump, pos, lineEnd);
+            }
+            pos = end + 1;
+        }
+        return new FrameStats(Arrays.copyOf(durations, count), reportedJanky, reportedTotal);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** Value of the n-th comma separated column in [from, to); -1 if missing or not a number. */
+    private static long columnValue(String s, int from, int to, int column) {
+        int start = from;
+        for (int c = 0; c < column; c++) {
+            int comma = s.indexOf(',', start);
+            if (comma < 0 || comma >= to) return -1;
+            start = comma + 1;
+        }
+        long value = 0;
+        boolean any = false;
+        for (int i = start; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch == ',') break;
+            if (ch == ' ') continue;
+            if (ch < '0' || ch > '9') return -1;
+            value = value * 10 + (ch - '0');
+            any = true;
+        }
+        return any ? value : -1;
+    }
+
+    private static long firstNumber(String s, int from, int to) {
+        int i = from;
+        while (i < to && !Character.isDigit(s.charAt(i))) i++;
+        long value = 0;
+        boolean any = false;
+        while (i < to && Character.isDigit(s.charAt(i))) {
+            value = value * 10 + (s.charAt(i++) - '0');
+            any = true;
+        }
+        return any ? value : -1;
+    }
+}
@@ -0,0 +1,81 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Offline checks of FrameStatsParser against recorded "dumpsys gfxinfo <pkg> framestats" output
+ * (src/test/resources/recorded); no device needed. Run with: mvn test -Poffline
+ */
+public class FrameStatsParserTests {
+
+    private static final double FRAME_BUDGET_MS = 1000.0 / 60;
+
+    @Test(description = "Android 14 dump: 23 framestats columns, two windows, flagged and unfinished frames skipped")
+    public void parsesCurrentFormatWithTwoWindows() throws IOException {
+        FrameStatsParser.FrameStats stats = FrameStatsParser.parse(recorded("gfxinfo-framestats-api34.txt"));
+
+        // window 1: 11 rows, one with Flags=4 and one without FrameCompleted; popup window: 3 rows
+        Assert.assertEquals(stats.frameCount(), 12);
+        Assert.assertEquals(stats.durationsNs()[0], 8_200_000L);
+        Assert.assertEquals(stats.durationsNs()[11], 6_300_000L);
+        Assert.assertEquals(stats.jankyFrames(FRAME_BUDGET_MS), 4);
+        Assert.assertEquals(stats.reportedTotalFrames(), 412);
+        Assert.assertEquals(stats.reportedJankyFrames(), 37, "\"Janky frames (legacy)\" must not be read");
+    }
+
+    @Test(description = "Android 10 dump: 16 framestats columns in a different order")
+    public void parsesOlderColumnLayout() throws IOException {
+        FrameStatsParser.FrameStats stats = FrameStatsParser.parse(recorded("gfxinfo-framestats-api29.txt"));
+
+        Assert.assertEquals(stats.frameCount(), 7);
+        Assert.assertEquals(stats.durationsMs()[2], 19.6, 1e-9);
+        Assert.assertEquals(stats.jankyFrames(FRAME_BUDGET_MS), 2);
+        Assert.assertEquals(stats.reportedTotalFrames(), 96);
+        Assert.assertEquals(stats.reportedJankyFrames(), 11);
+    }
+
+    @Test(description = "adb shell output with CRLF line endings parses the same")
+    public void toleratesCrLf() throws IOException {
+        String dump = recorded("gfxinfo-framestats-api34.txt");
+        FrameStatsParser.FrameStats lf = FrameStatsParser.parse(dump);
+        FrameStatsParser.FrameStats crlf = FrameStatsParser.parse(dump.replace("\n", "\r\n"));
+
+        Assert.assertEquals(crlf.durationsNs(), lf.durationsNs());
+        Assert.assertEquals(crlf.reportedJankyFrames(), lf.reportedJankyFrames());
+    }
+
+    @Test(description = "merging dumps concatenates frames and adds the reported counters")
+    public void mergesDumps() throws IOException {
+        FrameStatsParser.FrameStats merged = FrameStatsParser.empty()
+                .merge(FrameStatsParser.parse(recorded("gfxinfo-framestats-api34.txt")))
+                .merge(FrameStatsParser.parse(recorded("gfxinfo-framestats-api29.txt")));
+
+        Assert.assertEquals(merged.frameCount(), 19);
+        Assert.assertEquals(merged.jankyFrames(FRAME_BUDGET_MS), 6);
+        Assert.assertEquals(merged.reportedTotalFrames(), 508);
+        Assert.assertEquals(merged.reportedJankyFrames(), 48);
+    }
+
+    @Test(description = "output without profile data (app not running) gives no frames")
+    public void emptyWithoutProfileData() {
+        FrameStatsParser.FrameStats stats = FrameStatsParser.parse("No process found for: com.netbiscuits.bild.android\n");
+
+        Assert.assertEquals(stats.frameCount(), 0);
+        Assert.assertEquals(stats.jankPercent(FRAME_BUDGET_MS), 0.0);
+        Assert.assertEquals(stats.reportedTotalFrames(), -1);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static String recorded(String name) throws IOException {
+        try (InputStream in = FrameStatsParserTests.class.getResourceAsStream("/recorded/" + name)) {
+            Assert.assertNotNull(in, "missing fixture recorded/" + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package commonLibs.utils;
+
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * LaunchBenchmark - measures cold / warm / hot starts of the app activity.
+ * - "am start -W" gives TotalTime / WaitTime / LaunchState as reported by ActivityManager
+ * - Time to first content = wall time from issuing am start until the content view is visible via the driver.
+ *   "am start -W" runs beside the poll, so its wait is not added; the view is looked up every
+ *   benchmark.launch.poll.ms (default 20), so the resolution is one lookup round trip plus that interval
+ * - Samples whose reported LaunchState differs from the requested mode are excluded (e.g. the app
+ *   swallowed the BACK key, so a "warm" start was really hot)
+ * - Each metric is summarized over the samples that have a value for it; launches whose content view
+ *   never became visible are left out of FirstContent and counted separately
+ *
+ * Start modes:
+ *   COLD - am force-stop, then start (new process)
+ *   WARM - BACK to finish the activity while the process stays alive, then start
+ *   HOT  - HOME to background the resumed activity, then start
+ *
+ * Config (config.properties):
+ *   benchmark.launch.poll.ms=20
+ */
+public class LaunchBenchmark {
+
+    public enum StartMode { COLD, WARM, HOT }
+
+    /** One launch; times are -1 when not reported. */
+    public record Sample(StartMode mode, String launchState, int totalTimeMs, int waitTimeMs, long firstContentMs) {
+        public boolean matchesMode() {
+            // LaunchState is only printed from Android 10 on; without it the sample is trusted
+            return launchState == null || launchState.equalsIgnoreCase(mode.name());
+        }
+    }
+
+    public record Summary(StartMode mode, SampleStats totalTime, SampleStats waitTime, SampleStats firstContent,
+                          int excluded, int noFirstContent) {}
+
+    private final AndroidDriver driver;
+    private final String deviceSerial;
+    private final String appPackage;
+    private final String component;
+    private final String contentResourceId;
+    private final By contentView;
+    private final long pollMillis = Long.parseLong(ConfigReader.get("benchmark.launch.poll.ms", "20"));
+
+    public LaunchBenchmark(AndroidDriver driver, String deviceSerial, String appPackage, String appActivity,
+                           String contentResourceId) {
+        this.driver = driver;
+        this.deviceSerial = deviceSerial;
+        this.appPackage = appPackage;
+        this.component = appPackage + "/" + appActivity;
+        this.contentResourceId = contentResourceId;
+        this.contentView = AppiumBy.androidUIAutomator("new UiSelector().resourceId(\"" + contentResourceId + "\")");
+    }
+
+    /* ------------------------
+       Measurement
+       ------------------------ */
+
+    /**
+     * Run warmup + iterations launches; warm-up runs and mode mismatches are left out of the stats,
+     * and so is a metric that was not reported (-1) for a sample.
+     */
+    public Summary run(StartMode mode, int iterations, int warmup) {
+        List<Sample> valid = new ArrayList<>();
+        int validWarmup = 0;
+        int excluded = 0;
+
+        for (int i = 0; i < warmup + iterations; i++) {
+            Sample s = measureOnce(mode);
+            System.out.println("Launch " + mode + " #" + (i + 1) + (i < warmup ? " (warm-up)" : "") + ": " + s);
+            if (s.totalTimeMs() < 0 || !s.matchesMode()) {
+                excluded++;
+                continue;
+            }
+            valid.add(s);
+            if (i < warmup) validWarmup++;
+        }
+
+        List<Sample> measured = valid.subList(validWarmup, valid.size());
+        int noFirstContent = (int) measured.stream().filter(s -> s.firstContentMs() < 0).count();
+        return new Summary(mode,
+                stats(valid, validWarmup, Sample::totalTimeMs),
+                stats(valid, validWarmup, Sample::waitTimeMs),
+                stats(valid, validWarmup, Sample::firstContentMs),
+                excluded, noFirstContent);
+    }
+
+    /** Stats of one metric over the samples that reported it; warm-up samples are still skipped. */
+    private static SampleStats stats(List<Sample> samples, int warmup, ToDoubleFunction<Sample> metric) {
+        double[] all = samples.stream().mapToDouble(metric).toArray();
+        int reportedWarmup = (int) Arrays.stream(all, 0, warmup).filter(v -> v >= 0).count();
+        return SampleStats.of(Arrays.stream(all).filter(v -> v >= 0).toArray(), reportedWarmup);
+    }
+
+    public Sample measureOnce(StartMode mode) {
+        prepare(mode);
+        long start = System.nanoTime();
+        // am start -W only returns once the activity has drawn; poll for the content view meanwhile
+        CompletableFuture<String> amStart = CompletableFuture.supplyAsync(
+                () -> AdbUtils.shell(deviceSerial, "am", "start", "-W", "-n", component),
+                r -> Thread.ofVirtual().start(r));
+        long firstContentMs = awaitContent(start, 30_000);
+        if (firstContentMs < 0) {
+            System.err.println("Content view " + contentResourceId + " not visible after " + mode + " start");
+        }
+        return parseAmStart(mode, amStart.join(), firstContentMs);
+    }
+
+    /** Milliseconds from start until the content view is displayed, or -1 after timeoutMs. */
+    private long awaitContent(long start, long timeoutMs) {
+        long deadline = start + timeoutMs * 1_000_000;
+        while (System.nanoTime() < deadline) {
+            try {
+                // findElements returns at once (no implicit wait), unlike a WebDriverWait with its 500 ms poll
+                for (WebElement view : driver.findElements(contentView)) {
+                    if (view.isDisplayed()) return (System.nanoTime() - start) / 1_000_000;
+                }
+            } catch (WebDriverException e) {
+                // the activity is being replaced; look again
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private void prepare(StartMode mode) {
+        switch (mode) {
+            case COLD -> AdbUtils.shell(deviceSerial, "am", "force-stop", appPackage);
+            case WARM -> {
+                ensureForeground();
+                AdbUtils.shell(deviceSerial, "input", "keyevent", "KEYCODE_BACK");
+            }
+            case HOT -> {
+                ensureForeground();
+                AdbUtils.shell(deviceSerial, "input", "keyevent", "KEYCODE_HOME");
+            }
+        }
+        // let the activity transition finish so it doesn't overlap the measured launch
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ensureForeground() {
+        try {
+            driver.activateApp(appPackage);
+        } catch (Exception e) {
+            AdbUtils.shell(deviceSerial, "am", "start", "-W", "-n", component);
+        }
+    }
+
+    /* ------------------------
+       Parsing
+       ------------------------ */
+
+    /** Parse "am start -W" output ("LaunchState: COLD", "TotalTime: 812", "WaitTime: 830"). */
+    public static Sample parseAmStart(StartMode mode, String output, long firstContentMs) {
+        String launchState = null;
+        int total = -1;
+        int wait = -1;
+        for (String line : output.split("\\R")) {
+            String t = line.trim();
+            if (t.startsWith("LaunchState:")) {
+                launchState = t.substring("LaunchState:".length()).trim();
+            } else if (t.startsWith("TotalTime:")) {
+                total = parseIntOr(t.substring("TotalTime:".length()).trim(), -1);
+            } else if (t.startsWith("WaitTime:")) {
+                wait = parseIntOr(t.substring("WaitTime:".length()).trim(), -1);
+            }
+        }
+        // "Warning: Activity not started, its current task has been brought to the front" = hot start, no TotalTime
+        if (total < 0 && output.contains("brought to the front")) launchState = "HOT";
+        return new Sample(mode, launchState, total, wait, firstContentMs);
+    }
+
+    private static int parseIntOr(String s, int fallback) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package commonLibs.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LogcatCollector - streams "adb logcat" for one device into a bounded ring buffer.
+ * - Keeps only lines from the app's processes (PIDs follow "Start proc" lines, so restarts are tracked)
+ *   plus system lines that name the package (ANR reports)
+ * - Detects FATAL EXCEPTION / ANR / native crash in real time and records it for the running test;
+ *   LogcatCrashListener (register in testng.xml) fails that test with the crash as its cause
+ * - slice(from, to) returns the lines received during one test's time window (host clock)
+ *
+ * One collector per device, shared by all test classes (see forDevice / stopAll).
+ *
+ * Config (config.properties):
+ *   logcat.enabled=false
+ *   logcat.buffer.lines=20000
+ *   logcat.fail.on.crash=true
+ */
+public class LogcatCollector {
+
+    private static final Map<String, LogcatCollector> COLLECTORS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<LogcatCollector> CURRENT = new ThreadLocal<>();
+
+    /** A detected crash or ANR. */
+    public record CrashEvent(long timeMillis, String kind, String line) {}
+
+    private final String deviceSerial;
+    private final String appPackage;
+    private final boolean failOnCrash;
+
+    // ring buffer: parallel arrays so memory stays flat regardless of run length
+    private final long[] times;
+    private final String[] lines;
+    private int head;   // next write slot
+    private int size;
+
+    private final Set<Integer> appPids = ConcurrentHashMap.newKeySet();
+    private volatile Process process;
+    private volatile long testStartMillis;
+    private volatile CrashEvent crash;
+
+    public LogcatCollector(String deviceSerial, String appPackage, int capacity, boolean failOnCrash) {
+        this.deviceSerial = deviceSerial;
+        this.appPackage = appPackage;
+        this.failOnCrash = failOnCrash;
+        this.times = new long[capacity];
+        this.lines = new String[capacity];
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("logcat.enabled", "false"));
+    }
+
+    /** Shared collector for a device; started on first use. */
+    public static LogcatCollector forDevice(String deviceSerial, String appPackage) {
+        return COLLECTORS.computeIfAbsent(deviceSerial, serial -> {
+            LogcatCollector c = new LogcatCollector(serial, appPackage,
+                    Integer.parseInt(ConfigReader.get("logcat.buffer.lines", "20000")),
+                    Boolean.parseBoolean(ConfigReader.get("logcat.fail.on.crash", "true")));
+            c.start();
+            return c;
+        });
+    }
+
+    public static void stopAll() {
+        COLLECTORS.values().forEach(LogcatCollector::stop);
+        COLLECTORS.clear();
+    }
+
+    /* ------------------------
+       Streaming
+       ------------------------ */
+
+    public void start() {
+        refreshPid();
+        try {
+            // -T 1: only new lines from now on; "-v epoch" gives a fixed, cheap-to-parse line prefix
+            process = new ProcessBuilder("adb", "-s", deviceSerial, "logcat", "-v", "epoch", "-T", "1")
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            System.err.println("Could not start logcat on " + deviceSerial + ": " + e.getMessage());
+            return;
+        }
+        Thread.ofVirtual().name("logcat-" + deviceSerial).start(this::readLoop);
+    }
+
+    public void stop() {
+        Process p = process;
+        if (p != null) p.destroy();
+    }
+
+    private void readLoop() {
+        Process p = process;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                accept(line);
+            }
+        } catch (IOException e) {
+            System.err.println("logcat stream for " + deviceSerial + " ended: " + e.getMessage());
+        }
+    }
+
+    /** Parse one "-v epoch" line ("  1697712345.123  1234  1250 E Tag: msg"); visible for replaying recorded logs. */
+    public void accept(String line) {
+        String trimmed = line.stripLeading();
+        int sp1 = trimmed.indexOf(' ');
+        if (sp1 <= 0) return;
+        if (parseEpochMillis(trimmed, sp1) < 0) return; // not a log line (e.g. "--------- beginning of main")
+        // windowing uses host arrival time: the stream is live and device clocks may drift from the host
+        long time = System.currentTimeMillis();
+        int pid = parsePid(trimmed, sp1);
+
+        if (line.contains("Start proc") && line.contains(":" + appPackage + "/")) {
+            int startPid = parseStartProcPid(line);
+            if (startPid > 0) appPids.add(startPid);
+        }
+
+        boolean fromApp = appPids.contains(pid);
+        boolean aboutApp = line.contains(appPackage);
+        if (!fromApp && !aboutApp) return;
+
+        append(time, trimmed);
+
+        if (fromApp && line.contains("FATAL EXCEPTION")) {
+            onCrash(time, "FATAL EXCEPTION", trimmed);
+        } else if (line.contains("ANR in " + appPackage)) {
+            onCrash(time, "ANR", trimmed);
+        } else if (line.contains(">>> " + appPackage + " <<<")) {
+            onCrash(time, "NATIVE CRASH", trimmed);
+        }
+    }
+
+    private synchronized void append(long time, String line) {
+        times[head] = time;
+        lines[head] = line;
+        head = (head + 1) % lines.length;
+        if (size < lines.length) size++;
+    }
+
+    private void onCrash(long time, String kind, String line) {
+        if (time < testStartMillis || crash != null) return;
+        crash = new CrashEvent(time, kind, line);
+        System.err.println("App " + kind + " detected on " + deviceSerial + ": " + line);
+    }
+
+    /* ------------------------
+       Per-test window
+       ------------------------ */
+
+    /** Mark the start of a test's log window; the calling thread runs the test (see crashInCurrentTest). */
+    public void beginTest() {
+        crash = null;
+        testStartMillis = System.currentTimeMillis();
+        CURRENT.set(this);
+        if (appPids.isEmpty()) refreshPid();
+    }
+
+    /** Close the calling thread's test window; returns the crash seen during the test, or null. */
+    public CrashEvent endTest() {
+        CURRENT.remove();
+        return crash;
+    }
+
+    /**
+     * The crash seen since the calling thread's beginTest() if it should fail the test
+     * (logcat.fail.on.crash), else null.
+     */
+    public static CrashEvent crashInCurrentTest() {
+        LogcatCollector c = CURRENT.get();
+        return c != null && c.failOnCrash ? c.crash : null;
+    }
+
+    public long getTestStartMillis() {
+        return testStartMillis;
+    }
+
+    /** Buffered lines with timestamps in [fromMillis, toMillis], oldest first. */
+    public synchronized List<String> slice(long fromMillis, long toMillis) {
+        List<String> out = new ArrayList<>();
+        int start = (head - size + lines.length) % lines.length;
+        for (int i = 0; i < size; i++) {
+            int idx = (start + i) % lines.length;
+            if (times[idx] >= fromMillis && times[idx] <= toMillis) out.add(lines[idx]);
+        }
+        return out;
+    }
+
+    /** Write the slice for the current test window to a file; returns null if nothing was captured. */
+    public File writeTestSlice(File dir, String baseName) {
+        List<String> slice = slice(testStartMillis - 1000, System.currentTimeMillis());
+        if (slice.isEmpty()) return null;
+        if (!dir.exists() && !dir.mkdirs()) {
+            System.err.println("Could not create log directory: " + dir.getAbsolutePath());
+            return null;
+        }
+        File file = new File(dir, baseName + ".log");
+        try {
+            Files.write(file.toPath(), slice, StandardCharsets.UTF_8);
+            return file;
+        } catch (IOException e) {
+            System.err.println("Writing logcat slice failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private void refreshPid() {
+        try {
+            Process p = new ProcessBuilder("adb", "-s", deviceSerial, "shell", "pidof", appPackage)
+                    .redirectErrorStream(true).start();
+            String out;
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                out = br.readLine();
+            }
+            p.waitFor(5, TimeUnit.SECONDS);
+            if (out == null) return;
+            for (String part : out.trim().split("\\s+")) {
+                if (part.matches("\\d+")) appPids.add(Integer.parseInt(part));
+            }
+        } catch (Exception e) {
+            System.err.println("pidof " + appPackage + " failed: " + e.getMessage());
+        }
+    }
+
+    private static long parseEpochMillis(String s, int end) {
+        int dot = s.indexOf('.');
+        if (dot <= 0 || dot > end) return -1;
+        try {
+            long seconds = Long.parseLong(s, 0, dot, 10);
+            long millis = Long.parseLong(s, dot + 1, Math.min(end, dot + 4), 10);
+            return seconds * 1000 + millis;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int parsePid(String s, int from) {
+        int i = from;
+        while (i < s.length() && s.charAt(i) == ' ') i++;
+        int pid = 0;
+        boolean any = false;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) {
+            pid = pid * 10 + (s.charAt(i++) - '0');
+            any = true;
+        }
+        return any ? pid : -1;
+    }
+
+    /** "Start proc 1234:com.netbiscuits.bild.android/u0a123 ..." -> 1234 */
+    private static int parseStartProcPid(String line) {
+        int i = line.indexOf("Start proc ") + "Start proc ".length();
+        int colon = line.indexOf(':', i);
+        if (colon < 0) return -1;
+        try {
+            return Integer.parseInt(line.substring(i, colon).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
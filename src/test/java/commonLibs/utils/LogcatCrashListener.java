@@ -0,0 +1,25 @@
+package commonLibs.utils;
+
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+/**
+ * LogcatCrashListener - fails a test during which LogcatCollector saw the app crash (register in testng.xml).
+ * - Runs right after the @Test method, before the retry decision and @AfterMethod, so both see the failure
+ * - The crash line becomes the AssertionError; whatever the test threw (often a wait timing out on the
+ *   vanished app) is kept as its cause
+ * - Does nothing unless logcat.enabled and logcat.fail.on.crash are set
+ */
+public class LogcatCrashListener implements IInvokedMethodListener {
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod()) return;
+        LogcatCollector.CrashEvent crash = LogcatCollector.crashInCurrentTest();
+        if (crash == null) return;
+        result.setStatus(ITestResult.FAILURE);
+        result.setThrowable(new AssertionError("App " + crash.kind() + " detected in logcat: " + crash.line(),
+                result.getThrowable()));
+    }
+}
@@ -0,0 +1,396 @@
+package commonLibs.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NetworkProxy - local HTTP proxy that measures the app's network cost per screen.
+ * - The device reaches it through "adb reverse" and the global http_proxy setting
+ * - Every exchange is logged with the current screen tag, status, bytes up/down and duration; page
+ *   objects set the tag through screen() when they navigate (a compiled flow makes one script call
+ *   per screen while a proxy runs, see FlowCompiler)
+ * - HTTPS goes through CONNECT tunnels: host, bytes and tunnel time are measured, content is not
+ *   decrypted (no MITM certificate is installed on the device)
+ * - Modes: passthrough (measure only), record (also store plain-HTTP GET/HEAD responses), replay (serve
+ *   stored responses only; unknown requests get 404 and CONNECT is refused with 502)
+ * - Limitation: record/replay only covers plain HTTP. A CONNECT tunnel carries TLS that cannot be
+ *   recorded and played back without decrypting it, so HTTPS traffic (most of the BILD app) fails in
+ *   replay mode; replay makes a test offline only for the plain-HTTP endpoints it uses. Running the app
+ *   fully offline would need a MITM certificate trusted by a debug build
+ * - The device's http_proxy is cleared by stopShared() and by a shutdown hook; clearStale() removes a
+ *   setting left behind by a killed JVM, which would otherwise cut the device off the network
+ *
+ * Each request uses its own upstream connection ("Connection: close"), which keeps parsing simple
+ * and makes per-request timing exact.
+ *
+ * Config (config.properties):
+ *   proxy.enabled=false
+ *   proxy.port=8899
+ *   proxy.mode=passthrough        (passthrough | record | replay)
+ *   proxy.recordings.dir=mobile-test-challenge/network
+ */
+public class NetworkProxy {
+
+    public enum Mode { PASSTHROUGH, RECORD, REPLAY }
+
+    /** One proxied request or tunnel. status is 0 for CONNECT tunnels. */
+    public record Exchange(String screen, String method, String target, int status, long requestBytes,
+                           long responseBytes, long durationMs) {}
+
+    private static final int MAX_RECORDED_RESPONSE = 8 * 1024 * 1024;
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    private static volatile NetworkProxy shared;
+    private static boolean shutdownHookInstalled;
+    private static final Set<String> staleChecked = new HashSet<>();
+
+    private final int port;
+    private final Mode mode;
+    private final File recordingsDir;
+    private final ConcurrentLinkedQueue<Exchange> exchanges = new ConcurrentLinkedQueue<>();
+    private volatile String screen = "app start";
+    private ServerSocket server;
+    private String deviceSerial;
+
+    public NetworkProxy(int port, Mode mode, File recordingsDir) {
+        this.port = port;
+        this.mode = mode;
+        this.recordingsDir = recordingsDir;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("proxy.enabled", "false"));
+    }
+
+    /** Proxy shared by all test classes; started and pointed at the device on first use. */
+    public static synchronized NetworkProxy startShared(String deviceSerial) throws IOException {
+        if (shared == null) {
+            String dir = ConfigReader.get("proxy.recordings.dir", "mobile-test-challenge/network");
+            File recordings = new File(dir).isAbsolute() ? new File(dir) : new File(System.getProperty("user.dir"), dir);
+            NetworkProxy proxy = new NetworkProxy(
+                    Integer.parseInt(ConfigReader.get("proxy.port", "8899")),
+                    Mode.valueOf(ConfigReader.get("proxy.mode", "passthrough").trim().toUpperCase(Locale.ROOT)),
+                    recordings);
+            proxy.start();
+            proxy.attachDevice(deviceSerial);
+            shared = proxy;
+            if (!shutdownHookInstalled) {
+                Runtime.getRuntime().addShutdownHook(new Thread(NetworkProxy::stopShared, "proxy-detach"));
+                shutdownHookInstalled = true;
+            }
+        }
+        return shared;
+    }
+
+    public static synchronized void stopShared() {
+        if (shared != null) {
+            shared.stop();
+            shared = null;
+        }
+    }
+
+    /** True while the shared proxy records traffic. */
+    public static boolean isRunning() {
+        return shared != null;
+    }
+
+    /** Tag following exchanges of the shared proxy with the screen the app navigates to; no-op without a proxy. */
+    public static void screen(String screenName) {
+        NetworkProxy proxy = shared;
+        if (proxy != null) proxy.setScreen(screenName);
+    }
+
+    /**
+     * Clear a global http_proxy pointing at this host's proxy port while no proxy runs (left behind when
+     * a previous run was killed). Checked once per device and JVM.
+     */
+    public static synchronized void clearStale(String deviceSerial) {
+        if (shared != null || !staleChecked.add(deviceSerial)) return;
+        String current = AdbUtils.shell(deviceSerial, "settings", "get", "global", "http_proxy").trim();
+        if (current.equals("127.0.0.1:" + ConfigReader.get("proxy.port", "8899"))) {
+            AdbUtils.shell(deviceSerial, "settings", "put", "global", "http_proxy", ":0");
+            System.out.println("Cleared http_proxy " + current + " left on " + deviceSerial + " by an earlier run");
+        }
+    }
+
+    /* ------------------------
+       Lifecycle
+       ------------------------ */
+
+    public void start() throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        Thread.ofVirtual().name("proxy-accept").start(this::acceptLoop);
+        System.out.println("Network proxy listening on 127.0.0.1:" + server.getLocalPort() + " (" + mode + ")");
+    }
+
+    /** Route the device's HTTP traffic through this proxy (adb reverse + global http_proxy). */
+    public void attachDevice(String serial) {
+        this.deviceSerial = serial;
+        int p = getPort();
+        AdbUtils.run(serial, 15, "reverse", "tcp:" + p, "tcp:" + p);
+        AdbUtils.shell(serial, "settings", "put", "global", "http_proxy", "127.0.0.1:" + p);
+    }
+
+    public void stop() {
+        if (deviceSerial != null) {
+            // ":0" is the documented way to clear the global proxy; leaving it set would cut the device off
+            AdbUtils.shell(deviceSerial, "settings", "put", "global", "http_proxy", ":0");
+            AdbUtils.run(deviceSerial, 15, "reverse", "--remove", "tcp:" + getPort());
+        }
+        try {
+            if (server != null) server.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.getLocalPort() : port;
+    }
+
+    /** Tag following exchanges with a screen name (e.g. "Startseite", "Login"). */
+    public void setScreen(String screenName) {
+        this.screen = screenName;
+    }
+
+    /** Remove and return all exchanges logged so far. */
+    public List<Exchange> drain() {
+        List<Exchange> out = new ArrayList<>();
+        Exchange e;
+        while ((e = exchanges.poll()) != null) out.add(e);
+        return out;
+    }
+
+    /* ------------------------
+       Summary
+       ------------------------ */
+
+    /** Request count, bytes and the slowest endpoints per screen (HTML line breaks for the report). */
+    public static String summarize(List<Exchange> list, int slowestPerScreen) {
+        if (list.isEmpty()) return "no network traffic";
+        Map<String, List<Exchange>> byScreen = new LinkedHashMap<>();
+        for (Exchange e : list) byScreen.computeIfAbsent(e.screen(), k -> new ArrayList<>()).add(e);
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, List<Exchange>> entry : byScreen.entrySet()) {
+            List<Exchange> ex = entry.getValue();
+            long up = ex.stream().mapToLong(Exchange::requestBytes).sum();
+            long down = ex.stream().mapToLong(Exchange::responseBytes).sum();
+            sb.append(String.format(Locale.ROOT, "%s: %d requests, %d B up, %d B down<br/>",
+                    entry.getKey(), ex.size(), up, down));
+            ex.stream()
+                    .sorted(Comparator.comparingLong(Exchange::durationMs).reversed())
+                    .limit(slowestPerScreen)
+                    .forEach(e -> sb.append(String.format(Locale.ROOT, "&nbsp;&nbsp;%d ms %s %s (%d, %d B)<br/>",
+                            e.durationMs(), e.method(), e.target(), e.status(), e.responseBytes())));
+        }
+        return sb.toString();
+    }
+
+    /* ------------------------
+       Connection handling
+       ------------------------ */
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket client = server.accept();
+                Thread.ofVirtual().start(() -> handle(client));
+            } catch (IOException e) {
+                if (!server.isClosed()) System.err.println("Proxy accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        String tag = screen;
+        long start = System.nanoTime();
+        try (client) {
+            client.setSoTimeout(60_000);
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            byte[] headerBytes = readHeader(in);
+            if (headerBytes == null) return;
+            String header = new String(headerBytes, StandardCharsets.ISO_8859_1);
+            String requestLine = header.substring(0, header.indexOf("\r\n"));
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 3) return;
+            String method = parts[0];
+            String target = parts[1];
+
+            if ("CONNECT".equalsIgnoreCase(method)) {
+                tunnel(client, in, tag, target, headerBytes.length, start);
+            } else {
+                forward(client, in, tag, method, target, header, start);
+            }
+        } catch (IOException e) {
+            // client or upstream went away mid-exchange; nothing to report to anyone
+        }
+    }
+
+    private void tunnel(Socket client, InputStream in, String tag, String target, long headerLength, long start)
+            throws IOException {
+        OutputStream out = client.getOutputStream();
+        if (mode == Mode.REPLAY) {
+            // TLS cannot be replayed from a recording (see class doc)
+            out.write("HTTP/1.1 502 Bad Gateway\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            exchanges.add(new Exchange(tag, "CONNECT", target, 502, headerLength, 0, elapsedMs(start)));
+            return;
+        }
+        int colon = target.lastIndexOf(':');
+        String host = colon > 0 ? target.substring(0, colon) : target;
+        int targetPort = colon > 0 ? Integer.parseInt(target.substring(colon + 1)) : 443;
+        try (Socket upstream = new Socket()) {
+            upstream.connect(new InetSocketAddress(host, targetPort), 10_000);
+            out.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            AtomicLong up = new AtomicLong(headerLength);
+            Thread pump = Thread.ofVirtual().start(() -> pipe(in, upstream, up));
+            long down = copy(upstream.getInputStream(), out, null);
+            pump.interrupt();
+            exchanges.add(new Exchange(tag, "CONNECT", target, 0, up.get(), down, elapsedMs(start)));
+        }
+    }
+
+    private void forward(Socket client, InputStream in, String tag, String method, String target, String header,
+                         long start) throws IOException {
+        OutputStream out = client.getOutputStream();
+        String key = method + " " + target;
+        File recording = new File(recordingsDir, sha256(key) + ".http");
+
+        if (mode == Mode.REPLAY) {
+            byte[] body = recording.exists() ? Files.readAllBytes(recording.toPath())
+                    : "HTTP/1.1 404 Not Found\r\nX-Replay-Miss: true\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            out.write(body);
+            exchanges.add(new Exchange(tag, method, target, statusOf(body), header.length(), body.length, elapsedMs(start)));
+            return;
+        }
+
+        URI uri = URI.create(target);
+        int targetPort = uri.getPort() > 0 ? uri.getPort() : 80;
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) path += "?" + uri.getRawQuery();
+
+        StringBuilder upstreamHeader = new StringBuilder(method + " " + path + " HTTP/1.1\r\n");
+        for (String line : header.substring(header.indexOf("\r\n") + 2).split("\r\n")) {
+            String lower = line.toLowerCase(Locale.ROOT);
+            if (line.isEmpty() || lower.startsWith("proxy-connection:") || lower.startsWith("connection:")
+                    || lower.startsWith("keep-alive:")) {
+                continue;
+            }
+            upstreamHeader.append(line).append("\r\n");
+        }
+        upstreamHeader.append("Connection: close\r\n\r\n");
+        byte[] requestHead = upstreamHeader.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        boolean record = mode == Mode.RECORD && ("GET".equals(method) || "HEAD".equals(method));
+        ByteArrayOutputStream captured = record ? new ByteArrayOutputStream() : null;
+
+        try (Socket upstream = new Socket()) {
+            upstream.connect(new InetSocketAddress(uri.getHost(), targetPort), 10_000);
+            upstream.getOutputStream().write(requestHead);
+            AtomicLong up = new AtomicLong(requestHead.length);
+            Thread pump = Thread.ofVirtual().start(() -> pipe(in, upstream, up));
+            long down = copy(upstream.getInputStream(), out, captured);
+            pump.interrupt();
+
+            byte[] response = captured != null ? captured.toByteArray() : null;
+            if (response != null && response.length > 0 && response.length < MAX_RECORDED_RESPONSE) {
+                if (recordingsDir.exists() || recordingsDir.mkdirs()) {
+                    Files.write(recording.toPath(), response);
+                }
+            }
+            exchanges.add(new Exchange(tag, method, target, response != null ? statusOf(response) : -1,
+                    up.get(), down, elapsedMs(start)));
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** Read up to and including the blank line that ends the header; null on EOF or oversized header. */
+    private static byte[] readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(512);
+        int state = 0; // matched chars of \r\n\r\n
+        int b;
+        while ((b = in.read()) != -1) {
+            buf.write(b);
+            state = (b == '\r') ? (state == 2 ? 3 : 1) : (b == '\n' && (state == 1 || state == 3)) ? state + 1 : 0;
+            if (state == 4) return buf.toByteArray();
+            if (buf.size() > MAX_HEADER_BYTES) return null;
+        }
+        return null;
+    }
+
+    private static void pipe(InputStream from, Socket to, AtomicLong counter) {
+        try {
+            byte[] buf = new byte[16 * 1024];
+            int n;
+            OutputStream out = to.getOutputStream();
+            while ((n = from.read(buf)) != -1) {
+                out.write(buf, 0, n);
+                counter.addAndGet(n);
+            }
+            to.shutdownOutput();
+        } catch (IOException ignored) {
+            // the other direction closes the exchange
+        }
+    }
+
+    private static long copy(InputStream from, OutputStream to, ByteArrayOutputStream capture) throws IOException {
+        byte[] buf = new byte[16 * 1024];
+        long total = 0;
+        int n;
+        while ((n = from.read(buf)) != -1) {
+            to.write(buf, 0, n);
+            if (capture != null && capture.size() < MAX_RECORDED_RESPONSE) capture.write(buf, 0, n);
+            total += n;
+        }
+        to.flush();
+        return total;
+    }
+
+    private static int statusOf(byte[] response) {
+        String head = new String(response, 0, Math.min(response.length, 32), StandardCharsets.ISO_8859_1);
+        String[] p = head.split(" ");
+        try {
+            return p.length > 1 ? Integer.parseInt(p[1].trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
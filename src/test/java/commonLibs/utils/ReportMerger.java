@@ -0,0 +1,255 @@
+package commonLibs.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * ReportMerger - combines any number of ShardReport outputs into one HTML report.
+ * - Streaming k-way merge by timestamp: only the next event of each shard is held in memory, so the
+ *   size of the run does not matter, only the number of shards
+ * - Output: a summary per device, one section per device (its events in time order) and a unified
+ *   timeline across all shards
+ * - Screenshots are copied once per content hash to <output dir>/screenshots, however many shards or
+ *   tests referenced them
+ * - Per-device sections are spooled to temporary files during the single pass and stitched together
+ *   at the end
+ *
+ * Usage:
+ *   java -cp target/test-classes commonLibs.utils.ReportMerger reports/merged.html reports/shards/<runId> [more dirs...]
+ */
+public class ReportMerger {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    /** Totals of a merge; one DeviceSummary per device in name order. */
+    public record Summary(int shards, long events, int screenshots, Map<String, DeviceSummary> devices) {
+        public String describe() {
+            return "Merged " + shards + " shard(s), " + events + " events, " + screenshots + " unique screenshot(s), "
+                    + devices.size() + " device(s)";
+        }
+    }
+
+    public static final class DeviceSummary {
+        long passed, failed, skipped, events;
+        long firstTs = Long.MAX_VALUE, lastTs;
+
+        public long passed() { return passed; }
+        public long failed() { return failed; }
+        public long skipped() { return skipped; }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReportMerger <output.html> <shard dir | events.ndjson>...");
+            System.exit(2);
+        }
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) inputs.add(Path.of(args[i]));
+        Summary summary = merge(inputs, Path.of(args[0]));
+        System.out.println(summary.describe() + " -> " + args[0]);
+    }
+
+    /** Merge every events.ndjson found under the inputs (directories are searched up to three levels deep). */
+    public static Summary merge(List<Path> inputs, Path outputHtml) throws IOException {
+        List<Path> files = findEventFiles(inputs);
+        Path outDir = outputHtml.toAbsolutePath().getParent();
+        Path shotsDir = outDir.resolve("screenshots");
+        Files.createDirectories(shotsDir);
+        Path spool = Files.createTempDirectory(outDir, ".merge-");
+
+        Map<String, DeviceSummary> devices = new TreeMap<>();
+        Map<String, BufferedWriter> deviceOut = new LinkedHashMap<>();
+        Set<String> copiedBlobs = new HashSet<>();
+        long events = 0;
+
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.<Head>comparingLong(h -> h.ts)
+                .thenComparingInt(h -> h.source).thenComparingLong(h -> h.seq));
+        List<BufferedReader> readers = new ArrayList<>();
+        try (BufferedWriter timeline = Files.newBufferedWriter(spool.resolve("timeline.html"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < files.size(); i++) {
+                BufferedReader r = Files.newBufferedReader(files.get(i), StandardCharsets.UTF_8);
+                readers.add(r);
+                Head h = next(r, i, files.get(i));
+                if (h != null) heads.add(h);
+            }
+            while (!heads.isEmpty()) {
+                Head h = heads.poll();
+                Map<String, String> e = h.event;
+                events++;
+
+                String device = e.getOrDefault("device", "unknown");
+                DeviceSummary ds = devices.computeIfAbsent(device, d -> new DeviceSummary());
+                ds.events++;
+                ds.firstTs = Math.min(ds.firstTs, h.ts);
+                ds.lastTs = Math.max(ds.lastTs, h.ts);
+                if ("end".equals(e.get("type"))) {
+                    switch (ShardReport.severity(e.get("status"))) {
+                        case 3 -> ds.failed++;
+                        case 2 -> ds.skipped++;
+                        default -> ds.passed++;
+                    }
+                }
+
+                String blob = e.get("blob");
+                if (blob != null && copiedBlobs.add(blob)) {
+                    Path src = files.get(h.source).getParent().resolve(ShardReport.BLOBS_DIR).resolve(blob);
+                    Path dst = shotsDir.resolve(blob);
+                    if (Files.exists(src) && !Files.exists(dst)) Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                BufferedWriter dw = deviceOut.get(device);
+                if (dw == null) {
+                    dw = Files.newBufferedWriter(spool.resolve("device-" + deviceOut.size() + ".html"), StandardCharsets.UTF_8);
+                    deviceOut.put(device, dw);
+                }
+                writeRow(dw, h.ts, e, false);
+                writeRow(timeline, h.ts, e, true);
+
+                Head n = next(readers.get(h.source), h.source, files.get(h.source));
+                if (n != null) heads.add(n);
+            }
+        } finally {
+            for (BufferedReader r : readers) r.close();
+            for (BufferedWriter w : deviceOut.values()) w.close();
+        }
+
+        Path tmpOut = outDir.resolve(outputHtml.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmpOut, StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html><html><head><meta charset='utf-8'><title>Merged test report</title><style>"
+                    + "body{font-family:sans-serif;margin:20px}table{border-collapse:collapse;width:100%;margin-bottom:24px}"
+                    + "td,th{border:1px solid #ccc;padding:4px 6px;font-size:13px;vertical-align:top;text-align:left}"
+                    + ".FAIL,.FATAL,.ERROR{background:#fdd}.PASS{background:#dfd}.SKIP,.WARNING{background:#ffd}"
+                    + "img{max-width:120px}</style></head><body>\n");
+            out.write("<h1>Merged test report</h1><p>" + files.size() + " shard(s), " + events + " events, "
+                    + copiedBlobs.size() + " unique screenshot(s)</p>\n");
+            out.write("<h2>Devices</h2><table><tr><th>Device</th><th>Passed</th><th>Failed</th><th>Skipped</th>"
+                    + "<th>First event</th><th>Last event</th></tr>\n");
+            for (Map.Entry<String, DeviceSummary> d : devices.entrySet()) {
+                DeviceSummary s = d.getValue();
+                out.write("<tr><td><a href='#dev-" + escape(d.getKey()) + "'>" + escape(d.getKey()) + "</a></td><td>"
+                        + s.passed + "</td><td>" + s.failed + "</td><td>" + s.skipped + "</td><td>"
+                        + TIME.format(Instant.ofEpochMilli(s.firstTs)) + "</td><td>"
+                        + TIME.format(Instant.ofEpochMilli(s.lastTs)) + "</td></tr>\n");
+            }
+            out.write("</table>\n");
+            int index = 0;
+            for (Map.Entry<String, BufferedWriter> d : deviceOut.entrySet()) {
+                out.write("<h2 id='dev-" + escape(d.getKey()) + "'>Device " + escape(d.getKey()) + "</h2>"
+                        + "<table><tr><th>Time</th><th>Shard</th><th>Test</th><th>Status</th><th>Details</th></tr>\n");
+                append(out, spool.resolve("device-" + index++ + ".html"));
+                out.write("</table>\n");
+            }
+            out.write("<h2>Timeline</h2><table><tr><th>Time</th><th>Device</th><th>Shard</th><th>Test</th>"
+                    + "<th>Status</th><th>Details</th></tr>\n");
+            append(out, spool.resolve("timeline.html"));
+            out.write("</table></body></html>\n");
+        }
+        Files.move(tmpOut, outputHtml, StandardCopyOption.REPLACE_EXISTING);
+        deleteTree(spool);
+        return new Summary(files.size(), events, copiedBlobs.size(), devices);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static final class Head {
+        final long ts;
+        final long seq;
+        final int source;
+        final Map<String, String> event;
+
+        Head(Map<String, String> event, int source) {
+            this.event = event;
+            this.source = source;
+            this.ts = Long.parseLong(event.getOrDefault("ts", "0"));
+            this.seq = Long.parseLong(event.getOrDefault("seq", "0"));
+        }
+    }
+
+    /** Next parseable event of a shard; a torn last line (shard killed mid-write) ends that shard. */
+    private static Head next(BufferedReader r, int source, Path file) throws IOException {
+        String line;
+        while ((line = r.readLine()) != null) {
+            if (line.isBlank()) continue;
+            try {
+                return new Head(ShardReport.parseJson(line), source);
+            } catch (RuntimeException e) {
+                System.err.println("Skipping unreadable event in " + file + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static void writeRow(Writer w, long ts, Map<String, String> e, boolean withDevice) throws IOException {
+        String type = e.getOrDefault("type", "");
+        String status = e.getOrDefault("status", type.equals("start") ? "START" : type.equals("screenshot") ? "INFO" : "");
+        StringBuilder details = new StringBuilder();
+        switch (type) {
+            case "start" -> details.append("Test started");
+            case "end" -> details.append("Test finished in ").append(e.getOrDefault("durationMs", "?")).append(" ms");
+            case "screenshot" -> {
+                String src = "screenshots/" + escape(e.getOrDefault("blob", ""));
+                details.append("<a href='").append(src).append("'><img src='").append(src).append("' alt='")
+                        .append(escape(e.getOrDefault("msg", ""))).append("'/></a>");
+            }
+            // html logs carry report markup on purpose (links, <br/>, SVG); everything else is text
+            default -> details.append("true".equals(e.get("html")) ? e.getOrDefault("msg", "") : escape(e.getOrDefault("msg", "")));
+        }
+        w.write("<tr class='" + escape(status) + "'><td>" + TIME.format(Instant.ofEpochMilli(ts)) + "</td>"
+                + (withDevice ? "<td>" + escape(e.getOrDefault("device", "")) + "</td>" : "")
+                + "<td>" + escape(e.getOrDefault("shard", "")) + "</td><td>" + escape(e.getOrDefault("test", ""))
+                + "</td><td>" + escape(status) + "</td><td>" + details + "</td></tr>\n");
+    }
+
+    private static List<Path> findEventFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path p : inputs) {
+            if (Files.isRegularFile(p)) {
+                files.add(p);
+            } else if (Files.isDirectory(p)) {
+                try (Stream<Path> s = Files.walk(p, 3)) {
+                    s.filter(f -> f.getFileName().toString().equals(ShardReport.EVENTS_FILE)).sorted().forEach(files::add);
+                }
+            } else {
+                System.err.println("No shard output at " + p);
+            }
+        }
+        return files;
+    }
+
+    private static void append(Writer out, Path part) throws IOException {
+        if (!Files.exists(part)) return;
+        try (BufferedReader r = Files.newBufferedReader(part, StandardCharsets.UTF_8)) {
+            r.transferTo(out);
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("'", "&#39;").replace("\"", "&quot;");
+    }
+}
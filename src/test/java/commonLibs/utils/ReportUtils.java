@@ -6,10 +6,13 @@ import com.aventstack.extentreports.ExtentTest;
 import com.aventstack.extentreports.Status;
 import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
 
+import java.io.IOException;
+
 public class ReportUtils {
 
     private final ExtentReporter htmlReport;
     private final ExtentReports extentReport;
+    private final ShardReport shardReport; // null unless report.shard.enabled
 
     // ThreadLocal to hold current test for each running thread (test method)
     private static final ThreadLocal<ExtentTest> extentTest = new ThreadLocal<>();
@@ -18,6 +21,12 @@ public class ReportUtils {
         this.htmlReport = new ExtentHtmlReporter(filename);
         this.extentReport = new ExtentReports();
         this.extentReport.attachReporter(this.htmlReport);
+        this.shardReport = ShardReport.isEnabled() ? openShard(filename) : null;
+    }
+
+    /** Shard event log written next to the Extent report, or null when disabled. */
+    public ShardReport shardReport() {
+        return shardReport;
     }
 
     /**
@@ -26,6 +35,7 @@ public class ReportUtils {
     public void createATestcase(String testcaseName) {
         ExtentTest t = extentReport.createTest(testcaseName);
         extentTest.set(t);
+        if (shardReport != null) shardReport.startTest(testcaseName);
     }
 
     /**
@@ -33,15 +43,15 @@ public class ReportUtils {
      * If there is no current test, create a fallback test node named "UNASSIGNED_TEST".
      */
     public void addLogs(Status status, String comment) {
-        ExtentTest t = extentTest.get();
-        if (t == null) {
-            // create a small fallback test node so logs aren't lost
-            ExtentTest fallback = extentReport.createTest("UNASSIGNED_TEST");
-            fallback.log(status, comment);
-            extentTest.set(fallback);
-        } else {
-            t.log(status, comment);
-        }
+        log(status, comment, false);
+    }
+
+    /**
+     * Add a log whose comment is HTML (links, line breaks, inline SVG). Extent renders every log as
+     * HTML; the flag keeps the merged shard report from escaping this one.
+     */
+    public void addHtmlLogs(Status status, String html) {
+        log(status, html, true);
     }
 
     /**
@@ -53,6 +63,7 @@ public class ReportUtils {
             throw new IllegalStateException("No active test to attach screenshot to");
         }
         t.addScreenCaptureFromPath(imageFilename);
+        if (shardReport != null) shardReport.screenshot(imageFilename);
     }
 
     /**
@@ -60,6 +71,7 @@ public class ReportUtils {
      */
     public synchronized void flushReport() {
         extentReport.flush();
+        if (shardReport != null) shardReport.flush();
     }
 
     /**
@@ -67,5 +79,30 @@ public class ReportUtils {
      */
     public void removeCurrentTest() {
         extentTest.remove();
+        if (shardReport != null) shardReport.endTest();
+    }
+
+    private void log(Status status, String comment, boolean html) {
+        ExtentTest t = extentTest.get();
+        if (t == null) {
+            // create a small fallback test node so logs aren't lost
+            ExtentTest fallback = extentReport.createTest("UNASSIGNED_TEST");
+            fallback.log(status, comment);
+            extentTest.set(fallback);
+        } else {
+            t.log(status, comment);
+        }
+        if (shardReport != null) shardReport.log(status.toString(), comment, html);
+    }
+
+    private static ShardReport openShard(String reportFilename) {
+        try {
+            ShardReport shard = new ShardReport(ShardReport.shardsRootFor(reportFilename), ShardReport.defaultShardId());
+            System.out.println("Writing shard report to " + shard.directory());
+            return shard;
+        } catch (IOException e) {
+            System.err.println("Could not open shard report: " + e.getMessage());
+            return null;
+        }
     }
 }
@@ -0,0 +1,303 @@
+package commonLibs.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResourceSampler - background sampling of the app's memory, CPU time and thread count.
+ * - /proc/<pid>/stat every interval (one cheap adb call): CPU ticks (utime + stime) and num_threads
+ * - "dumpsys meminfo <pkg>" every N-th sample (slower): TOTAL PSS in kB; in between the last value is kept
+ * - Series are stored in growable primitive arrays (no boxing, one entry per sample)
+ * - beginTest()/endTest() give per-test deltas; markLoop()/loopGrowthKbPerLoop() flag memory growth
+ *   across repeated navigation loops
+ *
+ * Config (config.properties):
+ *   sampler.enabled=false
+ *   sampler.interval.ms=2000
+ *   sampler.meminfo.every=5
+ *   sampler.growth.kb.per.loop=1024
+ */
+public class ResourceSampler {
+
+    /** Linux USER_HZ on Android devices. */
+    private static final int CLOCK_TICKS_PER_SECOND = 100;
+
+    /** Resource change over one test. */
+    public record TestDelta(String testName, long durationMs, int samples, int pssStartKb, int pssEndKb,
+                            int pssPeakKb, long cpuMs, int threadsStart, int threadsEnd) {
+        public String describe() {
+            return String.format(Locale.ROOT, "%s: PSS %d -> %d kB (%+d, peak %d), CPU %d ms in %d ms (%.0f%%), threads %d -> %d",
+                    testName, pssStartKb, pssEndKb, pssEndKb - pssStartKb, pssPeakKb, cpuMs, durationMs,
+                    durationMs == 0 ? 0.0 : 100.0 * cpuMs / durationMs, threadsStart, threadsEnd);
+        }
+    }
+
+    private final String deviceSerial;
+    private final String appPackage;
+    private final long intervalMillis;
+    private final int meminfoEvery;
+
+    // series (guarded by this)
+    private long[] times = new long[256];
+    private int[] pssKb = new int[256];
+    private long[] cpuTicks = new long[256];
+    private int[] threads = new int[256];
+    private int size;
+    private int samplePid = -1;
+    private long cpuBase; // CPU ticks of earlier app processes, so the series keeps growing across restarts
+
+    private double[] loopPss = new double[16];
+    private int loops;
+
+    private ScheduledExecutorService scheduler;
+    private volatile int pid = -1;
+    private int lastPss = -1;
+    private long tick;
+
+    private String testName;
+    private int testStartIndex;
+    private long testStartMillis;
+
+    public ResourceSampler(String deviceSerial, String appPackage) {
+        this.deviceSerial = deviceSerial;
+        this.appPackage = appPackage;
+        this.intervalMillis = Long.parseLong(ConfigReader.get("sampler.interval.ms", "2000"));
+        this.meminfoEvery = Math.max(1, Integer.parseInt(ConfigReader.get("sampler.meminfo.every", "5")));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("sampler.enabled", "false"));
+    }
+
+    /* ------------------------
+       Sampling lifecycle
+       ------------------------ */
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "resource-sampler-" + deviceSerial);
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::sampleSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (Exception e) {
+            System.err.println("Resource sample failed (non-fatal): " + e.getMessage());
+        }
+    }
+
+    /** Take one sample now; also usable without the background schedule. */
+    public void sample() {
+        if (pid <= 0) pid = resolvePid();
+        int sampled = pid;
+        if (sampled <= 0) return; // app not running
+
+        long[] stat = parseStat(AdbUtils.shell(deviceSerial, "cat", "/proc/" + sampled + "/stat"));
+        if (stat == null) {
+            pid = -1; // process restarted; resolve again next time
+            return;
+        }
+        int pss;
+        boolean refreshPss;
+        synchronized (this) {
+            pss = lastPss;
+            refreshPss = pss < 0 || tick % meminfoEvery == 0;
+        }
+        if (refreshPss) {
+            int fresh = parseMeminfoTotalPss(AdbUtils.shell(deviceSerial, "dumpsys", "meminfo", appPackage));
+            if (fresh > 0) pss = fresh;
+        }
+        record(System.currentTimeMillis(), sampled, pss, stat[0], (int) stat[1]);
+    }
+
+    /** Append one sample; cpu is the process's own utime + stime, which starts again near 0 after a restart. */
+    synchronized void record(long time, int processId, int pss, long cpu, int threadCount) {
+        if (processId != samplePid) {
+            // new process: continue from the last total so per-test CPU deltas never go negative
+            cpuBase = size == 0 ? 0 : cpuTicks[size - 1];
+            samplePid = processId;
+        }
+        tick++;
+        lastPss = pss;
+        if (size == times.length) {
+            int n = size * 2;
+            times = Arrays.copyOf(times, n);
+            pssKb = Arrays.copyOf(pssKb, n);
+            cpuTicks = Arrays.copyOf(cpuTicks, n);
+            threads = Arrays.copyOf(threads, n);
+        }
+        times[size] = time;
+        pssKb[size] = pss;
+        cpuTicks[size] = cpuBase + cpu;
+        threads[size] = threadCount;
+        size++;
+    }
+
+    /* ------------------------
+       Per-test deltas
+       ------------------------ */
+
+    public void beginTest(String name) {
+        sample();
+        synchronized (this) {
+            testName = name;
+            testStartIndex = Math.max(0, size - 1);
+            testStartMillis = System.currentTimeMillis();
+        }
+    }
+
+    /** Delta between the sample at beginTest() and a fresh one now; null if nothing was sampled. */
+    public TestDelta endTest() {
+        sample();
+        synchronized (this) {
+            if (testName == null || size == 0 || testStartIndex >= size) return null;
+            int from = testStartIndex;
+            int to = size - 1;
+            int peak = 0;
+            for (int i = from; i <= to; i++) peak = Math.max(peak, pssKb[i]);
+            TestDelta delta = new TestDelta(testName, System.currentTimeMillis() - testStartMillis, to - from + 1,
+                    pssKb[from], pssKb[to], peak,
+                    (cpuTicks[to] - cpuTicks[from]) * 1000 / CLOCK_TICKS_PER_SECOND,
+                    threads[from], threads[to]);
+            testName = null;
+            return delta;
+        }
+    }
+
+    /** Inline SVG sparkline of PSS during the current/last test window (for HTML reports). */
+    public synchronized String pssSparklineSvg(int width, int height) {
+        int from = Math.min(testStartIndex, size);
+        int n = size - from;
+        if (n < 2) return "";
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < size; i++) {
+            min = Math.min(min, pssKb[i]);
+            max = Math.max(max, pssKb[i]);
+        }
+        double range = Math.max(1, max - min);
+        StringBuilder points = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            double x = (double) i / (n - 1) * width;
+            double y = height - (pssKb[from + i] - min) / range * height;
+            points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+        }
+        return "<svg width='" + width + "' height='" + height + "'><polyline fill='none' stroke='#d00' points='"
+                + points.toString().trim() + "'/></svg> PSS " + min + "-" + max + " kB";
+    }
+
+    /* ------------------------
+       Growth across navigation loops
+       ------------------------ */
+
+    /** Record PSS at the end of one navigation loop (takes a fresh meminfo reading). */
+    public void markLoop() {
+        int pss = parseMeminfoTotalPss(AdbUtils.shell(deviceSerial, "dumpsys", "meminfo", appPackage));
+        if (pss <= 0) return;
+        synchronized (this) {
+            if (loops == loopPss.length) loopPss = Arrays.copyOf(loopPss, loops * 2);
+            loopPss[loops++] = pss;
+        }
+    }
+
+    /** Least-squares PSS slope in kB per loop over all marked loops (0 with fewer than 3 loops). */
+    public synchronized double loopGrowthKbPerLoop() {
+        return loops < 3 ? 0 : slope(Arrays.copyOf(loopPss, loops));
+    }
+
+    public boolean isLeaking() {
+        double limit = Double.parseDouble(ConfigReader.get("sampler.growth.kb.per.loop", "1024"));
+        return loopGrowthKbPerLoop() > limit;
+    }
+
+    static double slope(double[] y) {
+        int n = y.length;
+        double meanX = (n - 1) / 2.0;
+        double meanY = 0;
+        for (double v : y) meanY += v;
+        meanY /= n;
+        double num = 0;
+        double den = 0;
+        for (int i = 0; i < n; i++) {
+            num += (i - meanX) * (y[i] - meanY);
+            den += (i - meanX) * (i - meanX);
+        }
+        return den == 0 ? 0 : num / den;
+    }
+
+    /* ------------------------
+       Parsing (works on recorded outputs)
+       ------------------------ */
+
+    /**
+     * Parse /proc/<pid>/stat. The comm field (2) may contain spaces, so fields are counted after the last ')'.
+     * @return {utime + stime in ticks, num_threads} or null if the text is not a stat line
+     */
+    public static long[] parseStat(String stat) {
+        if (stat == null) return null;
+        int close = stat.lastIndexOf(')');
+        if (close < 0) return null;
+        String[] f = stat.substring(close + 1).trim().split("\\s+");
+        // after ')': f[0] = state (field 3), so field N is f[N - 3]
+        if (f.length < 18) return null;
+        try {
+            long utime = Long.parseLong(f[14 - 3]);
+            long stime = Long.parseLong(f[15 - 3]);
+            long numThreads = Long.parseLong(f[20 - 3]);
+            return new long[]{utime + stime, numThreads};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * TOTAL PSS in kB from "dumpsys meminfo <pkg>": "TOTAL PSS:  185563 ..." (Android 10+) or the
+     * first number of the "TOTAL" table row (older releases). Returns -1 if not found.
+     */
+    public static int parseMeminfoTotalPss(String meminfo) {
+        if (meminfo == null) return -1;
+        for (String line : meminfo.split("\\R")) {
+            String t = line.trim();
+            if (t.startsWith("TOTAL PSS:")) {
+                return firstInt(t.substring("TOTAL PSS:".length()));
+            }
+            if (t.startsWith("TOTAL ")) {
+                int pss = firstInt(t.substring("TOTAL ".length()));
+                if (pss > 0) return pss; // "TOTAL SWAP PSS:" etc. fall through
+            }
+        }
+        return -1;
+    }
+
+    private static int firstInt(String s) {
+        String t = s.trim().replace(",", "");
+        int end = 0;
+        while (end < t.length() && Character.isDigit(t.charAt(end))) end++;
+        return end == 0 ? -1 : Integer.parseInt(t.substring(0, end));
+    }
+
+    private int resolvePid() {
+        String out = AdbUtils.shell(deviceSerial, "pidof", appPackage).trim();
+        if (out.isEmpty()) return -1;
+        try {
+            return Integer.parseInt(out.split("\\s+")[0]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
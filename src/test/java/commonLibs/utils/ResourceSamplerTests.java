@@ -0,0 +1,71 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Offline checks of ResourceSampler parsing against recorded /proc/<pid>/stat and "dumpsys meminfo"
+ * outputs (src/test/resources/recorded); no device needed. Run with: mvn test -Poffline
+ */
+public class ResourceSamplerTests {
+
+    @Test(description = "/proc/<pid>/stat: utime + stime and num_threads")
+    public void parsesStat() throws IOException {
+        Assert.assertEquals(ResourceSampler.parseStat(recorded("proc-stat-api34.txt")), new long[]{4312 + 1187, 87});
+        Assert.assertEquals(ResourceSampler.parseStat(recorded("proc-stat-api34-restarted.txt")), new long[]{212 + 64, 41});
+    }
+
+    @Test(description = "a comm field with spaces and parentheses does not shift the fields")
+    public void parsesStatWithOddProcessName() throws IOException {
+        String stat = recorded("proc-stat-api34.txt").replace("(ts.bild.android)", "(bild (main) x)");
+
+        Assert.assertEquals(ResourceSampler.parseStat(stat), new long[]{4312 + 1187, 87});
+    }
+
+    @Test(description = "error output instead of a stat line")
+    public void rejectsNonStatOutput() {
+        Assert.assertNull(ResourceSampler.parseStat(""));
+        Assert.assertNull(ResourceSampler.parseStat("cat: /proc/12873/stat: No such file or directory"));
+        Assert.assertNull(ResourceSampler.parseStat("12873 (ts.bild.android) S 612 612"));
+    }
+
+    @Test(description = "TOTAL PSS from Android 14 (App Summary \"TOTAL PSS:\") and Android 9 (\"TOTAL:\") output")
+    public void parsesMeminfoTotalPss() throws IOException {
+        Assert.assertEquals(ResourceSampler.parseMeminfoTotalPss(recorded("meminfo-api34.txt")), 185563);
+        Assert.assertEquals(ResourceSampler.parseMeminfoTotalPss(recorded("meminfo-api28.txt")), 143210);
+        Assert.assertEquals(ResourceSampler.parseMeminfoTotalPss("No process found for: com.netbiscuits.bild.android"), -1);
+    }
+
+    @Test(description = "CPU time over a test stays positive when the app restarts with a new pid")
+    public void cpuDeltaSurvivesAppRestart() throws IOException {
+        long[] before = ResourceSampler.parseStat(recorded("proc-stat-api34.txt"));
+        long[] restarted = ResourceSampler.parseStat(recorded("proc-stat-api34-restarted.txt"));
+        // no device behind this serial: sample() in beginTest/endTest finds no pid and records nothing
+        ResourceSampler sampler = new ResourceSampler("offline-no-device", "offline.test.app");
+
+        sampler.record(1_000, 12873, 180_000, before[0], (int) before[1]);
+        sampler.beginTest("restart");
+        sampler.record(3_000, 12873, 185_563, before[0] + 200, (int) before[1]);
+        sampler.record(5_000, 13540, 143_210, restarted[0], (int) restarted[1]);
+        ResourceSampler.TestDelta delta = sampler.endTest();
+
+        Assert.assertNotNull(delta);
+        // 200 ticks of the old process + 276 of the new one, 10 ms per tick
+        Assert.assertEquals(delta.cpuMs(), (200 + 276) * 10L);
+        Assert.assertEquals(delta.threadsEnd(), 41);
+        Assert.assertEquals(delta.pssEndKb(), 143_210);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static String recorded(String name) throws IOException {
+        try (InputStream in = ResourceSamplerTests.class.getResourceAsStream("/recorded/" + name)) {
+            Assert.assertNotNull(in, "missing fixture recorded/" + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
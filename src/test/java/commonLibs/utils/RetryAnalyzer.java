@@ -0,0 +1,176 @@
+package commonLibs.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RetryAnalyzer - retries transient failures only, within a per-test and a per-suite budget.
+ * - Assertion failures are real and never retried
+ * - Dead sessions, stale elements, driver connection errors and timeouts of the driver transport or the
+ *   command watchdog are transient
+ * - A plain wait timeout (WebDriverWait on a locator that never matches) is real: retrying it would
+ *   only hide a broken locator
+ * - A retried test resumes from its nearest restorable Checkpoint
+ *
+ * Config (config.properties):
+ *   retry.enabled=true
+ *   retry.max.per.test=1
+ *   retry.suite.budget=3
+ *
+ * TestNG creates one instance per test method, so the attempt counter is per test.
+ */
+public class RetryAnalyzer implements IRetryAnalyzer {
+
+    public enum FailureKind { TRANSIENT, REAL }
+
+    private static final AtomicInteger SUITE_RETRIES = new AtomicInteger();
+    private static final AtomicLong SUITE_RETRY_COST_MS = new AtomicLong();
+    private static final Map<String, Integer> RETRIES_PER_TEST = new ConcurrentHashMap<>();
+    private static final AtomicBoolean SESSION_REBUILD_REQUIRED = new AtomicBoolean(false);
+    private static final String DECISION_ATTRIBUTE = "retry.decision";
+
+    private int attempts;
+
+    @Override
+    public boolean retry(ITestResult result) {
+        if (!Boolean.parseBoolean(ConfigReader.get("retry.enabled", "true"))) return false;
+
+        int maxPerTest = Integer.parseInt(ConfigReader.get("retry.max.per.test", "1"));
+        int suiteBudget = Integer.parseInt(ConfigReader.get("retry.suite.budget", "3"));
+        String testKey = testKey(result);
+
+        boolean sessionHealthy = isSessionHealthy(DriverFactory.getDriver());
+        FailureKind kind = classify(result.getThrowable(), sessionHealthy);
+        if (kind == FailureKind.REAL) {
+            return decide(result, false, "Not retrying: real failure (" + describe(result.getThrowable()) + ")");
+        }
+        if (attempts >= maxPerTest) {
+            return decide(result, false, "Not retrying: per-test budget of " + maxPerTest + " used");
+        }
+        if (SUITE_RETRIES.incrementAndGet() > suiteBudget) {
+            SUITE_RETRIES.decrementAndGet();
+            return decide(result, false, "Not retrying: suite retry budget of " + suiteBudget + " used");
+        }
+
+        attempts++;
+        long cost = Math.max(0, result.getEndMillis() - result.getStartMillis());
+        SUITE_RETRY_COST_MS.addAndGet(cost);
+        RETRIES_PER_TEST.merge(testKey, 1, Integer::sum);
+        if (!sessionHealthy) SESSION_REBUILD_REQUIRED.set(true);
+        Checkpoints.requestResume(testKey);
+
+        return decide(result, true, "Retrying (attempt " + (attempts + 1) + ", failed attempt cost " + cost
+                + " ms, session " + (sessionHealthy ? "healthy" : "lost") + "): " + describe(result.getThrowable()));
+    }
+
+    /**
+     * TestNG asks before the @AfterMethod of the failed attempt runs, so the reason is kept on the result
+     * for BaseTest to put into the report (see {@link #decision}) and goes to the TestNG report output.
+     */
+    private static boolean decide(ITestResult result, boolean retry, String reason) {
+        result.setAttribute(DECISION_ATTRIBUTE, reason);
+        Reporter.log(testKey(result) + ": " + reason);
+        return retry;
+    }
+
+    /** Why the analyzer did or did not retry this failed attempt; null if it was not consulted. */
+    public static String decision(ITestResult result) {
+        Object reason = result.getAttribute(DECISION_ATTRIBUTE);
+        return reason == null ? null : reason.toString();
+    }
+
+    /* ------------------------
+       Classification
+       ------------------------ */
+
+    public static FailureKind classify(Throwable error, boolean sessionHealthy) {
+        // an assertion is a verdict on the app, even if the session died afterwards
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof AssertionError) return FailureKind.REAL;
+        }
+        if (!sessionHealthy) return FailureKind.TRANSIENT;
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof NoSuchSessionException
+                    || t instanceof StaleElementReferenceException
+                    || isTransportTimeout(t)) {
+                return FailureKind.TRANSIENT;
+            }
+            if (t instanceof WebDriverException && isConnectionProblem(t.getMessage())) {
+                return FailureKind.TRANSIENT;
+            }
+        }
+        return FailureKind.REAL;
+    }
+
+    /**
+     * Timeouts below Selenium's TimeoutException: the HTTP client's socket/request timeout, or the
+     * java.util.concurrent one DeadlineCommandExecutor attaches as cause. A WebDriverWait timeout carries
+     * neither (its cause is the last lookup failure, if any).
+     */
+    private static boolean isTransportTimeout(Throwable t) {
+        return t instanceof SocketTimeoutException
+                || t instanceof HttpTimeoutException
+                || t instanceof java.util.concurrent.TimeoutException;
+    }
+
+    private static boolean isConnectionProblem(String message) {
+        if (message == null) return false;
+        String m = message.toLowerCase();
+        return m.contains("socket") || m.contains("connection refused") || m.contains("connection reset")
+                || m.contains("instrumentation process is not running") || m.contains("uiautomator2 server");
+    }
+
+    /** Cheap round trip to see whether the Appium session still answers. */
+    public static boolean isSessionHealthy(AndroidDriver driver) {
+        if (driver == null) return false;
+        try {
+            if (driver.getSessionId() == null) return false;
+            driver.getCurrentPackage();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /* ------------------------
+       Bookkeeping
+       ------------------------ */
+
+    public static String testKey(ITestResult result) {
+        return result.getMethod().getQualifiedName();
+    }
+
+    /** Mark the session as lost outside retry(), e.g. by the command watchdog. */
+    public static void requestSessionRebuild() {
+        SESSION_REBUILD_REQUIRED.set(true);
+    }
+
+    /** True once after a retry caused by a lost session; BaseTest rebuilds the driver. */
+    public static boolean consumeSessionRebuild() {
+        return SESSION_REBUILD_REQUIRED.getAndSet(false);
+    }
+
+    public static String summary() {
+        return "Retries: " + SUITE_RETRIES.get() + " (cost " + SUITE_RETRY_COST_MS.get() + " ms) " + RETRIES_PER_TEST;
+    }
+
+    private static String describe(Throwable t) {
+        if (t == null) return "no exception";
+        String msg = t.getMessage();
+        if (msg != null && msg.length() > 120) msg = msg.substring(0, 120) + "...";
+        return t.getClass().getSimpleName() + (msg != null ? ": " + msg : "");
+    }
+}
@@ -0,0 +1,56 @@
+package commonLibs.utils;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+
+import static commonLibs.utils.RetryAnalyzer.FailureKind.REAL;
+import static commonLibs.utils.RetryAnalyzer.FailureKind.TRANSIENT;
+
+/**
+ * Offline checks of RetryAnalyzer.classify with the exceptions Selenium and the watchdog throw;
+ * no device needed. Run with: mvn test -Poffline
+ */
+public class RetryAnalyzerTests {
+
+    @Test(description = "a WebDriverWait timeout on a locator that never matches is a real failure")
+    public void waitTimeoutIsReal() {
+        TimeoutException wait = new TimeoutException("Expected condition failed: waiting for visibility of element "
+                + "located by By.id: login_button (tried for 20 second(s) with 500 milliseconds interval)",
+                new NoSuchElementException("no such element"));
+
+        Assert.assertEquals(RetryAnalyzer.classify(wait, true), REAL);
+        Assert.assertEquals(RetryAnalyzer.classify(new TimeoutException("Expected condition failed"), true), REAL);
+    }
+
+    @Test(description = "transport and watchdog timeouts are transient")
+    public void transportTimeoutIsTransient() {
+        Assert.assertEquals(RetryAnalyzer.classify(
+                new TimeoutException(new HttpTimeoutException("request timed out")), true), TRANSIENT);
+        Assert.assertEquals(RetryAnalyzer.classify(
+                new WebDriverException(new SocketTimeoutException("Read timed out")), true), TRANSIENT);
+        Assert.assertEquals(RetryAnalyzer.classify(new TimeoutException("Driver command 'findElement' exceeded its "
+                + "20000 ms deadline", new java.util.concurrent.TimeoutException()), true), TRANSIENT);
+    }
+
+    @Test(description = "a wait that failed because the session died is transient")
+    public void waitOnDeadSessionIsTransient() {
+        TimeoutException wait = new TimeoutException("Expected condition failed", new NoSuchSessionException("gone"));
+
+        Assert.assertEquals(RetryAnalyzer.classify(wait, true), TRANSIENT);
+        Assert.assertEquals(RetryAnalyzer.classify(new TimeoutException("Expected condition failed"), false), TRANSIENT);
+    }
+
+    @Test(description = "assertion failures are never retried")
+    public void assertionIsReal() {
+        Assert.assertEquals(RetryAnalyzer.classify(new AssertionError("expected [a] but found [b]"), true), REAL);
+        Assert.assertEquals(RetryAnalyzer.classify(new AssertionError("expected [a] but found [b]"), false), REAL,
+                "a session that died after the assertion does not make it transient");
+    }
+}
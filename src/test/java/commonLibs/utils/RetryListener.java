@@ -0,0 +1,20 @@
+package commonLibs.utils;
+
+import org.testng.IAnnotationTransformer;
+import org.testng.annotations.ITestAnnotation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * RetryListener - attaches RetryAnalyzer to every @Test (register in testng.xml).
+ */
+public class RetryListener implements IAnnotationTransformer {
+
+    // IAnnotationTransformer declares raw Class/Constructor; Class<?> would not override it
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        annotation.setRetryAnalyzer(RetryAnalyzer.class);
+    }
+}
@@ -0,0 +1,441 @@
+package commonLibs.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * RunHistoryStore - embedded, append-only store of test run history.
+ * - One segment file per run ("<runId>.seg"); a run only ever appends to its own segment,
+ *   so parallel JVMs writing to the same directory never interfere
+ * - Records are length + CRC32 framed; a torn tail from a crashed run is detected and ignored
+ * - Record types: RUN (device, APK digest, start) and TEST (duration, outcome, inline step timings)
+ * - When a run is closed its segment is sealed with a ".idx" file holding every record except the
+ *   steps, so opening the store reads small index files and only scans segments that were never sealed
+ * - In memory the index is columnar per test id (run, start, duration, outcome, file offset), so
+ *   trend, percentile and "slowest tests" queries need no file access; steps are read on demand
+ *
+ * Config (config.properties):
+ *   history.enabled=false
+ *   history.dir=history
+ */
+public class RunHistoryStore {
+
+    private static final byte RUN = 1;
+    private static final byte TEST = 2;
+    private static final String SEGMENT = ".seg";
+    private static final String INDEX = ".idx";
+
+    public enum Outcome { PASS, FAIL, SKIP }
+
+    public record RunInfo(String runId, long startedAt, String device, String apkDigest) { }
+
+    public record Step(String name, long durationMs, Outcome outcome) { }
+
+    public record TestRow(String runId, String testId, long startedAt, long durationMs, Outcome outcome) { }
+
+    /** Aggregate of one test over a window of runs. */
+    public record TestSummary(String testId, int samples, double medianMs, double p90Ms, int failures) { }
+
+    /** Per-test columns; row i of every array belongs to the same TEST record. */
+    private static final class Columns {
+        String[] runIds = new String[8];
+        long[] startedAt = new long[8];
+        long[] durations = new long[8];
+        byte[] outcomes = new byte[8];
+        String[] segments = new String[8];
+        long[] offsets = new long[8];
+        int size;
+
+        void add(String runId, long start, long duration, byte outcome, String segment, long offset) {
+            if (size == runIds.length) {
+                int n = size * 2;
+                runIds = Arrays.copyOf(runIds, n);
+                startedAt = Arrays.copyOf(startedAt, n);
+                durations = Arrays.copyOf(durations, n);
+                outcomes = Arrays.copyOf(outcomes, n);
+                segments = Arrays.copyOf(segments, n);
+                offsets = Arrays.copyOf(offsets, n);
+            }
+            runIds[size] = runId;
+            startedAt[size] = start;
+            durations[size] = duration;
+            outcomes[size] = outcome;
+            segments[size] = segment;
+            offsets[size] = offset;
+            size++;
+        }
+    }
+
+    private static RunHistoryStore shared;
+    private static Run sharedRun;
+
+    private final File dir;
+    private final List<RunInfo> runs = new ArrayList<>();                 // sorted by start
+    private final Map<String, Columns> byTest = new HashMap<>();
+
+    public RunHistoryStore(File dir) throws IOException {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create history directory: " + dir.getAbsolutePath());
+        }
+        load();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("history.enabled", "false"));
+    }
+
+    public static synchronized RunHistoryStore shared() throws IOException {
+        if (shared == null) {
+            String path = ConfigReader.get("history.dir", "history");
+            File f = new File(path).isAbsolute() ? new File(path) : new File(System.getProperty("user.dir"), path);
+            shared = new RunHistoryStore(f);
+        }
+        return shared;
+    }
+
+    /** The run of this JVM, started on first call. */
+    public static synchronized Run currentRun(String device, String apkDigest) throws IOException {
+        if (sharedRun == null) sharedRun = shared().beginRun(device, apkDigest);
+        return sharedRun;
+    }
+
+    /** Seal the run of this JVM (no-op if none was started). */
+    public static synchronized void closeCurrentRun() {
+        if (sharedRun == null) return;
+        try {
+            sharedRun.close();
+        } catch (IOException e) {
+            System.err.println("Closing run history failed: " + e.getMessage());
+        }
+        sharedRun = null;
+    }
+
+    /* ------------------------
+       Writing
+       ------------------------ */
+
+    public Run beginRun(String device, String apkDigest) throws IOException {
+        long now = System.currentTimeMillis();
+        String runId = now + "-" + ProcessHandle.current().pid();
+        Run run = new Run(new RunInfo(runId, now, nz(device), nz(apkDigest)));
+        synchronized (this) {
+            runs.add(run.info);
+        }
+        return run;
+    }
+
+    /** Writer for one run; thread-safe, each record is flushed so a crash loses at most a torn tail. */
+    public final class Run implements AutoCloseable {
+        private final RunInfo info;
+        private final File segment;
+        private final RandomAccessFile out;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+
+        private Run(RunInfo info) throws IOException {
+            this.info = info;
+            this.segment = new File(dir, info.runId() + SEGMENT);
+            this.out = new RandomAccessFile(segment, "rw");
+            out.seek(out.length());
+            append(encodeRun(info));
+            writeRunIndex(indexOut, info);
+        }
+
+        public RunInfo info() {
+            return info;
+        }
+
+        public synchronized void recordTest(String testId, long startedAt, long durationMs, Outcome outcome,
+                                            List<Step> steps) throws IOException {
+            long offset = append(encodeTest(info.runId(), testId, startedAt, durationMs, outcome, steps));
+            writeTestIndex(indexOut, testId, startedAt, durationMs, outcome, offset);
+            synchronized (RunHistoryStore.this) {
+                byTest.computeIfAbsent(testId, k -> new Columns())
+                        .add(info.runId(), startedAt, durationMs, (byte) outcome.ordinal(), segment.getName(), offset);
+            }
+        }
+
+        /** Write the index next to the segment; the segment stays readable without it. */
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+            File idx = new File(dir, info.runId() + INDEX);
+            File tmp = new File(dir, info.runId() + INDEX + ".tmp");
+            try (FileOutputStream f = new FileOutputStream(tmp)) {
+                index.writeTo(f);
+            }
+            if (!tmp.renameTo(idx)) throw new IOException("Could not write index " + idx);
+        }
+
+        private long append(byte[] payload) throws IOException {
+            long offset = out.getFilePointer();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            return offset;
+        }
+    }
+
+    /* ------------------------
+       Queries
+       ------------------------ */
+
+    public synchronized List<RunInfo> runs() {
+        return List.copyOf(runs);
+    }
+
+    public synchronized Set<String> testIds() {
+        return Set.copyOf(byTest.keySet());
+    }
+
+    /** Results of one test within the last n runs, oldest first. */
+    public synchronized List<TestRow> history(String testId, int lastRuns) {
+        Columns c = byTest.get(testId);
+        if (c == null) return List.of();
+        Set<String> window = lastRunIds(lastRuns);
+        List<TestRow> rows = new ArrayList<>();
+        for (int i = 0; i < c.size; i++) {
+            if (window.contains(c.runIds[i])) {
+                rows.add(new TestRow(c.runIds[i], testId, c.startedAt[i], c.durations[i], Outcome.values()[c.outcomes[i]]));
+            }
+        }
+        rows.sort(Comparator.comparingLong(TestRow::startedAt));
+        return rows;
+    }
+
+    /** Duration percentile (ms) of passing executions over the last n runs; NaN without data. */
+    public double percentile(String testId, double p, int lastRuns) {
+        double[] d = passedDurations(history(testId, lastRuns));
+        return d.length == 0 ? Double.NaN : SampleStats.raw(d).percentile(p);
+    }
+
+    /** Least-squares slope of passing durations in ms per execution over the last n runs (0 below 3 samples). */
+    public double trendMsPerRun(String testId, int lastRuns) {
+        double[] d = passedDurations(history(testId, lastRuns));
+        return d.length < 3 ? 0 : ResourceSampler.slope(d);
+    }
+
+    /** Tests with the highest median duration over the last n runs. */
+    public synchronized List<TestSummary> slowest(int lastRuns, int limit) {
+        List<TestSummary> summaries = new ArrayList<>();
+        for (String testId : byTest.keySet()) {
+            List<TestRow> rows = history(testId, lastRuns);
+            double[] d = passedDurations(rows);
+            if (d.length == 0) continue;
+            SampleStats stats = SampleStats.raw(d);
+            int failures = (int) rows.stream().filter(r -> r.outcome() == Outcome.FAIL).count();
+            summaries.add(new TestSummary(testId, d.length, stats.median(), stats.percentile(90), failures));
+        }
+        summaries.sort(Comparator.comparingDouble(TestSummary::medianMs).reversed());
+        return summaries.size() > limit ? List.copyOf(summaries.subList(0, limit)) : summaries;
+    }
+
+    /** Step timings of one execution, read from its segment. */
+    public List<Step> steps(TestRow row) throws IOException {
+        String segment;
+        long offset = -1;
+        synchronized (this) {
+            Columns c = byTest.get(row.testId());
+            if (c == null) return List.of();
+            segment = null;
+            for (int i = 0; i < c.size; i++) {
+                if (c.runIds[i].equals(row.runId()) && c.startedAt[i] == row.startedAt()) {
+                    segment = c.segments[i];
+                    offset = c.offsets[i];
+                    break;
+                }
+            }
+        }
+        if (segment == null) return List.of();
+        try (RandomAccessFile in = new RandomAccessFile(new File(dir, segment), "r")) {
+            in.seek(offset);
+            byte[] payload = new byte[in.readInt()];
+            in.readInt(); // crc, verified when the segment was scanned
+            in.readFully(payload);
+            DataInputStream d = new DataInputStream(new ByteArrayInputStream(payload));
+            d.readByte();
+            d.readUTF();
+            d.readUTF();
+            d.readLong();
+            d.readLong();
+            d.readByte();
+            int n = d.readInt();
+            List<Step> steps = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                steps.add(new Step(d.readUTF(), d.readLong(), Outcome.values()[d.readByte()]));
+            }
+            return steps;
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private Set<String> lastRunIds(int n) {
+        Set<String> ids = new HashSet<>();
+        for (int i = Math.max(0, runs.size() - n); i < runs.size(); i++) ids.add(runs.get(i).runId());
+        return ids;
+    }
+
+    private static double[] passedDurations(List<TestRow> rows) {
+        return rows.stream().filter(r -> r.outcome() == Outcome.PASS).mapToDouble(TestRow::durationMs).toArray();
+    }
+
+    private synchronized void load() throws IOException {
+        File[] segments = dir.listFiles((d, n) -> n.endsWith(SEGMENT));
+        if (segments == null) return;
+        for (File seg : segments) {
+            String runId = seg.getName().substring(0, seg.getName().length() - SEGMENT.length());
+            File idx = new File(dir, runId + INDEX);
+            if (idx.exists()) {
+                loadIndex(idx, seg.getName());
+            } else {
+                scanSegment(seg);
+            }
+        }
+        runs.sort(Comparator.comparingLong(RunInfo::startedAt));
+    }
+
+    private void loadIndex(File idx, String segment) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idx)))) {
+            RunInfo run = null;
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (type == RUN) {
+                    run = new RunInfo(in.readUTF(), in.readLong(), in.readUTF(), in.readUTF());
+                    runs.add(run);
+                } else if (type == TEST && run != null) {
+                    String testId = in.readUTF();
+                    long start = in.readLong();
+                    long duration = in.readLong();
+                    byte outcome = in.readByte();
+                    long offset = in.readLong();
+                    byTest.computeIfAbsent(testId, k -> new Columns())
+                            .add(run.runId(), start, duration, outcome, segment, offset);
+                } else {
+                    throw new IOException("Corrupt history index " + idx);
+                }
+            }
+        }
+    }
+
+    /** Read an unsealed segment record by record; stops at the first torn or corrupt record. */
+    private void scanSegment(File seg) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(seg)))) {
+            long offset = 0;
+            RunInfo run = null;
+            while (true) {
+                int length;
+                int crc;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    crc = in.readInt();
+                    if (length < 0 || length > 16 * 1024 * 1024) return;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return;
+                }
+                CRC32 check = new CRC32();
+                check.update(payload);
+                if ((int) check.getValue() != crc) {
+                    System.err.println("History segment " + seg.getName() + " is torn at offset " + offset);
+                    return;
+                }
+                DataInputStream d = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = d.readByte();
+                if (type == RUN) {
+                    run = new RunInfo(d.readUTF(), d.readLong(), d.readUTF(), d.readUTF());
+                    runs.add(run);
+                } else if (type == TEST && run != null) {
+                    String runId = d.readUTF();
+                    String testId = d.readUTF();
+                    byTest.computeIfAbsent(testId, k -> new Columns())
+                            .add(runId, d.readLong(), d.readLong(), d.readByte(), seg.getName(), offset);
+                }
+                offset += 8 + length;
+            }
+        }
+    }
+
+    private static byte[] encodeRun(RunInfo run) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream d = new DataOutputStream(bytes);
+        d.writeByte(RUN);
+        d.writeUTF(run.runId());
+        d.writeLong(run.startedAt());
+        d.writeUTF(run.device());
+        d.writeUTF(run.apkDigest());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeTest(String runId, String testId, long startedAt, long durationMs, Outcome outcome,
+                                     List<Step> steps) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream d = new DataOutputStream(new BufferedOutputStream(bytes));
+        d.writeByte(TEST);
+        d.writeUTF(runId);
+        d.writeUTF(testId);
+        d.writeLong(startedAt);
+        d.writeLong(durationMs);
+        d.writeByte(outcome.ordinal());
+        List<Step> s = steps == null ? List.of() : steps;
+        d.writeInt(s.size());
+        for (Step step : s) {
+            d.writeUTF(step.name());
+            d.writeLong(step.durationMs());
+            d.writeByte(step.outcome().ordinal());
+        }
+        d.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeRunIndex(DataOutputStream idx, RunInfo run) throws IOException {
+        idx.writeByte(RUN);
+        idx.writeUTF(run.runId());
+        idx.writeLong(run.startedAt());
+        idx.writeUTF(run.device());
+        idx.writeUTF(run.apkDigest());
+    }
+
+    private static void writeTestIndex(DataOutputStream idx, String testId, long startedAt, long durationMs,
+                                       Outcome outcome, long offset) throws IOException {
+        idx.writeByte(TEST);
+        idx.writeUTF(testId);
+        idx.writeLong(startedAt);
+        idx.writeLong(durationMs);
+        idx.writeByte(outcome.ordinal());
+        idx.writeLong(offset);
+    }
+
+    private static String nz(String s) {
+        return s == null ? "unknown" : s;
+    }
+}
@@ -0,0 +1,133 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static commonLibs.utils.RunHistoryStore.Outcome.FAIL;
+import static commonLibs.utils.RunHistoryStore.Outcome.PASS;
+import static commonLibs.utils.RunHistoryStore.Outcome.SKIP;
+
+/**
+ * Offline checks of RunHistoryStore in a temporary directory: queries, reopening sealed and unsealed
+ * segments, and torn-tail recovery. Run with: mvn test -Poffline
+ */
+public class RunHistoryStoreTests {
+
+    private static final List<RunHistoryStore.Step> LOGIN_STEPS = List.of(
+            new RunHistoryStore.Step("open account", 800, PASS),
+            new RunHistoryStore.Step("enter credentials", 1200, PASS),
+            new RunHistoryStore.Step("submit", 0, SKIP));
+
+    private File dir;
+
+    @BeforeMethod(alwaysRun = true)
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("history").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDir() throws IOException {
+        try (Stream<Path> s = Files.walk(dir.toPath())) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Test(description = "history window, percentiles, trend and slowest tests")
+    public void queries() throws Exception {
+        RunHistoryStore store = new RunHistoryStore(dir);
+        recordFourRuns(store);
+
+        List<RunHistoryStore.TestRow> lastThree = store.history("LoginTests.login", 3);
+        Assert.assertEquals(lastThree.stream().map(RunHistoryStore.TestRow::durationMs).toList(), List.of(200L, 300L, 400L));
+        // linear interpolation between the sorted passing durations
+        Assert.assertEquals(store.percentile("LoginTests.login", 50, 3), 300.0);
+        Assert.assertEquals(store.percentile("LoginTests.login", 90, 4), 370.0, 1e-9);
+        Assert.assertEquals(store.trendMsPerRun("LoginTests.login", 4), 100.0, 1e-9);
+        Assert.assertTrue(Double.isNaN(store.percentile("Unknown.test", 50, 4)));
+
+        List<RunHistoryStore.TestSummary> slowest = store.slowest(4, 2);
+        Assert.assertEquals(slowest.get(0).testId(), "LoginTests.login");
+        Assert.assertEquals(slowest.get(1).testId(), "AppLaunchTests.footer");
+        // the failed execution counts as a failure but not towards the durations
+        Assert.assertEquals(slowest.get(1).samples(), 3);
+        Assert.assertEquals(slowest.get(1).failures(), 1);
+        Assert.assertEquals(store.slowest(4, 10).size(), 2);
+
+        Assert.assertEquals(store.steps(lastThree.get(2)), LOGIN_STEPS);
+    }
+
+    @Test(description = "a reopened store sees sealed runs through their index and unsealed runs by scanning")
+    public void reload() throws Exception {
+        RunHistoryStore store = new RunHistoryStore(dir);
+        recordFourRuns(store);
+        RunHistoryStore.Run open = store.beginRun("emulator-5556", "abc");
+        open.recordTest("LoginTests.login", open.info().startedAt() + 1, 500, PASS, LOGIN_STEPS);
+
+        RunHistoryStore reopened = new RunHistoryStore(dir);
+
+        Assert.assertEquals(reopened.runs(), store.runs());
+        Assert.assertEquals(reopened.testIds(), store.testIds());
+        Assert.assertEquals(reopened.history("LoginTests.login", 10), store.history("LoginTests.login", 10));
+        List<RunHistoryStore.TestRow> rows = reopened.history("LoginTests.login", 2);
+        Assert.assertEquals(reopened.steps(rows.get(0)), LOGIN_STEPS, "steps from a sealed segment");
+        Assert.assertEquals(reopened.steps(rows.get(1)), LOGIN_STEPS, "steps from an unsealed segment");
+        open.close();
+    }
+
+    @Test(description = "a crash mid-write leaves a torn last record that is ignored on reopen")
+    public void tornTail() throws Exception {
+        RunHistoryStore store = new RunHistoryStore(dir);
+        RunHistoryStore.Run run = store.beginRun("emulator-5554", "abc");
+        run.recordTest("LoginTests.login", run.info().startedAt() + 1, 1000, PASS, LOGIN_STEPS);
+        run.recordTest("LoginTests.logout", run.info().startedAt() + 2, 700, PASS, List.of());
+        File segment = new File(dir, run.info().runId() + ".seg");
+
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        RunHistoryStore truncated = new RunHistoryStore(dir);
+        Assert.assertEquals(truncated.runs().size(), 1);
+        Assert.assertEquals(truncated.testIds(), Set.of("LoginTests.login"));
+
+        // flip the last payload byte of the login record (after the run record): the CRC catches it
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            long login = 8 + raf.readInt();
+            raf.seek(login);
+            long lastByte = login + 8 + raf.readInt() - 1;
+            raf.seek(lastByte);
+            int b = raf.read();
+            raf.seek(lastByte);
+            raf.write(b ^ 0xFF);
+        }
+        RunHistoryStore corrupt = new RunHistoryStore(dir);
+        Assert.assertEquals(corrupt.testIds(), Set.of());
+        Assert.assertEquals(corrupt.runs().size(), 1);
+        run.close();
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** Four sealed runs: login slows down by 100 ms per run, footer fails once. */
+    private static void recordFourRuns(RunHistoryStore store) throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            try (RunHistoryStore.Run run = store.beginRun("emulator-5554", "abc")) {
+                long t = run.info().startedAt();
+                run.recordTest("LoginTests.login", t + 1, 100L * i, PASS, LOGIN_STEPS);
+                run.recordTest("AppLaunchTests.footer", t + 2, 50, i == 2 ? FAIL : PASS, List.of());
+            }
+            Thread.sleep(2); // run ids and the run order come from the start time
+        }
+    }
+}
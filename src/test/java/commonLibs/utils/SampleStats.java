@@ -0,0 +1,101 @@
+package commonLibs.utils;
+
+import java.util.Arrays;
+
+/**
+ * SampleStats - distribution summary for benchmark samples.
+ * - Warm-up samples are dropped first
+ * - Outliers outside Tukey fences (Q1 - 1.5 IQR, Q3 + 1.5 IQR) are removed
+ * - Percentiles use linear interpolation between closest ranks
+ */
+public class SampleStats {
+
+    private final double[] sorted;   // kept samples, ascending
+    private final int discardedWarmup;
+    private final int discardedOutliers;
+
+    private SampleStats(double[] sorted, int discardedWarmup, int discardedOutliers) {
+        this.sorted = sorted;
+        this.discardedWarmup = discardedWarmup;
+        this.discardedOutliers = discardedOutliers;
+    }
+
+    /** Summarize raw samples (in measurement order), dropping warm-up runs and outliers. */
+    public static SampleStats of(double[] samples, int warmup) {
+        int skip = Math.min(Math.max(0, warmup), samples.length);
+        double[] measured = Arrays.copyOfRange(samples, skip, samples.length);
+        Arrays.sort(measured);
+        if (measured.length < 4) {
+            return new SampleStats(measured, skip, 0);
+        }
+        double q1 = percentile(measured, 25);
+        double q3 = percentile(measured, 75);
+        double fence = 1.5 * (q3 - q1);
+        double[] kept = Arrays.stream(measured).filter(v -> v >= q1 - fence && v <= q3 + fence).toArray();
+        return new SampleStats(kept, skip, measured.length - kept.length);
+    }
+
+    /** Summarize samples as-is (no warm-up or outlier removal), e.g. per-frame timings. */
+    public static SampleStats raw(double[] samples) {
+        double[] copy = samples.clone();
+        Arrays.sort(copy);
+        return new SampleStats(copy, 0, 0);
+    }
+
+    public int count() {
+        return sorted.length;
+    }
+
+    public int discardedWarmup() {
+        return discardedWarmup;
+    }
+
+    public int discardedOutliers() {
+        return discardedOutliers;
+    }
+
+    public double min() {
+        return sorted.length == 0 ? Double.NaN : sorted[0];
+    }
+
+    public double max() {
+        return sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1];
+    }
+
+    public double mean() {
+        if (sorted.length == 0) return Double.NaN;
+        double sum = 0;
+        for (double v : sorted) sum += v;
+        return sum / sorted.length;
+    }
+
+    public double stdDev() {
+        if (sorted.length < 2) return 0;
+        double mean = mean();
+        double sq = 0;
+        for (double v : sorted) sq += (v - mean) * (v - mean);
+        return Math.sqrt(sq / (sorted.length - 1));
+    }
+
+    public double median() {
+        return percentile(50);
+    }
+
+    public double percentile(double p) {
+        return percentile(sorted, p);
+    }
+
+    private static double percentile(double[] ascending, double p) {
+        if (ascending.length == 0) return Double.NaN;
+        double rank = p / 100.0 * (ascending.length - 1);
+        int lo = (int) Math.floor(rank);
+        int hi = (int) Math.ceil(rank);
+        return ascending[lo] + (ascending[hi] - ascending[lo]) * (rank - lo);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d min=%.1f p50=%.1f p90=%.1f max=%.1f mean=%.1f sd=%.1f (warm-up dropped %d, outliers dropped %d)",
+                count(), min(), median(), percentile(90), max(), mean(), stdDev(), discardedWarmup, discardedOutliers);
+    }
+}
@@ -0,0 +1,230 @@
+package commonLibs.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScreenRecorder - rolling on-device screen recording, transferred only for failing tests.
+ * - Runs "adb shell screenrecord --time-limit <chunk>" back to back on the device
+ * - Keeps only the newest N chunks on the device (older ones are deleted there)
+ * - stopAndPull(): finalizes the current chunk and pulls the kept chunks (failed test)
+ * - Stopping interrupts only this recorder's own screenrecord (by its device pid), so other shards
+ *   recording on a shared device keep going
+ * - stopAndDiscard(): deletes the chunks on the device without transferring them (passed test)
+ *
+ * Config (config.properties):
+ *   recording.enabled=false
+ *   recording.chunk.seconds=10
+ *   recording.keep.chunks=3
+ *   recording.bitrate=4000000
+ *
+ * Requirements: adb must be on PATH.
+ */
+public class ScreenRecorder {
+
+    private static final String DEVICE_DIR = "/sdcard";
+
+    private final String deviceSerial;
+    private final int chunkSeconds;
+    private final int keepChunks;
+    private final int bitRate;
+
+    private final Deque<String> chunks = new ArrayDeque<>(); // device paths, oldest first; guarded by this
+    private volatile boolean running;
+    private Thread loop;
+    private int sequence;
+    private String chunkPid; // device pid of the running screenrecord; guarded by this
+
+    public ScreenRecorder(String deviceSerial) {
+        this(deviceSerial,
+                Integer.parseInt(ConfigReader.get("recording.chunk.seconds", "10")),
+                Integer.parseInt(ConfigReader.get("recording.keep.chunks", "3")),
+                Integer.parseInt(ConfigReader.get("recording.bitrate", "4000000")));
+    }
+
+    public ScreenRecorder(String deviceSerial, int chunkSeconds, int keepChunks, int bitRate) {
+        this.deviceSerial = deviceSerial;
+        this.chunkSeconds = Math.max(1, Math.min(180, chunkSeconds)); // screenrecord caps at 180 s
+        this.keepChunks = Math.max(1, keepChunks);
+        this.bitRate = bitRate;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("recording.enabled", "false"));
+    }
+
+    /* ------------------------
+       Recording lifecycle
+       ------------------------ */
+
+    /** Start the rolling recording loop. No-op if it is already running. */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        loop = Thread.ofVirtual().name("screenrecord-" + deviceSerial).start(this::recordLoop);
+    }
+
+    /**
+     * Stop recording and pull the kept chunks into targetDir.
+     * @return local chunk files, oldest first (empty if nothing could be pulled)
+     */
+    public List<File> stopAndPull(File targetDir, String baseName) {
+        List<String> kept = stop();
+        List<File> pulled = new ArrayList<>();
+        if (!targetDir.exists() && !targetDir.mkdirs()) {
+            System.err.println("Could not create recordings directory: " + targetDir.getAbsolutePath());
+        } else {
+            for (int i = 0; i < kept.size(); i++) {
+                File local = new File(targetDir, baseName + "-part" + (i + 1) + ".mp4");
+                if (adb(60, "pull", kept.get(i), local.getAbsolutePath()) == 0 && local.length() > 0) {
+                    pulled.add(local);
+                }
+            }
+        }
+        deleteOnDevice(kept);
+        return pulled;
+    }
+
+    /** Stop recording and delete the chunks on the device without transferring them. */
+    public void stopAndDiscard() {
+        deleteOnDevice(stop());
+    }
+
+    private List<String> stop() {
+        Thread t;
+        String pid;
+        synchronized (this) {
+            if (!running) return drainChunks();
+            running = false;
+            t = loop;
+            pid = chunkPid;
+        }
+        // a chunk still starting has no pid yet; the loop sees running == false and interrupts it itself
+        if (pid != null) interrupt(pid);
+        try {
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return drainChunks();
+    }
+
+    private void recordLoop() {
+        while (true) {
+            String path;
+            List<String> expired = new ArrayList<>();
+            synchronized (this) {
+                if (!running) return;
+                path = DEVICE_DIR + "/rec-" + deviceSerial.replace(':', '_') + "-" + (sequence++) + ".mp4";
+                chunks.addLast(path);
+                while (chunks.size() > keepChunks) expired.add(chunks.removeFirst());
+            }
+            deleteOnDevice(expired);
+            int exit = recordChunk(path);
+            if (exit != 0 && running) {
+                System.err.println("screenrecord exited with " + exit + " on " + deviceSerial + " - stopping recorder.");
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Record one chunk: the device shell prints its pid and then becomes screenrecord (exec keeps the pid
+     * and, unlike a background job, does not start it with SIGINT ignored), so stop() can interrupt exactly
+     * this process. Returns the exit code, -1 on error/timeout.
+     */
+    private int recordChunk(String path) {
+        String command = "echo $$; exec screenrecord --time-limit " + chunkSeconds + " --bit-rate " + bitRate
+                + " " + path + " >/dev/null 2>&1";
+        Process p;
+        try {
+            p = new ProcessBuilder("adb", "-s", deviceSerial, "shell", command)
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            System.err.println("adb shell screenrecord failed: " + e.getMessage());
+            return -1;
+        }
+        try {
+            String first = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8)).readLine();
+            String pid = first == null ? "" : first.trim();
+            if (!pid.matches("\\d+")) {
+                System.err.println("screenrecord did not start on " + deviceSerial + ": " + first);
+                p.destroyForcibly();
+                return -1;
+            }
+            boolean stopped;
+            synchronized (this) {
+                chunkPid = pid;
+                stopped = !running;
+            }
+            if (stopped) interrupt(pid); // stop() ran while this chunk was starting
+            if (!p.waitFor(chunkSeconds + 15, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return -1;
+            }
+            return p.exitValue();
+        } catch (IOException e) {
+            System.err.println("adb shell screenrecord failed: " + e.getMessage());
+            p.destroyForcibly();
+            return -1;
+        } catch (InterruptedException e) {
+            p.destroyForcibly();
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            synchronized (this) {
+                chunkPid = null;
+            }
+        }
+    }
+
+    /** SIGINT lets screenrecord write the mp4 trailer so the partial chunk stays playable. */
+    private void interrupt(String pid) {
+        adb(10, "shell", "kill", "-2", pid);
+    }
+
+    private synchronized List<String> drainChunks() {
+        List<String> kept = new ArrayList<>(chunks);
+        chunks.clear();
+        return kept;
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private void deleteOnDevice(List<String> paths) {
+        if (paths.isEmpty()) return;
+        List<String> args = new ArrayList<>(Arrays.asList("shell", "rm", "-f"));
+        args.addAll(paths);
+        adb(15, args.toArray(new String[0]));
+    }
+
+    /** Run an adb command against this device, discarding output. Returns the exit code, -1 on error/timeout. */
+    private int adb(int timeoutSeconds, String... args) {
+        List<String> cmd = new ArrayList<>(Arrays.asList("adb", "-s", deviceSerial));
+        cmd.addAll(Arrays.asList(args));
+        try {
+            Process p = new ProcessBuilder(cmd)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!p.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return -1;
+            }
+            return p.exitValue();
+        } catch (Exception e) {
+            System.err.println("adb " + String.join(" ", args) + " failed: " + e.getMessage());
+            return -1;
+        }
+    }
+}
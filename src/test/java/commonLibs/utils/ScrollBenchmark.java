@@ -0,0 +1,48 @@
+package commonLibs.utils;
+
+import commonLibs.implementation.TouchGestures;
+
+/**
+ * ScrollBenchmark - measures frame timing while flinging through a scrollable screen.
+ * - Resets "dumpsys gfxinfo <pkg>" before every fling and dumps framestats right after it,
+ *   because framestats only keeps the most recent 120 frames
+ * - Frames of all flings are merged into one FrameStats for jank % and p50/p90/p99
+ */
+public class ScrollBenchmark {
+
+    private final TouchGestures gestures;
+    private final String deviceSerial;
+    private final String appPackage;
+    private final long settleMillis;
+
+    public ScrollBenchmark(TouchGestures gestures, String deviceSerial, String appPackage) {
+        this.gestures = gestures;
+        this.deviceSerial = deviceSerial;
+        this.appPackage = appPackage;
+        this.settleMillis = Long.parseLong(ConfigReader.get("benchmark.scroll.settle.ms", "1200"));
+    }
+
+    /** Fling up `flings` times (then back down the same number) and collect the frames of every fling. */
+    public FrameStatsParser.FrameStats run(int flings) {
+        FrameStatsParser.FrameStats all = FrameStatsParser.empty();
+        for (int i = 0; i < flings; i++) {
+            all = all.merge(measure(gestures::flingUp));
+        }
+        for (int i = 0; i < flings; i++) {
+            all = all.merge(measure(gestures::flingDown));
+        }
+        return all;
+    }
+
+    private FrameStatsParser.FrameStats measure(Runnable fling) {
+        AdbUtils.shell(deviceSerial, "dumpsys", "gfxinfo", appPackage, "reset");
+        fling.run();
+        // wait for the fling to decelerate so its frames are in the dump
+        try {
+            Thread.sleep(settleMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return FrameStatsParser.parse(AdbUtils.shell(deviceSerial, "dumpsys", "gfxinfo", appPackage, "framestats"));
+    }
+}
@@ -0,0 +1,332 @@
+package commonLibs.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ShardReport - report events of one shard (one JVM) in a format that merges with other shards.
+ * - Append-only event log: reports/shards/<runId>/<shardId>/events.ndjson, one JSON object per line
+ *   (ts, seq, shard, device, thread, type = start|log|screenshot|end, test, status, msg, blob, html)
+ * - Log messages are plain text unless logged with html=true (report links, sparklines), which the
+ *   merged report then renders as markup instead of escaping it
+ * - Screenshots are stored content-addressed under blobs/<sha256>.<ext>, so identical images are kept once
+ * - A test ends with the worst status logged for it (FAIL > SKIP/WARNING > PASS); the log is flushed
+ *   at every test end, so a crashed shard still yields all finished tests
+ * - Written alongside the Extent report by ReportUtils; ReportMerger combines any number of shards
+ *
+ * Config (config.properties):
+ *   report.shard.enabled=false
+ *   report.run.id=              (default: the report file name; also -Dreport.run.id)
+ *   report.shard.id=            (default host-pid; also -Dreport.shard.id)
+ *   report.merge.on.finish=true (merge the shards of this run at the end of the suite)
+ */
+public class ShardReport {
+
+    public static final String EVENTS_FILE = "events.ndjson";
+    public static final String BLOBS_DIR = "blobs";
+
+    private static final ThreadLocal<String> DEVICE = new ThreadLocal<>();
+
+    private final String shardId;
+    private final Path dir;
+    private final BufferedWriter out;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong testCounter = new AtomicLong();
+    private final ThreadLocal<TestState> current = new ThreadLocal<>();
+
+    private static final class TestState {
+        final String id;
+        final String name;
+        final long start = System.currentTimeMillis();
+        int severity;
+        String status = "PASS";
+
+        TestState(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public ShardReport(Path shardsRoot, String shardId) throws IOException {
+        this.shardId = shardId;
+        this.dir = shardsRoot.resolve(shardId);
+        Files.createDirectories(dir.resolve(BLOBS_DIR));
+        this.out = Files.newBufferedWriter(dir.resolve(EVENTS_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("report.shard.enabled", "false"));
+    }
+
+    public static String defaultShardId() {
+        String configured = System.getProperty("report.shard.id", ConfigReader.get("report.shard.id", ""));
+        if (!configured.isBlank()) return configured.trim();
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return (host + "-" + ManagementFactory.getRuntimeMXBean().getPid()).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Directory holding all shards of one run: reports/shards/<runId>. Shards on other machines or JVMs
+     * join the same run by sharing report.run.id; by default each JVM is a run of its own.
+     */
+    public static Path shardsRootFor(String reportFilename) {
+        File report = new File(reportFilename).getAbsoluteFile();
+        String runId = System.getProperty("report.run.id", ConfigReader.get("report.run.id", "")).trim();
+        if (runId.isEmpty()) {
+            String name = report.getName();
+            runId = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+        }
+        return report.getParentFile().toPath().resolve("shards").resolve(runId);
+    }
+
+    /** Device the current thread's tests run on (serial or AVD name); shown as the grouping key after merge. */
+    public static void setCurrentDevice(String device) {
+        DEVICE.set(device);
+    }
+
+    public Path directory() {
+        return dir;
+    }
+
+    /* ------------------------
+       Events
+       ------------------------ */
+
+    public void startTest(String name) {
+        TestState state = new TestState(shardId + "#" + testCounter.incrementAndGet(), name);
+        current.set(state);
+        write(event("start", state, null, null, null));
+    }
+
+    public void log(String status, String message) {
+        log(status, message, false);
+    }
+
+    public void log(String status, String message, boolean html) {
+        TestState state = current.get();
+        if (state != null) {
+            int severity = severity(status);
+            if (severity > state.severity) {
+                state.severity = severity;
+                state.status = status;
+            }
+        }
+        Map<String, Object> e = event("log", state, status, message, null);
+        if (html) e.put("html", "true");
+        write(e);
+    }
+
+    /** Store the image once by content hash and reference it from the current test. */
+    public void screenshot(String imageFilename) {
+        Path src = Path.of(imageFilename);
+        try {
+            String name = sha256(src) + extension(src);
+            Path blob = dir.resolve(BLOBS_DIR).resolve(name);
+            if (!Files.exists(blob)) {
+                Path tmp = Files.createTempFile(dir.resolve(BLOBS_DIR), "blob", ".tmp");
+                Files.copy(src, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+            write(event("screenshot", current.get(), null, src.getFileName().toString(), name));
+        } catch (IOException e) {
+            System.err.println("Shard report: could not store screenshot " + imageFilename + ": " + e.getMessage());
+        }
+    }
+
+    public void endTest() {
+        TestState state = current.get();
+        if (state == null) return;
+        current.remove();
+        Map<String, Object> e = event("end", state, state.status, null, null);
+        e.put("durationMs", System.currentTimeMillis() - state.start);
+        write(e);
+        flush();
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Shard report: flush failed: " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Shard report: close failed: " + e.getMessage());
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private Map<String, Object> event(String type, TestState state, String status, String msg, String blob) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("ts", System.currentTimeMillis());
+        e.put("seq", seq.incrementAndGet());
+        e.put("shard", shardId);
+        e.put("device", DEVICE.get() == null ? "unknown" : DEVICE.get());
+        e.put("thread", Thread.currentThread().getName());
+        e.put("type", type);
+        e.put("testId", state == null ? "" : state.id);
+        e.put("test", state == null ? "UNASSIGNED_TEST" : state.name);
+        if (status != null) e.put("status", status);
+        if (msg != null) e.put("msg", msg);
+        if (blob != null) e.put("blob", blob);
+        return e;
+    }
+
+    private synchronized void write(Map<String, Object> event) {
+        try {
+            out.write(toJson(event));
+            out.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard report: write failed", e);
+        }
+    }
+
+    /** Extent status names ordered by how much they say about the outcome. */
+    static int severity(String status) {
+        return switch (status == null ? "" : status.toUpperCase()) {
+            case "FAIL", "FATAL", "ERROR" -> 3;
+            case "SKIP", "WARNING" -> 2;
+            case "PASS" -> 1;
+            default -> 0;
+        };
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+            return HexFormat.of().formatHex(md.digest());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot).toLowerCase();
+    }
+
+    /** Flat JSON object; values are strings or numbers. */
+    static String toJson(Map<String, Object> fields) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            quote(sb, f.getKey());
+            sb.append(':');
+            if (f.getValue() instanceof Number n) sb.append(n);
+            else quote(sb, String.valueOf(f.getValue()));
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Parses what toJson writes: one flat object, string and number values (numbers kept as text). */
+    static Map<String, String> parseJson(String line) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] pos = {skipWs(line, 0)};
+        if (pos[0] >= line.length() || line.charAt(pos[0]) != '{') throw new IllegalArgumentException("Not a JSON object: " + line);
+        pos[0]++;
+        while (true) {
+            pos[0] = skipWs(line, pos[0]);
+            if (line.charAt(pos[0]) == '}') return fields;
+            String key = readString(line, pos);
+            pos[0] = skipWs(line, pos[0]);
+            if (line.charAt(pos[0]++) != ':') throw new IllegalArgumentException("Expected ':' in " + line);
+            pos[0] = skipWs(line, pos[0]);
+            String value;
+            if (line.charAt(pos[0]) == '"') {
+                value = readString(line, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) pos[0]++;
+                value = line.substring(start, pos[0]);
+            }
+            fields.put(key, value);
+            pos[0] = skipWs(line, pos[0]);
+            char c = line.charAt(pos[0]++);
+            if (c == '}') return fields;
+            if (c != ',') throw new IllegalArgumentException("Expected ',' in " + line);
+        }
+    }
+
+    static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String readString(String s, int[] pos) {
+        if (s.charAt(pos[0]) != '"') throw new IllegalArgumentException("Expected string at " + pos[0] + " in " + s);
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0] + 1;
+        while (true) {
+            char c = s.charAt(i++);
+            if (c == '"') break;
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char esc = s.charAt(i++);
+            switch (esc) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                    i += 4;
+                }
+                default -> sb.append(esc);
+            }
+        }
+        pos[0] = i;
+        return sb.toString();
+    }
+
+    private static int skipWs(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+}
@@ -0,0 +1,127 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Offline checks of the shard event log (NDJSON written by ShardReport) and of ReportMerger on two
+ * recorded shards (src/test/resources/recorded/shards); no device needed. Run with: mvn test -Poffline
+ */
+public class ShardReportTests {
+
+    private static final Pattern TIMELINE_ROW =
+            Pattern.compile("<td>([A-Za-z.]+)</td><td>([A-Z]+)</td><td>(.*?)</td></tr>");
+
+    private Path workDir;
+
+    @BeforeMethod(alwaysRun = true)
+    public void createDir() throws IOException {
+        workDir = Files.createTempDirectory("shards");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDir() throws IOException {
+        try (Stream<Path> s = Files.walk(workDir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Test(description = "toJson / parseJson round trip with quotes, backslashes, control characters and umlauts")
+    public void jsonRoundTrip() {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("ts", 1697712345123L);
+        event.put("msg", "Field shows \"Müller\\ß\"\n\tat line 2\u0001 <b>");
+        event.put("empty", "");
+
+        String line = ShardReport.toJson(event);
+
+        Assert.assertFalse(line.contains("\n"), "one event per line: " + line);
+        Assert.assertEquals(ShardReport.parseJson(line), Map.of(
+                "ts", "1697712345123",
+                "msg", "Field shows \"Müller\\ß\"\n\tat line 2\u0001 <b>",
+                "empty", ""));
+    }
+
+    @Test(description = "a test ends with its worst status; html logs are flagged, plain logs are not")
+    public void eventsOfOneTest() throws IOException {
+        ShardReport shard = new ShardReport(workDir, "host-1");
+        ShardReport.setCurrentDevice("emulator-5554");
+        shard.startTest("LoginTests.login");
+        shard.log("PASS", "step <1> done");
+        shard.log("WARNING", "Resources: <br/><svg/>", true);
+        shard.log("INFO", "after the warning");
+        shard.endTest();
+        shard.close();
+        ShardReport.setCurrentDevice(null);
+
+        List<Map<String, String>> events = new ArrayList<>();
+        for (String line : Files.readAllLines(workDir.resolve("host-1").resolve(ShardReport.EVENTS_FILE))) {
+            events.add(ShardReport.parseJson(line));
+        }
+
+        Assert.assertEquals(events.stream().map(e -> e.get("type")).toList(), List.of("start", "log", "log", "log", "end"));
+        Assert.assertEquals(events.get(1).get("msg"), "step <1> done");
+        Assert.assertNull(events.get(1).get("html"));
+        Assert.assertEquals(events.get(2).get("html"), "true");
+        Assert.assertEquals(events.get(4).get("status"), "WARNING", "worst status of the test");
+        Assert.assertEquals(events.get(4).get("device"), "emulator-5554");
+        Assert.assertEquals(events.get(4).get("testId"), "host-1#1");
+    }
+
+    @Test(description = "two shards merge in timestamp order, ties by shard then sequence; a torn last line is skipped")
+    public void mergeOrder() throws Exception {
+        Path out = workDir.resolve("merged.html");
+
+        ReportMerger.Summary summary = ReportMerger.merge(
+                List.of(recorded("shard-a.ndjson"), recorded("shard-b.ndjson")), out);
+
+        Assert.assertEquals(summary.shards(), 2);
+        Assert.assertEquals(summary.events(), 7L, "the torn last event of shard a is skipped");
+        Assert.assertEquals(summary.devices().keySet(), Set.of("emulator-5554", "emulator-5556"));
+        Assert.assertEquals(summary.devices().get("emulator-5554").passed(), 1L);
+        Assert.assertEquals(summary.devices().get("emulator-5556").failed(), 1L);
+
+        String html = Files.readString(out, StandardCharsets.UTF_8);
+        List<String> timeline = new ArrayList<>();
+        Matcher m = TIMELINE_ROW.matcher(html.substring(html.indexOf("<h2>Timeline</h2>")));
+        while (m.find()) timeline.add(m.group(1) + " " + m.group(2));
+        Assert.assertEquals(timeline, List.of(
+                "LoginTests.login START",           // ts 1000
+                "AppLaunchTests.footer START",      // ts 1010
+                "LoginTests.login INFO",            // ts 1030, shard a listed first
+                "AppLaunchTests.footer FAIL",       // ts 1030
+                "AppLaunchTests.footer FAIL",       // ts 1040, end
+                "LoginTests.login INFO",            // ts 1050
+                "LoginTests.login PASS"));          // ts 1100, end
+
+        // plain logs are escaped, html logs keep their markup
+        Assert.assertTrue(html.contains("Typed &lt;b&gt;not markup&lt;/b&gt; &amp; &quot;quoted&quot;"), html);
+        Assert.assertTrue(html.contains("Logcat: <a href='logcat.txt'>logcat.txt</a>"), html);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static Path recorded(String name) throws URISyntaxException {
+        URL url = ShardReportTests.class.getResource("/recorded/shards/" + name);
+        Assert.assertNotNull(url, "missing fixture recorded/shards/" + name);
+        return Path.of(url.toURI());
+    }
+}
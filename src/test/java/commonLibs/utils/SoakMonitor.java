@@ -0,0 +1,357 @@
+package commonLibs.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.OutputType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SoakMonitor - per-iteration measurements of a soak run with leak and degradation detection.
+ * - Every iteration appends one row to soak/<runId>/iterations.csv (step latencies, app PSS, app threads,
+ *   framework heap); nothing per iteration is kept in the report or in unbounded lists
+ * - Each series holds at most soak.window.points points: when full, neighbouring points are averaged in
+ *   pairs and later iterations are averaged into buckets of twice the size, so memory stays flat and the
+ *   series still spans the whole run after the warm-up
+ * - Trend test: Mann-Kendall (rank based, robust against single slow iterations) for a monotonic upward
+ *   trend; a finding needs z >= soak.trend.z and a least-squares growth over the series of at least the
+ *   per-kind minimum percent of its starting level, so noise and tiny drifts do not stop the run
+ * - An app process restart (pid changed) is a finding of its own
+ * - writeDiagnostics() collects a bundle: summary, meminfo, thread list, gfxinfo, logcat, screenshot,
+ *   page source and optionally a heap dump of the app
+ *
+ * Config (config.properties):
+ *   soak.dir=soak
+ *   soak.warmup.iterations=3
+ *   soak.min.iterations=20
+ *   soak.window.points=120
+ *   soak.trend.z=3.09                      (one-sided p < 0.001; checked repeatedly, so kept strict)
+ *   soak.memory.min.growth.percent=10
+ *   soak.threads.min.growth.percent=20
+ *   soak.latency.min.growth.percent=30
+ *   soak.heap.dump=true                    (am dumpheap on memory findings; needs a debuggable build or root)
+ */
+public class SoakMonitor {
+
+    public static final String MEMORY = "app PSS kB";
+    public static final String THREADS = "app threads";
+
+    /** Why a soak run stopped: a significant upward trend in one series, an app restart or a failed step. */
+    public record Finding(String series, int iteration, String description) {
+        public String describe() {
+            return description + " (iteration " + iteration + ")";
+        }
+    }
+
+    private final Path dir;
+    private final String deviceSerial;
+    private final String appPackage;
+    private final List<String> steps;
+    private final Map<String, Series> series = new LinkedHashMap<>();
+    private final BufferedWriter csv;
+    private final int warmup;
+    private final int minIterations;
+    private final double minZ;
+
+    private int iterations;
+    private int pid = -1;
+    private boolean restarted;
+
+    public SoakMonitor(Path dir, String deviceSerial, String appPackage, List<String> steps) throws IOException {
+        this.dir = dir;
+        this.deviceSerial = deviceSerial;
+        this.appPackage = appPackage;
+        this.steps = List.copyOf(steps);
+        this.warmup = Integer.parseInt(ConfigReader.get("soak.warmup.iterations", "3"));
+        this.minIterations = Integer.parseInt(ConfigReader.get("soak.min.iterations", "20"));
+        this.minZ = Double.parseDouble(ConfigReader.get("soak.trend.z", "3.09"));
+        int capacity = Math.max(8, Integer.parseInt(ConfigReader.get("soak.window.points", "120")));
+        double latencyGrowth = Double.parseDouble(ConfigReader.get("soak.latency.min.growth.percent", "30"));
+        for (String step : this.steps) series.put(step + " ms", new Series(capacity, latencyGrowth));
+        series.put("iteration ms", new Series(capacity, latencyGrowth));
+        series.put(MEMORY, new Series(capacity, Double.parseDouble(ConfigReader.get("soak.memory.min.growth.percent", "10"))));
+        series.put(THREADS, new Series(capacity, Double.parseDouble(ConfigReader.get("soak.threads.min.growth.percent", "20"))));
+
+        Files.createDirectories(dir);
+        this.csv = Files.newBufferedWriter(dir.resolve("iterations.csv"), StandardCharsets.UTF_8);
+        csv.write("iteration,timestamp," + String.join(",", series.keySet()).replace(" ", "_") + ",framework_heap_mb");
+        csv.newLine();
+    }
+
+    /** Run directory: soak/<date-time> under the working directory. */
+    public static Path newRunDir() {
+        return Path.of(System.getProperty("user.dir"), ConfigReader.get("soak.dir", "soak"), DateUtils.getCurrentDateAndTime());
+    }
+
+    /* ------------------------
+       Recording
+       ------------------------ */
+
+    /**
+     * Record one iteration: the step latencies measured by the caller plus app memory and threads read now.
+     * @param stepMs latency per step name (same names as given to the constructor)
+     */
+    public void record(Map<String, Long> stepMs) throws IOException {
+        iterations++;
+        long total = 0;
+        int appPid = appPid();
+        if (pid > 0 && appPid > 0 && appPid != pid) restarted = true;
+        if (appPid > 0) pid = appPid;
+        int pss = ResourceSampler.parseMeminfoTotalPss(AdbUtils.shell(deviceSerial, "dumpsys", "meminfo", appPackage));
+        long[] stat = pid > 0 ? ResourceSampler.parseStat(AdbUtils.shell(deviceSerial, "cat", "/proc/" + pid + "/stat")) : null;
+
+        StringBuilder row = new StringBuilder().append(iterations).append(',').append(System.currentTimeMillis());
+        for (String step : steps) {
+            Long ms = stepMs.get(step);
+            if (ms != null) total += ms;
+            add(step + " ms", ms == null ? Double.NaN : ms, row);
+        }
+        add("iteration ms", total, row);
+        add(MEMORY, pss > 0 ? pss : Double.NaN, row);
+        add(THREADS, stat != null ? stat[1] : Double.NaN, row);
+        Runtime rt = Runtime.getRuntime();
+        row.append(',').append((rt.totalMemory() - rt.freeMemory()) / (1024 * 1024));
+        csv.write(row.toString());
+        csv.newLine();
+        csv.flush();
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    /** First significant finding, or null; memory first, then threads, then latencies. */
+    public Finding check() {
+        if (restarted) return new Finding("app process", iterations, "App process restarted (pid changed)");
+        if (iterations < minIterations) return null;
+        List<String> order = new ArrayList<>(List.of(MEMORY, THREADS));
+        for (String name : series.keySet()) if (!order.contains(name)) order.add(name);
+        for (String name : order) {
+            Finding f = series.get(name).test(name, minZ, iterations);
+            if (f != null) return f;
+        }
+        return null;
+    }
+
+    /** One line per series: points, starting level, latest level, slope and trend z. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Series> e : series.entrySet()) {
+            Series s = e.getValue();
+            if (sb.length() > 0) sb.append('\n');
+            double[][] xy = s.points();
+            if (xy[0].length < 3) {
+                sb.append(e.getKey()).append(": not enough iterations");
+                continue;
+            }
+            sb.append(String.format(Locale.ROOT, "%-30s start %.0f, latest %.0f, slope %+.3f/iteration, z=%.2f",
+                    e.getKey(), baseline(xy[1]), xy[1][xy[1].length - 1], slope(xy[0], xy[1]), mannKendallZ(xy[1])));
+        }
+        return sb.toString();
+    }
+
+    public void close() {
+        try {
+            csv.close();
+        } catch (IOException e) {
+            System.err.println("Soak: closing iterations.csv failed: " + e.getMessage());
+        }
+    }
+
+    /* ------------------------
+       Diagnostics
+       ------------------------ */
+
+    /** Collect what is needed to analyse a finding into <run dir>/diagnostics-<iteration>; returns that directory. */
+    public Path writeDiagnostics(Finding finding, AndroidDriver driver, LogcatCollector logcat) throws IOException {
+        Path out = dir.resolve("diagnostics-" + iterations);
+        Files.createDirectories(out);
+        Files.writeString(out.resolve("summary.txt"), finding.describe() + "\n\n" + summary() + "\n", StandardCharsets.UTF_8);
+        Files.copy(dir.resolve("iterations.csv"), out.resolve("iterations.csv"), StandardCopyOption.REPLACE_EXISTING);
+        Files.writeString(out.resolve("meminfo.txt"), AdbUtils.shell(deviceSerial, "dumpsys", "meminfo", appPackage));
+        Files.writeString(out.resolve("gfxinfo.txt"), AdbUtils.shell(deviceSerial, "dumpsys", "gfxinfo", appPackage));
+        if (pid > 0) Files.writeString(out.resolve("threads.txt"), AdbUtils.shell(deviceSerial, "ps", "-T", "-p", String.valueOf(pid)));
+
+        if (logcat != null) {
+            Files.write(out.resolve("logcat.txt"), logcat.slice(0, System.currentTimeMillis()), StandardCharsets.UTF_8);
+        } else {
+            Files.writeString(out.resolve("logcat.txt"), AdbUtils.run(deviceSerial, 60, "logcat", "-d", "-t", "5000").output());
+        }
+        if (driver != null) {
+            try {
+                Files.write(out.resolve("screen.png"), driver.getScreenshotAs(OutputType.BYTES));
+                Files.writeString(out.resolve("page-source.xml"), driver.getPageSource(), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                System.err.println("Soak: screenshot/page source failed: " + e.getMessage());
+            }
+        }
+        if (MEMORY.equals(finding.series()) && Boolean.parseBoolean(ConfigReader.get("soak.heap.dump", "true"))) {
+            pullHeapDump(out);
+        }
+        return out;
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /**
+     * Fixed-capacity series. Each point is the mean of "stride" consecutive iterations (x = mean iteration);
+     * when the arrays are full, pairs of points are merged and the stride doubles.
+     */
+    static final class Series {
+        final double[] x;
+        final double[] y;
+        final double minGrowthPercent;
+        int size;
+        int stride = 1;
+        double bucketX, bucketY;
+        int bucketCount;
+
+        Series(int capacity, double minGrowthPercent) {
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.minGrowthPercent = minGrowthPercent;
+        }
+
+        void add(double iteration, double value) {
+            bucketX += iteration;
+            bucketY += value;
+            if (++bucketCount < stride) return;
+            if (size == x.length) {
+                for (int i = 0; i < size / 2; i++) {
+                    x[i] = (x[2 * i] + x[2 * i + 1]) / 2;
+                    y[i] = (y[2 * i] + y[2 * i + 1]) / 2;
+                }
+                size /= 2;
+                stride *= 2;
+            }
+            x[size] = bucketX / bucketCount;
+            y[size] = bucketY / bucketCount;
+            size++;
+            bucketX = bucketY = 0;
+            bucketCount = 0;
+        }
+
+        double[][] points() {
+            return new double[][]{Arrays.copyOf(x, size), Arrays.copyOf(y, size)};
+        }
+
+        Finding test(String name, double minZ, int iteration) {
+            if (size < 8) return null;
+            double[][] xy = points();
+            double z = mannKendallZ(xy[1]);
+            if (z < minZ) return null;
+            double slope = slope(xy[0], xy[1]);
+            double base = baseline(xy[1]);
+            double growth = base <= 0 ? 0 : 100 * slope * (xy[0][size - 1] - xy[0][0]) / base;
+            if (growth < minGrowthPercent) return null;
+            return new Finding(name, iteration, String.format(Locale.ROOT,
+                    "%s grows %+.2f per iteration, %.1f%% over the run (Mann-Kendall z=%.2f over %d points)",
+                    name, slope, growth, z, size));
+        }
+    }
+
+    private void add(String name, double value, StringBuilder row) {
+        row.append(',');
+        if (Double.isNaN(value)) return;
+        row.append((long) value);
+        if (iterations > warmup) series.get(name).add(iterations, value);
+    }
+
+    /**
+     * Mann-Kendall z for an upward trend, with the variance corrected for ties (integer series such as
+     * thread counts have many). Positive = increasing.
+     */
+    static double mannKendallZ(double[] y) {
+        int n = y.length;
+        if (n < 3) return 0;
+        long s = 0;
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = i + 1; j < n; j++) s += Double.compare(y[j], y[i]);
+        }
+        double variance = n * (n - 1.0) * (2 * n + 5);
+        double[] sorted = y.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && sorted[j] == sorted[i]) j++;
+            int t = j - i;
+            if (t > 1) variance -= t * (t - 1.0) * (2 * t + 5);
+            i = j;
+        }
+        variance /= 18;
+        if (variance <= 0 || s == 0) return 0;
+        return (s > 0 ? s - 1 : s + 1) / Math.sqrt(variance);
+    }
+
+    /** Least-squares slope of y over x. */
+    static double slope(double[] x, double[] y) {
+        int n = x.length;
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double num = 0;
+        double den = 0;
+        for (int i = 0; i < n; i++) {
+            num += (x[i] - meanX) * (y[i] - meanY);
+            den += (x[i] - meanX) * (x[i] - meanX);
+        }
+        return den == 0 ? 0 : num / den;
+    }
+
+    /** Starting level: median of the first points (up to five). */
+    private static double baseline(double[] y) {
+        double[] head = Arrays.copyOf(y, Math.min(5, y.length));
+        Arrays.sort(head);
+        return head[head.length / 2];
+    }
+
+    private int appPid() {
+        String out = AdbUtils.shell(deviceSerial, "pidof", appPackage).trim();
+        if (out.isEmpty()) return -1;
+        try {
+            return Integer.parseInt(out.split("\\s+")[0]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void pullHeapDump(Path out) {
+        String remote = "/data/local/tmp/soak-" + System.currentTimeMillis() + ".hprof";
+        AdbUtils.Result dump = AdbUtils.run(deviceSerial, 180, "shell", "am", "dumpheap", appPackage, remote);
+        if (!dump.ok()) {
+            System.err.println("Soak: heap dump failed (debuggable build or root needed): " + dump.output().trim());
+            return;
+        }
+        // older releases return before the dump is written: wait until the file stops growing
+        String lastSize = "";
+        for (int i = 0; i < 60; i++) {
+            String size = AdbUtils.shell(deviceSerial, "stat", "-c", "%s", remote).trim();
+            if (!size.isEmpty() && !size.equals("0") && size.equals(lastSize)) break;
+            lastSize = size;
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        AdbUtils.Result pull = AdbUtils.run(deviceSerial, 300, "pull", remote, out.resolve("app.hprof").toString());
+        if (!pull.ok()) System.err.println("Soak: pulling heap dump failed: " + pull.output().trim());
+        AdbUtils.shell(deviceSerial, "rm", "-f", remote);
+    }
+}
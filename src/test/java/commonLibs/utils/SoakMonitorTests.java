@@ -0,0 +1,84 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.stream.IntStream;
+
+/**
+ * Offline checks of the SoakMonitor trend statistics and the fixed-capacity series; no device needed.
+ * Run with: mvn test -Poffline
+ */
+public class SoakMonitorTests {
+
+    @Test(description = "Mann-Kendall z: sign follows the trend, ties and flat series give no trend")
+    public void mannKendall() {
+        // S = 45 pairs, variance 10*9*25/18 = 125, continuity corrected: 44 / sqrt(125)
+        Assert.assertEquals(SoakMonitor.mannKendallZ(range(1, 10)), 44 / Math.sqrt(125), 1e-9);
+        Assert.assertEquals(SoakMonitor.mannKendallZ(new double[]{10, 9, 8, 7, 6, 5, 4, 3, 2, 1}), -44 / Math.sqrt(125), 1e-9);
+        Assert.assertEquals(SoakMonitor.mannKendallZ(new double[]{5, 5, 5, 5, 5, 5}), 0.0);
+        Assert.assertEquals(SoakMonitor.mannKendallZ(new double[]{1, 2}), 0.0, "too short");
+        // thread counts with ties: S = 75, variance (15*14*35 - 3*5*4*15) / 18
+        double[] threads = {80, 80, 80, 80, 80, 81, 81, 81, 81, 81, 82, 82, 82, 82, 82};
+        Assert.assertEquals(SoakMonitor.mannKendallZ(threads), 74 / Math.sqrt(6450.0 / 18), 1e-9);
+    }
+
+    @Test(description = "least-squares slope")
+    public void slope() {
+        double[] x = range(1, 6);
+        Assert.assertEquals(SoakMonitor.slope(x, new double[]{3, 5, 7, 9, 11, 13}), 2.0, 1e-9);
+        Assert.assertEquals(SoakMonitor.slope(x, new double[]{4, 4, 4, 4, 4, 4}), 0.0, 1e-9);
+        Assert.assertEquals(SoakMonitor.slope(new double[]{3, 3, 3}, new double[]{1, 2, 3}), 0.0, "no spread in x");
+    }
+
+    @Test(description = "a full series merges neighbouring points in pairs and doubles the bucket size")
+    public void seriesDecimation() {
+        SoakMonitor.Series series = new SoakMonitor.Series(8, 10);
+        for (int i = 1; i <= 8; i++) series.add(i, i);
+        Assert.assertEquals(series.points()[0], range(1, 8));
+
+        series.add(9, 9);
+        Assert.assertEquals(series.points()[0], new double[]{1.5, 3.5, 5.5, 7.5, 9});
+        series.add(10, 10);
+        Assert.assertEquals(series.points()[0].length, 5, "half a bucket is not a point yet");
+        series.add(11, 11);
+        Assert.assertEquals(series.points()[0], new double[]{1.5, 3.5, 5.5, 7.5, 9, 10.5});
+        // y = x, so each point must still be the mean of the iterations it stands for
+        Assert.assertEquals(series.points()[1], series.points()[0]);
+    }
+
+    @Test(description = "memory stays bounded and the series still spans the whole run")
+    public void seriesSpansLongRun() {
+        SoakMonitor.Series series = new SoakMonitor.Series(8, 10);
+        for (int i = 1; i <= 1000; i++) series.add(i, i);
+
+        double[] x = series.points()[0];
+        Assert.assertTrue(x.length <= 8, "points: " + x.length);
+        Assert.assertTrue(x[0] < 100, "first point " + x[0]);
+        Assert.assertTrue(x[x.length - 1] > 800, "last point " + x[x.length - 1]);
+    }
+
+    @Test(description = "a steady climb is a finding, noise and small drifts are not")
+    public void seriesFindings() {
+        SoakMonitor.Series leak = new SoakMonitor.Series(120, 10);
+        for (int i = 1; i <= 40; i++) leak.add(i, 180_000 + 1_000 * i);
+        SoakMonitor.Finding finding = leak.test(SoakMonitor.MEMORY, 3.09, 40);
+        Assert.assertNotNull(finding);
+        Assert.assertEquals(finding.series(), SoakMonitor.MEMORY);
+
+        SoakMonitor.Series noise = new SoakMonitor.Series(120, 10);
+        for (int i = 1; i <= 40; i++) noise.add(i, 180_000 + (i % 2 == 0 ? 500 : -500));
+        Assert.assertNull(noise.test(SoakMonitor.MEMORY, 3.09, 40));
+
+        // significant but only ~2% over the run: below the 10% minimum growth
+        SoakMonitor.Series drift = new SoakMonitor.Series(120, 10);
+        for (int i = 1; i <= 40; i++) drift.add(i, 180_000 + 100 * i);
+        Assert.assertNull(drift.test(SoakMonitor.MEMORY, 3.09, 40));
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static double[] range(int from, int to) {
+        return IntStream.rangeClosed(from, to).asDoubleStream().toArray();
+    }
+}
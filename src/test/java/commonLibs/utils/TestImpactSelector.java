@@ -0,0 +1,674 @@
+package commonLibs.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * TestImpactSelector - picks the tests affected by a change instead of running the whole suite.
+ * - Reads the compiled classes (no source parsing, no extra libraries): for every method the methods,
+ *   fields and classes its bytecode references, including lambda bodies and overriding methods
+ * - Roots per test: the @Test method plus the TestNG lifecycle methods (@Before..., @After...) of the
+ *   test class and its superclasses, and the listener classes of the suite
+ * - The git diff (-U0) is mapped to methods through the LineNumberTable of each class; a changed line
+ *   outside any method body (fields, signatures, imports) marks the whole class as changed
+ * - javac copies compile-time constants (static final primitives / Strings) into the classes using them,
+ *   so no reference leads back to the declaring class: a change outside methods of a class declaring
+ *   non-private constants selects the full suite
+ * - Anything it cannot analyze selects the full suite: changed resources, config, build files or
+ *   scripts, deleted or renamed sources, sources without compiled classes
+ * - Output is the base suite file with only the selected classes (and with granularity=method, only
+ *   the selected methods); listeners and class order are kept
+ *
+ * Usage (after mvn test-compile):
+ *   java -cp target/test-classes commonLibs.utils.TestImpactSelector [baseRef]
+ *   mvn test -Pimpact
+ *
+ * Config (config.properties):
+ *   impact.base.ref=HEAD
+ *   impact.suite=src/test/resources/testng.xml
+ *   impact.output=target/impact-testng.xml
+ *   impact.class.dirs=target/test-classes,target/classes
+ *   impact.granularity=class          (class | method; tests within a class share app state by priority)
+ *   impact.always.include=testcases.AppLaunchTests
+ *   impact.ignore.suffixes=.md
+ */
+public class TestImpactSelector {
+
+    private static final Pattern SUITE_CLASS = Pattern.compile("<class\\s+name=\"([^\"]+)\"\\s*/>");
+    private static final Pattern SUITE_LISTENER = Pattern.compile("<listener\\s+class-name=\"([^\"]+)\"");
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+    private static final String TEST_ANNOTATION = "Lorg/testng/annotations/Test;";
+    private static final String TESTNG_ANNOTATIONS = "Lorg/testng/annotations/";
+
+    /** Result of a selection; fullSuite is set with the reason when the change could not be analyzed. */
+    public record Selection(boolean fullSuite, String reason, Map<String, Set<String>> tests, Set<String> changedNodes) {
+
+        public String describe() {
+            if (fullSuite) return "Full suite: " + reason;
+            if (tests.isEmpty()) return "No test is affected by the change";
+            StringBuilder sb = new StringBuilder("Selected ");
+            sb.append(tests.values().stream().mapToInt(Set::size).sum()).append(" test(s) in ")
+                    .append(tests.size()).append(" class(es):");
+            tests.forEach((cls, methods) -> sb.append("\n  ").append(cls).append(' ').append(methods));
+            return sb.toString();
+        }
+    }
+
+    private final Map<String, ClassInfo> classes = new HashMap<>();     // binary name (dots) -> info
+    private final Map<String, List<ClassInfo>> bySource = new HashMap<>(); // "pkg/Source.java" -> classes
+    private final Map<String, Set<String>> subclasses = new HashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of(System.getProperty("user.dir"));
+        String base = args.length > 0 ? args[0] : ConfigReader.get("impact.base.ref", "HEAD");
+        long start = System.currentTimeMillis();
+
+        TestImpactSelector selector = new TestImpactSelector();
+        for (String dir : ConfigReader.get("impact.class.dirs", "target/test-classes,target/classes").split(",")) {
+            if (!dir.isBlank()) selector.addClassDir(root.resolve(dir.trim()));
+        }
+        Path suite = root.resolve(ConfigReader.get("impact.suite", "src/test/resources/testng.xml"));
+        String suiteXml = Files.readString(suite);
+        String diff = gitDiff(root, base);
+        Selection selection = selector.select(diff, suiteXml);
+
+        Path out = root.resolve(ConfigReader.get("impact.output", "target/impact-testng.xml"));
+        Files.createDirectories(out.getParent());
+        Files.writeString(out, selection.fullSuite() ? suiteXml : filterSuite(suiteXml, selection));
+        System.out.println(selection.describe());
+        System.out.println("Suite written to " + out + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /* ------------------------
+       Selection
+       ------------------------ */
+
+    /** Load every .class file below dir (may be called for several directories). */
+    public void addClassDir(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : s.filter(f -> f.toString().endsWith(".class")).toList()) {
+                ClassInfo info = ClassInfo.parse(Files.readAllBytes(p));
+                classes.put(info.name, info);
+                bySource.computeIfAbsent(info.sourcePath(), k -> new ArrayList<>()).add(info);
+                if (info.superName != null) subclasses.computeIfAbsent(info.superName, k -> new HashSet<>()).add(info.name);
+                for (String i : info.interfaces) subclasses.computeIfAbsent(i, k -> new HashSet<>()).add(info.name);
+            }
+        }
+    }
+
+    /** Tests of the suite affected by a unified diff (git diff -U0) against the loaded classes. */
+    public Selection select(String unifiedDiff, String suiteXml) {
+        Map<String, Set<Integer>> changedLines = new LinkedHashMap<>();
+        String unanalyzable = parseDiff(unifiedDiff, changedLines);
+        if (unanalyzable != null) return full(unanalyzable);
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Set<Integer>> f : changedLines.entrySet()) {
+            String source = sourceKey(f.getKey());
+            List<ClassInfo> compiled = bySource.get(source);
+            if (compiled == null) return full("no compiled classes for " + f.getKey() + " (run mvn test-compile)");
+            for (int line : f.getValue()) {
+                boolean inMethod = false;
+                for (ClassInfo c : compiled) {
+                    for (MethodInfo m : c.methods) {
+                        if (m.covers(line)) {
+                            changed.add(c.name + "#" + m.name);
+                            inMethod = true;
+                        }
+                    }
+                }
+                if (!inMethod) {
+                    for (ClassInfo c : compiled) {
+                        if (c.sharedConstants) {
+                            return full("declaration change at " + f.getKey() + ":" + line + " in a class with "
+                                    + "compile-time constants (inlined into other classes)");
+                        }
+                    }
+                    // declarations, fields without initializer code, signatures: the whole class changed
+                    for (ClassInfo c : compiled) {
+                        changed.add(c.name);
+                        for (MethodInfo m : c.methods) changed.add(c.name + "#" + m.name);
+                    }
+                }
+            }
+        }
+
+        List<String> suiteClasses = new ArrayList<>();
+        Matcher cm = SUITE_CLASS.matcher(suiteXml);
+        while (cm.find()) suiteClasses.add(cm.group(1));
+        Set<String> sharedRoots = new HashSet<>();
+        Matcher lm = SUITE_LISTENER.matcher(suiteXml);
+        while (lm.find()) addAllMethods(lm.group(1), sharedRoots);
+
+        boolean byMethod = "method".equalsIgnoreCase(ConfigReader.get("impact.granularity", "class"));
+        Set<String> alwaysInclude = new HashSet<>();
+        for (String c : ConfigReader.get("impact.always.include", "testcases.AppLaunchTests").split(",")) {
+            if (!c.isBlank()) alwaysInclude.add(c.trim());
+        }
+
+        Map<String, Set<String>> selected = new LinkedHashMap<>();
+        for (String testClass : suiteClasses) {
+            ClassInfo tc = classes.get(testClass);
+            if (tc == null) return full("suite class " + testClass + " not compiled");
+            Set<String> lifecycle = new HashSet<>(sharedRoots);
+            for (ClassInfo c = tc; c != null; c = classes.get(c.superName)) {
+                lifecycle.add(c.name);
+                for (MethodInfo m : c.methods) {
+                    if (m.lifecycle) lifecycle.add(c.name + "#" + m.name);
+                }
+            }
+            boolean lifecycleHit = reaches(lifecycle, changed);
+            Set<String> hits = new TreeSet<>();
+            Set<String> all = new TreeSet<>();
+            for (MethodInfo m : tc.methods) {
+                if (!m.test) continue;
+                all.add(m.name);
+                if (lifecycleHit || reaches(Set.of(tc.name + "#" + m.name), changed)) hits.add(m.name);
+            }
+            if (!hits.isEmpty()) selected.put(testClass, byMethod ? hits : all);
+        }
+        if (!selected.isEmpty()) {
+            // state the other classes rely on (onboarding done, app installed) still has to be set up first
+            for (String c : suiteClasses) {
+                if (alwaysInclude.contains(c) && !selected.containsKey(c) && classes.containsKey(c)) {
+                    Set<String> all = new TreeSet<>();
+                    for (MethodInfo m : classes.get(c).methods) if (m.test) all.add(m.name);
+                    selected.put(c, all);
+                }
+            }
+            Map<String, Set<String>> ordered = new LinkedHashMap<>();
+            for (String c : suiteClasses) if (selected.containsKey(c)) ordered.put(c, selected.get(c));
+            selected = ordered;
+        }
+        return new Selection(false, null, selected, changed);
+    }
+
+    /** The base suite with only the selected classes; method granularity adds include lists. */
+    public static String filterSuite(String suiteXml, Selection selection) {
+        boolean byMethod = "method".equalsIgnoreCase(ConfigReader.get("impact.granularity", "class"));
+        Matcher m = SUITE_CLASS.matcher(suiteXml);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            Set<String> methods = selection.tests().get(m.group(1));
+            String replacement;
+            if (methods == null) {
+                replacement = "<!-- not affected: " + m.group(1) + " -->";
+            } else if (byMethod) {
+                StringBuilder inc = new StringBuilder("<class name=\"" + m.group(1) + "\"><methods>");
+                for (String name : methods) inc.append("<include name=\"").append(name).append("\"/>");
+                replacement = inc.append("</methods></class>").toString();
+            } else {
+                replacement = m.group();
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /* ------------------------
+       Reachability
+       ------------------------ */
+
+    /** True if any node reachable from roots is in changed. */
+    private boolean reaches(Set<String> roots, Set<String> changed) {
+        Deque<String> queue = new ArrayDeque<>(roots);
+        Set<String> seen = new HashSet<>(roots);
+        while (!queue.isEmpty()) {
+            String node = queue.poll();
+            if (changed.contains(node)) return true;
+            for (String next : successors(node)) {
+                if (seen.add(next)) queue.add(next);
+            }
+        }
+        return false;
+    }
+
+    private List<String> successors(String node) {
+        List<String> next = new ArrayList<>();
+        int hash = node.indexOf('#');
+        if (hash < 0) {
+            ClassInfo c = classes.get(node);
+            if (c == null) return next; // JDK / library class
+            next.add(c.name + "#<init>");
+            next.add(c.name + "#<clinit>");
+            if (c.superName != null) next.add(c.superName);
+            return next;
+        }
+        String owner = node.substring(0, hash);
+        String name = node.substring(hash + 1);
+        // the declaring class: owner itself or the nearest superclass declaring the method
+        for (ClassInfo c = classes.get(owner); c != null; c = classes.get(c.superName)) {
+            MethodInfo m = c.method(name);
+            if (m != null) {
+                if (!c.name.equals(owner)) next.add(c.name + "#" + name);
+                else next.addAll(m.references);
+                break;
+            }
+        }
+        // constructors and static initializers are not dispatched virtually (every constructor calls
+        // Object.<init>, which must not lead to the constructors of all classes)
+        if (name.equals("<init>") || name.equals("<clinit>")) return next;
+        // virtual dispatch: any project override may run instead
+        for (String sub : allSubclasses(owner)) {
+            ClassInfo c = classes.get(sub);
+            if (c != null && c.method(name) != null) next.add(sub + "#" + name);
+        }
+        return next;
+    }
+
+    private Set<String> allSubclasses(String name) {
+        Set<String> result = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>(subclasses.getOrDefault(name, Set.of()));
+        while (!queue.isEmpty()) {
+            String s = queue.poll();
+            if (result.add(s)) queue.addAll(subclasses.getOrDefault(s, Set.of()));
+        }
+        return result;
+    }
+
+    private void addAllMethods(String className, Set<String> into) {
+        ClassInfo c = classes.get(className);
+        if (c == null) return;
+        into.add(c.name);
+        for (MethodInfo m : c.methods) into.add(c.name + "#" + m.name);
+    }
+
+    /* ------------------------
+       Diff parsing
+       ------------------------ */
+
+    /** Fills changed lines per new-side path; returns a reason when the diff cannot be analyzed. */
+    private static String parseDiff(String diff, Map<String, Set<Integer>> changedLines) {
+        Set<String> ignored = new HashSet<>();
+        for (String s : ConfigReader.get("impact.ignore.suffixes", ".md").split(",")) {
+            if (!s.isBlank()) ignored.add(s.trim());
+        }
+        String oldPath = null;
+        String newPath = null;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("diff --git ")) {
+                oldPath = null;
+                newPath = null;
+            } else if (line.startsWith("--- ")) {
+                oldPath = stripPrefix(line.substring(4));
+            } else if (line.startsWith("+++ ")) {
+                newPath = stripPrefix(line.substring(4));
+                String path = newPath != null ? newPath : oldPath;
+                if (path == null || ignored.stream().anyMatch(path::endsWith)) {
+                    newPath = null;
+                    continue;
+                }
+                if (!path.endsWith(".java") || !(path.contains("src/test/java/") || path.contains("src/main/java/"))) {
+                    return "non-source change " + path;
+                }
+                if (newPath == null) return "deleted source " + oldPath;
+                if (oldPath != null && !oldPath.equals(newPath)) return "renamed source " + oldPath + " -> " + newPath;
+                changedLines.computeIfAbsent(newPath, k -> new TreeSet<>());
+            } else if (line.startsWith("@@") && newPath != null) {
+                Matcher h = HUNK.matcher(line);
+                if (!h.find()) return "unreadable hunk in " + newPath;
+                int start = Integer.parseInt(h.group(1));
+                int count = h.group(2) == null ? 1 : Integer.parseInt(h.group(2));
+                Set<Integer> lines = changedLines.get(newPath);
+                if (count == 0) {
+                    // pure deletion after line start: attribute it to the lines around the gap
+                    lines.add(start);
+                    lines.add(start + 1);
+                } else {
+                    for (int i = start; i < start + count; i++) lines.add(i);
+                }
+            } else if (line.startsWith("Binary files ")) {
+                return "binary change: " + line;
+            }
+        }
+        return null;
+    }
+
+    private static String stripPrefix(String path) {
+        path = path.trim();
+        if (path.equals("/dev/null")) return null;
+        if (path.startsWith("a/") || path.startsWith("b/")) return path.substring(2);
+        return path;
+    }
+
+    /** "src/test/java/pageobject/LoginScreen.java" -> "pageobject/LoginScreen.java" */
+    private static String sourceKey(String path) {
+        for (String root : new String[]{"src/test/java/", "src/main/java/"}) {
+            int i = path.indexOf(root);
+            if (i >= 0) return path.substring(i + root.length());
+        }
+        return path;
+    }
+
+    private static String gitDiff(Path repo, String base) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder("git", "diff", "-U0", "--no-color", "--no-ext-diff", base)
+                .directory(repo.toFile()).redirectErrorStream(true).start();
+        String out = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (p.waitFor() != 0) throw new IOException("git diff " + base + " failed: " + out);
+        return out;
+    }
+
+    private Selection full(String reason) {
+        return new Selection(true, reason, Map.of(), Set.of());
+    }
+
+    /* ------------------------
+       Class file reading
+       ------------------------ */
+
+    private static final class MethodInfo {
+        final String name;
+        final Set<String> references = new LinkedHashSet<>(); // "owner#method" and class names
+        final Set<Integer> lines = new HashSet<>();
+        int firstLine;
+        int lastLine;
+        boolean test;
+        boolean lifecycle;
+
+        MethodInfo(String name) {
+            this.name = name;
+        }
+
+        /** Constructors and static init carry field initializer lines from all over the class: exact lines only. */
+        boolean covers(int line) {
+            if (name.equals("<init>") || name.equals("<clinit>")) return lines.contains(line);
+            return firstLine > 0 && line >= firstLine && line <= lastLine;
+        }
+    }
+
+    private static final class ClassInfo {
+        String name;
+        String superName;
+        final List<String> interfaces = new ArrayList<>();
+        final List<MethodInfo> methods = new ArrayList<>();
+        String sourceFile;
+        boolean sharedConstants; // non-private fields with a ConstantValue attribute
+
+        MethodInfo method(String name) {
+            for (MethodInfo m : methods) if (m.name.equals(name)) return m;
+            return null;
+        }
+
+        String sourcePath() {
+            int slash = name.lastIndexOf('.');
+            String pkg = slash < 0 ? "" : name.substring(0, slash).replace('.', '/') + "/";
+            String file = sourceFile != null ? sourceFile : name.substring(slash + 1).split("\\$")[0] + ".java";
+            return pkg + file;
+        }
+
+        static ClassInfo parse(byte[] bytes) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != 0xCAFEBABE) throw new IOException("Not a class file");
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            ConstantPool cp = new ConstantPool(in);
+            ClassInfo c = new ClassInfo();
+            in.readUnsignedShort(); // access flags
+            c.name = cp.className(in.readUnsignedShort());
+            int superIndex = in.readUnsignedShort();
+            c.superName = superIndex == 0 ? null : cp.className(superIndex);
+            int interfaces = in.readUnsignedShort();
+            for (int i = 0; i < interfaces; i++) c.interfaces.add(cp.className(in.readUnsignedShort()));
+            int fields = in.readUnsignedShort();
+            for (int i = 0; i < fields; i++) {
+                int access = in.readUnsignedShort();
+                in.skipBytes(4);
+                int attrs = in.readUnsignedShort();
+                for (int a = 0; a < attrs; a++) {
+                    String attr = cp.utf8(in.readUnsignedShort());
+                    in.skipBytes(in.readInt());
+                    if (attr.equals("ConstantValue") && (access & 0x0002) == 0) c.sharedConstants = true;
+                }
+            }
+            List<int[]> pendingIndy = new ArrayList<>(); // per method: indy bootstrap indexes, resolved below
+            List<MethodInfo> indyOwners = new ArrayList<>();
+            int methods = in.readUnsignedShort();
+            for (int i = 0; i < methods; i++) {
+                in.readUnsignedShort();
+                MethodInfo m = new MethodInfo(cp.utf8(in.readUnsignedShort()));
+                in.readUnsignedShort();
+                int attrs = in.readUnsignedShort();
+                for (int a = 0; a < attrs; a++) {
+                    String attr = cp.utf8(in.readUnsignedShort());
+                    int len = in.readInt();
+                    byte[] data = in.readNBytes(len);
+                    switch (attr) {
+                        case "Code" -> {
+                            List<Integer> indy = new ArrayList<>();
+                            readCode(data, cp, m, indy);
+                            pendingIndy.add(indy.stream().mapToInt(Integer::intValue).toArray());
+                            indyOwners.add(m);
+                        }
+                        case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations" -> {
+                            for (String type : annotationTypes(data, cp)) {
+                                if (type.equals(TEST_ANNOTATION)) m.test = true;
+                                else if (type.startsWith(TESTNG_ANNOTATIONS + "Before")
+                                        || type.startsWith(TESTNG_ANNOTATIONS + "After")) m.lifecycle = true;
+                            }
+                        }
+                        default -> { }
+                    }
+                }
+                c.methods.add(m);
+            }
+            List<List<String>> bootstrapTargets = new ArrayList<>();
+            int attrs = in.readUnsignedShort();
+            for (int a = 0; a < attrs; a++) {
+                String attr = cp.utf8(in.readUnsignedShort());
+                byte[] data = in.readNBytes(in.readInt());
+                if (attr.equals("SourceFile")) {
+                    c.sourceFile = cp.utf8(((data[0] & 0xff) << 8) | (data[1] & 0xff));
+                } else if (attr.equals("BootstrapMethods")) {
+                    DataInputStream bm = new DataInputStream(new ByteArrayInputStream(data));
+                    int n = bm.readUnsignedShort();
+                    for (int i = 0; i < n; i++) {
+                        bm.readUnsignedShort();
+                        List<String> targets = new ArrayList<>();
+                        int args = bm.readUnsignedShort();
+                        for (int k = 0; k < args; k++) {
+                            String target = cp.methodHandleTarget(bm.readUnsignedShort());
+                            if (target != null) targets.add(target);
+                        }
+                        bootstrapTargets.add(targets);
+                    }
+                }
+            }
+            // invokedynamic (lambdas, method refs): the implementation method is a bootstrap argument
+            for (int i = 0; i < indyOwners.size(); i++) {
+                for (int bootstrap : pendingIndy.get(i)) {
+                    if (bootstrap < bootstrapTargets.size()) indyOwners.get(i).references.addAll(bootstrapTargets.get(bootstrap));
+                }
+            }
+            return c;
+        }
+
+        private static void readCode(byte[] data, ConstantPool cp, MethodInfo m, List<Integer> indy) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            byte[] code = in.readNBytes(in.readInt());
+            int pc = 0;
+            while (pc < code.length) {
+                int op = code[pc] & 0xff;
+                switch (op) {
+                    case 0xb2, 0xb3, 0xb4, 0xb5 -> m.references.add(cp.memberOwner(u2(code, pc + 1)));
+                    case 0xb6, 0xb7, 0xb8, 0xb9 -> m.references.add(cp.memberRef(u2(code, pc + 1)));
+                    case 0xba -> indy.add(cp.indyBootstrap(u2(code, pc + 1)));
+                    case 0xbb, 0xbd, 0xc0, 0xc1, 0xc5 -> addClass(m, cp.className(u2(code, pc + 1)));
+                    case 0x12 -> addClass(m, cp.classNameOrNull(code[pc + 1] & 0xff));
+                    case 0x13 -> addClass(m, cp.classNameOrNull(u2(code, pc + 1)));
+                    default -> { }
+                }
+                pc += instructionLength(code, pc);
+            }
+            int exceptions = in.readUnsignedShort();
+            in.skipBytes(exceptions * 8);
+            int attrs = in.readUnsignedShort();
+            for (int a = 0; a < attrs; a++) {
+                String attr = cp.utf8(in.readUnsignedShort());
+                byte[] attrData = in.readNBytes(in.readInt());
+                if (!attr.equals("LineNumberTable")) continue;
+                int n = u2(attrData, 0);
+                for (int i = 0; i < n; i++) {
+                    int line = u2(attrData, 2 + i * 4 + 2);
+                    m.lines.add(line);
+                    if (m.firstLine == 0 || line < m.firstLine) m.firstLine = line;
+                    m.lastLine = Math.max(m.lastLine, line);
+                }
+            }
+        }
+
+        private static void addClass(MethodInfo m, String className) {
+            if (className != null && !className.startsWith("[")) m.references.add(className);
+        }
+
+        private static int instructionLength(byte[] code, int pc) {
+            int op = code[pc] & 0xff;
+            if (op == 0xaa || op == 0xab) {
+                int p = (pc + 4) & ~3; // operands start 4-byte aligned
+                if (op == 0xaa) {
+                    int low = s4(code, p + 4);
+                    int high = s4(code, p + 8);
+                    return p + 12 + (high - low + 1) * 4 - pc;
+                }
+                int pairs = s4(code, p + 4);
+                return p + 8 + pairs * 8 - pc;
+            }
+            if (op == 0xc4) return (code[pc + 1] & 0xff) == 0x84 ? 6 : 4;
+            if (op == 0x10 || op == 0x12 || (op >= 0x15 && op <= 0x19) || (op >= 0x36 && op <= 0x3a)
+                    || op == 0xa9 || op == 0xbc) return 2;
+            if (op == 0x11 || op == 0x13 || op == 0x14 || op == 0x84 || (op >= 0x99 && op <= 0xa8)
+                    || (op >= 0xb2 && op <= 0xb8) || op == 0xbb || op == 0xbd || op == 0xc0 || op == 0xc1
+                    || op == 0xc6 || op == 0xc7) return 3;
+            if (op == 0xc5) return 4;
+            if (op == 0xb9 || op == 0xba || op == 0xc8 || op == 0xc9) return 5;
+            return 1;
+        }
+
+        private static List<String> annotationTypes(byte[] data, ConstantPool cp) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            List<String> types = new ArrayList<>();
+            int n = in.readUnsignedShort();
+            for (int i = 0; i < n; i++) {
+                types.add(cp.utf8(in.readUnsignedShort()));
+                int pairs = in.readUnsignedShort();
+                for (int p = 0; p < pairs; p++) {
+                    in.readUnsignedShort();
+                    skipElementValue(in);
+                }
+            }
+            return types;
+        }
+
+        private static void skipElementValue(DataInputStream in) throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 'e' -> in.skipBytes(4);
+                case '@' -> {
+                    in.readUnsignedShort();
+                    int pairs = in.readUnsignedShort();
+                    for (int p = 0; p < pairs; p++) {
+                        in.readUnsignedShort();
+                        skipElementValue(in);
+                    }
+                }
+                case '[' -> {
+                    int n = in.readUnsignedShort();
+                    for (int i = 0; i < n; i++) skipElementValue(in);
+                }
+                default -> in.skipBytes(2); // const value or class info index
+            }
+        }
+    }
+
+    private static final class ConstantPool {
+        private final int[] tags;
+        private final Object[] values; // String for Utf8, int[] of referenced indexes otherwise
+
+        ConstantPool(DataInputStream in) throws IOException {
+            int count = in.readUnsignedShort();
+            tags = new int[count];
+            values = new Object[count];
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                tags[i] = tag;
+                switch (tag) {
+                    case 1 -> values[i] = in.readUTF();
+                    case 3, 4 -> in.skipBytes(4);
+                    case 5, 6 -> {
+                        in.skipBytes(8);
+                        i++; // takes two slots
+                    }
+                    case 7, 8, 16, 19, 20 -> values[i] = new int[]{in.readUnsignedShort()};
+                    case 9, 10, 11, 12, 17, 18 -> values[i] = new int[]{in.readUnsignedShort(), in.readUnsignedShort()};
+                    case 15 -> values[i] = new int[]{in.readUnsignedByte(), in.readUnsignedShort()};
+                    default -> throw new IOException("Unknown constant pool tag " + tag + " at " + i);
+                }
+            }
+        }
+
+        String utf8(int index) {
+            return (String) values[index];
+        }
+
+        String className(int index) {
+            return utf8(((int[]) values[index])[0]).replace('/', '.');
+        }
+
+        String classNameOrNull(int index) {
+            return tags[index] == 7 ? className(index) : null;
+        }
+
+        String memberOwner(int index) {
+            return className(((int[]) values[index])[0]);
+        }
+
+        /** "owner#name" of a Fieldref / Methodref / InterfaceMethodref. */
+        String memberRef(int index) {
+            int[] ref = (int[]) values[index];
+            int[] nameAndType = (int[]) values[ref[1]];
+            return className(ref[0]) + "#" + utf8(nameAndType[0]);
+        }
+
+        int indyBootstrap(int index) {
+            return ((int[]) values[index])[0];
+        }
+
+        /** Target method of a MethodHandle constant, null for other bootstrap arguments. */
+        String methodHandleTarget(int index) {
+            if (tags[index] != 15) return null;
+            int ref = ((int[]) values[index])[1];
+            return tags[ref] == 10 || tags[ref] == 11 ? memberRef(ref) : null;
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static int u2(byte[] b, int i) {
+        return ((b[i] & 0xff) << 8) | (b[i + 1] & 0xff);
+    }
+
+    private static int s4(byte[] b, int i) {
+        return ((b[i] & 0xff) << 24) | ((b[i + 1] & 0xff) << 16) | ((b[i + 2] & 0xff) << 8) | (b[i + 3] & 0xff);
+    }
+}
@@ -0,0 +1,156 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Offline checks of TestImpactSelector.select() on a small compiled project (src/test/resources/impact-fixture:
+ * two page classes, three test classes) with hand-written diffs; no device or git needed.
+ * Run with: mvn test -Poffline
+ */
+public class TestImpactSelectorTests {
+
+    private static final List<String> FIXTURE = List.of(
+            "pages/LoginPage.java", "pages/Feed.java", "tests/LoginTests.java", "tests/TitleTests.java", "tests/FeedTests.java");
+    private static final String SUITE = """
+            <suite name="Fixture">
+                <test name="all">
+                    <classes>
+                        <class name="tests.LoginTests"/>
+                        <class name="tests.TitleTests"/>
+                        <class name="tests.FeedTests"/>
+                    </classes>
+                </test>
+            </suite>
+            """;
+
+    private Path workDir;
+    private TestImpactSelector selector;
+
+    @BeforeClass(alwaysRun = true)
+    public void compileFixture() throws Exception {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) throw new SkipException("Compiling the fixture needs a JDK");
+        workDir = Files.createTempDirectory("impact-fixture");
+        Path classes = workDir.resolve("classes");
+        List<String> args = new ArrayList<>(List.of("-d", classes.toString(), "-cp", testngJar()));
+        for (String file : FIXTURE) {
+            Path source = workDir.resolve("src").resolve(file);
+            Files.createDirectories(source.getParent());
+            Files.writeString(source, fixture(file));
+            args.add(source.toString());
+        }
+        Assert.assertEquals(javac.run(null, null, null, args.toArray(String[]::new)), 0, "fixture compiles");
+        selector = new TestImpactSelector();
+        selector.addClassDir(classes);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deleteFixture() throws IOException {
+        if (workDir == null) return;
+        try (Stream<Path> s = Files.walk(workDir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Test(description = "a changed method body selects only the tests reaching that method")
+    public void methodBodyChange() throws IOException {
+        TestImpactSelector.Selection selection = selector.select(
+                change("pages/LoginPage.java", "System.out.println(\"login \" + user);", "System.out.println(\"login: \" + user);"),
+                SUITE);
+
+        Assert.assertFalse(selection.fullSuite(), selection.describe());
+        Assert.assertEquals(selection.tests(), Map.of("tests.LoginTests", Set.of("logsIn", "logsOut")));
+        Assert.assertTrue(selection.changedNodes().contains("pages.LoginPage#login"));
+        Assert.assertFalse(selection.changedNodes().contains("pages.LoginPage#logout"));
+    }
+
+    @Test(description = "a change outside any method marks the whole class as changed")
+    public void declarationChange() throws IOException {
+        TestImpactSelector.Selection selection = selector.select(
+                change("pages/Feed.java", "private int pageSize;", "private int pageSize = 0;"), SUITE);
+
+        Assert.assertFalse(selection.fullSuite(), selection.describe());
+        Assert.assertEquals(selection.tests().keySet(), Set.of("tests.FeedTests"));
+        Assert.assertTrue(selection.changedNodes().contains("pages.Feed#size"));
+    }
+
+    @Test(description = "a changed compile-time constant is inlined into callers, so the full suite runs")
+    public void constantChangeSelectsFullSuite() throws IOException {
+        TestImpactSelector.Selection selection = selector.select(
+                change("pages/LoginPage.java", "public static final String TITLE = \"Anmelden\";",
+                        "public static final String TITLE = \"Login\";"), SUITE);
+
+        // without this rule nothing would reach TitleTests, whose bytecode only holds the literal
+        Assert.assertTrue(selection.fullSuite(), selection.describe());
+        Assert.assertTrue(selection.reason().contains("compile-time constants"), selection.reason());
+    }
+
+    @Test(description = "non-Java files cannot be mapped to methods and select the full suite")
+    public void nonJavaChangeSelectsFullSuite() {
+        String diff = """
+                diff --git a/mobile-test-challenge/config/config.properties b/mobile-test-challenge/config/config.properties
+                --- a/mobile-test-challenge/config/config.properties
+                +++ b/mobile-test-challenge/config/config.properties
+                @@ -3 +3 @@
+                -no.reset=true
+                +no.reset=false
+                """;
+
+        TestImpactSelector.Selection selection = selector.select(diff, SUITE);
+
+        Assert.assertTrue(selection.fullSuite(), selection.describe());
+        Assert.assertTrue(selection.reason().startsWith("non-source change"), selection.reason());
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** git diff -U0 of one replaced line of a fixture source, as if it lived in src/test/java. */
+    private static String change(String file, String oldText, String newText) throws IOException {
+        String[] lines = fixture(file).split("\n");
+        int line = 0;
+        String indent = "";
+        for (int i = 0; i < lines.length && line == 0; i++) {
+            if (lines[i].trim().equals(oldText)) {
+                line = i + 1;
+                indent = lines[i].substring(0, lines[i].indexOf(oldText));
+            }
+        }
+        Assert.assertTrue(line > 0, "fixture line not found in " + file + ": " + oldText);
+        String path = "src/test/java/" + file;
+        return "diff --git a/" + path + " b/" + path + "\n"
+                + "--- a/" + path + "\n"
+                + "+++ b/" + path + "\n"
+                + "@@ -" + line + " +" + line + " @@\n"
+                + "-" + indent + oldText + "\n"
+                + "+" + indent + newText + "\n";
+    }
+
+    private static String fixture(String file) throws IOException {
+        try (InputStream in = TestImpactSelectorTests.class.getResourceAsStream("/impact-fixture/" + file)) {
+            Assert.assertNotNull(in, "missing fixture impact-fixture/" + file);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String testngJar() throws Exception {
+        return Path.of(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+}
@@ -0,0 +1,47 @@
+package commonLibs.utils;
+
+import org.testng.IExecutionListener;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+/**
+ * TraceListener - one Tracer span per TestNG method invocation (register in testng.xml).
+ * - @Test methods are "test" spans (one per attempt, so retries show up side by side), @Before/@After
+ *   methods of BaseTest are "lifecycle" spans; both carry the outcome
+ * - Closes the trace file when the TestNG run finishes
+ * - Does nothing unless trace.enabled is set
+ */
+public class TraceListener implements IInvokedMethodListener, IExecutionListener {
+
+    private static final ThreadLocal<Tracer.Span> OPEN = new ThreadLocal<>();
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        if (!Tracer.isEnabled()) return;
+        ITestNGMethod m = method.getTestMethod();
+        OPEN.set(Tracer.begin(m.getRealClass().getSimpleName() + "." + m.getMethodName(),
+                method.isTestMethod() ? "test" : "lifecycle"));
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        Tracer.Span span = OPEN.get();
+        if (span == null) return;
+        OPEN.remove();
+        span.arg("status", switch (result.getStatus()) {
+            case ITestResult.SUCCESS -> "PASS";
+            case ITestResult.FAILURE -> "FAIL";
+            case ITestResult.SKIP -> "SKIP";
+            default -> String.valueOf(result.getStatus());
+        });
+        if (result.getThrowable() != null) span.arg("error", String.valueOf(result.getThrowable()));
+        span.close();
+    }
+
+    @Override
+    public void onExecutionFinish() {
+        if (Tracer.isEnabled()) Tracer.close();
+    }
+}
@@ -0,0 +1,455 @@
+package commonLibs.utils;
+
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracer - hierarchical spans of a test run, written as Chrome trace-event JSON (open in ui.perfetto.dev
+ * or chrome://tracing).
+ * - Spans nest: lifecycle or test method (TraceListener) -> step (Checkpoints) -> page-object method ->
+ *   ElementActions / TouchGestures call -> Appium HTTP command (httpFilter)
+ * - Lanes: one process track per device (setLane, called by BaseTest with the device label) and one
+ *   thread track per test thread; commands the watchdog runs on worker threads stay in the lane and
+ *   under the span of the thread that issued them (wrap)
+ * - Page-object spans are inferred: the first action called from a pageobject.* method opens a span for
+ *   that method, which ends with its last action (back-to-back calls of the same method merge)
+ * - Finished spans go to a lock-free queue that a background virtual thread appends to
+ *   target/traces/trace-<time>-<pid>.json; beyond trace.max.pending waiting spans new ones are dropped and
+ *   counted instead of slowing the test down
+ * - TraceListener closes the file when the TestNG run finishes, so every run of the daemon (which loads
+ *   the test classes afresh per run) gets its own complete file; a shutdown hook covers other exits
+ * - Disabled: begin() and action() return a shared no-op span; no clock reads, allocations or stack walks
+ *
+ * Config (config.properties):
+ *   trace.enabled=false        (also -Dtrace.enabled=true)
+ *   trace.dir=target/traces
+ *   trace.max.pending=100000
+ *   trace.flush.ms=500
+ */
+public final class Tracer {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(
+            System.getProperty("trace.enabled", ConfigReader.get("trace.enabled", "false")));
+    private static final String PAGE_PACKAGE = "pageobject.";
+    private static final String HOST_LANE = "test runner";
+
+    private static final long T0 = System.nanoTime();
+    private static final AtomicLong SPAN_IDS = new AtomicLong();
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    private static final AtomicInteger LANE_IDS = new AtomicInteger();
+    private static final Map<String, Integer> LANES = new ConcurrentHashMap<>();
+    private static final Set<Long> NAMED_THREADS = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+
+    private static final ConcurrentLinkedQueue<Object> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final int MAX_PENDING = Integer.parseInt(ConfigReader.get("trace.max.pending", "100000"));
+
+    private static final Span NOOP = new Span();
+    private static final Sink SINK = ENABLED ? Sink.open() : null;
+
+    private static final Filter HTTP_FILTER = next -> req -> {
+        if (!ENABLED) return next.execute(req);
+        Span span = CONTEXT.get().open(req.getMethod() + " " + DriverHttpPipeline.route(req), "http");
+        try {
+            HttpResponse response = next.execute(req);
+            span.arg("status", response.getStatus());
+            return response;
+        } catch (RuntimeException e) {
+            span.arg("error", e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            span.close();
+        }
+    };
+
+    private Tracer() {}
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /* ------------------------
+       Spans
+       ------------------------ */
+
+    /** Open a span under the current span of this thread; close it (try-with-resources) on the same thread. */
+    public static Span begin(String name, String category) {
+        if (!ENABLED) return NOOP;
+        Context ctx = CONTEXT.get();
+        if (ctx.page != null && ctx.current == ctx.page) ctx.endPage();
+        return ctx.open(name, category);
+    }
+
+    /**
+     * Span of a UI action (ElementActions, TouchGestures). The outermost action of a thread is placed
+     * under a span of the page-object method that called it.
+     */
+    public static Span action(String category, String name, Object target) {
+        if (!ENABLED) return NOOP;
+        Context ctx = CONTEXT.get();
+        if (ctx.actionDepth == 0) {
+            String page = pageCaller();
+            if (ctx.page != null && (ctx.current != ctx.page || !ctx.page.name.equals(page))) ctx.endPage();
+            if (page != null && ctx.page == null) ctx.page = ctx.open(page, "page");
+        }
+        Span span = ctx.open(name, category);
+        span.action = true;
+        ctx.actionDepth++;
+        if (target != null) span.arg("target", target);
+        return span;
+    }
+
+    /** Device lane of the current thread's spans from now on (serial or AVD name). */
+    public static void setLane(String device) {
+        if (!ENABLED) return;
+        CONTEXT.get().pid = lane(device == null ? HOST_LANE : "device " + device);
+    }
+
+    /** Run task with the current thread's span and lane as its parent, e.g. on a worker thread. */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        if (!ENABLED) return task;
+        Context caller = CONTEXT.get();
+        Span parent = caller.current;
+        int pid = caller.pid;
+        int tid = caller.tid;
+        String threadName = caller.threadName;
+        return () -> {
+            CONTEXT.set(new Context(pid, tid, threadName, parent));
+            try {
+                return task.call();
+            } finally {
+                CONTEXT.remove();
+            }
+        };
+    }
+
+    /** Selenium HTTP filter that records every driver command as a span; a pass-through when disabled. */
+    public static Filter httpFilter() {
+        return HTTP_FILTER;
+    }
+
+    /** Finish the trace file and stop its writer; spans recorded afterwards are dropped. */
+    public static void close() {
+        if (SINK != null) SINK.close();
+    }
+
+    /** Write everything recorded so far; the file stays valid for Perfetto while the run continues. */
+    public static Path flush() {
+        if (SINK == null) return null;
+        SINK.drain();
+        return SINK.file;
+    }
+
+    /* ------------------------
+       Model
+       ------------------------ */
+
+    public static final class Span implements AutoCloseable {
+        final long id;
+        final Span parent;
+        final String name;
+        final String category;
+        final int pid;
+        final int tid;
+        final long start;
+        final Context ctx;
+        long end;
+        long lastChildEnd;
+        boolean action;
+        List<Object> args;
+
+        private Span() {
+            this(null, null, null, null);
+        }
+
+        private Span(Context ctx, Span parent, String name, String category) {
+            this.ctx = ctx;
+            this.parent = parent;
+            this.name = name;
+            this.category = category;
+            this.id = ctx == null ? 0 : SPAN_IDS.incrementAndGet();
+            this.pid = ctx == null ? 0 : ctx.pid;
+            this.tid = ctx == null ? 0 : ctx.tid;
+            this.start = ctx == null ? 0 : System.nanoTime();
+        }
+
+        /** Attach a value shown in the span details (string, number or boolean). */
+        public Span arg(String key, Object value) {
+            if (this == NOOP) return this;
+            if (args == null) args = new ArrayList<>(4);
+            args.add(key);
+            args.add(value);
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (this == NOOP || end != 0) return;
+            if (ctx.page != null && ctx.page.parent == this) ctx.endPage();
+            end = System.nanoTime();
+            if (action) {
+                ctx.actionDepth--;
+                if (parent != null) parent.lastChildEnd = end;
+            }
+            ctx.current = parent;
+            enqueue(this, false);
+        }
+    }
+
+    private static final class Context {
+        int pid;
+        final int tid;
+        final String threadName;
+        Span current;
+        Span page;
+        int actionDepth;
+
+        Context() {
+            this(lane(HOST_LANE), THREAD_IDS.incrementAndGet(), Thread.currentThread().getName(), null);
+        }
+
+        Context(int pid, int tid, String threadName, Span current) {
+            this.pid = pid;
+            this.tid = tid;
+            this.threadName = threadName;
+            this.current = current;
+        }
+
+        Span open(String name, String category) {
+            if (NAMED_THREADS.add(((long) pid << 32) | tid)) {
+                enqueue(metadata("thread_name", pid, tid, threadName), true);
+            }
+            Span span = new Span(this, current, name, category);
+            current = span;
+            return span;
+        }
+
+        /** Close the inferred page-object span at the end of its last action. */
+        void endPage() {
+            Span p = page;
+            page = null;
+            p.end = p.lastChildEnd != 0 ? p.lastChildEnd : System.nanoTime();
+            if (current == p) current = p.parent;
+            enqueue(p, false);
+        }
+    }
+
+    /* ------------------------
+       Writer
+       ------------------------ */
+
+    private static final class Sink {
+        final Path file;
+        final BufferedWriter out;
+        final long flushMillis = Long.parseLong(ConfigReader.get("trace.flush.ms", "500"));
+        final Thread shutdownHook = new Thread(this::close, "trace-close");
+        boolean first = true;
+        volatile boolean closed;
+
+        private Sink(Path file, BufferedWriter out) throws IOException {
+            this.file = file;
+            this.out = out;
+            out.write("[\n");
+        }
+
+        static Sink open() {
+            Path dir = Path.of(System.getProperty("user.dir")).resolve(ConfigReader.get("trace.dir", "target/traces"));
+            String base = "trace-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS"))
+                    + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+            try {
+                Files.createDirectories(dir);
+                Sink sink = null;
+                // daemon runs share the pid: never truncate the trace of an earlier run
+                for (int n = 0; sink == null; n++) {
+                    Path file = dir.resolve(base + (n == 0 ? "" : "-" + n) + ".json");
+                    try {
+                        sink = new Sink(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+                    } catch (FileAlreadyExistsException e) {
+                        // next suffix
+                    }
+                }
+                Thread.ofVirtual().name("trace-writer").start(sink::loop);
+                Runtime.getRuntime().addShutdownHook(sink.shutdownHook);
+                System.out.println("Tracing to: " + sink.file);
+                return sink;
+            } catch (IOException e) {
+                System.err.println("Tracing disabled: cannot write to " + dir + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        private void loop() {
+            while (!closed) {
+                try {
+                    Thread.sleep(flushMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                drain();
+            }
+        }
+
+        synchronized void drain() {
+            if (closed) return;
+            try {
+                Object event;
+                while ((event = QUEUE.poll()) != null) {
+                    if (event instanceof Span) PENDING.decrementAndGet();
+                    if (!first) out.write(",\n");
+                    first = false;
+                    out.write(event instanceof Span s ? toJson(s) : (String) event);
+                }
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Trace write failed: " + e.getMessage());
+            }
+        }
+
+        synchronized void close() {
+            if (closed) return;
+            drain();
+            closed = true;
+            if (Thread.currentThread() != shutdownHook) {
+                try {
+                    // the hook would keep this run's class loader alive in the daemon
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException alreadyShuttingDown) {
+                    // the hook is running or about to; close() is idempotent
+                }
+            }
+            try {
+                long dropped = DROPPED.get();
+                if (dropped > 0) {
+                    out.write((first ? "" : ",\n") + "{\"name\":\"dropped spans\",\"ph\":\"i\",\"s\":\"g\",\"ts\":"
+                            + micros(System.nanoTime()) + ",\"pid\":" + lane(HOST_LANE) + ",\"tid\":0,\"args\":{\"count\":"
+                            + dropped + "}}");
+                }
+                out.write("\n]\n");
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Trace close failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static void enqueue(Object event, boolean metadata) {
+        if (SINK == null || SINK.closed) return;
+        if (!metadata && PENDING.incrementAndGet() > MAX_PENDING) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+            return;
+        }
+        QUEUE.offer(event);
+    }
+
+    private static int lane(String label) {
+        Integer pid = LANES.get(label);
+        if (pid != null) return pid;
+        int[] created = {0};
+        pid = LANES.computeIfAbsent(label, l -> created[0] = LANE_IDS.incrementAndGet());
+        if (created[0] != 0) enqueue(metadata("process_name", pid, -1, label), true);
+        return pid;
+    }
+
+    /**
+     * Page-object method the test called, as "Class.method", or null: the outermost frame of the nearest
+     * run of pageobject.* frames, so page-internal helpers and page-to-page calls count as their caller.
+     */
+    private static String pageCaller() {
+        return StackWalker.getInstance().walk(frames -> {
+            StackWalker.StackFrame outer = null;
+            for (StackWalker.StackFrame f : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                if (f.getClassName().startsWith(PAGE_PACKAGE)) outer = f;
+                else if (outer != null) break;
+            }
+            return outer == null ? null : outer.getClassName().substring(PAGE_PACKAGE.length()) + "." + outer.getMethodName();
+        });
+    }
+
+    private static String metadata(String kind, int pid, int tid, String name) {
+        StringBuilder sb = new StringBuilder("{\"name\":\"").append(kind).append("\",\"ph\":\"M\",\"pid\":").append(pid);
+        if (tid >= 0) sb.append(",\"tid\":").append(tid);
+        sb.append(",\"args\":{\"name\":");
+        quote(sb, name);
+        return sb.append("}}").toString();
+    }
+
+    /** Chrome "complete" event; timestamps in microseconds since the tracer started. */
+    private static String toJson(Span s) {
+        StringBuilder sb = new StringBuilder(160).append("{\"name\":");
+        quote(sb, s.name);
+        sb.append(",\"cat\":\"").append(s.category).append("\",\"ph\":\"X\",\"ts\":").append(micros(s.start))
+                .append(",\"dur\":").append(formatMicros(s.end - s.start))
+                .append(",\"pid\":").append(s.pid).append(",\"tid\":").append(s.tid)
+                .append(",\"args\":{\"id\":").append(s.id);
+        if (s.parent != null) sb.append(",\"parent\":").append(s.parent.id);
+        if (s.args != null) {
+            for (int i = 0; i < s.args.size(); i += 2) {
+                sb.append(',');
+                quote(sb, String.valueOf(s.args.get(i)));
+                sb.append(':');
+                Object v = s.args.get(i + 1);
+                if (v instanceof Number || v instanceof Boolean) sb.append(v);
+                else quote(sb, String.valueOf(v));
+            }
+        }
+        return sb.append("}}").toString();
+    }
+
+    /** JSON string literal. */
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /** nanoTime -> microseconds since the tracer started. */
+    private static String micros(long nanoTime) {
+        return formatMicros(nanoTime - T0);
+    }
+
+    /** Nanoseconds as microseconds with three decimals, e.g. 1234567 -> "1234.567". */
+    private static String formatMicros(long nanos) {
+        long n = Math.max(0, nanos);
+        long frac = n % 1000;
+        return (n / 1000) + "." + (frac < 10 ? "00" : frac < 100 ? "0" : "") + frac;
+    }
+}
@@ -0,0 +1,228 @@
+package commonLibs.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * UiStabilityDetector - decides "the screen is stable" without UiAutomator2 idle waits.
+ * - Fetches the page source a few times in quick succession
+ * - Hashes a pruned hierarchy (class, resource-id, text, content-desc, bounds, state)
+ * - Skips subtrees marked volatile (video teasers, tickers, progress spinners)
+ * - Stable = the same hash seen on N consecutive samples
+ * - By default the framework's moving views are volatile: spinners, video surfaces, clocks
+ *   (TextClock, Chronometer) and auto-flipping tickers (ViewFlipper, AdapterViewFlipper). A ticker or
+ *   "vor 3 Min." label the app draws with a plain TextView has to be listed in stability.volatile.ids,
+ *   otherwise a screen showing it never settles and every wait runs into the timeout
+ *
+ * Config (config.properties):
+ *   stability.enabled=false
+ *   stability.samples=2
+ *   stability.poll.ms=250
+ *   stability.timeout.seconds=10
+ *   stability.volatile.ids=   (comma separated resource-ids, full or short form)
+ *   stability.volatile.classes=android.widget.ProgressBar,android.view.TextureView,...,android.widget.TextClock,...
+ */
+public class UiStabilityDetector {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static final String DEFAULT_VOLATILE_CLASSES =
+            "android.widget.ProgressBar,android.view.TextureView,android.view.SurfaceView,android.widget.VideoView,"
+                    + "android.widget.TextClock,android.widget.Chronometer,android.widget.ViewFlipper,android.widget.AdapterViewFlipper";
+
+    private static final XMLInputFactory XML_FACTORY = XMLInputFactory.newFactory();
+
+    private final AndroidDriver driver;
+    private final int requiredSamples;
+    private final long pollMillis;
+    private final long timeoutMillis;
+    private final Set<String> volatileIds;
+    private final Set<String> volatileClasses;
+
+    public UiStabilityDetector(AndroidDriver driver) {
+        this(driver,
+                Integer.parseInt(ConfigReader.get("stability.samples", "2")),
+                Long.parseLong(ConfigReader.get("stability.poll.ms", "250")),
+                Long.parseLong(ConfigReader.get("stability.timeout.seconds", "10")) * 1000L,
+                splitCsv(ConfigReader.get("stability.volatile.ids", "")),
+                splitCsv(ConfigReader.get("stability.volatile.classes", DEFAULT_VOLATILE_CLASSES)));
+    }
+
+    public UiStabilityDetector(AndroidDriver driver, int requiredSamples, long pollMillis, long timeoutMillis,
+                               Set<String> volatileIds, Set<String> volatileClasses) {
+        this.driver = driver;
+        this.requiredSamples = Math.max(2, requiredSamples);
+        this.pollMillis = Math.max(0, pollMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.volatileIds = volatileIds;
+        this.volatileClasses = volatileClasses;
+    }
+
+    /** True when stability-based synchronization is switched on in config. */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigReader.get("stability.enabled", "false"));
+    }
+
+    /**
+     * Turn off UiAutomator2's own idle wait so commands don't run into its timeout on animated screens.
+     * Best-effort: a failure here only means the default idle wait stays active.
+     */
+    public static void disableIdleWait(AndroidDriver driver) {
+        try {
+            driver.setSetting("waitForIdleTimeout", 0);
+            System.out.println("UiAutomator2 waitForIdleTimeout set to 0 (hierarchy stability sync active).");
+        } catch (Exception e) {
+            System.err.println("Could not disable waitForIdleTimeout (non-fatal): " + e.getMessage());
+        }
+    }
+
+    /* ------------------------
+       Stability wait
+       ------------------------ */
+
+    /**
+     * Poll the page source until the pruned hierarchy hash repeats on consecutive samples.
+     * @return true if the screen settled within the timeout, false otherwise (caller decides whether to fail)
+     */
+    public boolean waitForStableScreen() {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long previous = 0;
+        int matches = 0;
+        boolean first = true;
+
+        while (true) {
+            long current = hierarchyHash(driver.getPageSource());
+            if (!first && current == previous) {
+                matches++;
+            } else {
+                matches = 1;
+            }
+            first = false;
+            previous = current;
+
+            if (matches >= requiredSamples) return true;
+            if (System.currentTimeMillis() + pollMillis > deadline) return false;
+
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Poll the page source until the pruned hierarchy hash differs from the given one, e.g. the hash
+     * taken before a navigation click, so a following stability wait doesn't settle on the old screen.
+     * @return true if the hierarchy changed within the timeout
+     */
+    public boolean waitForChange(long previousHash) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (hierarchyHash(driver.getPageSource()) == previousHash) {
+            if (System.currentTimeMillis() + pollMillis > deadline) return false;
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ------------------------
+       Hashing
+       ------------------------ */
+
+    /**
+     * 64-bit FNV-1a hash of the pruned hierarchy. Volatile subtrees are skipped entirely,
+     * including their children. Malformed sources hash as their raw text.
+     */
+    public long hierarchyHash(String pageSource) {
+        if (pageSource == null) return 0L;
+        long hash = FNV_OFFSET;
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_FACTORY.createXMLStreamReader(new StringReader(pageSource));
+            int skipDepth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (skipDepth > 0) {
+                        skipDepth++;
+                        continue;
+                    }
+                    if (isVolatile(reader)) {
+                        skipDepth = 1;
+                        continue;
+                    }
+                    hash = mix(hash, reader.getLocalName());
+                    hash = mix(hash, reader.getAttributeValue(null, "class"));
+                    hash = mix(hash, reader.getAttributeValue(null, "resource-id"));
+                    hash = mix(hash, reader.getAttributeValue(null, "text"));
+                    hash = mix(hash, reader.getAttributeValue(null, "content-desc"));
+                    hash = mix(hash, reader.getAttributeValue(null, "bounds"));
+                    hash = mix(hash, reader.getAttributeValue(null, "enabled"));
+                    hash = mix(hash, reader.getAttributeValue(null, "checked"));
+                    hash = mix(hash, reader.getAttributeValue(null, "selected"));
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (skipDepth > 0) {
+                        skipDepth--;
+                    } else {
+                        hash = mix(hash, "/");
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            return mix(FNV_OFFSET, pageSource);
+        } finally {
+            if (reader != null) {
+                try { reader.close(); } catch (XMLStreamException ignored) {}
+            }
+        }
+        return hash;
+    }
+
+    private boolean isVolatile(XMLStreamReader reader) {
+        String cls = reader.getAttributeValue(null, "class");
+        if (cls != null && volatileClasses.contains(cls)) return true;
+        String id = reader.getAttributeValue(null, "resource-id");
+        if (id == null || id.isEmpty()) return false;
+        if (volatileIds.contains(id)) return true;
+        int slash = id.indexOf(":id/");
+        return slash >= 0 && volatileIds.contains(id.substring(slash + 4));
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        // field separator so ("ab","c") and ("a","bc") hash differently
+        hash ^= 0x1f;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    private static Set<String> splitCsv(String csv) {
+        if (csv == null || csv.isBlank()) return Collections.emptySet();
+        return Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+}
@@ -0,0 +1,85 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Offline checks of the UiStabilityDetector hierarchy hash on two page sources of the same home screen
+ * a minute apart (src/test/resources/recorded/hierarchy): clock, ticker, relative time and a spinner
+ * changed, nothing else. No device needed. Run with: mvn test -Poffline
+ */
+public class UiStabilityDetectorTests {
+
+    private static final Set<String> DEFAULT_CLASSES = Set.of(UiStabilityDetector.DEFAULT_VOLATILE_CLASSES.split(","));
+
+    @Test(description = "clock, ticker and spinner are volatile by default; an app TextView needs its id listed")
+    public void volatileSubtrees() throws IOException {
+        String first = recorded("home-1.xml");
+        String second = recorded("home-2.xml");
+
+        Assert.assertNotEquals(hash(Set.of(), Set.of(), first), hash(Set.of(), Set.of(), second), "nothing pruned");
+        Assert.assertNotEquals(hash(Set.of(), DEFAULT_CLASSES, first), hash(Set.of(), DEFAULT_CLASSES, second),
+                "the relative time is a plain TextView");
+        Assert.assertEquals(hash(Set.of("teaser_time"), DEFAULT_CLASSES, first),
+                hash(Set.of("teaser_time"), DEFAULT_CLASSES, second), "short id");
+        String fullId = "com.netbiscuits.bild.android:id/teaser_time";
+        Assert.assertEquals(hash(Set.of(fullId), DEFAULT_CLASSES, first), hash(Set.of(fullId), DEFAULT_CLASSES, second),
+                "full id");
+        // listing the ticker by id instead of relying on its class skips its children as well
+        Assert.assertEquals(hash(Set.of("teaser_time", "live_ticker", "header_clock"), Set.of("android.widget.ProgressBar"), first),
+                hash(Set.of("teaser_time", "live_ticker", "header_clock"), Set.of("android.widget.ProgressBar"), second));
+    }
+
+    @Test(description = "text, bounds, state and structure count; other attributes such as focus do not")
+    public void prunedAttributes() throws IOException {
+        String source = recorded("home-1.xml");
+        long base = hash(Set.of("teaser_time"), DEFAULT_CLASSES, source);
+
+        Assert.assertEquals(hash(Set.of("teaser_time"), DEFAULT_CLASSES, source.replace("focused=\"false\"", "focused=\"true\"")),
+                base, "focus is not part of the hash");
+        Assert.assertNotEquals(hash(Set.of("teaser_time"), DEFAULT_CLASSES, source.replace("Das sagt der Trainer", "Das sagt der Präsident")),
+                base, "teaser text after a volatile subtree");
+        Assert.assertNotEquals(hash(Set.of("teaser_time"), DEFAULT_CLASSES, source.replace("[0,1100][1080,1870]", "[0,1000][1080,1770]")),
+                base, "scrolled");
+        Assert.assertNotEquals(hash(Set.of("teaser_time"), DEFAULT_CLASSES,
+                source.replaceFirst("selected=\"false\"", "selected=\"true\"")), base, "selection");
+
+        // the same nodes, but the second title closes the first teaser instead of the second one
+        int firstTeaserEnd = source.indexOf("</android.view.ViewGroup>");
+        int secondTitle = source.lastIndexOf("<android.widget.TextView");
+        int secondTitleEnd = source.indexOf("/>", secondTitle) + 2;
+        String title = source.substring(secondTitle, secondTitleEnd);
+        String moved = source.substring(0, secondTitle) + source.substring(secondTitleEnd);
+        moved = moved.substring(0, firstTeaserEnd) + title + moved.substring(firstTeaserEnd);
+        Assert.assertNotEquals(hash(Set.of("teaser_time"), DEFAULT_CLASSES, moved), base, "node moved to another parent");
+    }
+
+    @Test(description = "a malformed source hashes as its raw text, null as 0")
+    public void malformedSource() throws IOException {
+        String source = recorded("home-1.xml");
+        String torn = source.substring(0, source.length() / 2);
+
+        Assert.assertEquals(hash(Set.of(), DEFAULT_CLASSES, torn), hash(Set.of(), DEFAULT_CLASSES, torn));
+        Assert.assertNotEquals(hash(Set.of(), DEFAULT_CLASSES, torn), hash(Set.of(), DEFAULT_CLASSES, source));
+        Assert.assertNotEquals(hash(Set.of(), DEFAULT_CLASSES, torn), hash(Set.of(), DEFAULT_CLASSES, torn + " "));
+        Assert.assertEquals(hash(Set.of(), DEFAULT_CLASSES, null), 0L);
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static long hash(Set<String> volatileIds, Set<String> volatileClasses, String source) {
+        return new UiStabilityDetector(null, 2, 0, 0, volatileIds, volatileClasses).hierarchyHash(source);
+    }
+
+    private static String recorded(String name) throws IOException {
+        try (InputStream in = UiStabilityDetectorTests.class.getResourceAsStream("/recorded/hierarchy/" + name)) {
+            Assert.assertNotNull(in, "missing fixture recorded/hierarchy/" + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
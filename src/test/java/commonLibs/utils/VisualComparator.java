@@ -0,0 +1,355 @@
+package commonLibs.utils;
+
+import org.openqa.selenium.WebElement;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * VisualComparator - compares screenshots against stored PNG baselines.
+ * - Exact-equal runs are skipped with Arrays.mismatch (SIMD intrinsic in the JDK), so unchanged
+ *   frames cost little more than a memory scan
+ * - A 64-bit average hash rejects clearly different frames before the pixel diff runs
+ * - Masked rectangles (ads, news teasers, clocks) are ignored in both the hash and the diff
+ * - A missing baseline never passes: the result is marked baselineMissing and the current frame is
+ *   saved next to the diffs for review; -Dvisual.update.baselines=true records it as the baseline.
+ *   Callers fail on it when visual.baselines.required=true (CI) and skip the check otherwise
+ * - Every failed comparison writes a diff image (hash rejections mark the differing hash cells)
+ *
+ * Config (config.properties):
+ *   visual.baseline.dir=mobile-test-challenge/baselines
+ *   visual.pixel.tolerance=16        (max per-channel delta still counted as equal)
+ *   visual.max.diff.ratio=0.001      (share of unmasked pixels allowed to differ)
+ *   visual.hash.reject.bits=16       (hamming distance that fails without a pixel diff)
+ *   visual.masks.<name>=x,y,w,h;x,y,w,h
+ *   visual.baselines.required=false  (true: a missing baseline fails the test instead of skipping the check)
+ * System property -Dvisual.update.baselines=true overwrites baselines with the current frames.
+ */
+public class VisualComparator {
+
+    private static final int HASH_GRID = 8;
+
+    /**
+     * Outcome of one comparison; diffPixels is -1 when no pixel diff ran (hash rejection, size mismatch,
+     * missing baseline). diffImagePath is the current frame instead of a diff when the baseline is missing.
+     */
+    public record Result(String name, boolean passed, long diffPixels, long comparedPixels,
+                         double diffRatio, String diffImagePath, String message, boolean baselineMissing) {
+        Result(String name, boolean passed, long diffPixels, long comparedPixels, double diffRatio,
+               String diffImagePath, String message) {
+            this(name, passed, diffPixels, comparedPixels, diffRatio, diffImagePath, message, false);
+        }
+    }
+
+    private static final class Frame {
+        final int width;
+        final int height;
+        final int[] pixels;
+
+        Frame(int width, int height, int[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+    }
+
+    private final File baselineDir;
+    private final File diffDir;
+    private final int tolerance;
+    private final double maxDiffRatio;
+    private final int hashRejectBits;
+    private final boolean updateBaselines;
+
+    // baselines are decoded once per run; hash depends on the mask set, so it is cached per key
+    private final Map<String, Frame> baselineCache = new ConcurrentHashMap<>();
+    private final Map<String, Long> baselineHashCache = new ConcurrentHashMap<>();
+
+    public VisualComparator(String diffDir) {
+        this(resolve(ConfigReader.get("visual.baseline.dir", "mobile-test-challenge/baselines")),
+                new File(diffDir),
+                Integer.parseInt(ConfigReader.get("visual.pixel.tolerance", "16")),
+                Double.parseDouble(ConfigReader.get("visual.max.diff.ratio", "0.001")),
+                Integer.parseInt(ConfigReader.get("visual.hash.reject.bits", "16")),
+                Boolean.getBoolean("visual.update.baselines"));
+    }
+
+    public VisualComparator(File baselineDir, File diffDir, int tolerance, double maxDiffRatio,
+                            int hashRejectBits, boolean updateBaselines) {
+        this.baselineDir = baselineDir;
+        this.diffDir = diffDir;
+        this.tolerance = tolerance;
+        this.maxDiffRatio = maxDiffRatio;
+        this.hashRejectBits = hashRejectBits;
+        this.updateBaselines = updateBaselines;
+    }
+
+    /* ------------------------
+       Public API
+       ------------------------ */
+
+    /**
+     * Compare a PNG screenshot with the baseline called name. Masks from config are added to the given ones.
+     */
+    public Result compare(String name, byte[] png, List<Rectangle> masks) throws IOException {
+        List<Rectangle> allMasks = new ArrayList<>(masks);
+        allMasks.addAll(masksFromConfig(name));
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) throw new IOException("Screenshot is not a decodable image: " + name);
+        Frame actual = toFrame(image);
+
+        File baselineFile = new File(baselineDir, name + ".png");
+        if (updateBaselines) {
+            writeBaseline(baselineFile, image);
+            baselineCache.put(name, actual);
+            baselineHashCache.keySet().removeIf(k -> k.startsWith(name + "|"));
+            return new Result(name, true, 0, 0, 0, null, "Baseline recorded: " + baselineFile.getPath());
+        }
+        if (!baselineFile.exists()) {
+            // never a pass: keep the frame so it can be reviewed and promoted; the caller decides fail or skip
+            String candidate = writeImage(name + "-actual", actual.pixels, actual.width, actual.height);
+            return new Result(name, false, -1, 0, 1.0, candidate, "No baseline " + baselineFile.getPath()
+                    + " - record it with -Dvisual.update.baselines=true", true);
+        }
+
+        Frame baseline = baselineCache.computeIfAbsent(name, n -> readFrame(baselineFile));
+        if (baseline.width != actual.width || baseline.height != actual.height) {
+            return new Result(name, false, -1, 0, 1.0, null, "Size mismatch: baseline "
+                    + baseline.width + "x" + baseline.height + " vs actual " + actual.width + "x" + actual.height);
+        }
+
+        byte[] mask = buildMask(actual.width, actual.height, allMasks);
+
+        // exact match: one vectorized scan, no hashing or diff image needed
+        if (Arrays.equals(actual.pixels, baseline.pixels)) {
+            return new Result(name, true, 0, actual.pixels.length, 0, null, "Identical to baseline");
+        }
+
+        long baselineHash = baselineHashCache.computeIfAbsent(name + "|" + allMasks,
+                k -> averageHash(baseline, mask));
+        int distance = Long.bitCount(baselineHash ^ averageHash(actual, mask));
+        if (distance > hashRejectBits) {
+            String diffPath = writeHashDiffImage(name, actual, baselineHash ^ averageHash(actual, mask), mask);
+            return new Result(name, false, -1, 0, 1.0, diffPath,
+                    "Perceptual hash differs by " + distance + " bits (limit " + hashRejectBits + ")");
+        }
+
+        return diff(name, actual, baseline, mask);
+    }
+
+    /** True when a missing baseline must fail the test (CI with a reviewed baseline set). */
+    public static boolean baselinesRequired() {
+        return Boolean.parseBoolean(ConfigReader.get("visual.baselines.required", "false"));
+    }
+
+    /** Mask covering an element's on-screen bounds (e.g. an ad or teaser container). */
+    public static Rectangle maskOf(WebElement element) {
+        org.openqa.selenium.Point p = element.getLocation();
+        org.openqa.selenium.Dimension s = element.getSize();
+        return new Rectangle(p.x, p.y, s.width, s.height);
+    }
+
+    /* ------------------------
+       Pixel diff
+       ------------------------ */
+
+    private Result diff(String name, Frame actual, Frame baseline, byte[] mask) throws IOException {
+        int[] a = actual.pixels;
+        int[] b = baseline.pixels;
+        int n = a.length;
+        int tol = tolerance;
+        long masked = 0;
+        if (mask != null) {
+            for (byte m : mask) masked += m;
+        }
+
+        // differing pixel indexes, recorded only so the diff image can be drawn without a second pass
+        int[] hits = new int[1024];
+        int hitCount = 0;
+        long diffPixels = 0;
+
+        int i = 0;
+        while (i < n) {
+            int skip = Arrays.mismatch(a, i, n, b, i, n);
+            if (skip < 0) break;
+            i += skip;
+            if (mask == null || mask[i] == 0) {
+                int pa = a[i];
+                int pb = b[i];
+                int dr = Math.abs(((pa >> 16) & 0xff) - ((pb >> 16) & 0xff));
+                int dg = Math.abs(((pa >> 8) & 0xff) - ((pb >> 8) & 0xff));
+                int db = Math.abs((pa & 0xff) - (pb & 0xff));
+                if (dr > tol || dg > tol || db > tol) {
+                    diffPixels++;
+                    if (hitCount == hits.length) hits = Arrays.copyOf(hits, hitCount * 2);
+                    hits[hitCount++] = i;
+                }
+            }
+            i++;
+        }
+
+        long compared = n - masked;
+        double ratio = compared == 0 ? 0 : (double) diffPixels / compared;
+        boolean passed = ratio <= maxDiffRatio;
+        String diffPath = passed ? null : writeDiffImage(name, actual, hits, hitCount, mask);
+        return new Result(name, passed, diffPixels, compared, ratio, diffPath,
+                String.format("%d of %d pixels differ (%.4f%%, limit %.4f%%)",
+                        diffPixels, compared, ratio * 100, maxDiffRatio * 100));
+    }
+
+    /**
+     * 8x8 average hash on luminance, sampled on a sparse grid; masked samples are left out of each cell.
+     */
+    private static long averageHash(Frame frame, byte[] mask) {
+        int w = frame.width;
+        int h = frame.height;
+        long[] sum = new long[HASH_GRID * HASH_GRID];
+        int[] count = new int[HASH_GRID * HASH_GRID];
+        int step = Math.max(1, Math.min(w, h) / 128);
+
+        for (int y = 0; y < h; y += step) {
+            int cellRow = y * HASH_GRID / h * HASH_GRID;
+            int row = y * w;
+            for (int x = 0; x < w; x += step) {
+                int idx = row + x;
+                if (mask != null && mask[idx] != 0) continue;
+                int p = frame.pixels[idx];
+                int lum = (((p >> 16) & 0xff) * 77 + ((p >> 8) & 0xff) * 150 + (p & 0xff) * 29) >> 8;
+                int cell = cellRow + x * HASH_GRID / w;
+                sum[cell] += lum;
+                count[cell]++;
+            }
+        }
+
+        long total = 0;
+        int cells = 0;
+        for (int c = 0; c < sum.length; c++) {
+            if (count[c] == 0) continue;
+            sum[c] /= count[c];
+            total += sum[c];
+            cells++;
+        }
+        long mean = cells == 0 ? 0 : total / cells;
+        long hash = 0;
+        for (int c = 0; c < sum.length; c++) {
+            if (count[c] > 0 && sum[c] > mean) hash |= 1L << c;
+        }
+        return hash;
+    }
+
+    /* ------------------------
+       Helpers
+       ------------------------ */
+
+    private static byte[] buildMask(int width, int height, List<Rectangle> masks) {
+        if (masks.isEmpty()) return null;
+        byte[] mask = new byte[width * height];
+        for (Rectangle r : masks) {
+            Rectangle c = r.intersection(new Rectangle(0, 0, width, height));
+            if (c.isEmpty()) continue;
+            for (int y = c.y; y < c.y + c.height; y++) {
+                Arrays.fill(mask, y * width + c.x, y * width + c.x + c.width, (byte) 1);
+            }
+        }
+        return mask;
+    }
+
+    private static Frame toFrame(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
+        for (int i = 0; i < pixels.length; i++) pixels[i] &= 0xFFFFFF; // screenshots are opaque
+        return new Frame(w, h, pixels);
+    }
+
+    private static Frame readFrame(File file) {
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) throw new IOException("Not an image");
+            return toFrame(image);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read baseline " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeBaseline(File file, BufferedImage image) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create baseline directory: " + parent.getAbsolutePath());
+        }
+        ImageIO.write(image, "png", file);
+        System.out.println("Visual baseline written: " + file.getAbsolutePath());
+    }
+
+    private String writeDiffImage(String name, Frame actual, int[] hits, int hitCount, byte[] mask) throws IOException {
+        int[] out = dimmed(actual, mask);
+        for (int k = 0; k < hitCount; k++) out[hits[k]] = 0xFF0000;
+        return writeImage(name + "-diff", out, actual.width, actual.height);
+    }
+
+    /** Diff image for a hash rejection: no pixel diff ran, so the hash cells that differ are tinted red. */
+    private String writeHashDiffImage(String name, Frame actual, long differingCells, byte[] mask) throws IOException {
+        int w = actual.width;
+        int h = actual.height;
+        int[] out = dimmed(actual, mask);
+        for (int y = 0; y < h; y++) {
+            int cellRow = y * HASH_GRID / h * HASH_GRID;
+            for (int x = 0; x < w; x++) {
+                int i = y * w + x;
+                if ((differingCells & (1L << (cellRow + x * HASH_GRID / w))) == 0) continue;
+                if (mask != null && mask[i] != 0) continue;
+                out[i] |= 0x800000;
+            }
+        }
+        return writeImage(name + "-diff", out, w, h);
+    }
+
+    /** Dimmed grey copy of the frame with masked areas blue. */
+    private static int[] dimmed(Frame actual, byte[] mask) {
+        int[] out = new int[actual.pixels.length];
+        for (int i = 0; i < out.length; i++) {
+            int p = actual.pixels[i];
+            int grey = ((((p >> 16) & 0xff) + ((p >> 8) & 0xff) + (p & 0xff)) / 3) >> 1;
+            out[i] = (mask != null && mask[i] != 0) ? 0x202080 : (grey << 16) | (grey << 8) | grey;
+        }
+        return out;
+    }
+
+    private String writeImage(String prefix, int[] pixels, int width, int height) throws IOException {
+        if (!diffDir.exists() && !diffDir.mkdirs()) {
+            System.err.println("Could not create diff directory: " + diffDir.getAbsolutePath());
+            return null;
+        }
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(0, 0, width, height, pixels, 0, width);
+        File file = new File(diffDir, prefix + "-" + DateUtils.getCurrentDateAndTime() + ".png");
+        ImageIO.write(img, "png", file);
+        return file.getAbsolutePath();
+    }
+
+    private static List<Rectangle> masksFromConfig(String name) {
+        String spec = ConfigReader.get("visual.masks." + name, "");
+        List<Rectangle> result = new ArrayList<>();
+        for (String part : spec.split(";")) {
+            String[] v = part.trim().split("\\s*,\\s*");
+            if (v.length != 4) continue;
+            result.add(new Rectangle(Integer.parseInt(v[0]), Integer.parseInt(v[1]),
+                    Integer.parseInt(v[2]), Integer.parseInt(v[3])));
+        }
+        return result;
+    }
+
+    private static File resolve(String path) {
+        File f = new File(path);
+        return f.isAbsolute() ? f : new File(System.getProperty("user.dir"), path);
+    }
+}
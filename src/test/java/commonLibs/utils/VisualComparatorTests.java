@@ -0,0 +1,115 @@
+package commonLibs.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Offline checks of VisualComparator on generated frames in a temporary baseline directory;
+ * no device needed. Run with: mvn test -Poffline
+ */
+public class VisualComparatorTests {
+
+    private Path workDir;
+    private File baselines;
+    private File diffs;
+
+    @BeforeMethod(alwaysRun = true)
+    public void createDirs() throws IOException {
+        workDir = Files.createTempDirectory("visual");
+        baselines = workDir.resolve("baselines").toFile();
+        diffs = workDir.resolve("diffs").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirs() throws IOException {
+        try (Stream<Path> s = Files.walk(workDir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @Test(description = "a missing baseline never passes and keeps the current frame; update mode records it")
+    public void missingBaselineFailsUnlessUpdating() throws IOException {
+        byte[] frame = png(screen(Color.WHITE));
+
+        VisualComparator.Result missing = comparator(false).compare("login-form", frame, List.of());
+        Assert.assertFalse(missing.passed(), missing.message());
+        Assert.assertTrue(missing.baselineMissing());
+        Assert.assertFalse(new File(baselines, "login-form.png").exists());
+        Assert.assertTrue(new File(missing.diffImagePath()).isFile(), "current frame saved for review");
+
+        Assert.assertTrue(comparator(true).compare("login-form", frame, List.of()).passed());
+        VisualComparator.Result recorded = comparator(false).compare("login-form", frame, List.of());
+        Assert.assertTrue(recorded.passed(), recorded.message());
+    }
+
+    @Test(description = "a frame rejected by the hash prefilter still gets a diff image")
+    public void hashRejectionWritesDiffImage() throws IOException {
+        comparator(true).compare("feed", png(screen(Color.WHITE)), List.of());
+        BufferedImage changed = screen(Color.WHITE);
+        fill(changed, Color.BLACK, new Rectangle(0, 0, 250, 250));
+
+        VisualComparator.Result result = comparator(false).compare("feed", png(changed), List.of());
+
+        Assert.assertFalse(result.passed());
+        Assert.assertEquals(result.diffPixels(), -1L, "expected a hash rejection: " + result.message());
+        Assert.assertNotNull(result.diffImagePath());
+        BufferedImage diff = ImageIO.read(new File(result.diffImagePath()));
+        Assert.assertEquals((diff.getRGB(10, 10) >> 16) & 0xff, 0x80, "changed cell tinted red");
+        Assert.assertEquals((diff.getRGB(390, 10) >> 16) & 0xff, 0x7f, "unchanged cell only dimmed");
+    }
+
+    @Test(description = "changes inside a mask are ignored")
+    public void maskedChangePasses() throws IOException {
+        comparator(true).compare("clock", png(screen(Color.WHITE)), List.of());
+        BufferedImage changed = screen(Color.WHITE);
+        Rectangle statusBar = new Rectangle(0, 0, 400, 20);
+        fill(changed, Color.BLACK, statusBar);
+
+        VisualComparator.Result result = comparator(false).compare("clock", png(changed), List.of(statusBar));
+
+        Assert.assertTrue(result.passed(), result.message());
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private VisualComparator comparator(boolean update) {
+        return new VisualComparator(baselines, diffs, 16, 0.001, 16, update);
+    }
+
+    /** 400x400 frame with a grey footer band, so the average hash has some structure. */
+    private static BufferedImage screen(Color background) {
+        BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        fill(image, background, new Rectangle(0, 0, 400, 400));
+        fill(image, Color.GRAY, new Rectangle(0, 300, 400, 100));
+        return image;
+    }
+
+    private static void fill(BufferedImage image, Color color, Rectangle area) {
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fill(area);
+        g.dispose();
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -1,5 +1,6 @@
 package commonLibs.utils;
 
+import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.WebDriverWait;
@@ -18,4 +19,9 @@ public class WaitUtils {
     public static <T> T waitFor(WebDriver driver, ExpectedCondition<T> condition) {
         return waitFor(driver, condition, 30);
     }
+
+    // Wait until the pruned page-source hash repeats (alternative to UiAutomator2 idle waits)
+    public static boolean waitForStableScreen(AndroidDriver driver) {
+        return new UiStabilityDetector(driver).waitForStableScreen();
+    }
 }
@@ -1,24 +1,39 @@
 package pageobject;
 
 import commonLibs.implementation.ElementActions;
+import commonLibs.utils.NetworkProxy;
+import commonLibs.utils.UiStabilityDetector;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
 import org.testng.Assert;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
 import java.time.Duration;
+import java.util.List;
 
 public class BildHomePage extends BasePage {
 
+    /** Footer navigation tabs, left to right. */
+    public static final List<String> FOOTER_TABS = List.of("Startseite", "Sport", "BILDplay", "BILD-KI", "Mehr");
+
     private final AndroidDriver driver;
     private final ElementActions androidActions;
+    private final UiStabilityDetector tabLoad;
+    private String currentTab;
 
     // === Constructor ===
     public BildHomePage(AndroidDriver driver, ElementActions androidActions) {
         super(driver);
         this.driver = driver;
         this.androidActions = androidActions;
+        this.tabLoad = new UiStabilityDetector(driver);
 
         // Initialize all @AndroidFindBy elements with timeout for element binding
         PageFactory.initElements(new AppiumFieldDecorator(driver, Duration.ofSeconds(10)), this);
@@ -36,12 +51,52 @@ public class BildHomePage extends BasePage {
     }
 
     public void verifyFooter() {
-        androidActions.assertViewByText("Startseite");
-        androidActions.assertViewByText("Sport");
-        androidActions.assertViewByText("BILDplay");
-        androidActions.assertViewByText("BILD-KI");
-        androidActions.assertViewByText("Mehr");
+        for (String tab : FOOTER_TABS) {
+            androidActions.assertViewByText(tab);
+        }
+    }
+
+    /**
+     * Switch to a footer tab (one of FOOTER_TABS) and wait until it has loaded: the hierarchy has changed
+     * from the previous tab and then stopped changing. The wait runs regardless of stability.enabled,
+     * so callers timing this step (SoakTests) measure the tab load, not just the click round trip.
+     * Re-selecting the tab that is already shown (e.g. Startseite after onboarding) only waits for the
+     * screen to settle, since the hierarchy need not change.
+     */
+    public void openFooterTab(String tab) {
+        String source = driver.getPageSource();
+        boolean alreadyShown = tab.equals(currentTab) || isSelectedTab(source, tab);
+        long before = tabLoad.hierarchyHash(source);
+        NetworkProxy.screen(tab);
+        androidActions.clickByText(tab);
+        if (!alreadyShown && !tabLoad.waitForChange(before)) {
+            Assert.fail("Footer tab '" + tab + "' did not replace the previous screen");
+        }
+        if (!tabLoad.waitForStableScreen()) {
+            Assert.fail("Footer tab '" + tab + "' did not settle");
+        }
+        currentTab = tab;
+    }
 
+    /** Fling the current feed down and back up to the top, so the footer is reachable again. */
+    public void scrollFeed(int flings) {
+        for (int i = 0; i < flings; i++) touchGestures.flingUp();
+        for (int i = 0; i < flings; i++) touchGestures.flingDown();
     }
 
+    /* ---------------------- helper methods ---------------------- */
+
+    /** True if the page source marks the footer item labelled tab (or one of its ancestors) as selected. */
+    static boolean isSelectedTab(String pageSource, String tab) {
+        if (pageSource == null || tab.contains("'")) return false;
+        try {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new InputSource(new StringReader(pageSource)));
+            return (Boolean) XPathFactory.newInstance().newXPath().evaluate(
+                    "boolean(//*[@selected='true'][descendant-or-self::*[@text='" + tab + "']])",
+                    doc, XPathConstants.BOOLEAN);
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
@@ -2,6 +2,8 @@ package pageobject;
 
 import commonLibs.implementation.ElementActions;
 import commonLibs.implementation.TouchGestures;
+import commonLibs.utils.ConfigReader;
+import commonLibs.utils.NetworkProxy;
 import io.appium.java_client.android.AndroidDriver;
 
 /**
@@ -13,12 +15,45 @@ public class HomeScreen {
     private final ElementActions androidActions;
     private final TouchGestures gestures;
 
+    /** Upper bound on onboarding screens handled by completeOnboarding(). */
+    private static final int MAX_ONBOARDING_STEPS = 8;
+
     public HomeScreen(AndroidDriver driver, ElementActions androidActions, TouchGestures gestures) {
         this.driver = driver;
         this.androidActions = androidActions;
         this.gestures = gestures;
     }
 
+    /**
+     * Walk through consent/onboarding/push screens by classifying each screen once and calling
+     * its handler directly (no waiting on elements of screens that are not shown).
+     * Every classification waits for the screen to settle (see settle()), so a transition between two
+     * dialogs is not mistaken for HOME or an unknown screen.
+     * Best effort: never fails the test, it stops on an unknown screen or after MAX_ONBOARDING_STEPS.
+     * @return classification of the screen the flow stopped on (normally HOME)
+     */
+    public ScreenClassifier.Classification completeOnboarding() {
+        NetworkProxy.screen("Onboarding");
+        Settled current = settle(null);
+        for (int step = 0; step < MAX_ONBOARDING_STEPS; step++) {
+            switch (current.classification().screen()) {
+                case CONSENT_DIALOG -> androidActions.clickByText("Alle akzeptieren");
+                case ONBOARDING -> androidActions.clickByText("WEITER");
+                case JS_CONSENT -> androidActions.clickByResourceId("js-submit-button");
+                case PUSH_PROMPT -> androidActions.clickByText("ÜBERSPRINGEN");
+                case ONBOARDING_DECLINE -> androidActions.clickByText("NEIN, DANKE");
+                default -> {
+                    return landed(current.classification());
+                }
+            }
+            current = settle(current);
+        }
+        // best effort, like the click-if-shown walk this replaced: the test reports where it stopped
+        System.err.println("Onboarding not finished after " + MAX_ONBOARDING_STEPS + " screens, still on "
+                + current.classification().screen());
+        return current.classification();
+    }
+
     public void acceptConsentIfShown() {
         // Accept CMP if present
         try {
@@ -50,4 +85,54 @@ public class HomeScreen {
         } catch (Exception ignored) {
         }
     }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    /** A classification plus the hash of the page source it came from. */
+    private record Settled(ScreenClassifier.Classification classification, int sourceHash) {
+    }
+
+    /**
+     * Re-classify until a known screen gives the same fingerprint (features + id set) twice in a row and,
+     * after a click, the page source differs from the one the click was made on; gives up after
+     * onboarding.settle.timeout.seconds and returns the last classification.
+     */
+    private Settled settle(Settled before) {
+        long pollMillis = Long.parseLong(ConfigReader.get("onboarding.poll.ms", "300"));
+        long deadline = System.currentTimeMillis()
+                + Long.parseLong(ConfigReader.get("onboarding.settle.timeout.seconds", "10")) * 1000;
+        Settled previous = null;
+        while (true) {
+            String source = driver.getPageSource();
+            Settled current = new Settled(ScreenClassifier.classify(source), source.hashCode());
+            boolean moved = before == null || current.sourceHash() != before.sourceHash();
+            if (current.classification().isKnown() && moved && previous != null
+                    && sameFingerprint(current.classification(), previous.classification())) {
+                return current;
+            }
+            if (System.currentTimeMillis() >= deadline) return current;
+            previous = current;
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return current;
+            }
+        }
+    }
+
+    private static boolean sameFingerprint(ScreenClassifier.Classification a, ScreenClassifier.Classification b) {
+        return a.screen() == b.screen() && a.featureMask() == b.featureMask()
+                && a.resourceIdSetHash() == b.resourceIdSetHash();
+    }
+
+    private static ScreenClassifier.Classification landed(ScreenClassifier.Classification c) {
+        if (!c.isKnown()) {
+            System.err.println("Onboarding ended on an unknown screen (features " + Integer.toBinaryString(c.featureMask())
+                    + ", id set " + Integer.toHexString(c.resourceIdSetHash()) + ")");
+            return c;
+        }
+        NetworkProxy.screen(c.screen() == ScreenClassifier.KnownScreen.HOME ? "Startseite" : c.screen().name());
+        return c;
+    }
 }
@@ -1,6 +1,9 @@
 package pageobject;
 
 import commonLibs.implementation.ElementActions;
+import commonLibs.implementation.FlowCompiler;
+import commonLibs.utils.DriverFactory;
+import commonLibs.utils.NetworkProxy;
 import io.appium.java_client.android.AndroidDriver;
 
 /**
@@ -30,26 +33,67 @@ public class LoginScreen {
         androidActions.setTextByResourceId("password", password);
     }
 
+    // navigation tags the network proxy first, so the requests a click triggers count for the new screen
     public void submitLoginJETZTANMELDEN() {
+        NetworkProxy.screen("Mein Konto");
         clickButtonByText("JETZT ANMELDEN");
     }
     public void clickLogoutABMELDEN(){
+        NetworkProxy.screen("Mein Konto");
         clickButtonByText("ABMELDEN");
     }
 
     public void clickMoreMehrButton() {
+        NetworkProxy.screen("Mehr");
         clickButtonByText("Mehr");
     }
     public void clickMyaccountMeinKonto() {
+        NetworkProxy.screen("Mein Konto");
         clickButtonByText("Mein Konto");
     }
     public void clickLoginButton(){
+        NetworkProxy.screen("Login");
         clickButtonByText("LOGIN");
     }
     public void clickCreateAccountKONTOANLEGEN(){
+        NetworkProxy.screen("Registrierung");
         clickButtonByText("KONTO ANLEGEN");
     }
 
+    /** True if the login form (email field) is on screen; used as a restorable checkpoint. */
+    public boolean isLoginFormShown() {
+        try {
+            return androidActions.viewByResourceId("identifier", 5).isDisplayed();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checkpoint restore for the login form. Resolves the session when the retry runs instead of using
+     * this screen's driver, which is dead if the retry rebuilt the session.
+     */
+    public static boolean isLoginFormShownOnCurrentSession() {
+        AndroidDriver current = DriverFactory.getDriver();
+        return current != null && new LoginScreen(current, new ElementActions(current)).isLoginFormShown();
+    }
+
+    /**
+     * Login with a registered account as one flow: Mehr -> Mein Konto -> LOGIN -> credentials -> submit.
+     * With the flow compiler enabled the navigation and the submit each run as one driver script call;
+     * the credentials are entered here, so the password never goes into a script.
+     */
+    public FlowCompiler.Flow loginFlow(String email, String password) {
+        return FlowCompiler.flow("login with registered user")
+                .clickText("open more menu", "Mehr", "Mehr", this::clickMoreMehrButton)
+                .clickText("open my account", "Mein Konto", "Mein Konto", this::clickMyaccountMeinKonto)
+                .clickText("open login form", "LOGIN", "Login", this::clickLoginButton)
+                .checkpoint("on login form", LoginScreen::isLoginFormShownOnCurrentSession)
+                .setText("enter email", () -> enterRegisteredUserEmail(email))
+                .setText("enter password", () -> enterPassword(password))
+                .clickText("submit login", "JETZT ANMELDEN", "Mein Konto", this::submitLoginJETZTANMELDEN);
+    }
+
     public void clickCheckboxAccountCreation(){
         androidActions.clickByResourceId("traits.optIns.Medienangebote_AS_2020");
     }
@@ -0,0 +1,136 @@
+package pageobject;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.TreeSet;
+
+/**
+ * ScreenClassifier - identifies the current BILD screen from a single page source.
+ * - Extracts a bitmask of key features (resource-ids and texts such as "Alle akzeptieren", "WEITER")
+ * - Maps the mask to a known screen through a precomputed table, so lookup is one array access
+ * - Rules are evaluated in priority order when the table is built: overlays (consent, push prompt)
+ *   win over the screen underneath them
+ * - Unknown screens carry a hash of their resource-id set so they can be reported and added later
+ */
+public final class ScreenClassifier {
+
+    private ScreenClassifier() {}
+
+    /** Structural features; each one is a bit in the fingerprint mask. */
+    enum Feature {
+        CONSENT_ACCEPT(null, "Alle akzeptieren"),
+        ONBOARDING_NEXT(null, "WEITER"),
+        PUSH_SKIP(null, "ÜBERSPRINGEN"),
+        ONBOARDING_DECLINE(null, "NEIN, DANKE"),
+        JS_SUBMIT("js-submit-button", null),
+        LOGIN_EMAIL("identifier", null),
+        PASSWORD("password", null),
+        REGISTER_EMAIL("traits.email", null),
+        LOGOUT(null, "ABMELDEN"),
+        MY_ACCOUNT(null, "Mein Konto"),
+        FOOTER_HOME(null, "Startseite"),
+        FOOTER_MORE(null, "Mehr");
+
+        final String resourceId;
+        final String text;
+
+        Feature(String resourceId, String text) {
+            this.resourceId = resourceId;
+            this.text = text;
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    /** Known screens in priority order. */
+    public enum KnownScreen {
+        CONSENT_DIALOG(Feature.CONSENT_ACCEPT),
+        JS_CONSENT(Feature.JS_SUBMIT),
+        PUSH_PROMPT(Feature.PUSH_SKIP),
+        ONBOARDING_DECLINE(Feature.ONBOARDING_DECLINE),
+        ONBOARDING(Feature.ONBOARDING_NEXT),
+        REGISTRATION_FORM(Feature.REGISTER_EMAIL, Feature.PASSWORD),
+        LOGIN_FORM(Feature.LOGIN_EMAIL, Feature.PASSWORD),
+        ACCOUNT(Feature.LOGOUT),
+        MORE_MENU(Feature.MY_ACCOUNT),
+        HOME(Feature.FOOTER_HOME, Feature.FOOTER_MORE),
+        UNKNOWN;
+
+        private final int required;
+
+        KnownScreen(Feature... features) {
+            int mask = 0;
+            for (Feature f : features) mask |= f.bit();
+            this.required = mask;
+        }
+    }
+
+    /** Result of one classification. */
+    public record Classification(KnownScreen screen, int featureMask, int resourceIdSetHash) {
+        public boolean isKnown() {
+            return screen != KnownScreen.UNKNOWN;
+        }
+    }
+
+    // mask -> screen for every possible feature combination
+    private static final KnownScreen[] TABLE = buildTable();
+    private static final XMLInputFactory XML_FACTORY = XMLInputFactory.newFactory();
+
+    /** Classify a captured page source (usable with recorded hierarchies). */
+    public static Classification classify(String pageSource) {
+        int mask = 0;
+        TreeSet<String> ids = new TreeSet<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_FACTORY.createXMLStreamReader(new StringReader(pageSource));
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+                String id = shortId(reader.getAttributeValue(null, "resource-id"));
+                String text = reader.getAttributeValue(null, "text");
+                String desc = reader.getAttributeValue(null, "content-desc");
+                if (id != null) ids.add(id);
+                for (Feature f : Feature.values()) {
+                    if ((f.resourceId != null && f.resourceId.equals(id))
+                            || (f.text != null && (f.text.equals(text) || f.text.equals(desc)))) {
+                        mask |= f.bit();
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            System.err.println("Could not parse page source for classification: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try { reader.close(); } catch (XMLStreamException ignored) {}
+            }
+        }
+        return new Classification(TABLE[mask], mask, ids.hashCode());
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private static KnownScreen[] buildTable() {
+        KnownScreen[] table = new KnownScreen[1 << Feature.values().length];
+        for (int mask = 0; mask < table.length; mask++) {
+            table[mask] = KnownScreen.UNKNOWN;
+            for (KnownScreen s : KnownScreen.values()) {
+                if (s != KnownScreen.UNKNOWN && (mask & s.required) == s.required) {
+                    table[mask] = s;
+                    break;
+                }
+            }
+        }
+        return table;
+    }
+
+    /** "com.netbiscuits.bild.android:id/decor_content_parent" -> "decor_content_parent"; web ids stay as is. */
+    private static String shortId(String resourceId) {
+        if (resourceId == null || resourceId.isEmpty()) return null;
+        int idx = resourceId.indexOf(":id/");
+        return idx >= 0 ? resourceId.substring(idx + 4) : resourceId;
+    }
+}
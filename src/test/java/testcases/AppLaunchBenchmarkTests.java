@@ -0,0 +1,74 @@
+package testcases;
+
+import com.aventstack.extentreports.Status;
+import commonLibs.utils.AdbUtils;
+import commonLibs.utils.BenchmarkHistory;
+import commonLibs.utils.ConfigReader;
+import commonLibs.utils.DriverFactory;
+import commonLibs.utils.LaunchBenchmark;
+import commonLibs.utils.LaunchBenchmark.StartMode;
+import commonLibs.utils.SampleStats;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * App start-time benchmarks (run with: mvn test -Pbenchmark)
+ * Results are appended per app version to benchmarks/launch-history.csv.
+ */
+public class AppLaunchBenchmarkTests extends BaseTest {
+
+    private static final String CONTENT_RESOURCE_ID = "com.netbiscuits.bild.android:id/decor_content_parent";
+
+    @Test(priority = 1, description = "Benchmark cold start")
+    public void benchmarkColdStart() throws Exception {
+        runAndRecord(StartMode.COLD);
+    }
+
+    @Test(priority = 2, description = "Benchmark warm start")
+    public void benchmarkWarmStart() throws Exception {
+        runAndRecord(StartMode.WARM);
+    }
+
+    @Test(priority = 3, description = "Benchmark hot start")
+    public void benchmarkHotStart() throws Exception {
+        runAndRecord(StartMode.HOT);
+    }
+
+    private void runAndRecord(StartMode mode) throws Exception {
+        String serial = DriverFactory.getDeviceSerial();
+        String appPackage = ConfigReader.get("app.package", "com.netbiscuits.bild.android");
+        String appActivity = ConfigReader.get("app.activity", "de.bild.android.app.MainActivity");
+        int iterations = Integer.parseInt(ConfigReader.get("benchmark.launch.iterations", "10"));
+        int warmup = Integer.parseInt(ConfigReader.get("benchmark.launch.warmup", "2"));
+        double threshold = Double.parseDouble(ConfigReader.get("benchmark.regression.percent", "10"));
+
+        LaunchBenchmark benchmark = new LaunchBenchmark(driver, serial, appPackage, appActivity, CONTENT_RESOURCE_ID);
+        LaunchBenchmark.Summary summary = benchmark.run(mode, iterations, warmup);
+
+        String version = AdbUtils.packageVersion(serial, appPackage);
+        BenchmarkHistory history = new BenchmarkHistory("launch");
+        record(history, version, serial, mode, "TotalTime", summary.totalTime(), threshold);
+        record(history, version, serial, mode, "WaitTime", summary.waitTime(), threshold);
+        record(history, version, serial, mode, "FirstContent", summary.firstContent(), threshold);
+        reportUtils.addLogs(Status.INFO, mode + " samples excluded (launch state mismatch / no timing): "
+                + summary.excluded() + " - history: " + history.getFile().getAbsolutePath());
+        if (summary.noFirstContent() > 0) {
+            reportUtils.addLogs(Status.WARNING, mode + " samples without first content (content view not visible): "
+                    + summary.noFirstContent());
+        }
+
+        Assert.assertTrue(summary.totalTime().count() > 0, "No valid " + mode + " start samples were collected");
+    }
+
+    private void record(BenchmarkHistory history, String version, String device, StartMode mode, String metric,
+                        SampleStats stats, double threshold) throws Exception {
+        reportUtils.addLogs(Status.INFO, mode + " " + metric + " (ms): " + stats);
+        if (stats.count() == 0) return;
+        // compare before appending so the new row is not its own baseline
+        String regression = history.checkRegression(version, mode.name(), metric, stats.median(), threshold);
+        history.append(version, device, mode.name(), metric, stats);
+        if (regression != null) {
+            reportUtils.addLogs(Status.WARNING, regression);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package testcases;
 
+import com.aventstack.extentreports.Status;
 import commonLibs.implementation.ElementActions;
 import commonLibs.implementation.TouchGestures;
 import io.appium.java_client.android.AndroidDriver;
 import org.testng.annotations.Test;
 import pageobject.BildHomePage;
 import pageobject.HomeScreen;
+import pageobject.ScreenClassifier;
 
 
 /**
@@ -32,11 +34,9 @@ public class AppLaunchTests extends BaseTest{
         TouchGestures gestures = new TouchGestures(driver);
         HomeScreen home = new HomeScreen(driver, androidActions, gestures);
 
-        home.acceptConsentIfShown();
-        home.continueOnboarding();
-        home.submitJsIfShown();
-        home.activatePushIfShown();
-        home.onboardingNeinDanke();
+        ScreenClassifier.Classification landed = home.completeOnboarding();
+        reportUtils.addLogs(landed.screen() == ScreenClassifier.KnownScreen.HOME ? Status.INFO : Status.WARNING,
+                "Onboarding finished on " + landed.screen());
     }
 
     @Test (priority = 3, description = "Verify footer icons")
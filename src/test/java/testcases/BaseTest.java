@@ -3,6 +3,8 @@ package testcases;
 import com.aventstack.extentreports.Status;
 import commonLibs.utils.*;
 import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.OutputType;
+import org.testng.Assert;
 import org.testng.ITestResult;
 import org.testng.annotations.*;
 import commonLibs.implementation.CommonKeys;
@@ -10,10 +12,15 @@ import org.testng.annotations.AfterTest;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 
+import java.awt.Rectangle;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -34,10 +41,20 @@ public class BaseTest {
 
     public commonLibs.utils.ScreenshotUtils screenshotControl;
     public CommonKeys cmnKeys;
+    protected VisualComparator visualComparator;
+    protected ScreenRecorder screenRecorder;
+    protected LogcatCollector logcatCollector;
+    protected ResourceSampler resourceSampler;
+    protected NetworkProxy networkProxy;
 
     // flag to ensure report is flushed only once
     private static final AtomicBoolean REPORT_FLUSHED = new AtomicBoolean(false);
 
+    // @BeforeSuite runs on a single test-class instance; later classes pick the report up from here
+    private static volatile ReportUtils suiteReportUtils;
+    private static volatile String suiteReportFilename;
+    private static volatile String historyApkDigest;
+
     /**
      * Initialize reporting once per JVM run. Idempotent: safe to call multiple times.
      */
@@ -66,6 +83,8 @@ public class BaseTest {
         // create reportUtils only if it does not exist (idempotent)
         try {
             this.reportUtils = new ReportUtils(reportFilename);
+            suiteReportUtils = this.reportUtils;
+            suiteReportFilename = reportFilename;
             System.out.println("Initialized Extent report: " + reportFilename);
         } catch (Exception e) {
             this.reportUtils = null;
@@ -80,16 +99,27 @@ public class BaseTest {
     @BeforeClass(alwaysRun = true)
     public synchronized void setUp() throws Exception {
         currentWorkingDirectory = System.getProperty("user.dir");
+        if (reportUtils == null && suiteReportUtils != null) {
+            reportUtils = suiteReportUtils;
+            reportFilename = suiteReportFilename;
+        }
 
         // Ensure screenshots dir exists (safe to call multiple times)
         File screenshotsDir = new File(currentWorkingDirectory + File.separator + "screenshots");
         if (!screenshotsDir.exists()) screenshotsDir.mkdirs();
 
+        // the warm daemon hands over the session of the previous class / request
+        if (driver == null && DaemonRunner.isActive()) {
+            driver = DriverFactory.getDriver();
+        }
         // Create driver only if no active session exists
         if (!isDriverActive()) {
             try {
-                driver = DriverFactory.createDriver();
+                // with the pipeline the session was started in the background on a prepared device
+                driver = DevicePipeline.isEnabled() ? DevicePipeline.shared().take() : DriverFactory.createDriver();
                 System.out.println("Driver started: " + driver);
+                ShardReport.setCurrentDevice(deviceLabel(driver));
+                Tracer.setLane(deviceLabel(driver));
             } catch (Exception e) {
                 System.err.println("Driver initialization failed: " + e.getMessage());
                 throw e;
@@ -105,6 +135,41 @@ public class BaseTest {
         if (cmnKeys == null && isDriverActive()) {
             cmnKeys = new CommonKeys(driver);
         }
+        if (visualComparator == null) {
+            visualComparator = new VisualComparator(screenshotsDir.getAbsolutePath());
+        }
+        if (logcatCollector == null && LogcatCollector.isEnabled() && isDriverActive()) {
+            String serial = DriverFactory.getDeviceSerial();
+            if (serial != null) {
+                logcatCollector = LogcatCollector.forDevice(serial,
+                        ConfigReader.get("app.package", "com.netbiscuits.bild.android"));
+            }
+        }
+        if (resourceSampler == null && ResourceSampler.isEnabled() && isDriverActive()) {
+            String serial = DriverFactory.getDeviceSerial();
+            if (serial != null) {
+                resourceSampler = new ResourceSampler(serial,
+                        ConfigReader.get("app.package", "com.netbiscuits.bild.android"));
+                resourceSampler.start();
+            }
+        }
+        if (networkProxy == null && NetworkProxy.isEnabled() && isDriverActive()) {
+            String serial = DriverFactory.getDeviceSerial();
+            if (serial != null) {
+                networkProxy = NetworkProxy.startShared(serial);
+            }
+        } else if (networkProxy == null && isDriverActive()) {
+            String serial = DriverFactory.getDeviceSerial();
+            if (serial != null) NetworkProxy.clearStale(serial);
+        }
+        if (screenRecorder == null && ScreenRecorder.isEnabled() && isDriverActive()) {
+            String serial = DriverFactory.getDeviceSerial();
+            if (serial != null) {
+                screenRecorder = new ScreenRecorder(serial);
+            } else {
+                System.err.println("Screen recording enabled but no device serial found — recording disabled.");
+            }
+        }
 
         // Try to bring app to foreground if configured - best-effort
         if (isDriverActive()) {
@@ -124,12 +189,35 @@ public class BaseTest {
      * Create a per-test ExtentTest entry. Safe to call repeatedly.
      */
     @BeforeMethod(alwaysRun = true)
-    public void startTest(Method method) {
+    public void startTest(Method method) throws Exception {
         String testName = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+
+        // A retry caused by a lost session needs a fresh driver before checkpoints can be restored
+        if (RetryAnalyzer.consumeSessionRebuild()) {
+            rebuildSession();
+        }
+        String resumedFrom = Checkpoints.begin(getClass().getName() + "." + method.getName());
+
+        if (screenRecorder != null) {
+            screenRecorder.start();
+        }
+        if (logcatCollector != null) {
+            logcatCollector.beginTest();
+        }
+        if (resourceSampler != null) {
+            resourceSampler.beginTest(testName);
+        }
+        if (networkProxy != null) {
+            networkProxy.drain(); // traffic between tests is not attributed to any test
+        }
+
         if (reportUtils != null) {
             try {
                 reportUtils.createATestcase(testName);
                 reportUtils.addLogs(Status.INFO, "Starting test: " + testName);
+                if (resumedFrom != null) {
+                    reportUtils.addLogs(Status.WARNING, "Retry resumed from checkpoint: " + resumedFrom);
+                }
             } catch (Exception e) {
                 System.err.println("Failed to create test entry in report: " + e.getMessage());
             }
@@ -148,11 +236,32 @@ public class BaseTest {
         String imageFilename = String.format("%s/screenshots/%s-%s.jpeg", currentWorkingDirectory, testcaseName,
                 currentTime);
 
+        // a crash during the test has already failed it (LogcatCrashListener)
+        if (logcatCollector != null) logcatCollector.endTest();
+
+        if (resourceSampler != null && reportUtils != null) {
+            ResourceSampler.TestDelta delta = resourceSampler.endTest();
+            if (delta != null) {
+                reportUtils.addHtmlLogs(Status.INFO, "Resources: " + delta.describe() + "<br/>"
+                        + resourceSampler.pssSparklineSvg(300, 40));
+            }
+        }
+
+        if (networkProxy != null && reportUtils != null) {
+            reportUtils.addHtmlLogs(Status.INFO, "Network: " + NetworkProxy.summarize(networkProxy.drain(), 5));
+        }
+
+        if (result != null && RunHistoryStore.isEnabled()) {
+            recordHistory(result);
+        }
+
         try {
             if (result != null && result.getStatus() == ITestResult.FAILURE) {
                 if (reportUtils != null) {
                     try {
                         reportUtils.addLogs(Status.FAIL, "Test failed: " + testcaseName);
+                        String retryDecision = RetryAnalyzer.decision(result);
+                        if (retryDecision != null) reportUtils.addLogs(Status.INFO, retryDecision);
                     } catch (Exception e) {
                         System.err.println("reportUtils.addLogs failed: " + e.getMessage());
                     }
@@ -174,12 +283,44 @@ public class BaseTest {
                 } else {
                     System.err.println("screenshotControl is null or driver inactive — skipping screenshots.");
                 }
+
+                if (logcatCollector != null) {
+                    File logsDir = new File(currentWorkingDirectory + File.separator + "logs");
+                    File slice = logcatCollector.writeTestSlice(logsDir, testcaseName + "-" + currentTime);
+                    if (slice != null && reportUtils != null) {
+                        reportUtils.addHtmlLogs(Status.INFO, "Logcat: <a href='" + slice.getAbsolutePath() + "'>"
+                                + slice.getName() + "</a>");
+                    }
+                }
+
+                if (screenRecorder != null) {
+                    File recordingsDir = new File(currentWorkingDirectory + File.separator + "recordings");
+                    for (File video : screenRecorder.stopAndPull(recordingsDir, testcaseName + "-" + currentTime)) {
+                        if (reportUtils != null) {
+                            reportUtils.addHtmlLogs(Status.INFO, "Screen recording: <a href='" + video.getAbsolutePath()
+                                    + "'>" + video.getName() + "</a>");
+                        }
+                    }
+                }
             } else if (result != null && result.getStatus() == ITestResult.SUCCESS) {
                 if (reportUtils != null) reportUtils.addLogs(Status.PASS, "Test passed: " + testcaseName);
             } else if (result != null && result.getStatus() == ITestResult.SKIP) {
-                if (reportUtils != null) reportUtils.addLogs(Status.SKIP, "Test skipped: " + testcaseName);
+                if (reportUtils != null) {
+                    if (result.wasRetried()) {
+                        reportUtils.addLogs(Status.WARNING, "Transient failure, test will be retried: "
+                                + testcaseName + " - " + RetryAnalyzer.decision(result));
+                    } else {
+                        reportUtils.addLogs(Status.SKIP, "Test skipped: " + testcaseName);
+                    }
+                }
             }
         } finally {
+            // passing/skipped tests: drop the chunks on the device, nothing is transferred
+            if (screenRecorder != null) {
+                screenRecorder.stopAndDiscard();
+            }
+            Checkpoints.end();
+            AccountPool.releaseCurrentThreadLease();
             // Remove thread-local test to avoid memory leaks (if ReportUtils supports it)
             if (reportUtils != null) {
                 try {
@@ -196,7 +337,22 @@ public class BaseTest {
      */
     @AfterClass(alwaysRun = true)
     public synchronized void tearDown() {
-        if (isDriverActive()) {
+        if (resourceSampler != null) {
+            resourceSampler.stop();
+            resourceSampler = null;
+        }
+        if (isDriverActive() && DaemonRunner.isActive()) {
+            // the warm daemon keeps the session for the next class and the next request
+            driver = null;
+        } else if (isDriverActive() && DevicePipeline.isEnabled()) {
+            try {
+                // the session is quit and the device re-prepared in the background
+                DevicePipeline.shared().release();
+            } catch (Exception e) {
+                System.err.println("Releasing device to pipeline failed: " + e.getMessage());
+            }
+            driver = null;
+        } else if (isDriverActive()) {
             try {
                 DriverFactory.quitDriver();
                 // DriverFactory should nullify the static driver; also null local ref
@@ -215,11 +371,35 @@ public class BaseTest {
      */
     @AfterSuite(alwaysRun = true)
     public synchronized void postCleanup() {
+        System.out.println(RetryAnalyzer.summary());
+        if (DriverHttpPipeline.isEnabled()) {
+            System.out.println("Driver HTTP commands:\n" + DriverHttpPipeline.metricsSummary());
+        }
+        if (RunHistoryStore.isEnabled()) {
+            RunHistoryStore.closeCurrentRun();
+            try {
+                System.out.println("Slowest tests over the last 10 runs:");
+                for (RunHistoryStore.TestSummary t : RunHistoryStore.shared().slowest(10, 5)) {
+                    System.out.printf("  %s: p50 %.0f ms, p90 %.0f ms, %d failure(s) in %d run(s)%n",
+                            t.testId(), t.medianMs(), t.p90Ms(), t.failures(), t.samples());
+                }
+            } catch (IOException e) {
+                System.err.println("Run history query failed: " + e.getMessage());
+            }
+        }
+        if (Tracer.isEnabled()) {
+            System.out.println("Trace (open in ui.perfetto.dev): " + Tracer.flush());
+        }
+        LogcatCollector.stopAll();
+        NetworkProxy.stopShared();
+        DevicePipeline.shutdownShared();
+        EmulatorFleet.releaseClaim();
         if (reportUtils != null && !REPORT_FLUSHED.get()) {
             try {
                 reportUtils.flushReport();
                 REPORT_FLUSHED.set(true);
                 System.out.println("Report flushed to: " + reportFilename);
+                mergeShardReports();
             } catch (Exception e) {
                 System.err.println("Failed flushing report: " + e.getMessage());
                 e.printStackTrace();
@@ -236,6 +416,19 @@ public class BaseTest {
 
     @AfterTest(alwaysRun = true)
     public void installAppAfterTest() {
+        if (DaemonRunner.isActive()) {
+            System.out.println("Test daemon: keeping the installed app and session (no reinstall)");
+            return;
+        }
+        if (DevicePipeline.isEnabled()) {
+            // reinstall runs in the background; the suite continues on a prepared device
+            try {
+                DevicePipeline.shared().reinstallIdleDevices();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to schedule background reinstall: " + e.getMessage(), e);
+            }
+            return;
+        }
         String script = "./scripts/install-split-apks.sh";
         ProcessBuilder pb = new ProcessBuilder("/bin/bash", script);
         pb.redirectErrorStream(true); // merge stdout & stderr
@@ -261,6 +454,126 @@ public class BaseTest {
         }
     }
 
+    /** Combine all shard reports next to the Extent report into one merged report (see ReportMerger). */
+    private void mergeShardReports() {
+        ShardReport shard = reportUtils.shardReport();
+        if (shard == null || !Boolean.parseBoolean(ConfigReader.get("report.merge.on.finish", "true"))) return;
+        shard.close();
+        Path runDir = shard.directory().getParent();
+        Path merged = runDir.getParent().getParent().resolve("merged-" + runDir.getFileName() + ".html");
+        try {
+            ReportMerger.Summary summary = ReportMerger.merge(List.of(runDir), merged);
+            System.out.println(summary.describe() + " -> " + merged);
+        } catch (IOException e) {
+            System.err.println("Merging shard reports failed: " + e.getMessage());
+        }
+    }
+
+    /** Device serial reported by the session, else the configured device name. */
+    private static String deviceLabel(AndroidDriver driver) {
+        try {
+            Object udid = driver.getCapabilities().getCapability("udid");
+            if (udid == null) udid = driver.getCapabilities().getCapability("deviceUDID");
+            if (udid != null) return udid.toString();
+        } catch (Exception ignored) {
+        }
+        return ConfigReader.get("device.name", "unknown");
+    }
+
+    /**
+     * Append this test (duration, outcome, step timings) to the run history of this JVM.
+     */
+    private void recordHistory(ITestResult result) {
+        try {
+            if (historyApkDigest == null) {
+                try {
+                    historyApkDigest = ApkDeployer.ApkSet.digestOf(ApkDeployer.configuredApkDir());
+                } catch (Exception e) {
+                    historyApkDigest = "unknown";
+                }
+            }
+            RunHistoryStore.Run run = RunHistoryStore.currentRun(DriverFactory.getDeviceSerial(), historyApkDigest);
+            List<RunHistoryStore.Step> steps = new ArrayList<>();
+            for (Checkpoints.StepTiming t : Checkpoints.stepTimings()) {
+                steps.add(new RunHistoryStore.Step(t.name(), t.durationMs(), t.skipped()
+                        ? RunHistoryStore.Outcome.SKIP : t.passed() ? RunHistoryStore.Outcome.PASS : RunHistoryStore.Outcome.FAIL));
+            }
+            RunHistoryStore.Outcome outcome = switch (result.getStatus()) {
+                case ITestResult.SUCCESS -> RunHistoryStore.Outcome.PASS;
+                case ITestResult.FAILURE -> RunHistoryStore.Outcome.FAIL;
+                default -> RunHistoryStore.Outcome.SKIP;
+            };
+            run.recordTest(RetryAnalyzer.testKey(result), result.getStartMillis(),
+                    result.getEndMillis() - result.getStartMillis(), outcome, steps);
+        } catch (Exception e) {
+            System.err.println("Recording run history failed (non-fatal): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compare the current screen with the stored baseline; masked regions (ads, teasers) are ignored.
+     * Without a baseline the check is skipped with a warning (the frame is kept for review), unless
+     * visual.baselines.required=true.
+     */
+    protected void assertScreenMatchesBaseline(String baselineName, Rectangle... masks) throws Exception {
+        byte[] png = driver.getScreenshotAs(OutputType.BYTES);
+        VisualComparator.Result result = visualComparator.compare(baselineName, png, java.util.Arrays.asList(masks));
+        if (result.baselineMissing() && !VisualComparator.baselinesRequired()) {
+            if (reportUtils != null) {
+                reportUtils.addLogs(Status.WARNING, "Visual check '" + baselineName + "' skipped: " + result.message());
+                if (result.diffImagePath() != null) reportUtils.addScreenshotInReport(result.diffImagePath());
+            }
+            return;
+        }
+        if (reportUtils != null) {
+            reportUtils.addLogs(result.passed() ? Status.INFO : Status.FAIL,
+                    "Visual check '" + baselineName + "': " + result.message());
+            if (result.diffImagePath() != null) {
+                reportUtils.addScreenshotInReport(result.diffImagePath());
+            }
+        }
+        Assert.assertTrue(result.passed(), "Visual check '" + baselineName + "' failed: " + result.message());
+    }
+
+    /** Mask for the status bar (clock, notification icons); empty if the driver cannot report it. */
+    protected Rectangle statusBarMask() {
+        try {
+            java.util.Map<String, Object> bar = driver.getSystemBars().get("statusBar");
+            if (bar != null) {
+                return new Rectangle(((Number) bar.get("x")).intValue(), ((Number) bar.get("y")).intValue(),
+                        ((Number) bar.get("width")).intValue(), ((Number) bar.get("height")).intValue());
+            }
+        } catch (Exception e) {
+            System.err.println("Could not read system bars (status bar not masked): " + e.getMessage());
+        }
+        return new Rectangle();
+    }
+
+    /**
+     * Replace a dead session with a new one and re-create the driver-bound helpers.
+     */
+    protected synchronized void rebuildSession() throws Exception {
+        System.out.println("Session lost - rebuilding driver before retry.");
+        if (DevicePipeline.isEnabled()) {
+            // same device, and the pipeline keeps track of the new session for release()
+            driver = DevicePipeline.shared().replaceActive();
+        } else {
+            try {
+                DriverFactory.quitDriver();
+            } catch (Exception e) {
+                System.err.println("Quitting dead session failed (expected): " + e.getMessage());
+            }
+            driver = DriverFactory.createDriver();
+        }
+        screenshotControl = new commonLibs.utils.ScreenshotUtils(driver);
+        cmnKeys = new CommonKeys(driver);
+        try {
+            driver.activateApp(ConfigReader.get("app.package", "com.netbiscuits.bild.android"));
+        } catch (Exception e) {
+            System.err.println("activateApp failed (non-fatal): " + e.getMessage());
+        }
+    }
+
     protected boolean isDriverActive() {
         if (driver == null) return false;
         try {
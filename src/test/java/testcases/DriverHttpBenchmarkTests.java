@@ -0,0 +1,157 @@
+package testcases;
+
+import com.sun.net.httpserver.HttpServer;
+import commonLibs.utils.BenchmarkHistory;
+import commonLibs.utils.ConfigReader;
+import commonLibs.utils.DriverHttpPipeline;
+import commonLibs.utils.SampleStats;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Driver HTTP transport benchmark against a local stand-in Appium server (no device needed).
+ * Compares one connection per command, the pooled keep-alive client, and pooled + session cache.
+ * Results are appended to benchmarks/driver-http-history.csv.
+ */
+public class DriverHttpBenchmarkTests {
+
+    private static final String SESSION = "/session/bench-session";
+
+    private HttpServer server;
+    private URI baseUri;
+    private int iterations;
+
+    @BeforeClass(alwaysRun = true)
+    public void startStandInServer() throws IOException {
+        iterations = Integer.parseInt(ConfigReader.get("benchmark.http.iterations", "200"));
+        long delayMs = Long.parseLong(ConfigReader.get("benchmark.http.server.delay.ms", "2"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            try {
+                Thread.sleep(delayMs); // simulated server-side command time
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"value\":{\"x\":0,\"y\":0,\"width\":1080,\"height\":2400,\"ELEMENT\":\"e1\"}}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        DriverHttpPipeline.applyPoolSettings();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStandInServer() {
+        if (server != null) server.stop(0);
+    }
+
+    @Test(priority = 1, description = "Benchmark driver HTTP transport variants")
+    public void benchmarkDriverTransport() throws Exception {
+        SampleStats fresh = measure(this::commandMixWithFreshConnections);
+
+        DriverHttpPipeline.resetMetrics();
+        SampleStats pooled;
+        try (HttpClient client = client(DriverHttpPipeline.metricsFilter())) {
+            pooled = measure(() -> commandMix(client));
+        }
+
+        DriverHttpPipeline.resetMetrics();
+        SampleStats cached;
+        try (HttpClient client = client(DriverHttpPipeline.metricsFilter().andThen(DriverHttpPipeline.cacheFilter()))) {
+            cached = measure(() -> commandMix(client));
+        }
+        String cachedMetrics = DriverHttpPipeline.metricsSummary();
+
+        BenchmarkHistory history = new BenchmarkHistory("driver-http");
+        history.append("local", "stand-in", "connection-per-command", "commandMixMs", fresh);
+        history.append("local", "stand-in", "pooled", "commandMixMs", pooled);
+        history.append("local", "stand-in", "pooled-cached", "commandMixMs", cached);
+        System.out.println("Command mix (3 commands) per variant, ms:\n  connection per command: " + fresh
+                + "\n  pooled: " + pooled + "\n  pooled + cache: " + cached);
+        System.out.println("Per-command metrics (pooled + cache):\n" + cachedMetrics);
+
+        // two of the three commands are session-constant, so the cache must beat the plain pool
+        Assert.assertTrue(cached.median() < pooled.median(),
+                "Session cache did not reduce command time: " + cached.median() + " vs " + pooled.median() + " ms");
+    }
+
+    /* ---------------------- helper methods ---------------------- */
+
+    private interface Mix {
+        void run() throws Exception;
+    }
+
+    private SampleStats measure(Mix mix) throws Exception {
+        double[] samples = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            mix.run();
+            samples[i] = (System.nanoTime() - start) / 1e6;
+        }
+        return SampleStats.of(samples, Math.min(10, iterations / 10));
+    }
+
+    private HttpClient client(Filter filter) {
+        ClientConfig config = ClientConfig.defaultConfig().baseUri(baseUri).withFilter(filter);
+        return HttpClient.Factory.createDefault().createClient(config);
+    }
+
+    /** Typical per-step traffic: window size, a find, device info. */
+    private void commandMix(HttpClient client) {
+        client.execute(new HttpRequest(HttpMethod.GET, SESSION + "/window/rect"));
+        HttpRequest find = new HttpRequest(HttpMethod.POST, SESSION + "/element");
+        find.setHeader("Content-Type", "application/json; charset=utf-8");
+        find.setContent(Contents.utf8String("{\"using\":\"id\",\"value\":\"decor_content_parent\"}"));
+        client.execute(find);
+        client.execute(new HttpRequest(HttpMethod.GET, SESSION + "/appium/device/info"));
+    }
+
+    private void commandMixWithFreshConnections() throws IOException {
+        freshRequest("GET", SESSION + "/window/rect", null);
+        freshRequest("POST", SESSION + "/element", "{\"using\":\"id\",\"value\":\"decor_content_parent\"}");
+        freshRequest("GET", SESSION + "/appium/device/info", null);
+    }
+
+    private void freshRequest(String method, String path, String body) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) baseUri.resolve(path).toURL().openConnection();
+        c.setRequestMethod(method);
+        c.setRequestProperty("Connection", "close");
+        if (body != null) {
+            c.setDoOutput(true);
+            c.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            try (OutputStream out = c.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        try (InputStream in = c.getInputStream()) {
+            in.readAllBytes();
+        }
+        c.disconnect();
+    }
+}
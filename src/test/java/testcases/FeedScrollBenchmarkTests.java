@@ -0,0 +1,80 @@
+package testcases;
+
+import com.aventstack.extentreports.Status;
+import commonLibs.implementation.ElementActions;
+import commonLibs.implementation.TouchGestures;
+import commonLibs.utils.AdbUtils;
+import commonLibs.utils.BenchmarkHistory;
+import commonLibs.utils.ConfigReader;
+import commonLibs.utils.DriverFactory;
+import commonLibs.utils.FrameStatsParser;
+import commonLibs.utils.SampleStats;
+import commonLibs.utils.ScrollBenchmark;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Feed scroll jank benchmarks (run with: mvn test -Pbenchmark)
+ * Summaries are appended per app version to benchmarks/scroll-history.csv; per-frame timings are
+ * written next to the Extent report.
+ */
+public class FeedScrollBenchmarkTests extends BaseTest {
+
+    @Test(priority = 1, description = "Benchmark Startseite feed scrolling")
+    public void benchmarkStartseiteFeedScroll() throws Exception {
+        runAndRecord("Startseite");
+    }
+
+    @Test(priority = 2, description = "Benchmark Sport tab scrolling")
+    public void benchmarkSportFeedScroll() throws Exception {
+        runAndRecord("Sport");
+    }
+
+    private void runAndRecord(String footerTab) throws Exception {
+        String serial = DriverFactory.getDeviceSerial();
+        String appPackage = ConfigReader.get("app.package", "com.netbiscuits.bild.android");
+        int flings = Integer.parseInt(ConfigReader.get("benchmark.scroll.flings", "10"));
+        double budgetMs = Double.parseDouble(ConfigReader.get("benchmark.scroll.frame.budget.ms", "16.67"));
+        double threshold = Double.parseDouble(ConfigReader.get("benchmark.regression.percent", "10"));
+
+        ElementActions androidActions = new ElementActions(driver);
+        androidActions.clickByText(footerTab);
+
+        FrameStatsParser.FrameStats frames = new ScrollBenchmark(new TouchGestures(driver), serial, appPackage).run(flings);
+        Assert.assertTrue(frames.frameCount() > 0, "No frames captured while scrolling " + footerTab);
+
+        SampleStats frameTimes = SampleStats.raw(frames.durationsMs());
+        double jankPercent = frames.jankPercent(budgetMs);
+        String summary = String.format(Locale.ROOT, "%s: %d frames, jank %.1f%% (>%.2f ms), p50 %.1f ms, p90 %.1f ms, p99 %.1f ms",
+                footerTab, frames.frameCount(), jankPercent, budgetMs,
+                frameTimes.median(), frameTimes.percentile(90), frameTimes.percentile(99));
+        reportUtils.addLogs(Status.INFO, summary);
+
+        String version = AdbUtils.packageVersion(serial, appPackage);
+        BenchmarkHistory history = new BenchmarkHistory("scroll");
+        String regression = history.checkRegression(version, footerTab, "FrameTime", frameTimes.median(), threshold);
+        history.append(version, serial, footerTab, "FrameTime", frameTimes);
+        history.append(version, serial, footerTab, "JankPercent", SampleStats.raw(new double[]{jankPercent}));
+        if (regression != null) {
+            reportUtils.addLogs(Status.WARNING, regression);
+        }
+
+        writeFrameTimes(footerTab, frames.durationsMs());
+    }
+
+    private void writeFrameTimes(String scenario, double[] frameMs) throws Exception {
+        File dir = new File(reportFilename).getParentFile();
+        File csv = new File(dir, "frames-" + scenario + "-" + commonLibs.utils.DateUtils.getCurrentDateAndTime() + ".csv");
+        StringBuilder sb = new StringBuilder("frame,durationMs\n");
+        for (int i = 0; i < frameMs.length; i++) {
+            sb.append(i).append(',').append(String.format(Locale.ROOT, "%.3f", frameMs[i])).append('\n');
+        }
+        Files.writeString(csv.toPath(), sb, StandardCharsets.UTF_8);
+        reportUtils.addHtmlLogs(Status.INFO, "Frame timings: <a href='" + csv.getAbsolutePath() + "'>" + csv.getName() + "</a>");
+    }
+}
@@ -1,9 +1,11 @@
 package testcases;
 
 import commonLibs.implementation.ElementActions;
+import commonLibs.utils.AccountPool;
 import commonLibs.utils.ConfigReader;
 import commonLibs.utils.TestDataGenerator;
 import io.appium.java_client.android.AndroidDriver;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import pageobject.AccountScreen;
 import pageobject.LoginScreen;
@@ -18,17 +20,16 @@ public class LoginTests extends BaseTest{
         LoginScreen login = new LoginScreen(driver, androidActions);
         AccountScreen accountScreen = new AccountScreen(driver,androidActions);
 
-        String testEmail = ConfigReader.get("registered.email", "");
-        String testPassword = ConfigReader.get("registered.valid.password", "");
+        // leased for this test thread; released by BaseTest after the test
+        AccountPool.Account account = AccountPool.shared().leaseForCurrentThread();
+        String testEmail = account.email();
+        String testPassword = account.password();
 
 
-        login.clickMoreMehrButton();
-        login.clickMyaccountMeinKonto();
-        login.clickLoginButton();
-        login.enterRegisteredUserEmail(testEmail);
-        login.enterPassword(testPassword);
-        login.submitLoginJETZTANMELDEN();
-        accountScreen.verifyUserLoggedIn(testEmail);
+        // driver script calls around the credential entry when flow.compiler.enabled, otherwise step by step
+        login.loginFlow(testEmail, testPassword)
+                .assertText("verify logged in", testEmail, () -> accountScreen.verifyUserLoggedIn(testEmail))
+                .run(driver);
     }
     @Test (priority =2,description = "To create a new user account")
     public void createANewUserAccount() throws Exception{
@@ -47,6 +48,8 @@ public class LoginTests extends BaseTest{
         login.clickCheckboxAccountCreation();
         login.clickCreateAccountKONTOANLEGEN();
         accountScreen.verifyUserLoggedIn(randomEmail);
+        // the new account is registered now; make it available to login tests
+        AccountPool.shared().add(new AccountPool.Account(randomEmail, testPassword));
 
     }
 
@@ -62,6 +65,9 @@ public class LoginTests extends BaseTest{
 
         login.clickLogoutABMELDEN();
         login.clickLoginButton();
+        Assert.assertTrue(login.isLoginFormShown(), "Login form not shown");
+        // static screen; the status bar clock is the only moving part
+        assertScreenMatchesBaseline("login-form", statusBarMask());
         login.enterRegisteredUserEmail(randomEmail);
         login.enterPassword(testPassword);
         login.submitLoginJETZTANMELDEN();
@@ -0,0 +1,109 @@
+package testcases;
+
+import com.aventstack.extentreports.Status;
+import commonLibs.implementation.ElementActions;
+import commonLibs.implementation.TouchGestures;
+import commonLibs.utils.ConfigReader;
+import commonLibs.utils.DriverFactory;
+import commonLibs.utils.SoakMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import pageobject.BildHomePage;
+import pageobject.HomeScreen;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Soak run (run with: mvn test -Psoak)
+ * Loops the footer tabs with feed scrolling for hours and stops early with a diagnostic bundle when
+ * SoakMonitor finds a significant upward trend in app memory, threads or step latency, or the app restarts.
+ * Per-iteration data goes to soak/<date-time>/iterations.csv; the report only gets progress every
+ * soak.report.every iterations, so the run's memory does not grow with its length.
+ *
+ * Config (config.properties): soak.duration.minutes, soak.max.iterations, soak.cycle, soak.scroll.tabs,
+ * soak.scroll.flings, soak.check.every, soak.report.every (and the SoakMonitor keys)
+ */
+public class SoakTests extends BaseTest {
+
+    @Test(description = "Soak: footer navigation and feed scrolling with leak and degradation detection")
+    public void soakFooterNavigation() throws Exception {
+        long deadline = System.currentTimeMillis()
+                + Long.parseLong(ConfigReader.get("soak.duration.minutes", "120")) * 60_000;
+        int maxIterations = Integer.parseInt(ConfigReader.get("soak.max.iterations", "0"));
+        int checkEvery = Math.max(1, Integer.parseInt(ConfigReader.get("soak.check.every", "5")));
+        int reportEvery = Math.max(1, Integer.parseInt(ConfigReader.get("soak.report.every", "25")));
+        int flings = Integer.parseInt(ConfigReader.get("soak.scroll.flings", "3"));
+        List<String> tabs = list(ConfigReader.get("soak.cycle", ""), BildHomePage.FOOTER_TABS);
+        List<String> scrollTabs = list(ConfigReader.get("soak.scroll.tabs", "Startseite,Sport"), List.of());
+
+        ElementActions androidActions = new ElementActions(driver);
+        BildHomePage bildHomePage = new BildHomePage(driver, androidActions);
+        new HomeScreen(driver, androidActions, new TouchGestures(driver)).completeOnboarding();
+
+        List<String> steps = new ArrayList<>();
+        for (String tab : tabs) {
+            steps.add(tab);
+            if (scrollTabs.contains(tab)) steps.add("scroll " + tab);
+        }
+        Path runDir = SoakMonitor.newRunDir();
+        SoakMonitor monitor = new SoakMonitor(runDir, DriverFactory.getDeviceSerial(),
+                ConfigReader.get("app.package", "com.netbiscuits.bild.android"), steps);
+        reportUtils.addHtmlLogs(Status.INFO, "Soak cycle " + steps + ", iterations: <a href='"
+                + runDir.resolve("iterations.csv") + "'>iterations.csv</a>");
+
+        SoakMonitor.Finding finding = null;
+        try {
+            while (System.currentTimeMillis() < deadline && (maxIterations <= 0 || monitor.iterations() < maxIterations)) {
+                Map<String, Long> stepMs = new LinkedHashMap<>();
+                String current = null;
+                try {
+                    for (String tab : tabs) {
+                        current = tab;
+                        long start = System.currentTimeMillis();
+                        bildHomePage.openFooterTab(tab);
+                        stepMs.put(tab, System.currentTimeMillis() - start);
+                        if (scrollTabs.contains(tab)) {
+                            current = "scroll " + tab;
+                            start = System.currentTimeMillis();
+                            bildHomePage.scrollFeed(flings);
+                            stepMs.put(current, System.currentTimeMillis() - start);
+                        }
+                    }
+                } catch (RuntimeException | AssertionError e) {
+                    finding = new SoakMonitor.Finding(current, monitor.iterations() + 1, "Step '" + current + "' failed: " + e);
+                    break;
+                }
+                monitor.record(stepMs);
+                if (monitor.iterations() % checkEvery == 0) finding = monitor.check();
+                if (finding != null) break;
+                if (monitor.iterations() % reportEvery == 0) {
+                    reportUtils.addLogs(Status.INFO, "Soak iteration " + monitor.iterations() + ": " + stepMs);
+                }
+            }
+            if (finding == null) finding = monitor.check();
+
+            String summary = monitor.summary().replace("\n", "<br/>");
+            if (finding == null) {
+                reportUtils.addHtmlLogs(Status.PASS, "Soak finished after " + monitor.iterations()
+                        + " iterations without significant trends<br/>" + summary);
+                return;
+            }
+            Path bundle = monitor.writeDiagnostics(finding, driver, logcatCollector);
+            reportUtils.addHtmlLogs(Status.FAIL, finding.describe() + "<br/>Diagnostics: <a href='" + bundle + "'>"
+                    + bundle.getFileName() + "</a><br/>" + summary);
+            Assert.fail("Soak stopped: " + finding.describe() + "; diagnostics in " + bundle);
+        } finally {
+            monitor.close();
+        }
+    }
+
+    private static List<String> list(String csv, List<String> fallback) {
+        if (csv == null || csv.isBlank()) return fallback;
+        return Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,10 @@
+package pages;
+
+public class Feed {
+
+    private int pageSize;
+
+    public int size() {
+        return pageSize;
+    }
+}
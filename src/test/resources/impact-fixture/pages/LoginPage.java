@@ -0,0 +1,14 @@
+package pages;
+
+public class LoginPage {
+
+    public static final String TITLE = "Anmelden";
+
+    public void login(String user) {
+        System.out.println("login " + user);
+    }
+
+    public void logout() {
+        System.out.println("logout");
+    }
+}
@@ -0,0 +1,12 @@
+package tests;
+
+import org.testng.annotations.Test;
+import pages.Feed;
+
+public class FeedTests {
+
+    @Test
+    public void loadsFeed() {
+        System.out.println(new Feed().size());
+    }
+}
@@ -0,0 +1,17 @@
+package tests;
+
+import org.testng.annotations.Test;
+import pages.LoginPage;
+
+public class LoginTests {
+
+    @Test
+    public void logsIn() {
+        new LoginPage().login("reader");
+    }
+
+    @Test
+    public void logsOut() {
+        new LoginPage().logout();
+    }
+}
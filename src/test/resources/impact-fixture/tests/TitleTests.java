@@ -0,0 +1,13 @@
+package tests;
+
+import org.testng.annotations.Test;
+import pages.LoginPage;
+
+public class TitleTests {
+
+    @Test
+    public void showsTitle() {
+        // compiled to a string literal: nothing in this class's bytecode refers to LoginPage
+        System.out.println(LoginPage.TITLE);
+    }
+}